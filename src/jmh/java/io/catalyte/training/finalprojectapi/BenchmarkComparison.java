@@ -0,0 +1,114 @@
+package io.catalyte.training.finalprojectapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Compares two JMH JSON result files benchmark by benchmark: the score and the bytes allocated
+ * per operation before and after, and the change in score. A change smaller than the two error
+ * margins together is marked as noise.
+ *
+ * <p>Run with mvn -P jmh test-compile exec:exec@jmh-compare, which compares
+ * target/jmh-baseline.json with target/jmh-result.json unless jmh.baseline and jmh.result say
+ * otherwise.
+ */
+public class BenchmarkComparison {
+
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  private BenchmarkComparison() {
+  }
+
+  /**
+   * @param args - the baseline result file, then the result file to compare with it
+   * @throws IOException if a file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: BenchmarkComparison <baseline.json> <result.json>");
+      System.exit(2);
+    }
+    Map<String, JsonNode> baseline = read(new File(args[0]));
+    Map<String, JsonNode> result = read(new File(args[1]));
+
+    System.out.println(String.format("%-72s %14s %14s %9s %12s %12s", "Benchmark", "Before",
+        "After", "Change", "B/op before", "B/op after"));
+    for (Entry<String, JsonNode> entry : result.entrySet()) {
+      JsonNode after = entry.getValue();
+      JsonNode before = baseline.get(entry.getKey());
+      if (before == null) {
+        System.out.println(String.format("%-72s %14s %14s %9s %12s %12s", entry.getKey(), "-",
+            score(after), "new", "-", allocation(after)));
+        continue;
+      }
+
+      double beforeScore = before.path("primaryMetric").path("score").asDouble();
+      double afterScore = after.path("primaryMetric").path("score").asDouble();
+      double margin = error(before) + error(after);
+      String change = Math.abs(afterScore - beforeScore) <= margin ? "~"
+          : String.format("%+.1f%%", (afterScore - beforeScore) / beforeScore * 100);
+
+      System.out.println(String.format("%-72s %14s %14s %9s %12s %12s", entry.getKey(),
+          score(before), score(after), change, allocation(before), allocation(after)));
+    }
+    for (String removed : baseline.keySet()) {
+      if (!result.containsKey(removed)) {
+        System.out.println(String.format("%-72s %14s %14s %9s", removed,
+            score(baseline.get(removed)), "-", "removed"));
+      }
+    }
+  }
+
+  /**
+   * @param file - a JMH JSON result file
+   * @return the runs in the file by benchmark name and parameters
+   */
+  private static Map<String, JsonNode> read(File file) throws IOException {
+    Map<String, JsonNode> runs = new LinkedHashMap<>();
+    for (JsonNode run : new ObjectMapper().readTree(file)) {
+      StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+          .replace("io.catalyte.training.finalprojectapi.", ""));
+      Iterator<Entry<String, JsonNode>> params = run.path("params").fields();
+      while (params.hasNext()) {
+        Entry<String, JsonNode> param = params.next();
+        key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+      }
+      runs.put(key.toString(), run);
+    }
+    return runs;
+  }
+
+  private static double error(JsonNode run) {
+    double error = run.path("primaryMetric").path("scoreError").asDouble();
+    // NaN when a run has too few iterations to tell
+    return Double.isNaN(error) ? 0 : error;
+  }
+
+  private static String score(JsonNode run) {
+    JsonNode metric = run.path("primaryMetric");
+    return String.format("%.3f %s", metric.path("score").asDouble(),
+        metric.path("scoreUnit").asText());
+  }
+
+  /**
+   * @param run - a benchmark run
+   * @return the bytes allocated per operation, if it was run with the gc profiler
+   */
+  private static String allocation(JsonNode run) {
+    Iterator<Entry<String, JsonNode>> metrics = run.path("secondaryMetrics").fields();
+    while (metrics.hasNext()) {
+      Entry<String, JsonNode> metric = metrics.next();
+      // older JMH versions prefix the profiler metrics with a dot
+      if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+        return String.format("%.0f", metric.getValue().path("score").asDouble());
+      }
+    }
+    return "-";
+  }
+}
@@ -0,0 +1,84 @@
+package io.catalyte.training.finalprojectapi;
+
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Valid patients and encounters shared by the benchmarks, shaped like the data loader's
+ */
+public class BenchmarkFixtures {
+
+  private BenchmarkFixtures() {
+  }
+
+  /**
+   * @param id - the id of the patient
+   * @return a patient which passes every check of a create
+   */
+  public static Patient patient(long id) {
+    Patient patient = new Patient();
+    patient.setId(id);
+    patient.setFirstName("Bart");
+    patient.setLastName("Simpson");
+    patient.setSsn("111-11-1111");
+    patient.setEmail("bart" + id + "@mail.com");
+    patient.setAge(10);
+    patient.setHeight(62);
+    patient.setWeight(130);
+    patient.setInsurance("Burns Insurance");
+    patient.setGender("Male");
+    patient.setStreet("742 Evergreen Terrace");
+    patient.setCity("Springfield");
+    patient.setState("MA");
+    patient.setPostal("90049");
+    return patient;
+  }
+
+  /**
+   * @param count - the number of patients
+   * @return patients with ids 1 to count
+   */
+  public static List<Patient> patients(int count) {
+    return LongStream.rangeClosed(1, count).mapToObj(BenchmarkFixtures::patient)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @param id        - the id of the encounter
+   * @param patientId - the patient it belongs to
+   * @return an encounter which passes every check of a create
+   */
+  public static Encounter encounter(long id, long patientId) {
+    Encounter encounter = new Encounter();
+    encounter.setId(id);
+    encounter.setPatientId(patientId);
+    encounter.setNotes("Annual checkup");
+    encounter.setVisitCode("N3W 3C3");
+    encounter.setProvider("Springfield General");
+    encounter.setBillingCode("123.456.789-00");
+    encounter.setIcd10("Z99");
+    encounter.setTotalCost(new BigDecimal("145.00"));
+    encounter.setCopay(new BigDecimal("45.00"));
+    encounter.setChiefComplaint("stomach ache");
+    encounter.setPulse(72);
+    encounter.setSystolic(120);
+    encounter.setDiastolic(80);
+    encounter.setDate(Date.valueOf("2020-08-24"));
+    return encounter;
+  }
+
+  /**
+   * @param count     - the number of encounters
+   * @param patientId - the patient they belong to
+   * @return encounters with ids 1 to count
+   */
+  public static List<Encounter> encounters(int count, long patientId) {
+    return LongStream.rangeClosed(1, count).mapToObj(id -> encounter(id, patientId))
+        .collect(Collectors.toList());
+  }
+}
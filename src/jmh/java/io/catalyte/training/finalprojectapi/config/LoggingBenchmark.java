@@ -0,0 +1,115 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import io.catalyte.training.finalprojectapi.domains.patients.PatientController;
+import io.catalyte.training.finalprojectapi.exceptions.ExceptionController;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Measures the logging a request thread does per request, before and after the move to
+ * asynchronous loggers. Each variant runs in forks of its own, as the logging set up cannot change
+ * once Log4j2 has started:
+ *
+ * <ul>
+ *   <li>*Before: synchronous loggers writing the old pattern layout, which looks up the calling
+ *   class and method, to a rolling file (log4j2-before.xml). The request logs the old concatenated
+ *   "request received" line at info and a client error at error.
+ *   <li>*After: the application's asynchronous loggers writing JSON (log4j2-after.xml). The
+ *   request goes through RequestLoggingFilter, whose access line is the only one left at info, and
+ *   a client error is logged at warn, rate limited.
+ * </ul>
+ *
+ * <p>Both leave out the console. The ring buffer blocks when full rather than discarding, so the
+ * after numbers are sustainable rates and not the cost of dropping events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+  private static final String SYNCHRONOUS = "-DLog4jContextSelector="
+      + "org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+
+  private static final String BEFORE = "-Dlog4j.configurationFile=log4j2-before.xml";
+
+  private static final String AFTER = "-Dlog4j.configurationFile=log4j2-after.xml";
+
+  // the defaults in a web application, which log4j2.component.properties now overrides
+  private static final String WEBAPP = "-Dlog4j2.isWebapp=true";
+
+  private static final String COPYING_CONTEXT = "-Dlog4j2.garbagefreeThreadContextMap=false";
+
+  private static final String BLOCK_WHEN_FULL = "-Dlog4j2.asyncQueueFullPolicy=Default";
+
+  private static final String NOT_FOUND = "Could not locate a patient with the id: 1";
+
+  private Logger controllerLogger;
+
+  private org.slf4j.Logger exceptionLogger;
+
+  private RequestLoggingFilter requestLoggingFilter;
+
+  private MockHttpServletRequest request;
+
+  private MockHttpServletResponse response;
+
+  private FilterChain getPatientById;
+
+  // a field rather than a constant so the message is not folded away
+  private Long id = 1L;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    controllerLogger = LogManager.getLogger(PatientController.class);
+    exceptionLogger = org.slf4j.LoggerFactory.getLogger(ExceptionController.class);
+    requestLoggingFilter = new RequestLoggingFilter();
+    request = new MockHttpServletRequest("GET", "/patients/1");
+    response = new MockHttpServletResponse();
+    getPatientById = (request, response) -> controllerLogger
+        .debug("Get by id {} request received", id);
+  }
+
+  @Benchmark
+  @Fork(value = 2, jvmArgsAppend = {SYNCHRONOUS, BEFORE, WEBAPP, COPYING_CONTEXT})
+  public void requestBefore() {
+    controllerLogger.info(new Date() + " Get by id " + id + " request received");
+  }
+
+  @Benchmark
+  @Fork(value = 2, jvmArgsAppend = {AFTER, BLOCK_WHEN_FULL})
+  public void requestAfter() throws IOException, ServletException {
+    requestLoggingFilter.doFilter(request, response, getPatientById);
+  }
+
+  @Benchmark
+  @Fork(value = 2, jvmArgsAppend = {SYNCHRONOUS, BEFORE, WEBAPP, COPYING_CONTEXT})
+  public void clientErrorBefore() {
+    exceptionLogger.error(NOT_FOUND);
+  }
+
+  @Benchmark
+  @Fork(value = 2, jvmArgsAppend = {AFTER, BLOCK_WHEN_FULL})
+  public void clientErrorAfter() {
+    exceptionLogger.warn(NOT_FOUND);
+  }
+}
@@ -0,0 +1,57 @@
+package io.catalyte.training.finalprojectapi.constants;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the state and gender checks run on every patient create and update. The lists are
+ * scanned in order, so the first entry is the best case and a value not in the list the worst.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ValidValuesBenchmark {
+
+  // fields rather than constants so the lookups are not folded away
+  String firstState = "AK";
+  String lastState = "WY";
+  String invalidState = "XX";
+  String firstGender = "Male";
+  String invalidGender = "Unknown";
+
+  @Benchmark
+  public boolean validStateFirst() {
+    return ValidStates.validStatesList.contains(firstState);
+  }
+
+  @Benchmark
+  public boolean validStateLast() {
+    return ValidStates.validStatesList.contains(lastState);
+  }
+
+  @Benchmark
+  public boolean invalidState() {
+    return ValidStates.validStatesList.contains(invalidState);
+  }
+
+  @Benchmark
+  public boolean validGender() {
+    return ValidGenders.validGendersList.contains(firstGender);
+  }
+
+  @Benchmark
+  public boolean invalidGender() {
+    return ValidGenders.validGendersList.contains(invalidGender);
+  }
+}
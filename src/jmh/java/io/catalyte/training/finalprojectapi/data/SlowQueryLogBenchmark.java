@@ -0,0 +1,118 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what the data source proxy and the slow query log add to running a statement: the
+ * same select of a patient by id and email through the plain data source and through the proxy.
+ * The JDBC objects are stubs which do nothing, so the numbers leave out the driver and the database
+ * and the difference is the overhead. They are plain dynamic proxies rather than Mockito mocks,
+ * whose own cost would hide it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SlowQueryLogBenchmark {
+
+  // as Hibernate writes it for PatientRepository.findById
+  private static final String SQL = "select patient0_.id as id1_1_0_, patient0_.age as age2_1_0_, "
+      + "patient0_.email as email3_1_0_, patient0_.first_name as first_na4_1_0_ from patient "
+      + "patient0_ where patient0_.id=? and patient0_.email=?";
+
+  private DataSource dataSource;
+
+  private DataSource proxyDataSource;
+
+  private DataSource proxyDataSourceWithoutListener;
+
+  private Long id = 1L;
+
+  private String email = "patient1@example.com";
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ResultSet resultSet = stub(ResultSet.class, null);
+    PreparedStatement statement = stub(PreparedStatement.class, resultSet);
+    Connection connection = stub(Connection.class, statement);
+    dataSource = stub(DataSource.class, connection);
+
+    proxyDataSource = ProxyDataSourceBuilder.create("dataSource", dataSource)
+        .listener(new SlowQueryLog(Duration.ofMillis(200), 20))
+        .build();
+    proxyDataSourceWithoutListener = ProxyDataSourceBuilder.create("dataSource", dataSource)
+        .build();
+  }
+
+  /**
+   * @param type   - a JDBC interface
+   * @param result - what its methods returning an object return
+   * @return an implementation which returns the result, false or 0
+   */
+  private static <T> T stub(Class<T> type, Object result) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+        (proxy, method, args) -> {
+          Class<?> returnType = method.getReturnType();
+          if (returnType == boolean.class) {
+            return false;
+          } else if (returnType == int.class) {
+            return 0;
+          } else if (returnType == long.class) {
+            return 0L;
+          } else if (returnType.isPrimitive()) {
+            return null;
+          }
+          return returnType.isInstance(result) ? result : null;
+        }));
+  }
+
+  @Benchmark
+  public boolean plain() throws SQLException {
+    return select(dataSource);
+  }
+
+  @Benchmark
+  public boolean proxied() throws SQLException {
+    return select(proxyDataSource);
+  }
+
+  /**
+   * the share of the proxy itself
+   */
+  @Benchmark
+  public boolean proxiedWithoutListener() throws SQLException {
+    return select(proxyDataSourceWithoutListener);
+  }
+
+  private boolean select(DataSource dataSource) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(SQL)) {
+      statement.setLong(1, id);
+      statement.setString(2, email);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next();
+      }
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package io.catalyte.training.finalprojectapi.domains;
+
+import io.catalyte.training.finalprojectapi.BenchmarkFixtures;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the bean validation @Valid runs on patient and encounter request bodies, for bodies
+ * which pass and for bodies which break several constraints
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EntityValidationBenchmark {
+
+  private ValidatorFactory validatorFactory;
+
+  private Validator validator;
+
+  private Patient validPatient;
+
+  private Patient invalidPatient;
+
+  private Encounter validEncounter;
+
+  private Encounter invalidEncounter;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+    validator = validatorFactory.getValidator();
+
+    validPatient = BenchmarkFixtures.patient(1L);
+    invalidPatient = BenchmarkFixtures.patient(2L);
+    invalidPatient.setSsn("111111111");
+    invalidPatient.setEmail("bart");
+    invalidPatient.setAge(-1);
+    invalidPatient.setPostal("9004");
+
+    validEncounter = BenchmarkFixtures.encounter(1L, 1L);
+    invalidEncounter = BenchmarkFixtures.encounter(2L, 1L);
+    invalidEncounter.setVisitCode("N3W3C3");
+    invalidEncounter.setIcd10("Z9");
+    invalidEncounter.setTotalCost(new BigDecimal("-1.001"));
+    invalidEncounter.setPulse(0);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    validatorFactory.close();
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<Patient>> validPatient() {
+    return validator.validate(validPatient);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<Patient>> invalidPatient() {
+    return validator.validate(invalidPatient);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<Encounter>> validEncounter() {
+    return validator.validate(validEncounter);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<Encounter>> invalidEncounter() {
+    return validator.validate(invalidEncounter);
+  }
+}
@@ -0,0 +1,186 @@
+package io.catalyte.training.finalprojectapi.domains;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.catalyte.training.finalprojectapi.BenchmarkFixtures;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compares writing and reading patients and encounters as JSON with the binary representations
+ * of ContentNegotiationConfig, with the mappers configured as the controllers' are. The size of
+ * each body is printed at set up, as JMH only reports times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+  private static final int LIST_SIZE = 1000;
+
+  @Param({"json", "cbor", "smile", "protobuf"})
+  public String format;
+
+  private Format codec;
+
+  private JavaType encounterType;
+
+  private JavaType encounterListType;
+
+  private JavaType patientListType;
+
+  private Encounter encounter;
+
+  private List<Encounter> encounters;
+
+  private List<Patient> patients;
+
+  private byte[] encounterBody;
+
+  private byte[] encounterListBody;
+
+  private byte[] patientListBody;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    codec = "protobuf".equals(format) ? new ProtobufFormat() : new JacksonFormat(format);
+    encounterType = codec.constructType(new TypeReference<Encounter>() {
+    });
+    encounterListType = codec.constructType(new TypeReference<List<Encounter>>() {
+    });
+    patientListType = codec.constructType(new TypeReference<List<Patient>>() {
+    });
+
+    encounter = BenchmarkFixtures.encounter(1L, 1L);
+    encounters = BenchmarkFixtures.encounters(LIST_SIZE, 1L);
+    patients = BenchmarkFixtures.patients(LIST_SIZE);
+
+    encounterBody = codec.write(encounter, encounterType);
+    encounterListBody = codec.write(encounters, encounterListType);
+    patientListBody = codec.write(patients, patientListType);
+    System.out.printf("%n%s: encounter %d B, %d encounters %d B, %d patients %d B%n", format,
+        encounterBody.length, LIST_SIZE, encounterListBody.length, LIST_SIZE,
+        patientListBody.length);
+  }
+
+  @Benchmark
+  public byte[] writeEncounter() throws IOException {
+    return codec.write(encounter, encounterType);
+  }
+
+  @Benchmark
+  public Object readEncounter() throws IOException {
+    return codec.read(encounterBody, encounterType);
+  }
+
+  @Benchmark
+  public byte[] writeEncounterList() throws IOException {
+    return codec.write(encounters, encounterListType);
+  }
+
+  @Benchmark
+  public Object readEncounterList() throws IOException {
+    return codec.read(encounterListBody, encounterListType);
+  }
+
+  @Benchmark
+  public byte[] writePatientList() throws IOException {
+    return codec.write(patients, patientListType);
+  }
+
+  @Benchmark
+  public Object readPatientList() throws IOException {
+    return codec.read(patientListBody, patientListType);
+  }
+
+  /**
+   * @return a builder configured as Spring Boot configures the controllers' mappers
+   */
+  private static Jackson2ObjectMapperBuilder builder() {
+    return Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule());
+  }
+
+  private interface Format {
+
+    JavaType constructType(TypeReference<?> type);
+
+    byte[] write(Object value, JavaType type) throws IOException;
+
+    Object read(byte[] body, JavaType type) throws IOException;
+  }
+
+  private static class JacksonFormat implements Format {
+
+    private final ObjectMapper objectMapper;
+
+    JacksonFormat(String format) {
+      JsonFactory factory = "cbor".equals(format) ? new CBORFactory()
+          : "smile".equals(format) ? new SmileFactory() : new JsonFactory();
+      objectMapper = builder().factory(factory).build();
+    }
+
+    @Override
+    public JavaType constructType(TypeReference<?> type) {
+      return objectMapper.constructType(type);
+    }
+
+    @Override
+    public byte[] write(Object value, JavaType type) throws IOException {
+      return objectMapper.writerFor(type).writeValueAsBytes(value);
+    }
+
+    @Override
+    public Object read(byte[] body, JavaType type) throws IOException {
+      return objectMapper.readerFor(type).readValue(body);
+    }
+  }
+
+  private static class ProtobufFormat implements Format {
+
+    private final ProtobufCodec protobufCodec = new ProtobufCodec(builder());
+
+    @Override
+    public JavaType constructType(TypeReference<?> type) {
+      return protobufCodec.constructType(type.getType());
+    }
+
+    @Override
+    public byte[] write(Object value, JavaType type) throws IOException {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      protobufCodec.write(value, type, body);
+      return body.toByteArray();
+    }
+
+    @Override
+    public Object read(byte[] body, JavaType type) throws IOException {
+      return protobufCodec.read(type, new ByteArrayInputStream(body));
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package io.catalyte.training.finalprojectapi.domains;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.catalyte.training.finalprojectapi.BenchmarkFixtures;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Measures Jackson reading and writing patients and encounters, one at a time as on the single
+ * entity endpoints and a default page at a time as on the listings. The mapper is configured the
+ * way Spring Boot configures the one the controllers use, with or without the Blackbird module of
+ * JsonConfig.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+  private static final TypeReference<List<Patient>> PATIENT_LIST =
+      new TypeReference<List<Patient>>() {
+      };
+
+  private static final TypeReference<List<Encounter>> ENCOUNTER_LIST =
+      new TypeReference<List<Encounter>>() {
+      };
+
+  /**
+   * reflection is Jackson's default, blackbird the generated accessors of JsonConfig
+   */
+  @Param({"reflection", "blackbird"})
+  public String accessors;
+
+  private ObjectMapper objectMapper;
+
+  private Patient patient;
+
+  private List<Patient> patients;
+
+  private Encounter encounter;
+
+  private List<Encounter> encounters;
+
+  private byte[] patientJson;
+
+  private byte[] patientListJson;
+
+  private byte[] encounterJson;
+
+  private byte[] encounterListJson;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    objectMapper = objectMapper(accessors);
+
+    patient = BenchmarkFixtures.patient(1L);
+    patients = BenchmarkFixtures.patients(KeysetPage.DEFAULT_LIMIT);
+    encounter = BenchmarkFixtures.encounter(1L, 1L);
+    encounters = BenchmarkFixtures.encounters(KeysetPage.DEFAULT_LIMIT, 1L);
+
+    patientJson = objectMapper.writeValueAsBytes(patient);
+    patientListJson = objectMapper.writeValueAsBytes(patients);
+    encounterJson = objectMapper.writeValueAsBytes(encounter);
+    encounterListJson = objectMapper.writeValueAsBytes(encounters);
+  }
+
+  /**
+   * @param accessors - reflection or blackbird
+   * @return a mapper configured as Spring Boot configures the controllers' mapper
+   */
+  static ObjectMapper objectMapper(String accessors) {
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+    if ("blackbird".equals(accessors)) {
+      builder.modulesToInstall(new BlackbirdModule());
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public byte[] writePatient() throws IOException {
+    return objectMapper.writeValueAsBytes(patient);
+  }
+
+  @Benchmark
+  public Patient readPatient() throws IOException {
+    return objectMapper.readValue(patientJson, Patient.class);
+  }
+
+  @Benchmark
+  public byte[] writePatientList() throws IOException {
+    return objectMapper.writeValueAsBytes(patients);
+  }
+
+  @Benchmark
+  public List<Patient> readPatientList() throws IOException {
+    return objectMapper.readValue(patientListJson, PATIENT_LIST);
+  }
+
+  @Benchmark
+  public byte[] writeEncounter() throws IOException {
+    return objectMapper.writeValueAsBytes(encounter);
+  }
+
+  @Benchmark
+  public Encounter readEncounter() throws IOException {
+    return objectMapper.readValue(encounterJson, Encounter.class);
+  }
+
+  @Benchmark
+  public byte[] writeEncounterList() throws IOException {
+    return objectMapper.writeValueAsBytes(encounters);
+  }
+
+  @Benchmark
+  public List<Encounter> readEncounterList() throws IOException {
+    return objectMapper.readValue(encounterListJson, ENCOUNTER_LIST);
+  }
+}
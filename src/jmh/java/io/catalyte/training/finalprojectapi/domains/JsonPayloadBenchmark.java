@@ -0,0 +1,108 @@
+package io.catalyte.training.finalprojectapi.domains;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.catalyte.training.finalprojectapi.BenchmarkFixtures;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Jackson writing and reading all the encounters of a patient with many of them, as
+ * unpaged=true returns them, and the cost of gzipping the response on top of writing it. The
+ * response is written to a stream which only counts its bytes, as it would be to the socket.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JsonPayloadBenchmark {
+
+  private static final TypeReference<List<Encounter>> ENCOUNTER_LIST =
+      new TypeReference<List<Encounter>>() {
+      };
+
+  @Param({"1000", "10000"})
+  public int size;
+
+  /**
+   * reflection is Jackson's default, blackbird the generated accessors of JsonConfig
+   */
+  @Param({"reflection", "blackbird"})
+  public String accessors;
+
+  private ObjectWriter writer;
+
+  private ObjectReader reader;
+
+  private List<Encounter> encounters;
+
+  private byte[] encounterListJson;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    ObjectMapper objectMapper = JsonBenchmark.objectMapper(accessors);
+    writer = objectMapper.writerFor(ENCOUNTER_LIST);
+    reader = objectMapper.readerFor(ENCOUNTER_LIST);
+
+    encounters = BenchmarkFixtures.encounters(size, 1L);
+    encounterListJson = writer.writeValueAsBytes(encounters);
+  }
+
+  @Benchmark
+  public long writeEncounterList() throws IOException {
+    ByteCounter response = new ByteCounter();
+    writer.writeValue(response, encounters);
+    return response.count;
+  }
+
+  @Benchmark
+  public long writeEncounterListGzip() throws IOException {
+    ByteCounter response = new ByteCounter();
+    // closed by the writer, which finishes the gzip stream
+    writer.writeValue(new GZIPOutputStream(response, 8192), encounters);
+    return response.count;
+  }
+
+  @Benchmark
+  public List<Encounter> readEncounterList() throws IOException {
+    return reader.readValue(encounterListJson);
+  }
+
+  /**
+   * Counts the bytes written and drops them
+   */
+  private static class ByteCounter extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
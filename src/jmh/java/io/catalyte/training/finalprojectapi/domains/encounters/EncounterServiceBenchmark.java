@@ -0,0 +1,108 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.catalyte.training.finalprojectapi.BenchmarkFixtures;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientIdIndex;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Measures the work EncounterServiceImpl does around the database: the patient check, the
+ * checks on the body, the summary deltas and the paging. Repositories are stub-only mocks, which
+ * answer without recording calls, so the numbers leave out the database round trips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EncounterServiceBenchmark {
+
+  private EncounterServiceImpl encounterService;
+
+  private Encounter encounter;
+
+  private EncounterSearch search;
+
+  private EncounterSearch latestSearch;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    encounter = BenchmarkFixtures.encounter(1L, 1L);
+    // one more row than the page, so the page gets a next cursor
+    List<Encounter> slice = BenchmarkFixtures.encounters(KeysetPage.DEFAULT_LIMIT + 1, 1L);
+
+    EncounterRepository encounterRepository = stub(EncounterRepository.class);
+    when(encounterRepository.saveAndFlush(any(Encounter.class))).thenReturn(encounter);
+    when(encounterRepository.findById(anyLong()))
+        .thenAnswer(invocation -> Optional.of(BenchmarkFixtures.encounter(1L, 1L)));
+    when(encounterRepository.findSlice(any(), any(Sort.class), anyInt())).thenReturn(slice);
+
+    PatientRepository patientRepository = stub(PatientRepository.class);
+    when(patientRepository.existsById(anyLong())).thenReturn(true);
+
+    encounterService = new EncounterServiceImpl();
+    encounterService.encounterRepository = encounterRepository;
+    encounterService.encounterSummaryRepository = stub(EncounterSummaryRepository.class);
+    // partitioning off, as by default
+    encounterService.encounterPartitions =
+        new EncounterPartitions(false, 3, stub(PlatformTransactionManager.class));
+    encounterService.patientIdIndex = new PatientIdIndex(patientRepository);
+
+    search = new EncounterSearch();
+    latestSearch = new EncounterSearch();
+    latestSearch.setLatest(10);
+  }
+
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+
+  @Benchmark
+  public Encounter addEncounter() throws Exception {
+    return encounterService.addEncounter(encounter, 1L);
+  }
+
+  @Benchmark
+  public Encounter updateEncounterById() throws Exception {
+    return encounterService.updateEncounterById(1L, encounter, 1L, null);
+  }
+
+  @Benchmark
+  public Encounter getEncounterById() throws Exception {
+    return encounterService.getEncounterById(1L, 1L);
+  }
+
+  @Benchmark
+  public KeysetPage<Encounter> getEncountersByPatientId() {
+    return encounterService.getEncountersByPatientId(1L, search, null, null);
+  }
+
+  @Benchmark
+  public KeysetPage<Encounter> getLatestEncounters() {
+    return encounterService.getEncountersByPatientId(1L, latestSearch, null, null);
+  }
+}
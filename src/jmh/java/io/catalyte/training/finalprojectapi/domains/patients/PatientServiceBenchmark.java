@@ -0,0 +1,139 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.catalyte.training.finalprojectapi.BenchmarkFixtures;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterRepository;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSummaryRepository;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Measures the work PatientServiceImpl does around the database: the checks, the cache, the id
+ * and search indexes and the paging. Repositories are stub-only mocks, which answer without
+ * recording calls, so the numbers leave out the database round trips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PatientServiceBenchmark {
+
+  static final int BATCH_SIZE = 100;
+
+  private ValidatorFactory validatorFactory;
+
+  private PatientServiceImpl patientService;
+
+  private Patient patient;
+
+  private List<Patient> batch;
+
+  private PatientSearch search;
+
+  private PatientSearch searchWithSummaries;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    patient = BenchmarkFixtures.patient(1L);
+    batch = BenchmarkFixtures.patients(BATCH_SIZE);
+    // one more row than the page, so the page gets a next cursor
+    List<Patient> slice = BenchmarkFixtures.patients(KeysetPage.DEFAULT_LIMIT + 1);
+
+    PatientRepository patientRepository = stub(PatientRepository.class);
+    when(patientRepository.saveAndFlush(any(Patient.class))).thenReturn(patient);
+    when(patientRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(patientRepository.updatePatient(any(Patient.class))).thenReturn(1L);
+    when(patientRepository.findById(anyLong())).thenReturn(Optional.of(patient));
+    when(patientRepository.existsById(anyLong())).thenReturn(true);
+    when(patientRepository.findExistingEmails(any())).thenReturn(Collections.emptySet());
+    when(patientRepository.findSlice(any(), any(Sort.class), anyInt())).thenReturn(slice);
+
+    EncounterSummaryRepository encounterSummaryRepository =
+        stub(EncounterSummaryRepository.class);
+    when(encounterSummaryRepository.findAllById(any())).thenReturn(Collections.emptyList());
+
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+
+    patientService = new PatientServiceImpl();
+    patientService.patientRepository = patientRepository;
+    patientService.encounterRepository = stub(EncounterRepository.class);
+    patientService.encounterSummaryRepository = encounterSummaryRepository;
+    patientService.validator = validatorFactory.getValidator();
+    patientService.patientCache = new PatientCache(10000, Duration.ofMinutes(10));
+    patientService.patientIdIndex = new PatientIdIndex(patientRepository);
+    patientService.patientSearchIndex = new PatientSearchIndex(patientRepository);
+
+    search = new PatientSearch();
+    searchWithSummaries = new PatientSearch();
+    searchWithSummaries.setIncludeSummary(true);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    validatorFactory.close();
+  }
+
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+
+  @Benchmark
+  public Patient addPatient() {
+    return patientService.addPatient(patient);
+  }
+
+  @Benchmark
+  public PatientBatchResponse addPatients() {
+    return patientService.addPatients(batch);
+  }
+
+  @Benchmark
+  public Patient updatePatientById() throws Exception {
+    return patientService.updatePatientById(1L, patient, null);
+  }
+
+  /**
+   * served from the patient cache after the first call
+   */
+  @Benchmark
+  public Patient getPatientById() throws Exception {
+    return patientService.getPatientById(1L);
+  }
+
+  @Benchmark
+  public KeysetPage<Patient> queryPatients() {
+    return patientService.queryPatients(patient, search, null, null);
+  }
+
+  @Benchmark
+  public KeysetPage<Patient> queryPatientsWithSummaries() {
+    return patientService.queryPatients(patient, searchWithSummaries, null, null);
+  }
+}
@@ -0,0 +1,117 @@
+package io.catalyte.training.finalprojectapi.exceptions;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_STATE;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.EMAIL_CONFLICT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.EMAIL_VALIDATION_ERROR;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.POSTAL_CODE_ERROR;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.SSN_VALIDATION_ERROR;
+
+import io.catalyte.training.finalprojectapi.BenchmarkFixtures;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.hibernate.JDBCException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+/**
+ * Measures building the error responses in ExceptionController from exceptions thrown ahead of
+ * time. Its logger is turned off, so the numbers leave out the cost of writing the log line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ExceptionControllerBenchmark {
+
+  private ExceptionController exceptionController;
+
+  private MethodArgumentNotValidException validationException;
+
+  private ResourceNotFound resourceNotFound;
+
+  private BadDataResponse badDataResponse;
+
+  private UniqueFieldViolation uniqueFieldViolation;
+
+  private ServiceUnavailable databaseError;
+
+  private ServiceUnavailable unexpectedError;
+
+  @Setup(Level.Trial)
+  public void setUp() throws NoSuchMethodException {
+    Configurator.setLevel(ExceptionController.class.getName(),
+        org.apache.logging.log4j.Level.OFF);
+    exceptionController = new ExceptionController();
+    exceptionController.meterRegistry = new SimpleMeterRegistry();
+
+    // three constraint violations on the body of POST /patients
+    Patient patient = BenchmarkFixtures.patient(1L);
+    BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(patient, "patient");
+    bindingResult.addError(new FieldError("patient", "ssn", SSN_VALIDATION_ERROR));
+    bindingResult.addError(new FieldError("patient", "email", EMAIL_VALIDATION_ERROR));
+    bindingResult.addError(new FieldError("patient", "postal", POSTAL_CODE_ERROR));
+    MethodParameter parameter =
+        new MethodParameter(PatientController.class.getMethod("save", Patient.class), 0);
+    validationException = new MethodArgumentNotValidException(parameter, bindingResult);
+
+    resourceNotFound = new ResourceNotFound("Could not locate a patient with the id: 1");
+    badDataResponse = new BadDataResponse(BAD_REQUEST_STATE);
+    uniqueFieldViolation = new UniqueFieldViolation(EMAIL_CONFLICT);
+    databaseError = new ServiceUnavailable(new JDBCException("could not execute query",
+        new SQLException("Connection to localhost:5432 refused.", "08001")));
+    unexpectedError = new ServiceUnavailable(new IllegalStateException("unexpected"));
+  }
+
+  @Benchmark
+  public ResponseEntity<Object> validationErrors() {
+    return exceptionController.handleValidationExceptions(validationException);
+  }
+
+  @Benchmark
+  public ResponseEntity<ExceptionResponse> resourceNotFound() {
+    return exceptionController.resourceNotFound(resourceNotFound);
+  }
+
+  @Benchmark
+  public ResponseEntity<ExceptionResponse> badDataResponse() {
+    return exceptionController.badDataResponse(badDataResponse);
+  }
+
+  @Benchmark
+  public ResponseEntity<ExceptionResponse> uniqueFieldViolation() {
+    return exceptionController.uniqueFieldViolation(uniqueFieldViolation);
+  }
+
+  @Benchmark
+  public ResponseEntity<ExceptionResponse> databaseError() {
+    return exceptionController.serverError(databaseError);
+  }
+
+  /**
+   * reads the stack trace of the exception, which copies it on every call
+   */
+  @Benchmark
+  public ResponseEntity<ExceptionResponse> unexpectedError() {
+    return exceptionController.serverError(unexpectedError);
+  }
+}
@@ -0,0 +1,155 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Prints the results of a load test: the latency percentiles of each endpoint at each rate, and
+ * the highest throughput each endpoint sustained within the latency objective. Also writes the
+ * full response time distributions as .hgrm files, which the HdrHistogram plotter can chart.
+ */
+public class LoadReport {
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * share of the target rate a step must reach to count as sustained
+   */
+  static final double MIN_ACHIEVED_SHARE = 0.95;
+
+  /**
+   * schedule lag beyond which the load generator, not the server, may be the bottleneck
+   */
+  static final long SCHEDULE_LAG_WARNING_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static final String ROW = "%-44s %8s %7s %9s %9s %9s %9s %9s %10s%n";
+
+  private final LoadTestOptions options;
+
+  private final PrintStream out;
+
+  public LoadReport(LoadTestOptions options, PrintStream out) {
+    this.options = options;
+    this.out = out;
+  }
+
+  /**
+   * Prints the percentiles of one step and writes its distributions under the report directory
+   *
+   * @param step - the step to report
+   * @throws IOException if a distribution cannot be written
+   */
+  public void printStep(StepResult step) throws IOException {
+    out.printf("%nTarget rate %d req/s, elapsed %.1f s%n", step.getTargetRate(),
+        step.getElapsedNanos() / (NANOS_PER_MILLI * 1000));
+    if (step.getMaxScheduleLagNanos() > SCHEDULE_LAG_WARNING_NANOS) {
+      out.printf("Warning: the load generator fell up to %.1f ms behind its schedule%n",
+          step.getMaxScheduleLagNanos() / NANOS_PER_MILLI);
+    }
+    out.printf(ROW, "Endpoint", "Count", "Errors", "Req/s", "p50 ms", "p99 ms", "p99.9 ms",
+        "Max ms", "Svc p99 ms");
+
+    Path stepDir = options.getReportDir().resolve("rate-" + step.getTargetRate());
+    Files.createDirectories(stepDir);
+    for (Entry<Operation, OperationStats> entry : step.getStats().entrySet()) {
+      OperationStats stats = entry.getValue();
+      if (stats.getCount() == 0) {
+        continue;
+      }
+      printRow(entry.getKey().getEndpoint(), step, stats.getResponseTime(), stats.getErrors(),
+          format(stats.getServiceTime().getValueAtPercentile(99)));
+      write(stepDir.resolve(entry.getKey().getKey() + ".hgrm"), stats.getResponseTime());
+    }
+    Histogram total = step.totalResponseTime();
+    printRow("All", step, total, step.totalErrors(), "");
+    write(stepDir.resolve("all.hgrm"), total);
+  }
+
+  /**
+   * Prints, for each endpoint and for the whole mix, the highest throughput reached in a step
+   * which met the objectives: the 99th percentile response time, the error rate and the share
+   * of the target rate reached
+   *
+   * @param steps - every step of the run
+   */
+  public void printMaxThroughput(List<StepResult> steps) {
+    out.printf("%nMax sustained throughput (p99 <= %d ms, errors <= %.1f%%, "
+            + ">= %.0f%% of target rate)%n", options.getSloP99().toMillis(),
+        options.getMaxErrorRate() * 100, MIN_ACHIEVED_SHARE * 100);
+    for (Operation operation : options.getMix().keySet()) {
+      double best = -1;
+      int bestRate = 0;
+      for (StepResult step : steps) {
+        OperationStats stats = step.getStats().get(operation);
+        if (stats.getCount() > 0 && reachedTarget(step)
+            && sustained(stats.getResponseTime(), stats.getErrors())) {
+          double throughput = step.throughput(stats.getCount());
+          if (throughput > best) {
+            best = throughput;
+            bestRate = step.getTargetRate();
+          }
+        }
+      }
+      printMax(operation.getEndpoint(), best, bestRate);
+    }
+
+    double best = -1;
+    int bestRate = 0;
+    for (StepResult step : steps) {
+      Histogram total = step.totalResponseTime();
+      if (reachedTarget(step) && sustained(total, step.totalErrors())) {
+        double throughput = step.throughput(total.getTotalCount());
+        if (throughput > best) {
+          best = throughput;
+          bestRate = step.getTargetRate();
+        }
+      }
+    }
+    printMax("All", best, bestRate);
+    out.printf("%nDistributions written to %s%n", options.getReportDir().toAbsolutePath());
+  }
+
+  private boolean reachedTarget(StepResult step) {
+    long sent = step.totalResponseTime().getTotalCount();
+    return step.throughput(sent) >= step.getTargetRate() * MIN_ACHIEVED_SHARE;
+  }
+
+  private boolean sustained(Histogram responseTime, long errors) {
+    return responseTime.getValueAtPercentile(99) <= options.getSloP99().toNanos()
+        && errors <= responseTime.getTotalCount() * options.getMaxErrorRate();
+  }
+
+  private void printMax(String endpoint, double throughput, int rate) {
+    if (throughput < 0) {
+      out.printf("%-44s not sustained at any tested rate%n", endpoint);
+    } else {
+      out.printf("%-44s %9.1f req/s (at %d req/s total)%n", endpoint, throughput, rate);
+    }
+  }
+
+  private void printRow(String endpoint, StepResult step, Histogram responseTime, long errors,
+      String serviceP99) {
+    out.printf(ROW, endpoint, responseTime.getTotalCount(), errors,
+        String.format("%.1f", step.throughput(responseTime.getTotalCount())),
+        format(responseTime.getValueAtPercentile(50)),
+        format(responseTime.getValueAtPercentile(99)),
+        format(responseTime.getValueAtPercentile(99.9)),
+        format(responseTime.getMaxValue()), serviceP99);
+  }
+
+  private static String format(long nanos) {
+    return String.format("%.2f", nanos / NANOS_PER_MILLI);
+  }
+
+  private static void write(Path file, Histogram histogram) throws IOException {
+    try (PrintStream stream = new PrintStream(Files.newOutputStream(file))) {
+      histogram.outputPercentileDistribution(stream, NANOS_PER_MILLI);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.catalyte.training.finalprojectapi.FinalProjectApiApplication;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Version;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Measures the sustainable throughput of the REST API. Boots the application against the
+ * configured database, unless --url names one already running, warms it up and then sends the
+ * workload mix at each of the target rates in turn, reporting latency percentiles per endpoint.
+ * With --stack=reactive the workload goes to the WebFlux and R2DBC variant of the API instead,
+ * booted in the same JVM.
+ *
+ * <p>Run with mvn -P loadtest test-compile exec:exec@loadtest, options in loadtest.args; see the
+ * Load testing section of the README.
+ */
+public class LoadTest {
+
+  /**
+   * always passed to a booted application: any free port, and no SQL logged per request
+   */
+  private static final List<String> APPLICATION_ARGS =
+      Arrays.asList("--server.port=0", "--spring.jpa.show-sql=false");
+
+  private static final String REACTIVE_APPLICATION =
+      "io.catalyte.training.finalprojectapi.reactive.ReactiveApplication";
+
+  public static void main(String[] args) throws Exception {
+    LoadTestOptions options = LoadTestOptions.parse(args);
+
+    ConfigurableApplicationContext context = null;
+    ConfigurableApplicationContext reactiveContext = null;
+    String url = options.getUrl();
+    if (url == null) {
+      List<String> applicationArgs = new ArrayList<>(APPLICATION_ARGS);
+      applicationArgs.addAll(options.getApplicationArgs());
+      context = SpringApplication.run(FinalProjectApiApplication.class,
+          applicationArgs.toArray(new String[0]));
+      url = "http://localhost:"
+          + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+
+      if (LoadTestOptions.STACK_REACTIVE.equals(options.getStack())) {
+        // the servlet application above has created and seeded the schema and stays idle
+        reactiveContext = runReactiveApplication(applicationArgs);
+        url = "http://localhost:"
+            + reactiveContext.getEnvironment().getProperty("local.server.port");
+      }
+    }
+
+    ExecutorService clientExecutor = Executors.newFixedThreadPool(options.getClientThreads());
+    try {
+      ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+      HttpClient client = HttpClient.newBuilder()
+          .version(Version.HTTP_1_1)
+          .connectTimeout(options.getRequestTimeout())
+          .executor(clientExecutor)
+          .build();
+      Workload workload = new Workload(url, options.getMix(), objectMapper,
+          options.getRequestTimeout());
+      OpenLoopDriver driver = new OpenLoopDriver(client, workload, options.getRequestTimeout());
+      LoadReport report = new LoadReport(options, System.out);
+
+      System.out.printf("Load testing %s on the %s stack with %s%n", url, options.getStack(),
+          options.getMix());
+      if (!options.getWarmup().isZero()) {
+        System.out.printf("Warming up at %d req/s for %d s%n", options.getRates().get(0),
+            options.getWarmup().getSeconds());
+        driver.run(options.getRates().get(0), options.getWarmup());
+      }
+
+      List<StepResult> steps = new ArrayList<>();
+      for (int rate : options.getRates()) {
+        StepResult step = driver.run(rate, options.getStepDuration());
+        report.printStep(step);
+        steps.add(step);
+      }
+      report.printMaxThroughput(steps);
+    } finally {
+      clientExecutor.shutdownNow();
+      if (reactiveContext != null) {
+        reactiveContext.close();
+      }
+      if (context != null) {
+        context.close();
+      }
+    }
+  }
+
+  /**
+   * Boots the WebFlux and R2DBC variant of the API, which is compiled only with the reactive
+   * profile
+   *
+   * @param applicationArgs - the arguments the servlet application was booted with
+   * @return the running application
+   * @throws IllegalStateException if the reactive profile is not active
+   */
+  private static ConfigurableApplicationContext runReactiveApplication(
+      List<String> applicationArgs) throws ReflectiveOperationException {
+    Class<?> application;
+    try {
+      application = Class.forName(REACTIVE_APPLICATION);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("--stack=reactive needs -P loadtest,reactive", e);
+    }
+    return (ConfigurableApplicationContext) application.getMethod("run", String[].class)
+        .invoke(null, (Object) applicationArgs.toArray(new String[0]));
+  }
+}
@@ -0,0 +1,199 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The options of a load test, read from --name=value arguments. Arguments it does not know are
+ * passed on to the application when the load test boots it.
+ */
+public class LoadTestOptions {
+
+  static final String DEFAULT_MIX = "getPatient=30,listPatients=10,createPatient=8,"
+      + "updatePatient=8,deletePatient=4,getEncounter=15,listEncounters=15,createEncounter=5,"
+      + "updateEncounter=5";
+
+  static final String STACK_SERVLET = "servlet";
+  static final String STACK_REACTIVE = "reactive";
+
+  /**
+   * requests per second of each step, run in order
+   */
+  private List<Integer> rates = Arrays.asList(50, 100, 200, 400);
+
+  private Duration stepDuration = Duration.ofSeconds(30);
+
+  /**
+   * time at the first rate before each run, not recorded
+   */
+  private Duration warmup = Duration.ofSeconds(10);
+
+  /**
+   * highest 99th percentile response time at which a rate counts as sustained
+   */
+  private Duration sloP99 = Duration.ofMillis(100);
+
+  /**
+   * highest share of failed requests at which a rate counts as sustained
+   */
+  private double maxErrorRate = 0.01;
+
+  private Duration requestTimeout = Duration.ofSeconds(30);
+
+  private int clientThreads = 16;
+
+  private Map<Operation, Integer> mix = parseMix(DEFAULT_MIX);
+
+  /**
+   * the application to test, or null to boot one against the configured database
+   */
+  private String url;
+
+  private Path reportDir = Paths.get("target", "loadtest");
+
+  /**
+   * the stack a booted application serves the workload on, servlet or reactive
+   */
+  private String stack = STACK_SERVLET;
+
+  private final List<String> applicationArgs = new ArrayList<>();
+
+  /**
+   * @param args - the command line
+   * @return the options, defaults where not given
+   * @throws IllegalArgumentException if an option has a bad value
+   */
+  public static LoadTestOptions parse(String[] args) {
+    LoadTestOptions options = new LoadTestOptions();
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      String name = equals < 0 ? arg : arg.substring(0, equals);
+      String value = equals < 0 ? "" : arg.substring(equals + 1);
+      switch (name) {
+        case "--rates":
+          options.rates = Arrays.stream(value.split(",")).map(String::trim)
+              .map(Integer::valueOf).collect(Collectors.toList());
+          break;
+        case "--duration":
+          options.stepDuration = Duration.ofSeconds(Long.parseLong(value));
+          break;
+        case "--warmup":
+          options.warmup = Duration.ofSeconds(Long.parseLong(value));
+          break;
+        case "--slo-p99-ms":
+          options.sloP99 = Duration.ofMillis(Long.parseLong(value));
+          break;
+        case "--max-error-rate":
+          options.maxErrorRate = Double.parseDouble(value);
+          break;
+        case "--timeout":
+          options.requestTimeout = Duration.ofSeconds(Long.parseLong(value));
+          break;
+        case "--client-threads":
+          options.clientThreads = Integer.parseInt(value);
+          break;
+        case "--mix":
+          options.mix = parseMix(value);
+          break;
+        case "--url":
+          options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+          break;
+        case "--report-dir":
+          options.reportDir = Paths.get(value);
+          break;
+        case "--stack":
+          if (!STACK_SERVLET.equals(value) && !STACK_REACTIVE.equals(value)) {
+            throw new IllegalArgumentException("Stack must be servlet or reactive");
+          }
+          options.stack = value;
+          break;
+        default:
+          options.applicationArgs.add(arg);
+      }
+    }
+    if (options.rates.isEmpty() || options.rates.stream().anyMatch(rate -> rate < 1)) {
+      throw new IllegalArgumentException("Rates must be positive");
+    }
+    return options;
+  }
+
+  /**
+   * @param mix - operation=weight pairs separated by commas
+   * @return the weight of each operation, operations left out are not sent
+   */
+  static Map<Operation, Integer> parseMix(String mix) {
+    Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.trim().split("=");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Bad mix entry " + entry);
+      }
+      int weight = Integer.parseInt(parts[1].trim());
+      if (weight < 0) {
+        throw new IllegalArgumentException("Bad mix weight " + entry);
+      }
+      if (weight > 0) {
+        weights.put(Operation.of(parts[0].trim()), weight);
+      }
+    }
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("The mix has no operations");
+    }
+    return weights;
+  }
+
+  public List<Integer> getRates() {
+    return rates;
+  }
+
+  public Duration getStepDuration() {
+    return stepDuration;
+  }
+
+  public Duration getWarmup() {
+    return warmup;
+  }
+
+  public Duration getSloP99() {
+    return sloP99;
+  }
+
+  public double getMaxErrorRate() {
+    return maxErrorRate;
+  }
+
+  public Duration getRequestTimeout() {
+    return requestTimeout;
+  }
+
+  public int getClientThreads() {
+    return clientThreads;
+  }
+
+  public Map<Operation, Integer> getMix() {
+    return mix;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public Path getReportDir() {
+    return reportDir;
+  }
+
+  public String getStack() {
+    return stack;
+  }
+
+  public List<String> getApplicationArgs() {
+    return applicationArgs;
+  }
+}
@@ -0,0 +1,103 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate whatever the response times, as independent users would. Each
+ * request has a due time on a fixed schedule and is sent at that time even while earlier ones
+ * are outstanding, so a slow server builds up a backlog instead of slowing the load down.
+ */
+public class OpenLoopDriver {
+
+  private static final long DRAIN_POLL_MILLIS = 10;
+
+  private final HttpClient client;
+
+  private final Workload workload;
+
+  private final Duration requestTimeout;
+
+  private final Random random = new Random();
+
+  public OpenLoopDriver(HttpClient client, Workload workload, Duration requestTimeout) {
+    this.client = client;
+    this.workload = workload;
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * Runs one step and waits for its outstanding responses
+   *
+   * @param rate     - requests per second
+   * @param duration - how long to send for
+   * @return the latencies of every operation
+   * @throws InterruptedException if interrupted while waiting for responses
+   */
+  public StepResult run(int rate, Duration duration) throws InterruptedException {
+    Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      stats.put(operation, new OperationStats());
+    }
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicLong lastDone = new AtomicLong();
+    double intervalNanos = (double) TimeUnit.SECONDS.toNanos(1) / rate;
+    long maxLag = 0;
+
+    long start = System.nanoTime();
+    long end = start + duration.toNanos();
+    for (long i = 0; ; i++) {
+      long due = start + (long) (i * intervalNanos);
+      if (due >= end) {
+        break;
+      }
+      long now;
+      while ((now = System.nanoTime()) < due) {
+        LockSupport.parkNanos(due - now);
+      }
+      maxLag = Math.max(maxLag, now - due);
+
+      Workload.Call call = workload.next(random);
+      OperationStats operationStats = stats.get(call.getOperation());
+      inFlight.incrementAndGet();
+      long sent = System.nanoTime();
+      client.sendAsync(call.getRequest(), BodyHandlers.ofByteArray())
+          .whenComplete((response, error) -> {
+            long done = System.nanoTime();
+            operationStats.record(done - due, done - sent, succeeded(call, response, error));
+            lastDone.accumulateAndGet(done, Math::max);
+            inFlight.decrementAndGet();
+          });
+    }
+
+    // the last responses may arrive up to a timeout after the last request was sent
+    long drainDeadline = System.nanoTime() + requestTimeout.toNanos()
+        + TimeUnit.SECONDS.toNanos(1);
+    while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+      Thread.sleep(DRAIN_POLL_MILLIS);
+    }
+    return new StepResult(rate, Math.max(end, lastDone.get()) - start, maxLag, stats);
+  }
+
+  private static boolean succeeded(Workload.Call call, HttpResponse<byte[]> response,
+      Throwable error) {
+    if (error != null || response.statusCode() / 100 != 2) {
+      return false;
+    }
+    try {
+      call.succeeded(response);
+      return true;
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+}
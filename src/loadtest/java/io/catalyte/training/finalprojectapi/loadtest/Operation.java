@@ -0,0 +1,51 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+/**
+ * The requests a load test sends, named after the endpoint each one measures
+ */
+public enum Operation {
+
+  GET_PATIENT("getPatient", "GET /patients/{id}"),
+  LIST_PATIENTS("listPatients", "GET /patients"),
+  CREATE_PATIENT("createPatient", "POST /patients"),
+  UPDATE_PATIENT("updatePatient", "PUT /patients/{id}"),
+  DELETE_PATIENT("deletePatient", "DELETE /patients/{id}"),
+  GET_ENCOUNTER("getEncounter", "GET /patients/{patientId}/encounters/{id}"),
+  LIST_ENCOUNTERS("listEncounters", "GET /patients/{patientId}/encounters"),
+  CREATE_ENCOUNTER("createEncounter", "POST /patients/{patientId}/encounters"),
+  UPDATE_ENCOUNTER("updateEncounter", "PUT /patients/{patientId}/encounters/{id}");
+
+  private final String key;
+
+  private final String endpoint;
+
+  Operation(String key, String endpoint) {
+    this.key = key;
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * @return the name of the operation in the workload mix
+   */
+  public String getKey() {
+    return key;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * @param key - the name of an operation in the workload mix
+   * @return the operation
+   * @throws IllegalArgumentException if there is no such operation
+   */
+  public static Operation of(String key) {
+    for (Operation operation : values()) {
+      if (operation.key.equals(key)) {
+        return operation;
+      }
+    }
+    throw new IllegalArgumentException("Unknown operation " + key);
+  }
+}
@@ -0,0 +1,62 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies of one operation during one step, recorded from any client thread.
+ *
+ * <p>The response time runs from when the request was due to be sent by the schedule, not from
+ * when it was actually sent, so time a request spent waiting behind slow ones is counted rather
+ * than omitted. The service time runs from the actual send and is kept for comparison only.
+ */
+public class OperationStats {
+
+  /**
+   * longer latencies are recorded as this, well beyond any request timeout worth using
+   */
+  static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+  static final int SIGNIFICANT_DIGITS = 3;
+
+  private final Histogram responseTime = histogram();
+
+  private final Histogram serviceTime = histogram();
+
+  private final LongAdder errors = new LongAdder();
+
+  static Histogram histogram() {
+    return new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+  }
+
+  /**
+   * @param responseNanos - from when the request was due to when the response arrived
+   * @param serviceNanos  - from when the request was sent to when the response arrived
+   * @param succeeded     - false if the request failed or got a status other than 2xx
+   */
+  public void record(long responseNanos, long serviceNanos, boolean succeeded) {
+    responseTime.recordValue(Math.min(responseNanos, HIGHEST_TRACKABLE_NANOS));
+    serviceTime.recordValue(Math.min(serviceNanos, HIGHEST_TRACKABLE_NANOS));
+    if (!succeeded) {
+      errors.increment();
+    }
+  }
+
+  public Histogram getResponseTime() {
+    return responseTime;
+  }
+
+  public Histogram getServiceTime() {
+    return serviceTime;
+  }
+
+  public long getCount() {
+    return responseTime.getTotalCount();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+}
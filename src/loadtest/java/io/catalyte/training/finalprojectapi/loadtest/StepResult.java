@@ -0,0 +1,73 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+
+/**
+ * What one step of a load test at a fixed rate measured
+ */
+public class StepResult {
+
+  private final int targetRate;
+
+  private final long elapsedNanos;
+
+  private final long maxScheduleLagNanos;
+
+  private final Map<Operation, OperationStats> stats;
+
+  public StepResult(int targetRate, long elapsedNanos, long maxScheduleLagNanos,
+      Map<Operation, OperationStats> stats) {
+    this.targetRate = targetRate;
+    this.elapsedNanos = elapsedNanos;
+    this.maxScheduleLagNanos = maxScheduleLagNanos;
+    this.stats = stats;
+  }
+
+  public int getTargetRate() {
+    return targetRate;
+  }
+
+  /**
+   * @return from the first request due until the last response, in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * @return how far the load generator itself fell behind the schedule, in nanoseconds
+   */
+  public long getMaxScheduleLagNanos() {
+    return maxScheduleLagNanos;
+  }
+
+  public Map<Operation, OperationStats> getStats() {
+    return stats;
+  }
+
+  /**
+   * @param count - a number of requests
+   * @return the requests per second they make over the step
+   */
+  public double throughput(long count) {
+    return count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  /**
+   * @return the response times of every operation together
+   */
+  public Histogram totalResponseTime() {
+    Histogram total = OperationStats.histogram();
+    stats.values().forEach(operation -> total.add(operation.getResponseTime()));
+    return total;
+  }
+
+  /**
+   * @return the requests of every operation which failed
+   */
+  public long totalErrors() {
+    return stats.values().stream().mapToLong(OperationStats::getErrors).sum();
+  }
+}
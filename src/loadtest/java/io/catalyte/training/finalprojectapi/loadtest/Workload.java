@@ -0,0 +1,248 @@
+package io.catalyte.training.finalprojectapi.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Turns the workload mix into requests. Reads go to the patients and encounters of the data
+ * loader; updates and deletes go to rows the load test created itself, so every request is
+ * expected to succeed and patients with encounters are never deleted.
+ */
+public class Workload {
+
+  /**
+   * patients and encounters loaded by the data loader at startup
+   */
+  static final int SEEDED_PATIENTS = 5;
+  static final int SEEDED_PATIENTS_WITH_ENCOUNTERS = 4;
+  static final int SEEDED_ENCOUNTERS_PER_PATIENT = 3;
+
+  static final int LIST_LIMIT = 50;
+
+  private final String baseUrl;
+
+  private final ObjectMapper objectMapper;
+
+  private final Duration timeout;
+
+  private final Operation[] operations;
+
+  private final int[] cumulativeWeights;
+
+  /**
+   * patients created by this run without encounters, ready to update or delete
+   */
+  private final Queue<Patient> ownPatients = new ConcurrentLinkedQueue<>();
+
+  /**
+   * encounters created by this run, ready to update
+   */
+  private final Queue<Encounter> ownEncounters = new ConcurrentLinkedQueue<>();
+
+  private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+  private final AtomicLong created = new AtomicLong();
+
+  public Workload(String baseUrl, Map<Operation, Integer> mix, ObjectMapper objectMapper,
+      Duration timeout) {
+    this.baseUrl = baseUrl;
+    this.objectMapper = objectMapper;
+    this.timeout = timeout;
+    this.operations = mix.keySet().toArray(new Operation[0]);
+    this.cumulativeWeights = new int[operations.length];
+    int total = 0;
+    for (int i = 0; i < operations.length; i++) {
+      total += mix.get(operations[i]);
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  /**
+   * A request ready to send and what to do with the response once it succeeds
+   */
+  public static class Call {
+
+    private final Operation operation;
+
+    private final HttpRequest request;
+
+    private final Consumer<HttpResponse<byte[]>> onSuccess;
+
+    Call(Operation operation, HttpRequest request, Consumer<HttpResponse<byte[]>> onSuccess) {
+      this.operation = operation;
+      this.request = request;
+      this.onSuccess = onSuccess;
+    }
+
+    public Operation getOperation() {
+      return operation;
+    }
+
+    public HttpRequest getRequest() {
+      return request;
+    }
+
+    public void succeeded(HttpResponse<byte[]> response) {
+      onSuccess.accept(response);
+    }
+  }
+
+  /**
+   * Picks the next operation by its weight in the mix and builds its request. An update or
+   * delete with no row of this run to work on becomes the matching create.
+   *
+   * @param random - the random source of the calling thread
+   * @return the request to send
+   */
+  public Call next(Random random) {
+    int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int index = 0;
+    while (cumulativeWeights[index] <= pick) {
+      index++;
+    }
+
+    switch (operations[index]) {
+      case GET_PATIENT:
+        return call(Operation.GET_PATIENT,
+            get("/patients/" + (1 + random.nextInt(SEEDED_PATIENTS))), response -> {
+            });
+      case LIST_PATIENTS:
+        return call(Operation.LIST_PATIENTS, get("/patients?limit=" + LIST_LIMIT), response -> {
+        });
+      case UPDATE_PATIENT:
+        Patient toUpdate = ownPatients.poll();
+        if (toUpdate != null) {
+          toUpdate.setWeight(toUpdate.getWeight() + 1);
+          return call(Operation.UPDATE_PATIENT,
+              send("PUT", "/patients/" + toUpdate.getId(), toUpdate),
+              response -> ownPatients.add(toUpdate));
+        }
+        return createPatient();
+      case DELETE_PATIENT:
+        Patient toDelete = ownPatients.poll();
+        if (toDelete != null) {
+          return call(Operation.DELETE_PATIENT, HttpRequest.newBuilder(uri("/patients/"
+              + toDelete.getId())).timeout(timeout).DELETE().build(), response -> {
+          });
+        }
+        return createPatient();
+      case CREATE_PATIENT:
+        return createPatient();
+      case GET_ENCOUNTER:
+        int encounterIndex =
+            random.nextInt(SEEDED_PATIENTS_WITH_ENCOUNTERS * SEEDED_ENCOUNTERS_PER_PATIENT);
+        long patientId = 1 + encounterIndex / SEEDED_ENCOUNTERS_PER_PATIENT;
+        return call(Operation.GET_ENCOUNTER,
+            get("/patients/" + patientId + "/encounters/" + (encounterIndex + 1)), response -> {
+            });
+      case LIST_ENCOUNTERS:
+        return call(Operation.LIST_ENCOUNTERS, get("/patients/"
+            + (1 + random.nextInt(SEEDED_PATIENTS_WITH_ENCOUNTERS)) + "/encounters?limit="
+            + LIST_LIMIT), response -> {
+        });
+      case UPDATE_ENCOUNTER:
+        Encounter encounter = ownEncounters.poll();
+        if (encounter != null) {
+          encounter.setPulse(encounter.getPulse() % 200 + 1);
+          return call(Operation.UPDATE_ENCOUNTER, send("PUT", "/patients/"
+                  + encounter.getPatientId() + "/encounters/" + encounter.getId(), encounter),
+              response -> ownEncounters.add(encounter));
+        }
+        return createEncounter(random);
+      case CREATE_ENCOUNTER:
+        return createEncounter(random);
+      default:
+        throw new IllegalStateException("Unknown operation " + operations[index]);
+    }
+  }
+
+  private Call createPatient() {
+    long n = created.incrementAndGet();
+    Patient patient = new Patient();
+    patient.setFirstName("Load");
+    patient.setLastName("Tester");
+    patient.setSsn("123-45-6789");
+    patient.setEmail("loadtest-" + runId + "-" + n + "@mail.com");
+    patient.setAge(40);
+    patient.setHeight(70);
+    patient.setWeight(180);
+    patient.setInsurance("Acme Insurance");
+    patient.setGender("Other");
+    patient.setStreet("1 Load Street");
+    patient.setCity("Springfield");
+    patient.setState("MA");
+    patient.setPostal("01101");
+    return call(Operation.CREATE_PATIENT, send("POST", "/patients", patient),
+        response -> ownPatients.add(read(response, Patient.class)));
+  }
+
+  private Call createEncounter(Random random) {
+    Encounter encounter = new Encounter();
+    encounter.setPatientId(1L + random.nextInt(SEEDED_PATIENTS_WITH_ENCOUNTERS));
+    encounter.setNotes("load test");
+    encounter.setVisitCode("L0D 7E5");
+    encounter.setProvider("Load Test Clinic");
+    encounter.setBillingCode("123.456.789-00");
+    encounter.setIcd10("Z00");
+    encounter.setTotalCost(new BigDecimal("100.00"));
+    encounter.setCopay(new BigDecimal("10.00"));
+    encounter.setChiefComplaint("checkup");
+    encounter.setPulse(70);
+    encounter.setSystolic(120);
+    encounter.setDiastolic(80);
+    encounter.setDate(Date.valueOf(LocalDate.now()));
+    return call(Operation.CREATE_ENCOUNTER,
+        send("POST", "/patients/" + encounter.getPatientId() + "/encounters", encounter),
+        response -> ownEncounters.add(read(response, Encounter.class)));
+  }
+
+  private Call call(Operation operation, HttpRequest request,
+      Consumer<HttpResponse<byte[]>> onSuccess) {
+    return new Call(operation, request, onSuccess);
+  }
+
+  private HttpRequest get(String path) {
+    return HttpRequest.newBuilder(uri(path)).timeout(timeout).GET().build();
+  }
+
+  private HttpRequest send(String method, String path, Object body) {
+    try {
+      return HttpRequest.newBuilder(uri(path)).timeout(timeout)
+          .header("Content-Type", "application/json")
+          .method(method, BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+          .build();
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private URI uri(String path) {
+    return URI.create(baseUrl + path);
+  }
+
+  private <T> T read(HttpResponse<byte[]> response, Class<T> type) {
+    try {
+      return objectMapper.readValue(response.body(), type);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
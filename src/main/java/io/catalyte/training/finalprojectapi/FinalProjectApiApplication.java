@@ -4,9 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 /**
- * FinalProjectApiApplication starts the spring application
+ * FinalProjectApiApplication starts the spring application. R2DBC is on the classpath only with
+ * the reactive profile, where it would replace the JDBC data source; it is left to
+ * ReactiveApplication.
  */
-@SpringBootApplication
+@SpringBootApplication(
+    excludeName = "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration")
 public class FinalProjectApiApplication {
 
   public static void main(String[] args) {
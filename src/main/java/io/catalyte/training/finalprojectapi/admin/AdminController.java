@@ -0,0 +1,167 @@
+package io.catalyte.training.finalprojectapi.admin;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CACHES_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ADMIN;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.PROTOBUF_SCHEMAS_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.SEARCH_INDEX_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.SLOW_QUERIES_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.SUMMARIES_REBUILD_ENDPOINT;
+
+import io.catalyte.training.finalprojectapi.data.SlowQueryLog;
+import io.catalyte.training.finalprojectapi.data.SlowQueryStatistics;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterService;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterStats;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSummaryRebuild;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientBatchResponse;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientCache;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientMatch;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientSearchIndex;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientSearchIndexStatistics;
+import io.catalyte.training.finalprojectapi.exceptions.InternalServerError;
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Holds operational endpoints which report on the running service
+ */
+@RestController
+@RequestMapping(CONTEXT_ADMIN)
+@ApiResponses(value = {
+    @ApiResponse(code = 500, message = "Internal Server Error", response = InternalServerError.class)
+})
+public class AdminController {
+
+  private static final Logger logger = LogManager.getLogger(AdminController.class);
+
+  @Autowired
+  PatientCache patientCache;
+
+  @Autowired
+  PatientSearchIndex patientSearchIndex;
+
+  @Autowired
+  EncounterService encounterService;
+
+  @Autowired
+  SlowQueryLog slowQueryLog;
+
+  @Autowired
+  ProtobufCodec protobufCodec;
+
+  /**
+   * Reports the statistics of the in-process caches
+   *
+   * @return ResponseEntity with the statistics of each cache by name and HTTP status code 200 (OK)
+   */
+  @GetMapping(value = CACHES_ENDPOINT)
+  @ApiOperation("Reports the statistics of the in-process caches")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = CacheStatistics.class)
+  })
+  public ResponseEntity<Map<String, CacheStatistics>> getCacheStatistics() {
+    logger.debug("Cache statistics request received");
+
+    return new ResponseEntity<>(Collections.singletonMap("patients",
+        new CacheStatistics(patientCache.stats(), patientCache.size())), HttpStatus.OK);
+  }
+
+  /**
+   * Reports the size and estimated memory footprint of the patient search index
+   *
+   * @return ResponseEntity with the statistics of the index and HTTP status code 200 (OK)
+   */
+  @GetMapping(value = SEARCH_INDEX_ENDPOINT)
+  @ApiOperation("Reports the size and memory footprint of the patient search index")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = PatientSearchIndexStatistics.class)
+  })
+  public ResponseEntity<PatientSearchIndexStatistics> getSearchIndexStatistics() {
+    logger.debug("Search index statistics request received");
+
+    return new ResponseEntity<>(patientSearchIndex.statistics(), HttpStatus.OK);
+  }
+
+  /**
+   * Recomputes the encounter summaries from the encounters and reports how many had drifted
+   *
+   * @param dryRun - true to only count the drifted summaries
+   * @return ResponseEntity with the outcome of the rebuild and HTTP status code 200 (OK)
+   */
+  @PostMapping(value = SUMMARIES_REBUILD_ENDPOINT)
+  @ApiOperation("Recomputes the encounter summaries and reports how many had drifted")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = EncounterSummaryRebuild.class),
+      @ApiResponse(code = 503, message = "Service Unavailable", response = ServiceUnavailable.class)
+  })
+  public ResponseEntity<EncounterSummaryRebuild> rebuildEncounterSummaries(
+      @RequestParam(defaultValue = "false") boolean dryRun) {
+    logger.debug("Encounter summary rebuild request received");
+
+    return new ResponseEntity<>(encounterService.rebuildSummaries(dryRun), HttpStatus.OK);
+  }
+
+  /**
+   * Reports the statements with the longest executions since startup, with literals taken out
+   *
+   * @return ResponseEntity with the statistics of the slowest statements, slowest first, and HTTP
+   * status code 200 (OK)
+   */
+  @GetMapping(value = SLOW_QUERIES_ENDPOINT)
+  @ApiOperation("Reports the statements with the longest executions since startup")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = SlowQueryStatistics.class)
+  })
+  public ResponseEntity<List<SlowQueryStatistics>> getSlowQueries() {
+    logger.debug("Slow queries request received");
+
+    return new ResponseEntity<>(slowQueryLog.statistics(), HttpStatus.OK);
+  }
+
+  /**
+   * Reports the .proto schemas of the protobuf bodies, generated from the same properties as the
+   * JSON ones. A list is a message with its elements in the repeated field items.
+   *
+   * @return ResponseEntity with the .proto source of each body by type and HTTP status code 200
+   * (OK)
+   */
+  @GetMapping(value = PROTOBUF_SCHEMAS_ENDPOINT)
+  @ApiOperation("Reports the .proto schemas of the protobuf bodies")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK")
+  })
+  public ResponseEntity<Map<String, String>> getProtobufSchemas() {
+    logger.debug("Protobuf schemas request received");
+
+    Map<String, String> schemas = new LinkedHashMap<>();
+    for (Class<?> clazz : new Class<?>[]{Patient.class, PatientMatch.class,
+        PatientBatchResponse.class, Encounter.class, EncounterStats.class}) {
+      Type list = ResolvableType.forClassWithGenerics(List.class, clazz).getType();
+      protobufCodec.schemaSource(protobufCodec.constructType(clazz))
+          .ifPresent(source -> schemas.put(clazz.getSimpleName(), source));
+      protobufCodec.schemaSource(protobufCodec.constructType(list))
+          .ifPresent(source -> schemas.put("List<" + clazz.getSimpleName() + ">", source));
+    }
+    return new ResponseEntity<>(schemas, HttpStatus.OK);
+  }
+}
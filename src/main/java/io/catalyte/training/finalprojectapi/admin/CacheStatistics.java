@@ -0,0 +1,63 @@
+package io.catalyte.training.finalprojectapi.admin;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Statistics of an in-process cache since startup
+ */
+@ApiModel(description = "Statistics of an in-process cache since startup")
+public class CacheStatistics {
+
+  @ApiModelProperty(notes = "Approximate number of cached entries")
+  private final long size;
+
+  @ApiModelProperty(notes = "Lookups answered from the cache")
+  private final long hitCount;
+
+  @ApiModelProperty(notes = "Lookups which went to the database")
+  private final long missCount;
+
+  @ApiModelProperty(notes = "Hits divided by lookups, 1.0 before the first lookup")
+  private final double hitRate;
+
+  @ApiModelProperty(notes = "Entries removed to stay within the maximum size or expiry")
+  private final long evictionCount;
+
+  @ApiModelProperty(notes = "Average time spent loading an entry in nanoseconds")
+  private final double averageLoadPenalty;
+
+  public CacheStatistics(CacheStats stats, long size) {
+    this.size = size;
+    this.hitCount = stats.hitCount();
+    this.missCount = stats.missCount();
+    this.hitRate = stats.hitRate();
+    this.evictionCount = stats.evictionCount();
+    this.averageLoadPenalty = stats.averageLoadPenalty();
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public double getHitRate() {
+    return hitRate;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public double getAverageLoadPenalty() {
+    return averageLoadPenalty;
+  }
+}
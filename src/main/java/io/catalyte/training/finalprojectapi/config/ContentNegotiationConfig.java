@@ -0,0 +1,80 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.catalyte.training.finalprojectapi.json.MappingJackson2ProtobufHttpMessageConverter;
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Class which lets clients exchange patients and encounters as CBOR, Smile or protobuf instead of
+ * JSON, chosen with the Accept and Content-Type headers. The binary converters come after JSON, so
+ * a request accepting anything still gets JSON.
+ */
+@Configuration
+public class ContentNegotiationConfig implements WebMvcConfigurer {
+
+  /**
+   * Spring Boot's builder is a prototype, so each mapper gets a fresh builder with the modules and
+   * the features of the JSON object mapper
+   */
+  @Autowired
+  ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+  /**
+   * @return the codec of the protobuf bodies, which caches the schema of each type
+   */
+  @Bean
+  public ProtobufCodec protobufCodec() {
+    return new ProtobufCodec(objectMapperBuilder.getObject());
+  }
+
+  /**
+   * Replaces the CBOR and Smile converters Spring adds when their Jackson formats are on the class
+   * path, as their object mappers have none of Spring Boot's configuration, and adds protobuf.
+   *
+   * @param converters - the converters of the controllers, in order of preference
+   */
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+        || converter instanceof MappingJackson2SmileHttpMessageConverter);
+    converters.add(new MappingJackson2CborHttpMessageConverter(
+        objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+    converters.add(new MappingJackson2SmileHttpMessageConverter(
+        objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+    converters.add(new MappingJackson2ProtobufHttpMessageConverter(protobufCodec()));
+  }
+
+  /**
+   * Marks every response as varying on Accept, as the same URL and entity tag now have a
+   * representation per format and a cache must not serve one for another
+   *
+   * @param registry - the interceptors of the controllers
+   */
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new HandlerInterceptor() {
+      @Override
+      public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+          Object handler) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return true;
+      }
+    });
+  }
+}
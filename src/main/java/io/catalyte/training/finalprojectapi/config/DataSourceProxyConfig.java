@@ -0,0 +1,43 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import io.catalyte.training.finalprojectapi.data.SlowQueryLog;
+import javax.sql.DataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Class which wraps the data source so every JDBC statement is timed by the slow query log. Turned
+ * off with slow-queries.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(value = "slow-queries.enabled", matchIfMissing = true)
+public class DataSourceProxyConfig {
+
+  /**
+   * Static, as post processors are created before the other beans. The log is looked up when the
+   * data source is created rather than injected, so it is still an ordinary bean.
+   *
+   * @param slowQueryLog - the listener told about every statement
+   * @return the post processor which wraps the data source
+   */
+  @Bean
+  public static BeanPostProcessor dataSourceProxyPostProcessor(
+      ObjectProvider<SlowQueryLog> slowQueryLog) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+          return bean;
+        }
+        return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+            .listener(slowQueryLog.getObject())
+            .build();
+      }
+    };
+  }
+}
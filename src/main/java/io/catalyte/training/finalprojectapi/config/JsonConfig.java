@@ -0,0 +1,28 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Class which tunes the object mapper Spring Boot builds for the controllers and the exports.
+ * Turned off with json.blackbird.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(value = "json.blackbird.enabled", matchIfMissing = true)
+public class JsonConfig {
+
+  /**
+   * Spring Boot registers every Module bean with the object mapper. Blackbird replaces the
+   * reflective getter, setter and constructor calls on patients and encounters with accessors
+   * generated through LambdaMetafactory, which the JIT inlines like ordinary calls.
+   *
+   * @return the module
+   */
+  @Bean
+  public Module blackbirdModule() {
+    return new BlackbirdModule();
+  }
+}
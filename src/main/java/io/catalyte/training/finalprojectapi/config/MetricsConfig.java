@@ -0,0 +1,52 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Class which adds to the metrics Spring Boot records for every request
+ */
+@Configuration
+public class MetricsConfig {
+
+  /**
+   * tag value of requests no controller method handled, such as unmapped paths
+   */
+  static final String NO_HANDLER = "none";
+
+  /**
+   * Tags the http.server.requests timer with the controller method which handled the request,
+   * e.g. PatientController.getPatientById, so each method gets its own latency histogram
+   *
+   * @return the tags contributor
+   */
+  @Bean
+  public WebMvcTagsContributor handlerTagsContributor() {
+    return new WebMvcTagsContributor() {
+      @Override
+      public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response,
+          Object handler, Throwable exception) {
+        return Tags.of("handler", handlerName(handler));
+      }
+
+      @Override
+      public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return Tags.of("handler", handlerName(handler));
+      }
+    };
+  }
+
+  static String handlerName(Object handler) {
+    if (!(handler instanceof HandlerMethod)) {
+      return NO_HANDLER;
+    }
+    HandlerMethod method = (HandlerMethod) handler;
+    return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+  }
+}
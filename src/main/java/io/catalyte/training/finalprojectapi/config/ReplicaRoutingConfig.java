@@ -0,0 +1,125 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.catalyte.training.finalprojectapi.data.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Class which sends read-only transactions to the replicas in replicas.urls and everything else to
+ * the primary in spring.datasource, see ReplicaRoutingDataSource. Turned on with
+ * replicas.enabled.
+ *
+ * <p>Replicas take no reads before the application accepts traffic, so the data loaded and the
+ * indexes warmed at startup are read back from the primary.
+ */
+@Configuration
+@ConditionalOnProperty("replicas.enabled")
+public class ReplicaRoutingConfig {
+
+  @Value("${replicas.urls}")
+  private String[] urls;
+
+  @Value("${replicas.max-lag:5s}")
+  private Duration maxLag;
+
+  @Value("${replicas.check-interval:5s}")
+  private Duration checkInterval;
+
+  @Value("${replicas.connection-timeout:1s}")
+  private Duration connectionTimeout;
+
+  private ReplicaRoutingDataSource routingDataSource;
+
+  /**
+   * Replaces the data source Spring Boot would create. The primary pool is configured from
+   * spring.datasource as that one would be and each replica pool is a copy of it with the
+   * replica's url and a short connection timeout, so a replica which is down fails fast.
+   *
+   * @param properties    - the spring.datasource properties
+   * @param environment   - where the spring.datasource.hikari properties are bound from
+   * @param meterRegistry - where the pools and the routing publish their metrics
+   * @return the routing data source behind a proxy which connects at the first statement
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(DataSourceProperties properties, Environment environment,
+      MeterRegistry meterRegistry) {
+    HikariDataSource primary = properties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .build();
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+    if (primary.getPoolName() == null) {
+      primary.setPoolName("primary");
+    }
+
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    for (int i = 0; i < urls.length; i++) {
+      HikariConfig config = new HikariConfig();
+      primary.copyStateTo(config);
+      config.setJdbcUrl(urls[i].trim());
+      config.setPoolName("replica-" + (i + 1));
+      config.setConnectionTimeout(connectionTimeout.toMillis());
+      // the replica may be down at startup, the checks find out when it is back
+      config.setInitializationFailTimeout(-1);
+      config.setMetricRegistry(meterRegistry);
+      replicas.put(config.getPoolName(), new HikariDataSource(config));
+    }
+    primary.setMetricRegistry(meterRegistry);
+
+    routingDataSource = new ReplicaRoutingDataSource(primary, replicas, maxLag, meterRegistry);
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+
+  /**
+   * Hibernate keeps a session's connection until the request ends by default, so with the open
+   * session in view a write could run on the connection of an earlier read from a replica. The
+   * connection is given back at the end of every transaction instead.
+   *
+   * @return the customizer setting the connection handling mode
+   */
+  @Bean
+  public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+    return properties -> properties.put("hibernate.connection.handling_mode",
+        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+  }
+
+  /**
+   * Starts the replica checks once the application accepts traffic, which is after the
+   * ApplicationReadyEvent listeners have run
+   *
+   * @param event - a change of readiness
+   */
+  @EventListener
+  public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+    if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+      routingDataSource.start(checkInterval);
+    }
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    routingDataSource.close();
+  }
+}
@@ -0,0 +1,69 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every call to a Spring Data repository, tagged with the repository, the method and
+ * whether it threw. Uses the metric name and tags Spring Boot gives repository metrics from
+ * version 2.5 on. A method returning a Stream is timed until the stream is returned, not read.
+ */
+@Aspect
+@Component
+public class RepositoryMetrics {
+
+  static final String METRIC_NAME = "spring.data.repository.invocations";
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  /**
+   * repository interface name of each repository proxy class
+   */
+  private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+  @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+  public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+    long start = System.nanoTime();
+    Throwable thrown = null;
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      thrown = e;
+      throw e;
+    } finally {
+      Timer.builder(METRIC_NAME)
+          .tag("repository", repositoryName(joinPoint.getThis()))
+          .tag("method", joinPoint.getSignature().getName())
+          .tag("state", thrown == null ? "SUCCESS" : "ERROR")
+          .tag("exception", thrown == null ? "None" : thrown.getClass().getSimpleName())
+          .register(meterRegistry)
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * @param proxy - a repository proxy
+   * @return the simple name of the repository interface it implements, e.g. PatientRepository
+   */
+  private String repositoryName(Object proxy) {
+    return repositoryNames.computeIfAbsent(proxy.getClass(), proxyClass -> {
+      for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(proxy)) {
+        if (Repository.class.isAssignableFrom(type)) {
+          return type.getSimpleName();
+        }
+      }
+      return proxyClass.getSimpleName();
+    });
+  }
+}
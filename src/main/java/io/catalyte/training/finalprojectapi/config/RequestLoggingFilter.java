@@ -0,0 +1,118 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.REQUEST_ID_HEADER;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Gives every request an id and writes one access log line per request with its method, path,
+ * status and duration. The id is taken from the X-Request-Id header when the caller sends a usable
+ * one, returned in the same header and put in the thread context, so every line logged while the
+ * request is handled carries it. An async request, such as an export, is logged when its response
+ * completes rather than when its first dispatch returns.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+  private static final Logger logger = LogManager.getLogger(RequestLoggingFilter.class);
+
+  // thread context keys, written as fields by the JSON layout
+  static final String REQUEST_ID = "requestId";
+  static final String METHOD = "method";
+  static final String PATH = "path";
+  static final String STATUS = "status";
+  static final String DURATION = "durationMs";
+
+  /**
+   * request ids accepted from callers, anything else could forge log lines
+   */
+  private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    long start = System.nanoTime();
+    String requestId = requestId(request.getHeader(REQUEST_ID_HEADER));
+    ThreadContext.put(REQUEST_ID, requestId);
+    response.setHeader(REQUEST_ID_HEADER, requestId);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      if (request.isAsyncStarted()) {
+        // the response is still being written, by another thread, such as an export's
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            ThreadContext.put(REQUEST_ID, requestId);
+            logRequest(request, response, start);
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {
+          }
+        });
+        ThreadContext.clearMap();
+      } else {
+        logRequest(request, response, start);
+      }
+    }
+  }
+
+  /**
+   * Writes the access log line of a request and clears the thread context, once its response is
+   * complete
+   *
+   * @param request  - the request
+   * @param response - the response, with its final status
+   * @param start    - the System.nanoTime() the request started at
+   */
+  void logRequest(HttpServletRequest request, HttpServletResponse response, long start) {
+    long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    ThreadContext.put(METHOD, request.getMethod());
+    ThreadContext.put(PATH, request.getRequestURI());
+    ThreadContext.put(STATUS, String.valueOf(response.getStatus()));
+    ThreadContext.put(DURATION, String.valueOf(durationMillis));
+    logger.info("{} {} {} {} ms", request.getMethod(), request.getRequestURI(),
+        response.getStatus(), durationMillis);
+    ThreadContext.clearMap();
+  }
+
+  /**
+   * @param header - the X-Request-Id header of the request, may be null
+   * @return the header if it is a usable id, otherwise a new random one
+   */
+  static String requestId(String header) {
+    if (header != null && VALID_REQUEST_ID.matcher(header).matches()) {
+      return header;
+    }
+    // not UUID.randomUUID(), which takes a lock on the shared SecureRandom for every request
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return new UUID(random.nextLong(), random.nextLong()).toString();
+  }
+}
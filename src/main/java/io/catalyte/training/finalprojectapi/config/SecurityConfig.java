@@ -1,7 +1,11 @@
 package io.catalyte.training.finalprojectapi.config;
 
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NEXT_CURSOR_HEADER;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.REQUEST_ID_HEADER;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -18,7 +22,8 @@ public class SecurityConfig {
       public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
             .allowedMethods("GET", "POST", "PUT", "DELETE")
-            .allowedOrigins("http://localhost:3000");
+            .allowedOrigins("http://localhost:3000")
+            .exposedHeaders(NEXT_CURSOR_HEADER, REQUEST_ID_HEADER, HttpHeaders.ETAG);
       }
     };
   }
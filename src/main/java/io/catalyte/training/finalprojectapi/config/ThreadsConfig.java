@@ -0,0 +1,88 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import java.util.concurrent.ExecutorService;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Class which runs requests on virtual threads instead of Tomcat's pool of server.tomcat.threads.
+ * Turned on with threads.virtual on Java 21 or later; on an older Java the application logs a
+ * warning and keeps the pool.
+ *
+ * <p>A request blocked on the database then holds no platform thread, so the number of requests
+ * in progress is bound by server.tomcat.max-connections and the connection pool rather than the
+ * thread count.
+ */
+@Configuration
+@ConditionalOnProperty("threads.virtual")
+@Conditional(ThreadsConfig.OnVirtualThreads.class)
+public class ThreadsConfig {
+
+  private static final Logger logger = LogManager.getLogger(ThreadsConfig.class);
+
+  private final ExecutorService requestExecutor = VirtualThreads.newExecutor("http-virtual-");
+
+  private final ExecutorService taskExecutor = VirtualThreads.newExecutor("task-virtual-");
+
+  /**
+   * @return the customizer handing Tomcat the executor which starts a virtual thread per request
+   */
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+    return protocolHandler -> {
+      protocolHandler.setExecutor(requestExecutor);
+      logger.info("Requests run on virtual threads");
+    };
+  }
+
+  /**
+   * Replaces the pool Spring Boot would create for asynchronous requests, such as the exports
+   *
+   * @return the executor which starts a virtual thread per task
+   */
+  @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  public AsyncTaskExecutor applicationTaskExecutor() {
+    return new TaskExecutorAdapter(taskExecutor);
+  }
+
+  /**
+   * Stops the executors, which Tomcat leaves running as it did not create them
+   */
+  @PreDestroy
+  public void shutdown() {
+    requestExecutor.shutdown();
+    taskExecutor.shutdown();
+  }
+
+  /**
+   * Matches on Java 21 or later
+   */
+  static class OnVirtualThreads extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context,
+        AnnotatedTypeMetadata metadata) {
+      if (VirtualThreads.isSupported()) {
+        return ConditionOutcome.match("Java " + Runtime.version().feature()
+            + " has virtual threads");
+      }
+      logger.warn("threads.virtual is set but Java {} has no virtual threads, requests run on "
+          + "the Tomcat pool", Runtime.version().feature());
+      return ConditionOutcome.noMatch("Java " + Runtime.version().feature()
+          + " has no virtual threads");
+    }
+  }
+}
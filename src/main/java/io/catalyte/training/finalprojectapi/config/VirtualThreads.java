@@ -0,0 +1,102 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads of Java 21, looked up at runtime as the application is built for Java 11
+ */
+public final class VirtualThreads {
+
+  /**
+   * Thread.ofVirtual(), null before Java 21
+   */
+  private static final MethodHandle OF_VIRTUAL;
+
+  /**
+   * Thread.Builder.name(String prefix, long start)
+   */
+  private static final MethodHandle NAME;
+
+  /**
+   * Thread.Builder.factory()
+   */
+  private static final MethodHandle FACTORY;
+
+  /**
+   * Executors.newThreadPerTaskExecutor(ThreadFactory)
+   */
+  private static final MethodHandle THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle factory = null;
+    MethodHandle threadPerTaskExecutor = null;
+    // previews in Java 19 and 20, which throw unless started with --enable-preview
+    if (Runtime.version().feature() >= 21) {
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> builder = Class.forName("java.lang.Thread$Builder");
+        name = lookup.findVirtual(builder, "name",
+            MethodType.methodType(builder, String.class, long.class));
+        factory = lookup.findVirtual(builder, "factory",
+            MethodType.methodType(ThreadFactory.class));
+        threadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+            MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+            MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+      } catch (ReflectiveOperationException e) {
+        ofVirtual = null;
+      }
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+    THREAD_PER_TASK_EXECUTOR = threadPerTaskExecutor;
+  }
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return true if the running Java has virtual threads
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * @param prefix - the start of the thread names, followed by a count from 0
+   * @return a factory of virtual threads
+   * @throws UnsupportedOperationException before Java 21
+   */
+  public static ThreadFactory factory(String prefix) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+    }
+    try {
+      return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(), prefix, 0L));
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param prefix - the start of the thread names, followed by a count from 0
+   * @return an executor which runs every task on a new virtual thread
+   * @throws UnsupportedOperationException before Java 21
+   */
+  public static ExecutorService newExecutor(String prefix) {
+    ThreadFactory factory = factory(prefix);
+    try {
+      return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(factory);
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
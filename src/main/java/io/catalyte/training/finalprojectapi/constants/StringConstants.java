@@ -12,6 +12,7 @@ public class StringConstants {
   public static final String SERVER_ERROR = "Server Error";
   public static final String UNIQUE_FIELD_VIOLATION = "Unique Field Violation";
   public static final String DEPENDENT_ENTITY_DELETE_VIOLATION = "Dependent Entity Delete Violation";
+  public static final String PRECONDITION_FAILED = "Precondition Failed";
   public static final String EMAIL_CONFLICT = "The email address is already associated with another patient";
   public static final String BAD_REQUEST_STATE = "The patient's state must be one of the 50 US states that exist";
   public static final String BAD_REQUEST_GENDER = "The patient's gender is not valid";
@@ -21,6 +22,20 @@ public class StringConstants {
   public static final String BAD_REQUEST_TOTAL_COST = "The encounter's total cost must have exactly 2 decimal places";
   public static final String BAD_REQUEST_COPAY = "The encounter's copay must have exactly 2 decimal places";
   public static final String DELETE_VIOLATION_ENCOUNTERS = "This patient has encounters and cannot be deleted";
+  public static final String BAD_REQUEST_LIMIT = "The limit must be between 1 and 500";
+  public static final String BAD_REQUEST_CURSOR = "The cursor is not valid for this listing";
+  public static final String BAD_REQUEST_SEARCH_LIMIT = "The search limit must be between 1 and 50";
+  public static final String BAD_REQUEST_SEARCH_QUERY = "The search query must contain a letter or digit";
+  public static final String BAD_REQUEST_SORT = "The listing cannot be sorted by ";
+  public static final String BAD_REQUEST_DAYS = "The number of days cannot be negative";
+  public static final String BAD_REQUEST_LATEST = "The latest count must be between 1 and 500";
+  public static final String BAD_REQUEST_LATEST_CURSOR = "A cursor cannot be used with the latest count";
+  public static final String BAD_REQUEST_BATCH_SIZE = "A batch must contain between 1 and 1000 patients";
+  public static final String BAD_REQUEST_CSV_HEADER = "The CSV header is missing the column ";
+  public static final String BAD_REQUEST_CSV_VALUE = "Could not read the value of ";
+  public static final String VERSION_CONFLICT = "The record has changed since the version in the If-Match header, get it again before updating it";
+  public static final String EMAIL_CONFLICT_IN_BATCH = "The email address is already used by an earlier patient in the batch";
+  public static final String REJECTED_ROWS_NOT_FOUND = "The rejected rows do not exist or have expired";
   // General validation
   public static final String REQUIRED_STRING_LENGTH_ERROR = " must have at least 3 characters";
   public static final String REQUIRED_FIELD_ERROR = " is a required field";
@@ -44,6 +59,26 @@ public class StringConstants {
   // Endpoint constants
   public static final String CONTEXT_PATIENTS = "/patients";
   public static final String CONTEXT_ENCOUNTERS = "/patients/{patientId}/encounters";
+  public static final String CONTEXT_ALL_ENCOUNTERS = "/encounters";
   public static final String ID_ENDPOINT = "/{id}";
+  public static final String EXPORT_ENDPOINT = "/export";
+  public static final String SEARCH_ENDPOINT = "/search";
+  public static final String STATS_ENDPOINT = "/stats";
+  public static final String BATCH_ENDPOINT = "/batch";
+  public static final String IMPORT_ENDPOINT = "/import";
+  public static final String IMPORT_REJECTED_ENDPOINT = "/import/rejected";
+  public static final String CONTEXT_ADMIN = "/admin";
+  public static final String CACHES_ENDPOINT = "/caches";
+  public static final String SEARCH_INDEX_ENDPOINT = "/search-index";
+  public static final String SUMMARIES_REBUILD_ENDPOINT = "/encounter-summaries/rebuild";
+  public static final String SLOW_QUERIES_ENDPOINT = "/slow-queries";
+  public static final String PROTOBUF_SCHEMAS_ENDPOINT = "/protobuf-schemas";
+
+  // Header constants
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+  // Logging constants, log4j2.xml rate limits the events carrying this marker
+  public static final String CLIENT_ERROR_MARKER = "CLIENT_ERROR";
 
 }
@@ -0,0 +1,32 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers work on in-memory state until the database change it mirrors is committed
+ */
+public final class AfterCommit {
+
+  private AfterCommit() {
+  }
+
+  /**
+   * Runs the action once the current transaction commits, or straight away if there is none. The
+   * action is dropped if the transaction rolls back.
+   *
+   * @param action - the work to run
+   */
+  public static void run(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+}
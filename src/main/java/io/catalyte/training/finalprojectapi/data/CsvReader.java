@@ -0,0 +1,118 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma separated records one at a time. Fields may be quoted with double quotes, in which
+ * case they can hold commas, line breaks and doubled quotes.
+ */
+public class CsvReader implements Closeable {
+
+  private final BufferedReader reader;
+
+  private long lineNumber;
+
+  public CsvReader(Reader reader) {
+    this.reader = reader instanceof BufferedReader ? (BufferedReader) reader
+        : new BufferedReader(reader);
+  }
+
+  /**
+   * Reads the next record, skipping blank lines
+   *
+   * @return the fields of the record, or null at the end of the input
+   * @throws IOException if the input cannot be read or ends inside a quoted field
+   */
+  public List<String> readRecord() throws IOException {
+    String line;
+    do {
+      line = reader.readLine();
+      if (line == null) {
+        return null;
+      }
+      lineNumber++;
+    } while (line.isEmpty());
+
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+
+    while (true) {
+      if (i == line.length()) {
+        if (!quoted) {
+          break;
+        }
+        // a quoted field carries on over the line break
+        line = reader.readLine();
+        if (line == null) {
+          throw new IOException("Unterminated quoted field at line " + lineNumber);
+        }
+        lineNumber++;
+        field.append('\n');
+        i = 0;
+        continue;
+      }
+
+      char c = line.charAt(i++);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i < line.length() && line.charAt(i) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /**
+   * @return the line the last record ended on, starting from 1
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Formats fields as one record, quoting the ones which need it
+   *
+   * @param fields - the fields to format
+   * @return the record without a line break
+   */
+  public static String format(List<String> fields) {
+    StringBuilder record = new StringBuilder();
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        record.append(',');
+      }
+      String field = fields.get(i) == null ? "" : fields.get(i);
+      if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+        record.append('"').append(field.replace("\"", "\"\"")).append('"');
+      } else {
+        record.append(field);
+      }
+    }
+    return record.toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
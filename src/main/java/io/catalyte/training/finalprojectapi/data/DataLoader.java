@@ -1,11 +1,16 @@
 package io.catalyte.training.finalprojectapi.data;
 
 import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterPartitions;
 import io.catalyte.training.finalprojectapi.domains.encounters.EncounterRepository;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterService;
 import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientIdIndex;
 import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientSearchIndex;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.Arrays;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,9 +28,21 @@ public class DataLoader implements CommandLineRunner {
   @Autowired
   private PatientRepository patientRepository;
 
+  @Autowired
+  private PatientIdIndex patientIdIndex;
+
+  @Autowired
+  private PatientSearchIndex patientSearchIndex;
+
   @Autowired
   private EncounterRepository encounterRepository;
 
+  @Autowired
+  private EncounterService encounterService;
+
+  @Autowired
+  private EncounterPartitions encounterPartitions;
+
   // declare patients
   private Patient patientOne;
   private Patient patientTwo;
@@ -64,6 +81,8 @@ public class DataLoader implements CommandLineRunner {
     logger.info("Loading data...");
     loadPatients();
     loadEncounters();
+    // the encounters are saved through the repository, so their summaries are computed after
+    encounterService.rebuildSummaries(false);
   }
 
   /**
@@ -86,12 +105,22 @@ public class DataLoader implements CommandLineRunner {
         new Patient("Maggie", "Simpson", "555-55-5555", "maggie@mail.com", 1, 26, 130,
             "Burns Insurance", "Female", "123 Main Street", "Springfield", "MA", "90049"));
 
+    // the indexes are built before this runs
+    for (Patient patient : Arrays.asList(patientOne, patientTwo, patientThree, patientFour,
+        patientFive)) {
+      patientIdIndex.added(patient.getId());
+      patientSearchIndex.put(patient);
+    }
   }
 
   /**
    * Saves the encounters to the repository
    */
   private void loadEncounters() {
+    // the encounters are dated in August and September 2020
+    encounterPartitions.ensureCovers(
+        Arrays.asList(Date.valueOf("2020-08-01"), Date.valueOf("2020-09-01")));
+
     encounterOne1 = encounterRepository.save(
         new Encounter(1L, "Lots of interesting notes here", "N3W 3C3", "New Hospital",
             "123.456.789-00", "Z99", new BigDecimal("0.11"), BigDecimal.valueOf(0, 2),
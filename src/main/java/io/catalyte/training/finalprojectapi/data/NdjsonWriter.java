@@ -0,0 +1,80 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a stream of entities as newline delimited JSON, one entity per line. Entities are
+ * detached once written so the persistence context does not grow with the size of the export.
+ */
+@Component
+public class NdjsonWriter {
+
+  /**
+   * number of rows written between flushes to the client, matches the JDBC fetch size of the
+   * export queries
+   */
+  public static final int FLUSH_INTERVAL = 500;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * writer of each entity type, built with its serializer already looked up so no row pays for
+   * the lookup
+   */
+  private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Writes every row of the stream to the output stream. Must be called inside the transaction
+   * which opened the stream.
+   *
+   * @param rows         - the entities to write
+   * @param outputStream - where to write them, left open
+   * @param <T>          the entity type
+   * @return the number of rows written
+   * @throws IOException if the client goes away
+   */
+  public <T> long write(Stream<T> rows, OutputStream outputStream) throws IOException {
+    long count = 0;
+
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+
+      Iterator<T> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        T row = iterator.next();
+        writerFor(row.getClass()).writeValue(generator, row);
+        generator.writeRaw('\n');
+        entityManager.detach(row);
+
+        if (++count % FLUSH_INTERVAL == 0) {
+          generator.flush();
+        }
+      }
+      generator.flush();
+    }
+    return count;
+  }
+
+  private ObjectWriter writerFor(Class<?> type) {
+    return writers.computeIfAbsent(type, key -> objectMapper.writerFor(key)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+  }
+}
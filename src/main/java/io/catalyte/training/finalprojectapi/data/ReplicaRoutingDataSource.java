@@ -0,0 +1,248 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Data source which hands out connections to read-only transactions from the replicas in turn and
+ * every other connection from the primary, see ReplicaRoutingConfig. A replica is skipped while
+ * its last check failed or found it further behind the primary than the maximum lag, and reads go
+ * to the primary when no replica is left.
+ *
+ * <p>The transaction must be read-only when the connection is asked for, so the data source is
+ * wrapped in a LazyConnectionDataSourceProxy, which asks for it at the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger(ReplicaRoutingDataSource.class);
+
+  /**
+   * seconds the replica is behind the primary, 0 if it has replayed all it received or is not a
+   * replica at all
+   */
+  static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+      + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+      + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+  static final String PRIMARY = "primary";
+
+  private final DataSource primary;
+
+  private final List<Replica> replicas;
+
+  private final long maxLagMillis;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  private final Counter primaryConnections;
+
+  private final Counter fallbackConnections;
+
+  private ScheduledExecutorService checks;
+
+  /**
+   * @param primary       - the data source of the primary
+   * @param replicas      - the data sources of the replicas by name
+   * @param maxLag        - how far behind the primary a replica may be and still take reads
+   * @param meterRegistry - where connections routed and replica lag are published
+   */
+  public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+      Duration maxLag, MeterRegistry meterRegistry) {
+    this.primary = primary;
+    this.maxLagMillis = maxLag.toMillis();
+    List<Replica> replicaList = new ArrayList<>();
+    replicas.forEach((name, dataSource) ->
+        replicaList.add(new Replica(name, dataSource, meterRegistry)));
+    this.replicas = Collections.unmodifiableList(replicaList);
+    this.primaryConnections = connectionCounter(meterRegistry, PRIMARY, "false");
+    this.fallbackConnections = connectionCounter(meterRegistry, PRIMARY, "true");
+  }
+
+  private static Counter connectionCounter(MeterRegistry meterRegistry, String target,
+      String readOnly) {
+    return Counter.builder("datasource.routing.connections")
+        .description("Connections handed out, by the data source they came from")
+        .tag("target", target)
+        .tag("read.only", readOnly)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Checks every replica now and then every interval. Until its first check a replica takes no
+   * reads.
+   *
+   * @param interval - the time between checks
+   */
+  public synchronized void start(Duration interval) {
+    if (checks != null) {
+      return;
+    }
+    checks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "replica-check");
+      thread.setDaemon(true);
+      return thread;
+    });
+    checks.scheduleWithFixedDelay(this::check, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Connects to every replica and reads how far behind the primary it is. Never throws, so the
+   * schedule carries on.
+   */
+  public void check() {
+    for (Replica replica : replicas) {
+      try (Connection connection = replica.dataSource.getConnection();
+          Statement statement = connection.createStatement()) {
+        statement.setQueryTimeout(1);
+        try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+          resultSet.next();
+          replica.checked(Math.round(resultSet.getDouble(1) * 1000), maxLagMillis);
+        }
+      } catch (SQLException | RuntimeException e) {
+        replica.failed(e);
+      }
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      primaryConnections.increment();
+      return primary.getConnection();
+    }
+    int start = next.getAndIncrement();
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+      if (replica.isAvailable(maxLagMillis)) {
+        try {
+          Connection connection = replica.dataSource.getConnection();
+          replica.connections.increment();
+          return connection;
+        } catch (SQLException e) {
+          replica.failed(e);
+        }
+      }
+    }
+    fallbackConnections.increment();
+    return primary.getConnection();
+  }
+
+  /**
+   * Not supported, as by the connection pools
+   */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  /**
+   * @return the names of the replicas taking reads
+   */
+  public List<String> availableReplicas() {
+    List<String> names = new ArrayList<>();
+    for (Replica replica : replicas) {
+      if (replica.isAvailable(maxLagMillis)) {
+        names.add(replica.name);
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Stops the checks and closes the data sources which can be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (checks != null) {
+      checks.shutdownNow();
+    }
+    for (Replica replica : replicas) {
+      close(replica.dataSource);
+    }
+    close(primary);
+  }
+
+  private static void close(DataSource dataSource) throws IOException {
+    if (dataSource instanceof Closeable) {
+      ((Closeable) dataSource).close();
+    }
+  }
+
+  /**
+   * A replica and the outcome of its last check
+   */
+  private static class Replica {
+
+    private final String name;
+
+    private final DataSource dataSource;
+
+    private final Counter connections;
+
+    private volatile boolean checked;
+
+    private volatile boolean healthy;
+
+    private volatile long lagMillis;
+
+    private Replica(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+      this.name = name;
+      this.dataSource = dataSource;
+      this.connections = connectionCounter(meterRegistry, name, "true");
+      Gauge.builder("datasource.replica.lag", this, replica -> replica.healthy
+          ? replica.lagMillis / 1000.0 : Double.NaN)
+          .description("Seconds the replica was behind the primary at its last check")
+          .baseUnit("seconds")
+          .tag("replica", name)
+          .register(meterRegistry);
+    }
+
+    private boolean isAvailable(long maxLagMillis) {
+      return healthy && lagMillis <= maxLagMillis;
+    }
+
+    private void checked(long lagMillis, long maxLagMillis) {
+      boolean wasAvailable = isAvailable(maxLagMillis);
+      this.lagMillis = lagMillis;
+      this.healthy = true;
+      this.checked = true;
+      if (wasAvailable && lagMillis > maxLagMillis) {
+        logger.warn("Replica {} is {} ms behind the primary, its reads go to the primary", name,
+            lagMillis);
+      } else if (!wasAvailable && lagMillis <= maxLagMillis) {
+        logger.info("Replica {} is taking reads, {} ms behind the primary", name, lagMillis);
+      }
+    }
+
+    private void failed(Exception e) {
+      if (healthy || !checked) {
+        logger.warn("Replica {} is unavailable, its reads go to the primary: {}", name,
+            e.getMessage());
+      }
+      healthy = false;
+      checked = true;
+    }
+  }
+}
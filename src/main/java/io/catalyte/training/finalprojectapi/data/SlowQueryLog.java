@@ -0,0 +1,228 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every JDBC statement, see DataSourceProxyConfig. Statements slower than
+ * slow-queries.threshold are logged with the types of their parameters, never the values, and
+ * the application method which ran them. Every statement is counted against its SQL with the
+ * literals taken out, and the slowest of those are reported by {@link #statistics}.
+ *
+ * <p>A statement which is not slow costs two map lookups and a few counter updates, as the SQL
+ * Hibernate runs is normalized once and the result cached.
+ */
+@Component
+public class SlowQueryLog implements QueryExecutionListener {
+
+  private static final Logger logger = LogManager.getLogger(SlowQueryLog.class);
+
+  /**
+   * distinct statements counted, any more are only logged when slow
+   */
+  static final int MAX_STATEMENTS = 1000;
+
+  /**
+   * distinct SQL strings whose normalization is cached, any more are normalized on each execution
+   */
+  static final int MAX_CACHED_SQL = 1000;
+
+  private static final String APPLICATION_PACKAGE = "io.catalyte.training.finalprojectapi.";
+
+  // frames of the proxies, aspects and filters between the caller and the driver
+  private static final String CONFIG_PACKAGE = APPLICATION_PACKAGE + "config.";
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])\\d+(?:\\.\\d+)?\\b");
+
+  private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final long thresholdMillis;
+
+  private final int top;
+
+  /**
+   * normalized SQL by the SQL as run, which Hibernate repeats exactly for the same query
+   */
+  private final Map<String, String> normalizedSql = new ConcurrentHashMap<>();
+
+  /**
+   * counters by the normalized SQL, so a query run with IN lists of every size is one statement
+   */
+  private final Map<String, Statement> statements = new ConcurrentHashMap<>();
+
+  public SlowQueryLog(@Value("${slow-queries.threshold:200ms}") Duration threshold,
+      @Value("${slow-queries.top:20}") int top) {
+    this.thresholdMillis = threshold.toMillis();
+    this.top = top;
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  /**
+   * Counts the statements of an execution and logs them if they were slow. A batch of different
+   * statements is timed as a whole, so each of them is charged with the time of the batch.
+   *
+   * @param execInfo      - the timing and outcome of the execution
+   * @param queryInfoList - the statements executed and their parameters
+   */
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    long elapsedMillis = execInfo.getElapsedTime();
+    boolean slow = elapsedMillis >= thresholdMillis;
+    String callSite = slow ? callSite() : null;
+    for (QueryInfo queryInfo : queryInfoList) {
+      Statement statement = statement(queryInfo.getQuery());
+      if (statement != null) {
+        statement.record(elapsedMillis, slow, callSite);
+      }
+      if (slow) {
+        logger.warn("Slow statement took {} ms at {}: {} parameters {}", elapsedMillis, callSite,
+            statement != null ? statement.sql : normalize(queryInfo.getQuery()),
+            parameterTypes(queryInfo));
+      }
+    }
+  }
+
+  /**
+   * @return the slowest statements by their longest execution, then by their total time
+   */
+  public List<SlowQueryStatistics> statistics() {
+    return statements.values().stream()
+        .map(Statement::statistics)
+        .sorted(Comparator.comparingLong(SlowQueryStatistics::getMaxMillis)
+            .thenComparingLong(SlowQueryStatistics::getTotalMillis).reversed())
+        .limit(top)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @param sql - the SQL of an executed statement
+   * @return its counters, or null if there are too many statements to count another
+   */
+  private Statement statement(String sql) {
+    String normalized = normalizedSql.get(sql);
+    if (normalized == null) {
+      normalized = normalize(sql);
+      if (normalizedSql.size() < MAX_CACHED_SQL) {
+        normalizedSql.putIfAbsent(sql, normalized);
+      }
+    }
+    Statement statement = statements.get(normalized);
+    if (statement == null && statements.size() < MAX_STATEMENTS) {
+      statement = statements.computeIfAbsent(normalized, Statement::new);
+    }
+    return statement;
+  }
+
+  /**
+   * Takes the literals out of a statement so the same query with different values is counted
+   * once, and so the values, which may be patient data, are not logged
+   *
+   * @param sql - the SQL of a statement
+   * @return the SQL with its literals replaced by ? and lists of parameters shortened
+   */
+  static String normalize(String sql) {
+    String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+    normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+    normalized = IN_LIST.matcher(normalized).replaceAll("(?, ...)");
+    return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+  }
+
+  /**
+   * @param queryInfo - an executed statement
+   * @return the types of the parameters it was run with, followed by the number of parameter
+   * sets for a batch
+   */
+  static String parameterTypes(QueryInfo queryInfo) {
+    List<List<ParameterSetOperation>> parameterSets = queryInfo.getParametersList();
+    if (parameterSets.isEmpty()) {
+      return "[]";
+    }
+    String types = parameterSets.get(0).stream()
+        .map(SlowQueryLog::parameterType)
+        .collect(Collectors.joining(", ", "[", "]"));
+    return parameterSets.size() == 1 ? types : types + " x " + parameterSets.size();
+  }
+
+  private static String parameterType(ParameterSetOperation operation) {
+    Object[] args = operation.getArgs();
+    if (ParameterSetOperation.isSetNullParameterOperation(operation) || args.length < 2
+        || args[1] == null) {
+      return "null";
+    }
+    return args[1].getClass().getSimpleName();
+  }
+
+  /**
+   * @return the class, method and line of the application code which ran the current statement
+   */
+  static String callSite() {
+    return StackWalker.getInstance().walk(frames -> frames
+        .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+            && !frame.getClassName().startsWith(CONFIG_PACKAGE)
+            && !frame.getClassName().equals(SlowQueryLog.class.getName())
+            && !frame.getClassName().contains("$$"))
+        .findFirst()
+        .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+            + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+        .orElse("unknown"));
+  }
+
+  /**
+   * Counters of one statement, updated without locking
+   */
+  private static class Statement {
+
+    private final String sql;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalMillis = new LongAdder();
+
+    private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder slowCount = new LongAdder();
+
+    private volatile String lastSlowCallSite;
+
+    private Statement(String sql) {
+      this.sql = sql;
+    }
+
+    private void record(long elapsedMillis, boolean slow, String callSite) {
+      count.increment();
+      totalMillis.add(elapsedMillis);
+      maxMillis.accumulate(elapsedMillis);
+      if (slow) {
+        slowCount.increment();
+        lastSlowCallSite = callSite;
+      }
+    }
+
+    private SlowQueryStatistics statistics() {
+      return new SlowQueryStatistics(sql, count.sum(), totalMillis.sum(), maxMillis.get(),
+          slowCount.sum(), lastSlowCallSite);
+    }
+  }
+}
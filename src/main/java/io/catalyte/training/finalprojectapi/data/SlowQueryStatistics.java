@@ -0,0 +1,67 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Timings of one statement since startup
+ */
+@ApiModel(description = "Timings of one statement since startup")
+public class SlowQueryStatistics {
+
+  @ApiModelProperty(notes = "The SQL with its literals replaced by ?")
+  private final String sql;
+
+  @ApiModelProperty(notes = "Executions of the statement")
+  private final long count;
+
+  @ApiModelProperty(notes = "Time spent executing the statement in milliseconds")
+  private final long totalMillis;
+
+  @ApiModelProperty(notes = "Longest execution in milliseconds")
+  private final long maxMillis;
+
+  @ApiModelProperty(notes = "Executions which took longer than slow-queries.threshold")
+  private final long slowCount;
+
+  @ApiModelProperty(notes = "Application method of the last slow execution, null if none")
+  private final String lastSlowCallSite;
+
+  public SlowQueryStatistics(String sql, long count, long totalMillis, long maxMillis,
+      long slowCount, String lastSlowCallSite) {
+    this.sql = sql;
+    this.count = count;
+    this.totalMillis = totalMillis;
+    this.maxMillis = maxMillis;
+    this.slowCount = slowCount;
+    this.lastSlowCallSite = lastSlowCallSite;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getTotalMillis() {
+    return totalMillis;
+  }
+
+  public double getMeanMillis() {
+    return count == 0 ? 0 : (double) totalMillis / count;
+  }
+
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  public long getSlowCount() {
+    return slowCount;
+  }
+
+  public String getLastSlowCallSite() {
+    return lastSlowCallSite;
+  }
+}
@@ -13,6 +13,8 @@ import static io.catalyte.training.finalprojectapi.constants.StringConstants.VIS
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.OptBoolean;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.catalyte.training.finalprojectapi.json.IsoDateSerializer;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import java.math.BigDecimal;
@@ -22,7 +24,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -41,7 +45,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 public class Encounter {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "encounter_seq")
+  @SequenceGenerator(name = "encounter_seq", sequenceName = "encounter_seq", allocationSize = 50)
   @ApiModelProperty(notes = GENERATED_ID)
   private Long id;
 
@@ -107,10 +112,16 @@ public class Encounter {
   private Integer diastolic;
 
   @JsonFormat(pattern = "yyyy-MM-dd", lenient = OptBoolean.FALSE)
+  @JsonSerialize(using = IsoDateSerializer.class)
   @NotNull(message = "Date" + REQUIRED_FIELD_ERROR)
   @DateTimeFormat(pattern = "yyyy-MM-dd")
   private Date date;
 
+  // bumped by every update and sent as the ETag rather than in the body
+  @Version
+  @JsonIgnore
+  private Long version;
+
   public Encounter() {
   }
 
@@ -268,6 +279,14 @@ public class Encounter {
     this.date = date;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   @JsonIgnore
   public boolean isEmpty() {
     return Objects.isNull(id) &&
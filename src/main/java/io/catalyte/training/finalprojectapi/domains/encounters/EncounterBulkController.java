@@ -0,0 +1,107 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ALL_ENCOUNTERS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.EXPORT_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.ID_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.IMPORT_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.IMPORT_REJECTED_ENDPOINT;
+
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.exceptions.InternalServerError;
+import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import java.io.InputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Holds bulk operations for the encounter entity which span every patient
+ */
+@RestController
+@RequestMapping(CONTEXT_ALL_ENCOUNTERS)
+@ApiResponses(value = {
+    @ApiResponse(code = 500, message = "Internal Server Error", response = InternalServerError.class),
+    @ApiResponse(code = 503, message = "Service Unavailable", response = ServiceUnavailable.class)
+})
+public class EncounterBulkController {
+
+  private static final Logger logger = LogManager.getLogger(EncounterBulkController.class);
+
+  @Autowired
+  EncounterService encounterService;
+
+  @Autowired
+  EncounterCsvImporter encounterCsvImporter;
+
+  /**
+   * Streams every encounter as newline delimited JSON, one encounter per line
+   *
+   * @return ResponseEntity which writes the encounters and the HTTP status OK
+   */
+  @GetMapping(value = EXPORT_ENDPOINT)
+  @ApiOperation("Streams every encounter as newline delimited JSON")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = Encounter.class)
+  })
+  public ResponseEntity<StreamingResponseBody> exportEncounters() {
+    logger.debug("Export request received");
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(encounterService::exportEncounters);
+  }
+
+  /**
+   * Imports encounters from a CSV file whose first row names the encounter fields. Rows which fail
+   * validation or name an unknown patient are written to a rejected rows file instead of failing
+   * the import, which the report gives the download URI of.
+   *
+   * @param csv - the request body
+   * @return ResponseEntity with the import report and HTTP status code 200 (OK)
+   */
+  @PostMapping(value = IMPORT_ENDPOINT, consumes = "text/csv")
+  @ApiOperation("Imports encounters from a CSV file")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = EncounterImportReport.class),
+      @ApiResponse(code = 400, message = "BAD DATA", response = BadDataResponse.class)
+  })
+  public ResponseEntity<EncounterImportReport> importEncounters(InputStream csv) {
+    logger.debug("Import request received");
+
+    return new ResponseEntity<>(encounterCsvImporter.importEncounters(csv), HttpStatus.OK);
+  }
+
+  /**
+   * Downloads the rejected rows of an import, until they expire
+   *
+   * @param id - the id in the rejectedRowsUri of the import report
+   * @return ResponseEntity with the rejected rows as CSV and HTTP status code 200 (OK)
+   */
+  @GetMapping(value = IMPORT_REJECTED_ENDPOINT + ID_ENDPOINT, produces = "text/csv")
+  @ApiOperation("Downloads the rejected rows of an import")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK"),
+      @ApiResponse(code = 404, message = "NOT FOUND", response = ResourceNotFound.class)
+  })
+  public ResponseEntity<Resource> getRejectedRows(@PathVariable String id) {
+    logger.debug("Rejected rows request received");
+
+    return new ResponseEntity<>(new FileSystemResource(encounterCsvImporter.getRejectedRows(id)),
+        HttpStatus.OK);
+  }
+}
@@ -2,20 +2,24 @@ package io.catalyte.training.finalprojectapi.domains.encounters;
 
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ENCOUNTERS;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.ID_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.STATS_ENDPOINT;
 
 import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
 import io.catalyte.training.finalprojectapi.exceptions.InternalServerError;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
 import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
 import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import java.util.Date;
 import java.util.List;
 import javax.validation.Valid;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,7 +27,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -43,43 +49,94 @@ public class EncounterController {
   EncounterService encounterService;
 
   /**
-   * Calls the service to retrieve an encounter by Id
+   * Calls the service to retrieve an encounter by Id. A client which sends the ETag of the current
+   * version in If-None-Match is answered 304 from the version alone, without the encounter.
    *
-   * @param id the id of the encounter to be retrieved
-   * @return ResponseEntity<Encounter> - encounter which matches the given id and the HTTP status OK
+   * @param id          the id of the encounter to be retrieved
+   * @param patientId   the id of the patient of the encounter
+   * @param ifNoneMatch the ETags of the versions the client holds, if any
+   * @param accept      the types the client accepts, which pick the format of the ETag
+   * @return ResponseEntity<Encounter> - encounter which matches the given id, its ETag and the
+   * HTTP status OK, or only the ETag and the HTTP status NOT MODIFIED
    */
   @GetMapping(value = ID_ENDPOINT)
   @ApiOperation("Gets an encounter by ID")
   @ApiResponses(value = {
       @ApiResponse(code = 200, message = "OK", response = Encounter.class),
+      @ApiResponse(code = 304, message = "NOT MODIFIED"),
       @ApiResponse(code = 404, message = "NOT FOUND", response = ResourceNotFound.class)
   })
   public ResponseEntity<Encounter> getEncounterById(@PathVariable Long id,
-      @PathVariable Long patientId) throws Exception {
-    logger.info(new Date() + " Get by id " + id + " request received");
+      @PathVariable Long patientId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+      throws Exception {
+    logger.debug("Get by id {} request received", id);
+    String format = EntityTags.formatOf(accept);
 
-    return new ResponseEntity<>(encounterService.getEncounterById(id, patientId), HttpStatus.OK);
+    if (ifNoneMatch != null) {
+      Long version = encounterService.getEncounterVersion(id, patientId);
+      if (EntityTags.isNotModified(ifNoneMatch, version, format)) {
+        return new ResponseEntity<>(EntityTags.toHeaders(version, format), HttpStatus.NOT_MODIFIED);
+      }
+    }
+
+    Encounter encounter = encounterService.getEncounterById(id, patientId);
+    return new ResponseEntity<>(encounter, EntityTags.toHeaders(encounter.getVersion(), format),
+        HttpStatus.OK);
   }
 
   /**
-   * Gets a list of encounters for a given patient Id
+   * Gets a page of encounters for a given patient Id, oldest first unless sorted otherwise. The
+   * cursor of the next page is returned in the X-Next-Cursor header.
    *
    * @param patientId - the id of the patient to get the encounters for
+   * @param search    - codes, provider, date and total cost ranges and sort order to narrow by
+   * @param limit     - the page size, defaults to 50
+   * @param cursor    - the X-Next-Cursor value of the previous page, omitted for the first page
+   * @param unpaged   - true to get every encounter of the patient in a single response
    * @return List of encounters for the patient
    * @throws Exception
    */
   @GetMapping
-  @ApiOperation("Gets all encounters matching a patient id")
+  @ApiOperation("Gets a page of the encounters matching a patient id")
   @ApiResponses(value = {
       @ApiResponse(code = 200, message = "OK", response = Encounter.class),
+      @ApiResponse(code = 400, message = "BAD DATA", response = BadDataResponse.class),
       @ApiResponse(code = 404, message = "NOT FOUND")
   })
-  public ResponseEntity<List<Encounter>> getEncountersByPatientId(@PathVariable Long patientId)
-      throws Exception {
+  public ResponseEntity<List<Encounter>> getEncountersByPatientId(@PathVariable Long patientId,
+      EncounterSearch search,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "false") boolean unpaged) throws Exception {
 
-    return new ResponseEntity<>(encounterService.getEncountersByPatientId(patientId),
-        HttpStatus.OK);
+    if (unpaged) {
+      return new ResponseEntity<>(encounterService.getEncountersByPatientId(patientId, search),
+          HttpStatus.OK);
+    }
+
+    KeysetPage<Encounter> page =
+        encounterService.getEncountersByPatientId(patientId, search, cursor, limit);
+    return new ResponseEntity<>(page.getContent(), page.toHeaders(), HttpStatus.OK);
+  }
 
+  /**
+   * Gets the totals and vitals ranges over every encounter of a patient, computed by the database
+   *
+   * @param patientId - the id of the patient to total the encounters for
+   * @return ResponseEntity with the encounter statistics and HTTP status code 200 (OK)
+   */
+  @GetMapping(value = STATS_ENDPOINT)
+  @ApiOperation("Gets the totals and vitals ranges over every encounter of a patient")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = EncounterStats.class),
+      @ApiResponse(code = 404, message = "NOT FOUND", response = ResourceNotFound.class)
+  })
+  public ResponseEntity<EncounterStats> getEncounterStats(@PathVariable Long patientId) {
+    logger.debug("Encounter stats for patient {} request received", patientId);
+
+    return new ResponseEntity<>(encounterService.getEncounterStats(patientId), HttpStatus.OK);
   }
 
   /**
@@ -96,31 +153,40 @@ public class EncounterController {
   })
   public ResponseEntity<Encounter> save(@Valid @RequestBody Encounter encounter,
       @PathVariable Long patientId) throws Exception {
-    logger.info(new Date() + " Post request received");
+    logger.debug("Post request received");
 
     return new ResponseEntity<>(encounterService.addEncounter(encounter, patientId),
         HttpStatus.CREATED);
   }
 
   /**
-   * Update encounter by id.
+   * Update encounter by id. With an If-Match header the encounter is only updated if it is still
+   * at a version the header names.
    *
    * @param id        the id of the encounter to be updated from the path variable
    * @param encounter the encounter's new information from the request body
-   * @return the encounter if correctly input
+   * @param ifMatch   the ETags of the versions the update was made against, if any
+   * @param accept    the types the client accepts, which pick the format of the ETag
+   * @return the encounter if correctly input, with the ETag of its new version
    */
   @PutMapping(value = ID_ENDPOINT)
   @ApiOperation("Updates an encounter by Id")
   @ApiResponses(value = {
       @ApiResponse(code = 200, message = "OK", response = Encounter.class),
       @ApiResponse(code = 404, message = "NOT FOUND"),
-      @ApiResponse(code = 400, message = "BAD REQUEST")
+      @ApiResponse(code = 400, message = "BAD REQUEST"),
+      @ApiResponse(code = 412, message = "PRECONDITION FAILED", response = PreconditionFailed.class)
   })
   public ResponseEntity<Encounter> updateEncounterById(@PathVariable Long id,
-      @Valid @RequestBody Encounter encounter, @PathVariable Long patientId)
+      @Valid @RequestBody Encounter encounter, @PathVariable Long patientId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
       throws Exception {
 
-    return new ResponseEntity<>(encounterService.updateEncounterById(id, encounter, patientId),
-        HttpStatus.OK);
+    String format = EntityTags.formatOf(accept);
+    Encounter updatedEncounter =
+        encounterService.updateEncounterById(id, encounter, patientId, ifMatch);
+    return new ResponseEntity<>(updatedEncounter,
+        EntityTags.toHeaders(updatedEncounter.getVersion(), format), HttpStatus.OK);
   }
 }
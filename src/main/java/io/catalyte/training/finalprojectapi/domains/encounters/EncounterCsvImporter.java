@@ -0,0 +1,560 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_COPAY;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_CSV_HEADER;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_CSV_VALUE;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_PATIENT_NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_TOTAL_COST;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ALL_ENCOUNTERS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.IMPORT_REJECTED_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.REJECTED_ROWS_NOT_FOUND;
+
+import io.catalyte.training.finalprojectapi.data.CsvReader;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Loads encounters from a CSV file. The file is parsed and validated on the calling thread while
+ * a writer thread resolves patient ids and saves the valid rows in batches. The two are joined by
+ * a bounded queue of chunks, so memory use does not grow with the size of the file. Rows which
+ * fail are written to a rejected rows file instead of stopping the load. The file holds patient
+ * data, so it is readable by its owner only, known to the client by a random id alone and deleted
+ * once it is older than its time to live.
+ */
+@Component
+public class EncounterCsvImporter {
+
+  private static final Logger logger = LogManager.getLogger(EncounterCsvImporter.class);
+
+  /**
+   * rows per chunk, each chunk costs one patient id query and one transaction
+   */
+  static final int CHUNK_SIZE = 500;
+
+  /**
+   * chunks waiting for the writer before the parser blocks
+   */
+  static final int QUEUE_CAPACITY = 4;
+
+  static final List<String> REQUIRED_COLUMNS = Arrays.asList("patientId", "visitCode",
+      "provider", "billingCode", "icd10", "totalCost", "copay", "chiefComplaint", "date");
+
+  private static final List<ImportRow> END_OF_FILE = Collections.emptyList();
+
+  private static final String REJECTS_PREFIX = "encounter-import-";
+  private static final String REJECTS_SUFFIX = "-rejected.csv";
+
+  /**
+   * the ids of rejected rows files, anything else could name another file
+   */
+  private static final Pattern REJECTS_ID = Pattern.compile("[0-9a-f-]{36}");
+
+  /**
+   * the order of the encounter summary, latest date then highest id
+   */
+  private static final Comparator<Encounter> LATEST_FIRST = Comparator
+      .comparing(Encounter::getDate).thenComparing(Encounter::getId).reversed();
+
+  @Autowired
+  EncounterRepository encounterRepository;
+
+  @Autowired
+  EncounterSummaryRepository encounterSummaryRepository;
+
+  @Autowired
+  EncounterPartitions encounterPartitions;
+
+  @Autowired
+  PatientRepository patientRepository;
+
+  @Autowired
+  Validator validator;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Value("${encounters.import.rejects-dir:${java.io.tmpdir}}")
+  String rejectsDirectory;
+
+  @Value("${encounters.import.rejects-ttl:1h}")
+  Duration rejectsTimeToLive;
+
+  private ScheduledExecutorService rejectsCleanup;
+
+  /**
+   * Deletes expired rejected rows files now, which removes those left by a previous run, and then
+   * every half of their time to live
+   */
+  @PostConstruct
+  public void startRejectsCleanup() {
+    rejectsCleanup = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "encounter-import-cleanup");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = Math.max(rejectsTimeToLive.toMillis() / 2, 1000);
+    rejectsCleanup.scheduleWithFixedDelay(this::deleteExpiredRejects, 0, intervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stopRejectsCleanup() {
+    rejectsCleanup.shutdownNow();
+  }
+
+  /**
+   * Imports every row of a CSV file. The first row must be a header naming the encounter fields;
+   * notes, pulse, systolic and diastolic may be left out.
+   *
+   * @param csv - the file, UTF-8 encoded
+   * @return how many rows were imported and rejected and where to download the rejected rows
+   * @throws BadDataResponse    if the header is missing a required column
+   * @throws ServiceUnavailable if the file or the database cannot be read or written. Chunks saved
+   *                            before the failure stay saved.
+   */
+  public EncounterImportReport importEncounters(InputStream csv) {
+    long start = System.nanoTime();
+    // not a faster random id, as the id is all that keeps another client from the rows
+    String rejectsId = UUID.randomUUID().toString();
+    Path rejectsFile = rejectsFile(rejectsId);
+    try {
+      if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+        Files.createFile(rejectsFile,
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+      } else {
+        Files.createFile(rejectsFile);
+      }
+    } catch (IOException e) {
+      throw new ServiceUnavailable(e);
+    }
+
+    ExecutorService writerThread = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "encounter-import-writer"));
+    BlockingQueue<List<ImportRow>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    long rows = 0;
+    long imported = 0;
+    long rejected = 0;
+
+    try (CsvReader reader = new CsvReader(
+        new InputStreamReader(csv, StandardCharsets.UTF_8));
+        RejectedRows rejects = new RejectedRows(rejectsFile)) {
+
+      List<String> header = reader.readRecord();
+      Map<String, Integer> columns = columnsOf(header);
+      rejects.writeHeader(header);
+
+      Future<Long> writer = writerThread.submit(() -> writeChunks(queue, rejects));
+
+      List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+      List<String> record;
+      while (!writer.isDone() && (record = reader.readRecord()) != null) {
+        rows++;
+        ImportRow row = new ImportRow(record, reader.getLineNumber());
+        List<String> errors = parse(row, columns);
+        if (!errors.isEmpty()) {
+          rejects.write(row, errors);
+          continue;
+        }
+
+        chunk.add(row);
+        if (chunk.size() == CHUNK_SIZE) {
+          handOff(queue, chunk, writer);
+          chunk = new ArrayList<>(CHUNK_SIZE);
+        }
+      }
+      if (!chunk.isEmpty()) {
+        handOff(queue, chunk, writer);
+      }
+      handOff(queue, END_OF_FILE, writer);
+
+      imported = writer.get();
+      rejected = rejects.getCount();
+    } catch (ExecutionException e) {
+      // an Error on the writer, such as running out of memory, is not the database's doing
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new ServiceUnavailable((Exception) e.getCause());
+    } catch (IOException e) {
+      throw new ServiceUnavailable(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailable(e);
+    } finally {
+      writerThread.shutdownNow();
+      // a failed import reports an error rather than the file, so it goes too
+      if (rejected == 0) {
+        try {
+          Files.deleteIfExists(rejectsFile);
+        } catch (IOException e) {
+          logger.warn("Could not delete rejected rows file {}", rejectsFile, e);
+        }
+      }
+    }
+
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    EncounterImportReport report = new EncounterImportReport(rows, imported, rejected,
+        elapsedMillis,
+        rejected == 0 ? null : CONTEXT_ALL_ENCOUNTERS + IMPORT_REJECTED_ENDPOINT + "/" + rejectsId);
+    logger.info("Imported {} of {} encounters in {} ms ({} rows/sec), {} rejected", imported,
+        rows, elapsedMillis, report.getRowsPerSecond(), rejected);
+    return report;
+  }
+
+  /**
+   * Finds the rejected rows file of an import
+   *
+   * @param id - the id in the import report
+   * @return the file
+   * @throws ResourceNotFound if there is no file with the id or it has expired
+   */
+  public Path getRejectedRows(String id) {
+    if (id == null || !REJECTS_ID.matcher(id).matches()) {
+      throw new ResourceNotFound(REJECTED_ROWS_NOT_FOUND);
+    }
+    Path file = rejectsFile(id);
+    try {
+      if (!isExpired(file)) {
+        return file;
+      }
+    } catch (IOException e) {
+      // deleted since, or never written
+    }
+    throw new ResourceNotFound(REJECTED_ROWS_NOT_FOUND);
+  }
+
+  /**
+   * Deletes the rejected rows files older than their time to live. Never throws, so the schedule
+   * carries on.
+   */
+  void deleteExpiredRejects() {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(rejectsDirectory),
+        REJECTS_PREFIX + "*" + REJECTS_SUFFIX)) {
+      for (Path file : files) {
+        try {
+          if (isExpired(file)) {
+            Files.deleteIfExists(file);
+          }
+        } catch (IOException e) {
+          logger.warn("Could not delete rejected rows file {}", file, e);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not list the rejected rows files in {}", rejectsDirectory, e);
+    }
+  }
+
+  private Path rejectsFile(String id) {
+    return Paths.get(rejectsDirectory, REJECTS_PREFIX + id + REJECTS_SUFFIX);
+  }
+
+  private boolean isExpired(Path file) throws IOException {
+    return Files.getLastModifiedTime(file).toInstant().plus(rejectsTimeToLive)
+        .isBefore(Instant.now());
+  }
+
+  /**
+   * Maps the column names of the header to their position
+   *
+   * @param header - the first record of the file
+   * @return column positions by name
+   * @throws BadDataResponse if a required column is missing
+   */
+  private Map<String, Integer> columnsOf(List<String> header) {
+    Map<String, Integer> columns = new HashMap<>();
+    if (header != null) {
+      for (int i = 0; i < header.size(); i++) {
+        columns.put(header.get(i).trim(), i);
+      }
+    }
+    for (String column : REQUIRED_COLUMNS) {
+      if (!columns.containsKey(column)) {
+        throw new BadDataResponse(BAD_REQUEST_CSV_HEADER + column);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Builds the encounter of a row and checks it against the same constraints as a single save,
+   * apart from the patient which is checked in bulk by the writer
+   *
+   * @param row     - the row to parse, its encounter is set when it is valid
+   * @param columns - column positions by name
+   * @return why the row is not valid, empty if it is
+   */
+  private List<String> parse(ImportRow row, Map<String, Integer> columns) {
+    List<String> errors = new ArrayList<>();
+    Encounter encounter = new Encounter();
+
+    encounter.setPatientId(read(row, columns, "patientId", Long::valueOf, errors));
+    encounter.setNotes(read(row, columns, "notes", Function.identity(), errors));
+    encounter.setVisitCode(read(row, columns, "visitCode", Function.identity(), errors));
+    encounter.setProvider(read(row, columns, "provider", Function.identity(), errors));
+    encounter.setBillingCode(read(row, columns, "billingCode", Function.identity(), errors));
+    encounter.setIcd10(read(row, columns, "icd10", Function.identity(), errors));
+    encounter.setTotalCost(read(row, columns, "totalCost", BigDecimal::new, errors));
+    encounter.setCopay(read(row, columns, "copay", BigDecimal::new, errors));
+    encounter.setChiefComplaint(read(row, columns, "chiefComplaint", Function.identity(), errors));
+    encounter.setPulse(read(row, columns, "pulse", Integer::valueOf, errors));
+    encounter.setSystolic(read(row, columns, "systolic", Integer::valueOf, errors));
+    encounter.setDiastolic(read(row, columns, "diastolic", Integer::valueOf, errors));
+    encounter.setDate(read(row, columns, "date", value -> Date.valueOf(LocalDate.parse(value)),
+        errors));
+    if (!errors.isEmpty()) {
+      return errors;
+    }
+
+    for (ConstraintViolation<Encounter> violation : validator.validate(encounter)) {
+      errors.add(violation.getMessage());
+    }
+    if (encounter.getTotalCost() != null && encounter.getTotalCost().scale() != 2) {
+      errors.add(BAD_REQUEST_TOTAL_COST);
+    }
+    if (encounter.getCopay() != null && encounter.getCopay().scale() != 2) {
+      errors.add(BAD_REQUEST_COPAY);
+    }
+
+    row.encounter = encounter;
+    return errors;
+  }
+
+  /**
+   * Reads one column of a row
+   *
+   * @param row     - the row to read
+   * @param columns - column positions by name
+   * @param column  - the column to read
+   * @param parser  - converts the text of the column
+   * @param errors  - where to record a value which cannot be converted
+   * @param <T>     the type of the column
+   * @return the value, or null if the column is absent or blank
+   */
+  private <T> T read(ImportRow row, Map<String, Integer> columns, String column,
+      Function<String, T> parser, List<String> errors) {
+    Integer index = columns.get(column);
+    if (index == null || index >= row.fields.size() || row.fields.get(index).trim().isEmpty()) {
+      return null;
+    }
+    String value = row.fields.get(index).trim();
+    try {
+      return parser.apply(value);
+    } catch (RuntimeException e) {
+      errors.add(BAD_REQUEST_CSV_VALUE + column + ": " + value);
+      return null;
+    }
+  }
+
+  /**
+   * Puts a chunk on the queue, giving up if the writer has stopped
+   */
+  private void handOff(BlockingQueue<List<ImportRow>> queue, List<ImportRow> chunk,
+      Future<Long> writer) throws InterruptedException {
+    while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+      if (writer.isDone()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Runs on the writer thread. Takes chunks off the queue until the end of the file, rejects the
+   * rows whose patient does not exist and saves the rest with their patient summaries, one
+   * transaction per chunk.
+   *
+   * @return the number of encounters saved
+   */
+  private long writeChunks(BlockingQueue<List<ImportRow>> queue, RejectedRows rejects)
+      throws InterruptedException, IOException {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    long imported = 0;
+
+    while (true) {
+      List<ImportRow> chunk = queue.take();
+      if (chunk == END_OF_FILE) {
+        return imported;
+      }
+
+      Set<Long> patientIds = chunk.stream()
+          .map(row -> row.encounter.getPatientId())
+          .collect(Collectors.toSet());
+      Set<Long> existingPatientIds = patientRepository.findExistingIds(patientIds);
+
+      List<Encounter> encounters = new ArrayList<>(chunk.size());
+      for (ImportRow row : chunk) {
+        if (existingPatientIds.contains(row.encounter.getPatientId())) {
+          encounters.add(row.encounter);
+        } else {
+          rejects.write(row, Collections.singletonList(BAD_REQUEST_PATIENT_NOT_FOUND));
+        }
+      }
+
+      encounterPartitions.ensureCovers(encounters.stream()
+          .map(Encounter::getDate)
+          .collect(Collectors.toSet()));
+      transactionTemplate.executeWithoutResult(status -> {
+        encounterRepository.saveAll(encounters);
+        addToSummaries(encounters);
+      });
+      imported += encounters.size();
+    }
+  }
+
+  /**
+   * Adds saved encounters to their patients' summaries, one statement per patient. Patients are
+   * taken in id order so concurrent imports lock the summaries in the same order.
+   *
+   * @param encounters - the encounters of the chunk, with their ids assigned
+   */
+  private void addToSummaries(List<Encounter> encounters) {
+    Map<Long, List<Encounter>> encountersByPatient = encounters.stream()
+        .collect(Collectors.groupingBy(Encounter::getPatientId, TreeMap::new,
+            Collectors.toList()));
+
+    encountersByPatient.forEach((patientId, patientEncounters) -> {
+      BigDecimal totalCost = BigDecimal.ZERO;
+      BigDecimal totalCopay = BigDecimal.ZERO;
+      Encounter latest = null;
+      for (Encounter encounter : patientEncounters) {
+        totalCost = totalCost.add(encounter.getTotalCost());
+        totalCopay = totalCopay.add(encounter.getCopay());
+        if (latest == null || LATEST_FIRST.compare(encounter, latest) < 0) {
+          latest = encounter;
+        }
+      }
+      encounterSummaryRepository.addDelta(patientId, patientEncounters.size(), totalCost,
+          totalCopay, latest);
+    });
+  }
+
+  /**
+   * A data row of the file and, once it has been parsed, its encounter
+   */
+  private static class ImportRow {
+
+    private final List<String> fields;
+    private final long line;
+    private Encounter encounter;
+
+    private ImportRow(List<String> fields, long line) {
+      this.fields = fields;
+      this.line = line;
+    }
+  }
+
+  /**
+   * The rejected rows file, shared by the parser and the writer. Each row is written as it was
+   * read followed by its line number and the reasons it was rejected. Writes hold a lock rather
+   * than a monitor, which would pin a virtual thread to its carrier while the file is written.
+   */
+  private static class RejectedRows implements Closeable {
+
+    private final BufferedWriter writer;
+    private final Lock lock = new ReentrantLock();
+    private long count;
+
+    private RejectedRows(Path file) throws IOException {
+      this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    private void writeHeader(List<String> header) throws IOException {
+      List<String> fields = header == null ? new ArrayList<>() : new ArrayList<>(header);
+      fields.add("line");
+      fields.add("errors");
+      lock.lock();
+      try {
+        writer.write(CsvReader.format(fields));
+        writer.newLine();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void write(ImportRow row, List<String> errors) throws IOException {
+      List<String> fields = new ArrayList<>(row.fields);
+      fields.add(String.valueOf(row.line));
+      fields.add(String.join("; ", errors));
+      String line = CsvReader.format(fields);
+      lock.lock();
+      try {
+        writer.write(line);
+        writer.newLine();
+        count++;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private long getCount() {
+      lock.lock();
+      try {
+        return count;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      lock.lock();
+      try {
+        writer.close();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
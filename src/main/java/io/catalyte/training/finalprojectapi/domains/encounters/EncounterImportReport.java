@@ -0,0 +1,91 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * The outcome of a CSV encounter import
+ */
+@ApiModel(description = "The outcome of a CSV encounter import")
+public class EncounterImportReport {
+
+  @ApiModelProperty(notes = "Number of data rows read from the file")
+  private long rows;
+
+  @ApiModelProperty(notes = "Number of encounters saved")
+  private long imported;
+
+  @ApiModelProperty(notes = "Number of rows written to the rejected rows file")
+  private long rejected;
+
+  @ApiModelProperty(notes = "Time taken by the import in milliseconds")
+  private long elapsedMillis;
+
+  @ApiModelProperty(notes = "Rows read per second")
+  private long rowsPerSecond;
+
+  @ApiModelProperty(notes = "Where to download the rejected rows from until they expire, absent "
+      + "when every row was imported")
+  private String rejectedRowsUri;
+
+  public EncounterImportReport() {
+  }
+
+  public EncounterImportReport(long rows, long imported, long rejected, long elapsedMillis,
+      String rejectedRowsUri) {
+    this.rows = rows;
+    this.imported = imported;
+    this.rejected = rejected;
+    this.elapsedMillis = elapsedMillis;
+    this.rowsPerSecond = rows * 1000 / Math.max(elapsedMillis, 1);
+    this.rejectedRowsUri = rejectedRowsUri;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public void setRows(long rows) {
+    this.rows = rows;
+  }
+
+  public long getImported() {
+    return imported;
+  }
+
+  public void setImported(long imported) {
+    this.imported = imported;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public void setRejected(long rejected) {
+    this.rejected = rejected;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public void setElapsedMillis(long elapsedMillis) {
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public long getRowsPerSecond() {
+    return rowsPerSecond;
+  }
+
+  public void setRowsPerSecond(long rowsPerSecond) {
+    this.rowsPerSecond = rowsPerSecond;
+  }
+
+  public String getRejectedRowsUri() {
+    return rejectedRowsUri;
+  }
+
+  public void setRejectedRowsUri(String rejectedRowsUri) {
+    this.rejectedRowsUri = rejectedRowsUri;
+  }
+}
@@ -0,0 +1,247 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Optionally stores encounters in a Postgres table range partitioned by month of the encounter
+ * date, so date range queries only read the months they cover and old months can be detached
+ * whole. Turned on with encounters.partitioning.enabled.
+ *
+ * <p>At startup a plain encounter table is converted and the current month and the next
+ * encounters.partitioning.months-ahead months are created. Encounter writes call
+ * {@link #ensureCovers} first, which creates any other month they need. A month is created as a
+ * table of its own and then attached, which does not wait for transactions reading or writing
+ * encounters.
+ */
+@Component
+public class EncounterPartitions {
+
+  private static final Logger logger = LogManager.getLogger(EncounterPartitions.class);
+
+  static final String PARTITION_PREFIX = "encounter_p";
+
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+  /**
+   * how long creating a month may wait for a conflicting lock before the write fails
+   */
+  private static final String LOCK_TIMEOUT = "5s";
+
+  private final boolean enabled;
+
+  private final int monthsAhead;
+
+  private final TransactionTemplate transactionTemplate;
+
+  /**
+   * months known to have a partition, only ever grows
+   */
+  private final Set<YearMonth> months = ConcurrentHashMap.newKeySet();
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public EncounterPartitions(
+      @Value("${encounters.partitioning.enabled:false}") boolean enabled,
+      @Value("${encounters.partitioning.months-ahead:3}") int monthsAhead,
+      PlatformTransactionManager transactionManager) {
+    this.enabled = enabled;
+    this.monthsAhead = monthsAhead;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    // runs beside the caller's transaction, whose locks on encounter it must not wait for
+    this.transactionTemplate
+        .setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Converts the encounter table to a partitioned one if needed and creates the months ahead.
+   * Runs before the data loader and any request.
+   */
+  @EventListener(ContextRefreshedEvent.class)
+  public void partition() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        if (!isPartitioned()) {
+          convert();
+        }
+        months.addAll(existingMonths());
+      });
+      YearMonth now = YearMonth.now();
+      for (int ahead = 0; ahead <= monthsAhead; ahead++) {
+        create(now.plusMonths(ahead));
+      }
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    logger.info("Encounters are partitioned by month, {} partitions", months.size());
+  }
+
+  /**
+   * Makes sure every date has a partition to go to. Cheap once a month exists.
+   *
+   * @param dates - the dates of encounters about to be written
+   * @throws ServiceUnavailable if a month could not be created
+   */
+  public void ensureCovers(Collection<? extends Date> dates) {
+    if (!enabled) {
+      return;
+    }
+    for (Date date : dates) {
+      YearMonth month = monthOf(date);
+      if (!months.contains(month)) {
+        try {
+          create(month);
+        } catch (Exception e) {
+          throw new ServiceUnavailable(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the months with a partition, oldest first
+   */
+  public List<YearMonth> getMonths() {
+    return months.stream().sorted().collect(Collectors.toList());
+  }
+
+  /**
+   * @param date - an encounter date
+   * @return the month it is stored in, read in the time zone timestamps are written in
+   */
+  static YearMonth monthOf(Date date) {
+    return YearMonth.from(new Timestamp(date.getTime()).toLocalDateTime());
+  }
+
+  /**
+   * @param month - a month
+   * @return the name of its partition
+   */
+  static String partitionName(YearMonth month) {
+    return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+  }
+
+  /**
+   * Creates and attaches the partition of a month in a transaction of its own. Another node
+   * creating it at the same time is fine, whichever loses finds it attached.
+   *
+   * @param month - the month to create
+   */
+  private void create(YearMonth month) {
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        entityManager.createNativeQuery("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'")
+            .executeUpdate();
+        attach(month);
+      });
+    } catch (RuntimeException e) {
+      if (!existingMonths().contains(month)) {
+        throw e;
+      }
+    }
+    months.add(month);
+  }
+
+  /**
+   * Creates the table of a month and attaches it to the encounter table, if not attached already
+   *
+   * @param month - the month to create
+   */
+  private void attach(YearMonth month) {
+    if (existingMonths().contains(month)) {
+      return;
+    }
+    String partition = partitionName(month);
+    entityManager.createNativeQuery("CREATE TABLE IF NOT EXISTS " + partition
+        + " (LIKE encounter INCLUDING DEFAULTS INCLUDING CONSTRAINTS)").executeUpdate();
+    entityManager.createNativeQuery("ALTER TABLE encounter ATTACH PARTITION " + partition
+        + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1)
+        + "')").executeUpdate();
+    logger.info("Created encounter partition {}", partition);
+  }
+
+  /**
+   * @return true if the encounter table is already partitioned
+   */
+  private boolean isPartitioned() {
+    return ((Number) entityManager.createNativeQuery("SELECT count(*) FROM pg_partitioned_table "
+        + "WHERE partrelid = CAST('encounter' AS regclass)").getSingleResult()).intValue() > 0;
+  }
+
+  /**
+   * @return the months attached to the encounter table
+   */
+  @SuppressWarnings("unchecked")
+  private Set<YearMonth> existingMonths() {
+    List<String> partitions = entityManager.createNativeQuery("SELECT c.relname FROM "
+        + "pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+        + "WHERE i.inhparent = CAST('encounter' AS regclass)").getResultList();
+    return partitions.stream()
+        .filter(partition -> partition.startsWith(PARTITION_PREFIX))
+        .map(partition -> YearMonth.parse(partition.substring(PARTITION_PREFIX.length()),
+            PARTITION_SUFFIX))
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Replaces the plain encounter table with a partitioned one holding the same rows, with a
+   * partition for each month that has encounters. The primary key of a partitioned table must
+   * include the date, so it becomes (id, date); ids still come from the sequence.
+   */
+  @SuppressWarnings("unchecked")
+  private void convert() {
+    entityManager.createNativeQuery("LOCK TABLE encounter IN ACCESS EXCLUSIVE MODE")
+        .executeUpdate();
+    entityManager.createNativeQuery("ALTER TABLE encounter RENAME TO encounter_unpartitioned")
+        .executeUpdate();
+    entityManager.createNativeQuery("CREATE TABLE encounter (LIKE encounter_unpartitioned "
+        + "INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (date)").executeUpdate();
+
+    List<Date> firstDays = entityManager.createNativeQuery("SELECT DISTINCT "
+        + "date_trunc('month', date) FROM encounter_unpartitioned").getResultList();
+    for (Date firstDay : firstDays) {
+      attach(monthOf(firstDay));
+    }
+    entityManager.createNativeQuery("INSERT INTO encounter SELECT * FROM encounter_unpartitioned")
+        .executeUpdate();
+    entityManager.createNativeQuery("DROP TABLE encounter_unpartitioned").executeUpdate();
+
+    // created on the partitioned table, so every partition gets them, see import.sql
+    entityManager.createNativeQuery("ALTER TABLE encounter ADD CONSTRAINT encounter_pkey "
+        + "PRIMARY KEY (id, date)").executeUpdate();
+    entityManager.createNativeQuery("CREATE INDEX encounter_patient_date_idx "
+        + "ON encounter (patient_id, date, id)").executeUpdate();
+    entityManager.createNativeQuery("ALTER TABLE encounter ADD CONSTRAINT encounter_patient_fk "
+        + "FOREIGN KEY (patient_id) REFERENCES patient (id)").executeUpdate();
+    logger.info("Converted the encounter table to monthly partitions, {} months of encounters",
+        firstDays.size());
+  }
+}
@@ -1,14 +1,58 @@
 package io.catalyte.training.finalprojectapi.domains.encounters;
 
-import java.util.List;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * Encounter repository which stores encounters
  */
 @Repository
-public interface EncounterRepository extends JpaRepository<Encounter, Long> {
+public interface EncounterRepository extends JpaRepository<Encounter, Long>,
+    JpaSpecificationExecutor<Encounter>, EncounterRepositoryCustom {
+
+  boolean existsByPatientId(Long patientId);
+
+  /**
+   * Reads the version of an encounter without loading it
+   *
+   * @param id - the id of the encounter
+   * @return the version, or null if there is no encounter with the id
+   */
+  @Query("select e.version from Encounter e where e.id = :id")
+  Long findVersionById(@Param("id") Long id);
+
+  /**
+   * Aggregates every encounter of a patient in the database, reading one row
+   *
+   * @param patientId - the id of the patient
+   * @return the totals and vitals ranges, with a count of 0 if the patient has no encounters
+   */
+  @Query("select new io.catalyte.training.finalprojectapi.domains.encounters.EncounterStats("
+      + "count(e), sum(e.totalCost), sum(e.copay), "
+      + "min(e.pulse), max(e.pulse), avg(e.pulse), "
+      + "min(e.systolic), max(e.systolic), avg(e.systolic), "
+      + "min(e.diastolic), max(e.diastolic), avg(e.diastolic), "
+      + "min(e.date), max(e.date)) "
+      + "from Encounter e where e.patientId = :patientId")
+  EncounterStats findStatsByPatientId(@Param("patientId") Long patientId);
 
-  List<Encounter> findByPatientId(Long patientId);
+  /**
+   * Streams every encounter in id order. The fetch size makes the driver use a server side cursor,
+   * so the caller must hold a read only transaction open while it consumes the stream.
+   */
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  @Query("select e from Encounter e order by e.id")
+  Stream<Encounter> streamAll();
 }
@@ -0,0 +1,13 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import java.util.List;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Encounter repository queries which cannot be expressed as derived query methods
+ */
+public interface EncounterRepositoryCustom {
+
+  List<Encounter> findSlice(Specification<Encounter> specification, Sort sort, int limit);
+}
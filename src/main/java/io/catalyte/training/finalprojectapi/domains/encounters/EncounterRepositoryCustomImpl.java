@@ -0,0 +1,31 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import io.catalyte.training.finalprojectapi.pagination.SliceQuery;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Implements the custom encounter repository queries
+ */
+public class EncounterRepositoryCustomImpl implements EncounterRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Finds at most limit encounters matching a specification, without a count query
+   *
+   * @param specification - the filter and seek predicates
+   * @param sort          - the order of the encounters
+   * @param limit         - the maximum number of encounters to return
+   * @return the matching encounters
+   */
+  @Override
+  public List<Encounter> findSlice(Specification<Encounter> specification, Sort sort,
+      int limit) {
+    return SliceQuery.find(entityManager, Encounter.class, specification, sort, limit);
+  }
+}
@@ -0,0 +1,179 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_DAYS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_SORT;
+
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.pagination.KeysetCursor;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.swagger.annotations.ApiModelProperty;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Date;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Search parameters of encounter listings
+ */
+public class EncounterSearch {
+
+  public static final String SORT_DATE = "date";
+  public static final String SORT_TOTAL_COST = "totalCost";
+
+  @ApiModelProperty(notes = "Office visit code to match")
+  private String visitCode;
+
+  @ApiModelProperty(notes = "Provider to match")
+  private String provider;
+
+  @ApiModelProperty(notes = "Billing code to match")
+  private String billingCode;
+
+  @ApiModelProperty(notes = "ICD10 code to match")
+  private String icd10;
+
+  @DateTimeFormat(pattern = "yyyy-MM-dd")
+  @ApiModelProperty(notes = "Earliest date to match, yyyy-MM-dd")
+  private Date from;
+
+  @DateTimeFormat(pattern = "yyyy-MM-dd")
+  @ApiModelProperty(notes = "Latest date to match, yyyy-MM-dd")
+  private Date to;
+
+  @ApiModelProperty(notes = "Matches dates from this many days before today onwards")
+  private Integer days;
+
+  @ApiModelProperty(notes = "Returns only this many of the most recent matches, newest first")
+  private Integer latest;
+
+  @ApiModelProperty(notes = "Lowest total cost to match")
+  private BigDecimal minTotalCost;
+
+  @ApiModelProperty(notes = "Highest total cost to match")
+  private BigDecimal maxTotalCost;
+
+  @ApiModelProperty(notes = "date or totalCost, ascending with id breaking ties")
+  private String sort = SORT_DATE;
+
+  public String getVisitCode() {
+    return visitCode;
+  }
+
+  public void setVisitCode(String visitCode) {
+    this.visitCode = visitCode;
+  }
+
+  public String getProvider() {
+    return provider;
+  }
+
+  public void setProvider(String provider) {
+    this.provider = provider;
+  }
+
+  public String getBillingCode() {
+    return billingCode;
+  }
+
+  public void setBillingCode(String billingCode) {
+    this.billingCode = billingCode;
+  }
+
+  public String getIcd10() {
+    return icd10;
+  }
+
+  public void setIcd10(String icd10) {
+    this.icd10 = icd10;
+  }
+
+  public Date getFrom() {
+    return from;
+  }
+
+  public void setFrom(Date from) {
+    this.from = from;
+  }
+
+  public Date getTo() {
+    return to;
+  }
+
+  public void setTo(Date to) {
+    this.to = to;
+  }
+
+  public Integer getDays() {
+    return days;
+  }
+
+  public void setDays(Integer days) {
+    this.days = days;
+  }
+
+  public Integer getLatest() {
+    return latest;
+  }
+
+  public void setLatest(Integer latest) {
+    this.latest = latest;
+  }
+
+  /**
+   * @return the earliest date to match, the later of from and the first of the last days, or
+   * null for no lower bound
+   * @throws BadDataResponse if days is negative
+   */
+  public Date earliestDate() {
+    if (days == null) {
+      return from;
+    }
+    if (days < 0) {
+      throw new BadDataResponse(BAD_REQUEST_DAYS);
+    }
+    Date firstDay = java.sql.Date.valueOf(LocalDate.now().minusDays(days));
+    return from == null || from.before(firstDay) ? firstDay : from;
+  }
+
+  public BigDecimal getMinTotalCost() {
+    return minTotalCost;
+  }
+
+  public void setMinTotalCost(BigDecimal minTotalCost) {
+    this.minTotalCost = minTotalCost;
+  }
+
+  public BigDecimal getMaxTotalCost() {
+    return maxTotalCost;
+  }
+
+  public void setMaxTotalCost(BigDecimal maxTotalCost) {
+    this.maxTotalCost = maxTotalCost;
+  }
+
+  public String getSort() {
+    return sort;
+  }
+
+  public void setSort(String sort) {
+    this.sort = sort;
+  }
+
+  /**
+   * @return the order of the listing
+   * @throws BadDataResponse if the sort is not supported
+   */
+  public KeysetSort<Encounter, ?> toKeysetSort() {
+    String order = sort == null ? SORT_DATE : sort;
+    switch (order) {
+      case SORT_DATE:
+        return KeysetSort.by(SORT_DATE, Encounter::getDate, date -> String.valueOf(date.getTime()),
+            date -> new Date(KeysetCursor.toLong(date)), Encounter::getId);
+      case SORT_TOTAL_COST:
+        return KeysetSort.by(SORT_TOTAL_COST, Encounter::getTotalCost, BigDecimal::toPlainString,
+            KeysetCursor::toDecimal, Encounter::getId);
+      default:
+        throw new BadDataResponse(BAD_REQUEST_SORT + order);
+    }
+  }
+}
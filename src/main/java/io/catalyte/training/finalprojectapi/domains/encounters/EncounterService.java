@@ -1,5 +1,7 @@
 package io.catalyte.training.finalprojectapi.domains.encounters;
 
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -7,13 +9,25 @@ import java.util.List;
  */
 public interface EncounterService {
 
-  List<Encounter> queryEncounters(Encounter encounter) throws Exception;
+  KeysetPage<Encounter> queryEncounters(EncounterSearch search, String cursor, Integer limit);
 
   Encounter addEncounter(Encounter encounter, Long patientId) throws Exception;
 
   Encounter getEncounterById(Long id, Long patientId) throws Exception;
 
-  Encounter updateEncounterById(Long id, Encounter encounter, Long patientId) throws Exception;
+  Long getEncounterVersion(Long id, Long patientId);
 
-  List<Encounter> getEncountersByPatientId(Long id);
+  Encounter updateEncounterById(Long id, Encounter encounter, Long patientId, String ifMatch)
+      throws Exception;
+
+  List<Encounter> getEncountersByPatientId(Long patientId, EncounterSearch search);
+
+  KeysetPage<Encounter> getEncountersByPatientId(Long patientId, EncounterSearch search,
+      String cursor, Integer limit);
+
+  EncounterStats getEncounterStats(Long patientId);
+
+  EncounterSummaryRebuild rebuildSummaries(boolean dryRun);
+
+  void exportEncounters(OutputStream outputStream);
 }
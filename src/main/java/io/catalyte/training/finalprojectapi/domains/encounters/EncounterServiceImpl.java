@@ -3,19 +3,37 @@ package io.catalyte.training.finalprojectapi.domains.encounters;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_COPAY;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_ENCOUNTER_NOT_FOUND;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_ID;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_LATEST;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_LATEST_CURSOR;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_PATIENT_NOT_FOUND;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_TOTAL_COST;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.VERSION_CONFLICT;
 
-import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
+import io.catalyte.training.finalprojectapi.data.NdjsonWriter;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientIdIndex;
 import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
 import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
 import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service class which handles the business logic for the encounter entity and implements the
@@ -26,25 +44,47 @@ public class EncounterServiceImpl implements EncounterService {
 
   private static final Logger logger = LogManager.getLogger(EncounterServiceImpl.class);
 
+  /**
+   * order of the latest encounters, a backward scan of the (patient_id, date, id) index
+   */
+  static final Sort LATEST_FIRST = Sort.by(Direction.DESC, "date", "id");
+
   @Autowired
   EncounterRepository encounterRepository;
 
   @Autowired
-  PatientRepository patientRepository;
+  EncounterSummaryRepository encounterSummaryRepository;
+
+  @Autowired
+  EncounterPartitions encounterPartitions;
+
+  @Autowired
+  PatientIdIndex patientIdIndex;
+
+  @Autowired
+  NdjsonWriter ndjsonWriter;
 
   /**
    * Calls the encounter repository to get all encounters matching a patient Id
    *
    * @param patientId - the patient Id to search encounters for
+   * @param search    - the equality, range and sort parameters
    * @return - a list of encounters
+   * @throws BadDataResponse
    * @throws ServiceUnavailable
    * @throws ResourceNotFound
    */
-  public List<Encounter> getEncountersByPatientId(Long patientId) {
+  @Transactional(readOnly = true)
+  public List<Encounter> getEncountersByPatientId(Long patientId, EncounterSearch search) {
+    if (search.getLatest() != null) {
+      return getLatestEncounters(patientId, search, null).getContent();
+    }
+    Sort sort = search.toKeysetSort().toSort();
+
     // check if the patient exists
     boolean validPatientId = true;
     try {
-      validPatientId = patientRepository.existsById(patientId);
+      validPatientId = patientIdIndex.exists(patientId);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
@@ -55,46 +95,184 @@ public class EncounterServiceImpl implements EncounterService {
 
     // if the patient is valid, get its encounters
     try {
-      return encounterRepository.findByPatientId(patientId);
+      return encounterRepository.findAll(Specification
+          .where(EncounterSpecifications.hasPatientId(patientId))
+          .and(EncounterSpecifications.search(search)), sort);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
   }
 
   /**
-   * Calls the encounter repository to get all encounters matching a query (if query parameters are
-   * provided) or else all encounters
+   * Calls the encounter repository to get one page of the encounters matching a patient Id, in
+   * the requested order. Pages are read with a seek predicate on (sort attribute, id), so later
+   * pages cost the same as the first.
    *
-   * @param encounter - optional sample encounter to query against
-   * @return - a list of encounters
+   * @param patientId - the patient Id to search encounters for
+   * @param search    - the equality, range and sort parameters
+   * @param cursor    - the cursor returned with the previous page, or null for the first page
+   * @param limit     - the page size, or null for the default
+   * @return - a page of encounters and the cursor of the next page
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
    */
-  public List<Encounter> queryEncounters(Encounter encounter) {
+  @Transactional(readOnly = true)
+  public KeysetPage<Encounter> getEncountersByPatientId(Long patientId, EncounterSearch search,
+      String cursor, Integer limit) {
+    if (search.getLatest() != null) {
+      return getLatestEncounters(patientId, search, cursor);
+    }
+    int pageSize = KeysetPage.resolveLimit(limit);
+    KeysetSort<Encounter, ?> sort = search.toKeysetSort();
+
+    Specification<Encounter> specification =
+        Specification.where(EncounterSpecifications.hasPatientId(patientId))
+            .and(EncounterSpecifications.search(search))
+            .and(sort.after(cursor));
 
+    // check if the patient exists
+    boolean validPatientId = true;
     try {
-      if (encounter.isEmpty()) {
-        return encounterRepository.findAll();
-      } else {
-        Example<Encounter> encounterExample = Example.of(encounter);
-        return encounterRepository.findAll(encounterExample);
-      }
+      validPatientId = patientIdIndex.exists(patientId);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    // throw error if patient is not valid
+    if (!validPatientId) {
+      throw new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND);
+    }
+
+    // if the patient is valid, get the page of its encounters
+    try {
+      List<Encounter> encounters =
+          encounterRepository.findSlice(specification, sort.toSort(), pageSize + 1);
+      return KeysetPage.of(encounters, pageSize, sort::cursorOf);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  /**
+   * Calls the encounter repository to get the most recent encounters matching a patient Id,
+   * newest first. The sort is ignored and there is no next page.
+   *
+   * @param patientId - the patient Id to search encounters for
+   * @param search    - the equality and range parameters and the number of encounters
+   * @param cursor    - must be null, the latest encounters are a single page
+   * @return - a page of at most latest encounters, without a next cursor
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  private KeysetPage<Encounter> getLatestEncounters(Long patientId, EncounterSearch search,
+      String cursor) {
+    int latest = search.getLatest();
+    if (latest < 1 || latest > KeysetPage.MAX_LIMIT) {
+      throw new BadDataResponse(BAD_REQUEST_LATEST);
+    }
+    if (cursor != null) {
+      throw new BadDataResponse(BAD_REQUEST_LATEST_CURSOR);
+    }
+
+    Specification<Encounter> specification =
+        Specification.where(EncounterSpecifications.hasPatientId(patientId))
+            .and(EncounterSpecifications.search(search));
+
+    // check if the patient exists
+    boolean validPatientId = true;
+    try {
+      validPatientId = patientIdIndex.exists(patientId);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    // throw error if patient is not valid
+    if (!validPatientId) {
+      throw new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND);
+    }
+
+    try {
+      return new KeysetPage<>(encounterRepository.findSlice(specification, LATEST_FIRST, latest),
+          null);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  /**
+   * Calls the encounter repository to total the encounters of a patient in the database
+   *
+   * @param patientId - the patient Id to total encounters for
+   * @return - the counts, cost sums, vitals ranges and first and last dates
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  @Transactional(readOnly = true)
+  public EncounterStats getEncounterStats(Long patientId) {
+    // check if the patient exists
+    boolean validPatientId = true;
+    try {
+      validPatientId = patientIdIndex.exists(patientId);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    // throw error if patient is not valid
+    if (!validPatientId) {
+      throw new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND);
+    }
+
+    try {
+      return encounterRepository.findStatsByPatientId(patientId);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
   }
 
   /**
-   * Call the encounter repository to add an encounter
+   * Calls the encounter repository to get one page of the encounters of every patient matching
+   * the search parameters, in the requested order. Pages are read with a seek predicate on (sort
+   * attribute, id), so later pages cost the same as the first.
+   *
+   * @param search - the equality, range and sort parameters
+   * @param cursor - the cursor returned with the previous page, or null for the first page
+   * @param limit  - the page size, or null for the default
+   * @return - a page of encounters and the cursor of the next page
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<Encounter> queryEncounters(EncounterSearch search, String cursor,
+      Integer limit) {
+    int pageSize = KeysetPage.resolveLimit(limit);
+    KeysetSort<Encounter, ?> sort = search.toKeysetSort();
+
+    Specification<Encounter> specification =
+        Specification.where(EncounterSpecifications.search(search)).and(sort.after(cursor));
+
+    try {
+      List<Encounter> encounters =
+          encounterRepository.findSlice(specification, sort.toSort(), pageSize + 1);
+      return KeysetPage.of(encounters, pageSize, sort::cursorOf);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  /**
+   * Call the encounter repository to add an encounter and add it to the patient's summary in the
+   * same transaction
    *
    * @param encounter - the encounter to add
    * @return - the encounter object that has been added
    * @throws ServiceUnavailable
    * @throws BadDataResponse
    */
+  @Transactional
   public Encounter addEncounter(Encounter encounter, Long patientId) throws Exception {
     // check if the patient exists
     boolean validPatientId = true;
     try {
-      validPatientId = patientRepository.existsById(encounter.getPatientId());
+      validPatientId = patientIdIndex.exists(encounter.getPatientId());
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
@@ -116,12 +294,27 @@ public class EncounterServiceImpl implements EncounterService {
       throw new BadDataResponse(BAD_REQUEST_COPAY);
     }
 
-    // save the encounter
+    encounterPartitions.ensureCovers(Collections.singletonList(encounter.getDate()));
+
+    // save the encounter, flushed so a deleted patient fails here rather than at commit
+    Encounter savedEncounter;
+    try {
+      savedEncounter = encounterRepository.saveAndFlush(encounter);
+    } catch (DataIntegrityViolationException e) {
+      // the patient was deleted since it was indexed
+      patientIdIndex.removed(encounter.getPatientId());
+      throw new BadDataResponse(BAD_REQUEST_PATIENT_NOT_FOUND);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+
     try {
-      return encounterRepository.save(encounter);
+      encounterSummaryRepository.addDelta(savedEncounter.getPatientId(), 1,
+          savedEncounter.getTotalCost(), savedEncounter.getCopay(), savedEncounter);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
+    return savedEncounter;
   }
 
   /**
@@ -136,7 +329,7 @@ public class EncounterServiceImpl implements EncounterService {
     // check if the patient is valid
     boolean validPatientId = true;
     try {
-      validPatientId = patientRepository.existsById(patientId);
+      validPatientId = patientIdIndex.exists(patientId);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
@@ -160,14 +353,67 @@ public class EncounterServiceImpl implements EncounterService {
     throw new ResourceNotFound("Could not locate an encounter with the id: " + id);
   }
 
-  public Encounter updateEncounterById(Long id, Encounter encounter, Long patientId)
-      throws Exception {
+  /**
+   * Reads the version of an encounter from the database without loading the encounter
+   *
+   * @param id        - the id of the encounter
+   * @param patientId - the patient Id in the path
+   * @return - the current version of the encounter
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  public Long getEncounterVersion(Long id, Long patientId) {
+    // check if the patient is valid
+    boolean validPatientId = true;
+    try {
+      validPatientId = patientIdIndex.exists(patientId);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    // throw error if patient is not valid
+    if (!validPatientId) {
+      throw new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND);
+    }
+
+    Long version;
+    try {
+      version = encounterRepository.findVersionById(id);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+
+    if (version == null) {
+      // Encounter not found
+      throw new ResourceNotFound("Could not locate an encounter with the id: " + id);
+    }
+    return version;
+  }
+
+  /**
+   * Calls the encounter repository to replace an encounter and moves the difference into the
+   * patient summaries in the same transaction. The save is made against the version that was
+   * read, so an update committed in between fails it rather than being overwritten and leaving
+   * the summaries off by its difference.
+   *
+   * @param id        - the id of the encounter to update
+   * @param encounter - the new encounter
+   * @param patientId - the patient Id in the path
+   * @param ifMatch   - the If-Match header of the request, or null to update any version
+   * @return - the updated encounter with its new version
+   * @throws ServiceUnavailable
+   * @throws BadDataResponse
+   * @throws ResourceNotFound
+   * @throws PreconditionFailed
+   */
+  @Transactional
+  public Encounter updateEncounterById(Long id, Encounter encounter, Long patientId,
+      String ifMatch) throws Exception {
     Encounter existingEncounter;
 
     // check if the patient exists
     boolean validPatientId = true;
     try {
-      validPatientId = patientRepository.existsById(encounter.getPatientId());
+      validPatientId = patientIdIndex.exists(encounter.getPatientId());
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
@@ -205,8 +451,87 @@ public class EncounterServiceImpl implements EncounterService {
       throw new ResourceNotFound(BAD_REQUEST_ENCOUNTER_NOT_FOUND);
     }
 
+    // check the encounter is still at a version the request was made against
+    Set<Long> allowedVersions = EntityTags.allowedVersions(ifMatch);
+    if (allowedVersions != null && !allowedVersions.contains(existingEncounter.getVersion())) {
+      throw new PreconditionFailed(VERSION_CONFLICT);
+    }
+
+    encounterPartitions.ensureCovers(Collections.singletonList(encounter.getDate()));
+
+    // read before saving, the save copies the new values onto the managed existing encounter
+    Long oldPatientId = existingEncounter.getPatientId();
+    BigDecimal oldTotalCost = existingEncounter.getTotalCost();
+    BigDecimal oldCopay = existingEncounter.getCopay();
+    encounter.setVersion(existingEncounter.getVersion());
+
+    Encounter savedEncounter;
+    try {
+      savedEncounter = encounterRepository.saveAndFlush(encounter);
+    } catch (DataIntegrityViolationException e) {
+      // the patient was deleted since it was indexed
+      patientIdIndex.removed(encounter.getPatientId());
+      throw new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND);
+    } catch (ObjectOptimisticLockingFailureException e) {
+      // another update was committed since the encounter was read
+      throw new PreconditionFailed(VERSION_CONFLICT);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+
+    try {
+      Long newPatientId = savedEncounter.getPatientId();
+      if (newPatientId.equals(oldPatientId)) {
+        encounterSummaryRepository.addDelta(newPatientId, 0,
+            savedEncounter.getTotalCost().subtract(oldTotalCost),
+            savedEncounter.getCopay().subtract(oldCopay), null);
+      } else {
+        encounterSummaryRepository.addDelta(oldPatientId, -1, oldTotalCost.negate(),
+            oldCopay.negate(), null);
+        encounterSummaryRepository.addDelta(newPatientId, 1, savedEncounter.getTotalCost(),
+            savedEncounter.getCopay(), null);
+        encounterSummaryRepository.refreshLatest(oldPatientId);
+      }
+      // the new date may move this encounter ahead of or behind another
+      encounterSummaryRepository.refreshLatest(newPatientId);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    return savedEncounter;
+  }
+
+  /**
+   * Recomputes the encounter summaries from the encounters, counting those which had drifted
+   *
+   * @param dryRun - true to only count the drifted summaries
+   * @return - the number of patients with encounters and of drifted summaries
+   * @throws ServiceUnavailable
+   */
+  @Transactional
+  public EncounterSummaryRebuild rebuildSummaries(boolean dryRun) {
+    EncounterSummaryRebuild rebuild;
     try {
-      return encounterRepository.save(encounter);
+      rebuild = encounterSummaryRepository.rebuild(dryRun);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    logger.info("{} {} encounter summaries in {} ms, {} drifted", dryRun ? "Checked" : "Rebuilt",
+        rebuild.getPatients(), rebuild.getElapsedMillis(), rebuild.getDrifted());
+    return rebuild;
+  }
+
+  /**
+   * Streams every encounter to the output stream as newline delimited JSON. Memory use stays flat
+   * regardless of the number of encounters.
+   *
+   * @param outputStream - where to write the encounters
+   * @throws ServiceUnavailable
+   */
+  @Transactional(readOnly = true)
+  public void exportEncounters(OutputStream outputStream) {
+    try (Stream<Encounter> encounters = encounterRepository.streamAll()) {
+      long count = ndjsonWriter.write(encounters, outputStream);
+      logger.info("Exported {} encounters", count);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
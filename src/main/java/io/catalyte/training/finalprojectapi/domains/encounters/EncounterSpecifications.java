@@ -0,0 +1,37 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static io.catalyte.training.finalprojectapi.search.SearchSpecifications.between;
+import static io.catalyte.training.finalprojectapi.search.SearchSpecifications.equal;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filter predicates for encounter queries. Patient id and date are indexed together, see the
+ * Encounter table definition.
+ */
+public final class EncounterSpecifications {
+
+  private EncounterSpecifications() {
+  }
+
+  /**
+   * @param patientId - the id of the patient the encounters belong to
+   * @return patientId = :patientId
+   */
+  public static Specification<Encounter> hasPatientId(Long patientId) {
+    return (root, query, builder) -> builder.equal(root.get("patientId"), patientId);
+  }
+
+  /**
+   * @param search - the equality and range parameters
+   * @return the matching predicate, or null to match every encounter
+   */
+  public static Specification<Encounter> search(EncounterSearch search) {
+    return Specification.<Encounter>where(equal("visitCode", search.getVisitCode()))
+        .and(equal("provider", search.getProvider()))
+        .and(equal("billingCode", search.getBillingCode()))
+        .and(equal("icd10", search.getIcd10()))
+        .and(between("date", search.earliestDate(), search.getTo()))
+        .and(between("totalCost", search.getMinTotalCost(), search.getMaxTotalCost()));
+  }
+}
@@ -0,0 +1,139 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.catalyte.training.finalprojectapi.json.IsoDateSerializer;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Totals and vitals ranges over every encounter of a patient, read as one aggregate row
+ */
+@ApiModel(description = "Totals and vitals ranges over every encounter of a patient")
+public class EncounterStats {
+
+  @ApiModelProperty(notes = "Number of encounters")
+  private final long encounterCount;
+
+  @ApiModelProperty(notes = "Sum of the total costs in US dollars")
+  private final BigDecimal totalCost;
+
+  @ApiModelProperty(notes = "Sum of the copays in US dollars")
+  private final BigDecimal totalCopay;
+
+  @ApiModelProperty(notes = "Lowest recorded pulse, null if none was recorded")
+  private final Integer minPulse;
+
+  @ApiModelProperty(notes = "Highest recorded pulse, null if none was recorded")
+  private final Integer maxPulse;
+
+  @ApiModelProperty(notes = "Average recorded pulse, null if none was recorded")
+  private final Double averagePulse;
+
+  @ApiModelProperty(notes = "Lowest recorded systolic pressure, null if none was recorded")
+  private final Integer minSystolic;
+
+  @ApiModelProperty(notes = "Highest recorded systolic pressure, null if none was recorded")
+  private final Integer maxSystolic;
+
+  @ApiModelProperty(notes = "Average recorded systolic pressure, null if none was recorded")
+  private final Double averageSystolic;
+
+  @ApiModelProperty(notes = "Lowest recorded diastolic pressure, null if none was recorded")
+  private final Integer minDiastolic;
+
+  @ApiModelProperty(notes = "Highest recorded diastolic pressure, null if none was recorded")
+  private final Integer maxDiastolic;
+
+  @ApiModelProperty(notes = "Average recorded diastolic pressure, null if none was recorded")
+  private final Double averageDiastolic;
+
+  @JsonFormat(pattern = "yyyy-MM-dd")
+  @JsonSerialize(using = IsoDateSerializer.class)
+  @ApiModelProperty(notes = "Date of the first encounter, null if there are none")
+  private final Date firstDate;
+
+  @JsonFormat(pattern = "yyyy-MM-dd")
+  @JsonSerialize(using = IsoDateSerializer.class)
+  @ApiModelProperty(notes = "Date of the last encounter, null if there are none")
+  private final Date lastDate;
+
+  public EncounterStats(Long encounterCount, BigDecimal totalCost, BigDecimal totalCopay,
+      Integer minPulse, Integer maxPulse, Double averagePulse,
+      Integer minSystolic, Integer maxSystolic, Double averageSystolic,
+      Integer minDiastolic, Integer maxDiastolic, Double averageDiastolic,
+      Date firstDate, Date lastDate) {
+    this.encounterCount = encounterCount == null ? 0 : encounterCount;
+    this.totalCost = totalCost == null ? BigDecimal.ZERO.setScale(2) : totalCost;
+    this.totalCopay = totalCopay == null ? BigDecimal.ZERO.setScale(2) : totalCopay;
+    this.minPulse = minPulse;
+    this.maxPulse = maxPulse;
+    this.averagePulse = averagePulse;
+    this.minSystolic = minSystolic;
+    this.maxSystolic = maxSystolic;
+    this.averageSystolic = averageSystolic;
+    this.minDiastolic = minDiastolic;
+    this.maxDiastolic = maxDiastolic;
+    this.averageDiastolic = averageDiastolic;
+    this.firstDate = firstDate;
+    this.lastDate = lastDate;
+  }
+
+  public long getEncounterCount() {
+    return encounterCount;
+  }
+
+  public BigDecimal getTotalCost() {
+    return totalCost;
+  }
+
+  public BigDecimal getTotalCopay() {
+    return totalCopay;
+  }
+
+  public Integer getMinPulse() {
+    return minPulse;
+  }
+
+  public Integer getMaxPulse() {
+    return maxPulse;
+  }
+
+  public Double getAveragePulse() {
+    return averagePulse;
+  }
+
+  public Integer getMinSystolic() {
+    return minSystolic;
+  }
+
+  public Integer getMaxSystolic() {
+    return maxSystolic;
+  }
+
+  public Double getAverageSystolic() {
+    return averageSystolic;
+  }
+
+  public Integer getMinDiastolic() {
+    return minDiastolic;
+  }
+
+  public Integer getMaxDiastolic() {
+    return maxDiastolic;
+  }
+
+  public Double getAverageDiastolic() {
+    return averageDiastolic;
+  }
+
+  public Date getFirstDate() {
+    return firstDate;
+  }
+
+  public Date getLastDate() {
+    return lastDate;
+  }
+}
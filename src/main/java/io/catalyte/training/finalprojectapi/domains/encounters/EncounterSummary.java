@@ -0,0 +1,109 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.catalyte.training.finalprojectapi.json.IsoDateSerializer;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.math.BigDecimal;
+import java.util.Date;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Running totals of the encounters of one patient, kept up to date by every encounter write in the
+ * same transaction, so listings can show them without aggregating
+ */
+@Entity
+@Table(name = "encounter_summary")
+@ApiModel(description = "Running totals of the encounters of a patient")
+public class EncounterSummary {
+
+  private static final BigDecimal ZERO = BigDecimal.ZERO.setScale(2);
+
+  @Id
+  @JsonIgnore
+  private Long patientId;
+
+  @ApiModelProperty(notes = "Number of encounters")
+  private long encounterCount;
+
+  @ApiModelProperty(notes = "Sum of the total costs in US dollars")
+  private BigDecimal totalCost;
+
+  @ApiModelProperty(notes = "Sum of the copays in US dollars")
+  private BigDecimal totalCopay;
+
+  @JsonFormat(pattern = "yyyy-MM-dd")
+  @JsonSerialize(using = IsoDateSerializer.class)
+  @ApiModelProperty(notes = "Date of the latest encounter")
+  private Date lastEncounterDate;
+
+  /**
+   * breaks ties between encounters on the same date, the highest id is the latest
+   */
+  @JsonIgnore
+  private Long lastEncounterId;
+
+  @ApiModelProperty(notes = "Pulse recorded at the latest encounter")
+  private Integer lastPulse;
+
+  @ApiModelProperty(notes = "Systolic pressure recorded at the latest encounter")
+  private Integer lastSystolic;
+
+  @ApiModelProperty(notes = "Diastolic pressure recorded at the latest encounter")
+  private Integer lastDiastolic;
+
+  public EncounterSummary() {
+  }
+
+  /**
+   * @param patientId - a patient without encounters
+   * @return the summary of no encounters, as stored for a patient whose encounters have moved
+   */
+  public static EncounterSummary empty(Long patientId) {
+    EncounterSummary summary = new EncounterSummary();
+    summary.patientId = patientId;
+    summary.totalCost = ZERO;
+    summary.totalCopay = ZERO;
+    return summary;
+  }
+
+  public Long getPatientId() {
+    return patientId;
+  }
+
+  public long getEncounterCount() {
+    return encounterCount;
+  }
+
+  public BigDecimal getTotalCost() {
+    return totalCost;
+  }
+
+  public BigDecimal getTotalCopay() {
+    return totalCopay;
+  }
+
+  public Date getLastEncounterDate() {
+    return lastEncounterDate;
+  }
+
+  public Long getLastEncounterId() {
+    return lastEncounterId;
+  }
+
+  public Integer getLastPulse() {
+    return lastPulse;
+  }
+
+  public Integer getLastSystolic() {
+    return lastSystolic;
+  }
+
+  public Integer getLastDiastolic() {
+    return lastDiastolic;
+  }
+}
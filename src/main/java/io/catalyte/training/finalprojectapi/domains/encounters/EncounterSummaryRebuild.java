@@ -0,0 +1,47 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Outcome of recomputing the encounter summaries from the encounters
+ */
+@ApiModel(description = "Outcome of recomputing the encounter summaries from the encounters")
+public class EncounterSummaryRebuild {
+
+  @ApiModelProperty(notes = "Patients with at least one encounter")
+  private final long patients;
+
+  @ApiModelProperty(notes = "Summaries which did not match their encounters")
+  private final long drifted;
+
+  @ApiModelProperty(notes = "True if the summaries were replaced, false for a dry run")
+  private final boolean rebuilt;
+
+  @ApiModelProperty(notes = "Time taken in milliseconds")
+  private final long elapsedMillis;
+
+  public EncounterSummaryRebuild(long patients, long drifted, boolean rebuilt,
+      long elapsedMillis) {
+    this.patients = patients;
+    this.drifted = drifted;
+    this.rebuilt = rebuilt;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public long getPatients() {
+    return patients;
+  }
+
+  public long getDrifted() {
+    return drifted;
+  }
+
+  public boolean isRebuilt() {
+    return rebuilt;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+}
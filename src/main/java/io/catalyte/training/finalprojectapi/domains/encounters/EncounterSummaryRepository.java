@@ -0,0 +1,13 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Encounter summary repository which stores the running totals of each patient's encounters
+ */
+@Repository
+public interface EncounterSummaryRepository extends JpaRepository<EncounterSummary, Long>,
+    EncounterSummaryRepositoryCustom {
+
+}
@@ -0,0 +1,16 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import java.math.BigDecimal;
+
+/**
+ * Summary writes which need SQL beyond what derived queries offer
+ */
+public interface EncounterSummaryRepositoryCustom {
+
+  void addDelta(Long patientId, long encounterCount, BigDecimal totalCost, BigDecimal totalCopay,
+      Encounter latest);
+
+  void refreshLatest(Long patientId);
+
+  EncounterSummaryRebuild rebuild(boolean dryRun);
+}
@@ -0,0 +1,150 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Implements the encounter summary writes in SQL, so concurrent encounter writes for one patient
+ * add to the stored totals instead of overwriting each other
+ */
+public class EncounterSummaryRepositoryCustomImpl implements EncounterSummaryRepositoryCustom {
+
+  /**
+   * one row per patient with encounters, the same shape as encounter_summary
+   */
+  private static final String EXPECTED_SUMMARIES = "SELECT t.patient_id, t.encounter_count, "
+      + "t.total_cost, t.total_copay, l.date AS last_encounter_date, l.id AS last_encounter_id, "
+      + "l.pulse AS last_pulse, l.systolic AS last_systolic, l.diastolic AS last_diastolic "
+      + "FROM (SELECT patient_id, count(*) AS encounter_count, sum(total_cost) AS total_cost, "
+      + "sum(copay) AS total_copay FROM encounter GROUP BY patient_id) t "
+      + "JOIN (SELECT DISTINCT ON (patient_id) patient_id, date, id, pulse, systolic, diastolic "
+      + "FROM encounter ORDER BY patient_id, date DESC, id DESC) l ON l.patient_id = t.patient_id";
+
+  /**
+   * true if the inserted row carries an encounter later than the stored one, by date then id
+   */
+  private static final String LATER = "EXCLUDED.last_encounter_id IS NOT NULL "
+      + "AND (s.last_encounter_id IS NULL OR (EXCLUDED.last_encounter_date, "
+      + "EXCLUDED.last_encounter_id) > (s.last_encounter_date, s.last_encounter_id))";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Adds encounters to the summary of a patient, creating it if needed. The latest encounter
+   * replaces the stored one only if it is later by date, then id.
+   *
+   * @param patientId      - the patient the encounters belong to
+   * @param encounterCount - the number of encounters added, negative to take them away
+   * @param totalCost      - the sum of their total costs
+   * @param totalCopay     - the sum of their copays
+   * @param latest         - the latest of the encounters, or null to leave the stored one
+   */
+  @Override
+  public void addDelta(Long patientId, long encounterCount, BigDecimal totalCost,
+      BigDecimal totalCopay, Encounter latest) {
+    Query query = entityManager.createNativeQuery("INSERT INTO encounter_summary AS s "
+        + "(patient_id, encounter_count, total_cost, total_copay, last_encounter_date, "
+        + "last_encounter_id, last_pulse, last_systolic, last_diastolic) VALUES (:patientId, "
+        + ":encounterCount, :totalCost, :totalCopay, :date, :id, :pulse, :systolic, :diastolic) "
+        + "ON CONFLICT (patient_id) DO UPDATE SET "
+        + "encounter_count = s.encounter_count + EXCLUDED.encounter_count, "
+        + "total_cost = s.total_cost + EXCLUDED.total_cost, "
+        + "total_copay = s.total_copay + EXCLUDED.total_copay, "
+        + "last_encounter_date = " + latest("last_encounter_date") + ", "
+        + "last_encounter_id = " + latest("last_encounter_id") + ", "
+        + "last_pulse = " + latest("last_pulse") + ", "
+        + "last_systolic = " + latest("last_systolic") + ", "
+        + "last_diastolic = " + latest("last_diastolic"));
+
+    NativeQuery<?> nativeQuery = query.unwrap(NativeQuery.class);
+    nativeQuery.setParameter("patientId", patientId, StandardBasicTypes.LONG);
+    nativeQuery.setParameter("encounterCount", encounterCount, StandardBasicTypes.LONG);
+    nativeQuery.setParameter("totalCost", totalCost, StandardBasicTypes.BIG_DECIMAL);
+    nativeQuery.setParameter("totalCopay", totalCopay, StandardBasicTypes.BIG_DECIMAL);
+    // typed so a null binds as the column type rather than bytea
+    nativeQuery.setParameter("date", latest == null ? null : latest.getDate(),
+        StandardBasicTypes.TIMESTAMP);
+    nativeQuery.setParameter("id", latest == null ? null : latest.getId(),
+        StandardBasicTypes.LONG);
+    nativeQuery.setParameter("pulse", latest == null ? null : latest.getPulse(),
+        StandardBasicTypes.INTEGER);
+    nativeQuery.setParameter("systolic", latest == null ? null : latest.getSystolic(),
+        StandardBasicTypes.INTEGER);
+    nativeQuery.setParameter("diastolic", latest == null ? null : latest.getDiastolic(),
+        StandardBasicTypes.INTEGER);
+    nativeQuery.executeUpdate();
+  }
+
+  /**
+   * Reads the latest encounter of a patient back into its summary, for when an update may have
+   * moved or changed the stored one. Uses the (patient_id, date, id) index.
+   *
+   * @param patientId - the patient whose summary to refresh
+   */
+  @Override
+  public void refreshLatest(Long patientId) {
+    entityManager.createNativeQuery("UPDATE encounter_summary s SET (last_encounter_date, "
+        + "last_encounter_id, last_pulse, last_systolic, last_diastolic) = "
+        + "(SELECT date, id, pulse, systolic, diastolic FROM encounter e "
+        + "WHERE e.patient_id = s.patient_id ORDER BY date DESC, id DESC LIMIT 1) "
+        + "WHERE s.patient_id = :patientId")
+        .setParameter("patientId", patientId)
+        .executeUpdate();
+  }
+
+  /**
+   * Recomputes every summary from the encounters and counts the stored summaries which differ.
+   * Must run in a transaction: encounter writes wait on the table lock until the rebuild commits,
+   * so none are lost.
+   *
+   * @param dryRun - true to only count the drifted summaries
+   * @return the number of patients with encounters and of drifted summaries
+   */
+  @Override
+  public EncounterSummaryRebuild rebuild(boolean dryRun) {
+    long start = System.nanoTime();
+    entityManager.createNativeQuery("LOCK TABLE encounter_summary IN EXCLUSIVE MODE")
+        .executeUpdate();
+
+    Object[] counts = (Object[]) entityManager.createNativeQuery("SELECT "
+        + "count(e.patient_id) AS patients, count(*) FILTER (WHERE (e.patient_id, e.encounter_count, "
+        + "e.total_cost, e.total_copay, e.last_encounter_date, e.last_encounter_id, e.last_pulse, "
+        + "e.last_systolic, e.last_diastolic) IS DISTINCT FROM (s.patient_id, s.encounter_count, "
+        + "s.total_cost, s.total_copay, s.last_encounter_date, s.last_encounter_id, s.last_pulse, "
+        + "s.last_systolic, s.last_diastolic)) AS drifted "
+        + "FROM (" + EXPECTED_SUMMARIES + ") e FULL JOIN "
+        // a summary whose encounters all moved to other patients is empty, not drifted
+        + "(SELECT * FROM encounter_summary WHERE encounter_count <> 0) s "
+        + "ON s.patient_id = e.patient_id")
+        .getSingleResult();
+    long patients = ((Number) counts[0]).longValue();
+    long drifted = ((Number) counts[1]).longValue();
+
+    if (!dryRun) {
+      entityManager.createNativeQuery("DELETE FROM encounter_summary").executeUpdate();
+      entityManager.createNativeQuery("INSERT INTO encounter_summary (patient_id, "
+          + "encounter_count, total_cost, total_copay, last_encounter_date, last_encounter_id, "
+          + "last_pulse, last_systolic, last_diastolic) " + EXPECTED_SUMMARIES)
+          .executeUpdate();
+    }
+
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    return new EncounterSummaryRebuild(patients, drifted, !dryRun, elapsedMillis);
+  }
+
+  /**
+   * Picks the inserted or the stored value of a latest encounter column
+   *
+   * @param column - the summary column
+   * @return a SQL expression for the new value of the column
+   */
+  private static String latest(String column) {
+    return "CASE WHEN " + LATER + " THEN EXCLUDED." + column + " ELSE s." + column + " END";
+  }
+}
@@ -9,6 +9,10 @@ import static io.catalyte.training.finalprojectapi.constants.StringConstants.REQ
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.SSN_VALIDATION_ERROR;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonProperty.Access;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSummary;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import java.util.Objects;
@@ -16,7 +20,10 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
@@ -32,7 +39,8 @@ import javax.validation.constraints.Size;
 public class Patient {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_seq")
+  @SequenceGenerator(name = "patient_seq", sequenceName = "patient_seq", allocationSize = 50)
   @ApiModelProperty(notes = GENERATED_ID)
   private Long id;
 
@@ -99,6 +107,18 @@ public class Patient {
   @ApiModelProperty(notes = "Patient postal code")
   private String postal;
 
+  // bumped by every update and sent as the ETag rather than in the body
+  @Version
+  @JsonIgnore
+  private Long version;
+
+  @Transient
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @JsonProperty(access = Access.READ_ONLY)
+  @ApiModelProperty(notes = "Totals of the patient's encounters, only on listings which ask for "
+      + "them", readOnly = true)
+  private EncounterSummary encounterSummary;
+
   public Patient() {
   }
 
@@ -260,6 +280,22 @@ public class Patient {
     this.postal = postal;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
+  public EncounterSummary getEncounterSummary() {
+    return encounterSummary;
+  }
+
+  public void setEncounterSummary(EncounterSummary encounterSummary) {
+    this.encounterSummary = encounterSummary;
+  }
+
   @JsonIgnore
   public boolean isEmpty() {
     return Objects.isNull(id) &&
@@ -0,0 +1,60 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The response to a batch create request, one result per patient in request order
+ */
+@ApiModel(description = "The outcome of a batch of patients")
+public class PatientBatchResponse {
+
+  @ApiModelProperty(notes = "Number of patients created")
+  private int created;
+
+  @ApiModelProperty(notes = "Number of patients rejected")
+  private int rejected;
+
+  @ApiModelProperty(notes = "The outcome of each patient in request order")
+  private List<PatientBatchResult> results;
+
+  public PatientBatchResponse() {
+  }
+
+  public PatientBatchResponse(List<PatientBatchResult> results) {
+    this.results = results;
+    for (PatientBatchResult result : results) {
+      if (result.getStatus() == HttpStatus.CREATED.value()) {
+        created++;
+      } else {
+        rejected++;
+      }
+    }
+  }
+
+  public int getCreated() {
+    return created;
+  }
+
+  public void setCreated(int created) {
+    this.created = created;
+  }
+
+  public int getRejected() {
+    return rejected;
+  }
+
+  public void setRejected(int rejected) {
+    this.rejected = rejected;
+  }
+
+  public List<PatientBatchResult> getResults() {
+    return results;
+  }
+
+  public void setResults(List<PatientBatchResult> results) {
+    this.results = results;
+  }
+}
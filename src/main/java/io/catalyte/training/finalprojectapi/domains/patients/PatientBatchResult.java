@@ -0,0 +1,67 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+
+/**
+ * The outcome of one patient in a batch create request
+ */
+@ApiModel(description = "The outcome of one patient in a batch")
+public class PatientBatchResult {
+
+  @ApiModelProperty(notes = "Position of the patient in the request body")
+  private int index;
+
+  @ApiModelProperty(notes = "201 if the patient was created, otherwise the status a single create "
+      + "would have returned")
+  private int status;
+
+  @ApiModelProperty(notes = "Database id of the created patient")
+  private Long id;
+
+  @ApiModelProperty(notes = "Why the patient was rejected")
+  private List<String> errors;
+
+  public PatientBatchResult() {
+  }
+
+  public PatientBatchResult(int index, int status, Long id, List<String> errors) {
+    this.index = index;
+    this.status = status;
+    this.id = id;
+    this.errors = errors;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public void setIndex(int index) {
+    this.index = index;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public List<String> getErrors() {
+    return errors;
+  }
+
+  public void setErrors(List<String> errors) {
+    this.errors = errors;
+  }
+}
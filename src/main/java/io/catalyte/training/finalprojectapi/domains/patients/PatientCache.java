@@ -0,0 +1,91 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.catalyte.training.finalprojectapi.data.AfterCommit;
+import java.time.Duration;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-process cache of patients by id, read through by getPatientById.
+ *
+ * <p>A load holds the lock on its key until it finishes, and invalidating a key waits for that
+ * lock. Writers invalidate after their change is committed, so a load which read the old row
+ * before the commit is always removed and the next read goes back to the database.
+ */
+@Component
+public class PatientCache {
+
+  private final Cache<Long, Patient> cache;
+
+  public PatientCache(@Value("${patients.cache.maximum-size:10000}") long maximumSize,
+      @Value("${patients.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the cached patient, or loads it. Patients which are not found are not cached.
+   *
+   * @param id     - the id of the patient
+   * @param loader - reads the patient from the database, returning null if there is none
+   * @return the patient, or null if there is none
+   */
+  public Patient get(Long id, Function<Long, Patient> loader) {
+    return cache.get(id, loader);
+  }
+
+  /**
+   * @param id - the id of the patient
+   * @return the cached patient, or null if it is not cached
+   */
+  public Patient getIfPresent(Long id) {
+    return cache.getIfPresent(id);
+  }
+
+  /**
+   * Caches a patient once the current transaction, if any, commits
+   *
+   * @param patient - the saved patient
+   */
+  public void put(Patient patient) {
+    AfterCommit.run(() -> cache.put(patient.getId(), patient));
+  }
+
+  /**
+   * Removes a patient now and again once the current transaction, if any, commits
+   *
+   * @param id - the id of the patient which changed
+   */
+  public void invalidate(Long id) {
+    cache.invalidate(id);
+    AfterCommit.run(() -> cache.invalidate(id));
+  }
+
+  /**
+   * Removes every patient
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return hit, miss, load and eviction counts since startup
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return the approximate number of cached patients
+   */
+  public long size() {
+    return cache.estimatedSize();
+  }
+}
@@ -1,23 +1,30 @@
 package io.catalyte.training.finalprojectapi.domains.patients;
 
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BATCH_ENDPOINT;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.EXPORT_ENDPOINT;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.ID_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.SEARCH_ENDPOINT;
 
 import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
 import io.catalyte.training.finalprojectapi.exceptions.InternalServerError;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
 import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
 import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
 import io.catalyte.training.finalprojectapi.exceptions.UniqueFieldViolation;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import java.util.Date;
 import java.util.List;
 import javax.validation.Valid;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -25,8 +32,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * holds crud methods for the patient entity
@@ -45,40 +55,111 @@ public class PatientController {
   PatientService patientService;
 
   /**
-   * Calls the service to retrieve a patient by Id
+   * Calls the service to retrieve a patient by Id. A client which sends the ETag of the current
+   * version in If-None-Match is answered 304 from the version alone, without the patient.
    *
-   * @param id the id of the patient to be retrieved
-   * @return ResponseEntity<Patient> - patient which matches the given id and the HTTP status OK
+   * @param id          the id of the patient to be retrieved
+   * @param ifNoneMatch the ETags of the versions the client holds, if any
+   * @param accept      the types the client accepts, which pick the format of the ETag
+   * @return ResponseEntity<Patient> - patient which matches the given id, its ETag and the HTTP
+   * status OK, or only the ETag and the HTTP status NOT MODIFIED
    */
   @GetMapping(value = ID_ENDPOINT)
   @ApiOperation("Gets a patient by ID")
   @ApiResponses(value = {
       @ApiResponse(code = 200, message = "OK", response = Patient.class),
+      @ApiResponse(code = 304, message = "NOT MODIFIED"),
       @ApiResponse(code = 404, message = "NOT FOUND", response = ResourceNotFound.class)
   })
-  public ResponseEntity<Patient> getPatientById(@PathVariable Long id) throws Exception {
-    logger.info(new Date() + " Get by id " + id + " request received");
-
-    return new ResponseEntity<>(patientService.getPatientById(id), HttpStatus.OK);
+  public ResponseEntity<Patient> getPatientById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+      throws Exception {
+    logger.debug("Get by id {} request received", id);
+    String format = EntityTags.formatOf(accept);
+
+    if (ifNoneMatch != null) {
+      Long version = patientService.getPatientVersion(id);
+      if (EntityTags.isNotModified(ifNoneMatch, version, format)) {
+        return new ResponseEntity<>(EntityTags.toHeaders(version, format), HttpStatus.NOT_MODIFIED);
+      }
+    }
+
+    Patient patient = patientService.getPatientById(id);
+    return new ResponseEntity<>(patient, EntityTags.toHeaders(patient.getVersion(), format),
+        HttpStatus.OK);
   }
 
   /**
-   * gives me all patients if I pass a null patient or patients matching an example with non-null
-   * patient
+   * gives me a page of all patients if I pass a null patient or of patients matching an example
+   * with non-null patient, narrowed by the search parameters. The cursor of the next page is
+   * returned in the X-Next-Cursor header.
    *
    * @param patient patient object which can have null or non-null fields, returns status 200
+   * @param search  last name prefix, age range and sort order
+   * @param limit   the page size, defaults to 50
+   * @param cursor  the X-Next-Cursor value of the previous page, omitted for the first page
+   * @param unpaged true to get every matching patient in a single response
    * @return List of patients
    * @throws Exception
    */
   @GetMapping
-  @ApiOperation("Gets all patients, or all patients matching an example with patient fields")
+  @ApiOperation("Gets a page of patients, or a page of patients matching an example with patient "
+      + "fields")
   @ApiResponses(value = {
-      @ApiResponse(code = 200, message = "OK", response = Patient.class)
+      @ApiResponse(code = 200, message = "OK", response = Patient.class),
+      @ApiResponse(code = 400, message = "BAD DATA", response = BadDataResponse.class)
   })
-  public ResponseEntity<List<Patient>> queryPatients(Patient patient) throws Exception {
+  public ResponseEntity<List<Patient>> queryPatients(Patient patient, PatientSearch search,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "false") boolean unpaged) throws Exception {
+
+    if (unpaged) {
+      return new ResponseEntity<>(patientService.queryPatients(patient, search),
+          HttpStatus.OK);
+    }
+
+    KeysetPage<Patient> page = patientService.queryPatients(patient, search, cursor, limit);
+    return new ResponseEntity<>(page.getContent(), page.toHeaders(), HttpStatus.OK);
+  }
+
+  /**
+   * Type-ahead search over the first name, last name, email and city of every patient
+   *
+   * @param q     words the patients must contain, a word of one or two characters must start a
+   *              word of the patient
+   * @param limit the most patients to return, defaults to 10
+   * @return List of the best matching patients, best first
+   */
+  @GetMapping(value = SEARCH_ENDPOINT)
+  @ApiOperation("Finds patients by partial name, email or city for type-ahead")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = PatientMatch.class),
+      @ApiResponse(code = 400, message = "BAD DATA", response = BadDataResponse.class)
+  })
+  public ResponseEntity<List<PatientMatch>> searchPatients(@RequestParam String q,
+      @RequestParam(required = false) Integer limit) {
+
+    return new ResponseEntity<>(patientService.searchPatients(q, limit), HttpStatus.OK);
+  }
 
-    return new ResponseEntity<>(patientService.queryPatients(patient), HttpStatus.OK);
+  /**
+   * Streams every patient as newline delimited JSON, one patient per line
+   *
+   * @return ResponseEntity which writes the patients and the HTTP status OK
+   */
+  @GetMapping(value = EXPORT_ENDPOINT)
+  @ApiOperation("Streams every patient as newline delimited JSON")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = Patient.class)
+  })
+  public ResponseEntity<StreamingResponseBody> exportPatients() {
+    logger.debug("Export request received");
 
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(patientService::exportPatients);
   }
 
   /**
@@ -94,7 +175,7 @@ public class PatientController {
       @ApiResponse(code = 404, message = "NOT FOUND", response = ResourceNotFound.class)
   })
   public ResponseEntity deletePatientById(@PathVariable Long id) {
-    logger.info(new Date() + " Delete request received for id: " + id);
+    logger.debug("Delete request received for id: {}", id);
 
     patientService.deletePatient(id);
 
@@ -115,29 +196,57 @@ public class PatientController {
       @ApiResponse(code = 400, message = "BAD DATA", response = BadDataResponse.class)
   })
   public ResponseEntity<Patient> save(@Valid @RequestBody Patient patient) {
-    logger.info(new Date() + " Post request received");
+    logger.debug("Post request received");
 
     return new ResponseEntity<>(patientService.addPatient(patient), HttpStatus.CREATED);
   }
 
   /**
-   * Update patient by id.
+   * Calls the service to save a batch of patients. Each patient is checked like a single save and
+   * the ones which fail are reported instead of failing the batch.
+   *
+   * @param patients - the patients to be saved, at most 1000
+   * @return ResponseEntity with the outcome of each patient and HTTP status code 200 (OK)
+   */
+  @PostMapping(value = BATCH_ENDPOINT)
+  @ApiOperation("Add a batch of patients")
+  @ApiResponses(value = {
+      @ApiResponse(code = 200, message = "OK", response = PatientBatchResponse.class),
+      @ApiResponse(code = 400, message = "BAD DATA", response = BadDataResponse.class)
+  })
+  public ResponseEntity<PatientBatchResponse> saveBatch(@RequestBody List<Patient> patients) {
+    logger.debug("Batch post request received for {} patients", patients.size());
+
+    return new ResponseEntity<>(patientService.addPatients(patients), HttpStatus.OK);
+  }
+
+  /**
+   * Update patient by id. With an If-Match header the patient is only updated if it is still at
+   * a version the header names.
    *
    * @param id      the id of the patient to be updated from the path variable
    * @param patient the patient's new information from the request body
-   * @return the patient if correctly input
+   * @param ifMatch the ETags of the versions the update was made against, if any
+   * @param accept  the types the client accepts, which pick the format of the ETag
+   * @return the patient if correctly input, with the ETag of its new version
    */
   @PutMapping(value = ID_ENDPOINT)
   @ApiOperation("Updates a Patient by Id")
   @ApiResponses(value = {
       @ApiResponse(code = 200, message = "OK", response = Patient.class),
       @ApiResponse(code = 404, message = "NOT FOUND"),
-      @ApiResponse(code = 400, message = "BAD REQUEST")
+      @ApiResponse(code = 400, message = "BAD REQUEST"),
+      @ApiResponse(code = 412, message = "PRECONDITION FAILED", response = PreconditionFailed.class)
   })
   public ResponseEntity<Patient> updatePatientById(@PathVariable Long id,
-      @Valid @RequestBody Patient patient)
+      @Valid @RequestBody Patient patient,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
       throws Exception {
 
-    return new ResponseEntity<>(patientService.updatePatientById(id, patient), HttpStatus.OK);
+    String format = EntityTags.formatOf(accept);
+    Patient updatedPatient = patientService.updatePatientById(id, patient, ifMatch);
+    return new ResponseEntity<>(updatedPatient,
+        EntityTags.toHeaders(updatedPatient.getVersion(), format), HttpStatus.OK);
   }
 }
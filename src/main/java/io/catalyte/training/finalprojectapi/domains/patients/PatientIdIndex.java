@@ -0,0 +1,268 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.catalyte.training.finalprojectapi.data.AfterCommit;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory set of the ids of patients known to exist, kept as a bitset since ids come from a
+ * sequence and are dense. An id in the set is trusted without a query; an id outside it is
+ * confirmed against the database and added if found, so patients created by other nodes are
+ * picked up on first use.
+ *
+ * <p>The set is built before the web server starts and kept up to date by patient creates and
+ * deletes on this node. An id confirmed by a read which may have raced a delete on this node is
+ * not added. A patient deleted by another node stays in the set until the next rebuild, every
+ * patients.id-index.rebuild-interval, so writes of encounters still rely on the encounter to
+ * patient foreign key.
+ */
+@Component
+public class PatientIdIndex implements SmartInitializingSingleton {
+
+  private static final Logger logger = LogManager.getLogger(PatientIdIndex.class);
+
+  private static final int INITIAL_WORDS = 1024;
+
+  /**
+   * ids at or beyond this are never indexed and always confirmed, bounds the set at 256 MB
+   */
+  static final long MAX_INDEXED_ID = Integer.MAX_VALUE;
+
+  private final PatientRepository patientRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Value("${patients.id-index.rebuild-interval:5m}")
+  Duration rebuildInterval;
+
+  private ScheduledExecutorService rebuilds;
+
+  /**
+   * read without locking, replaced and written only while holding the monitor of this index
+   */
+  private volatile AtomicLongArray words = new AtomicLongArray(INITIAL_WORDS);
+
+  /**
+   * the number of ids removed so far, guarded by the monitor of this index
+   */
+  private long removals;
+
+  /**
+   * ids removed while a rebuild reads the table, or null if none runs. Guarded by the monitor of
+   * this index.
+   */
+  private Set<Long> removedDuringRebuild;
+
+  public PatientIdIndex(PatientRepository patientRepository) {
+    this.patientRepository = patientRepository;
+  }
+
+  /**
+   * Checks if a patient exists, querying the database only if the id is not in the set. The id is
+   * only added if no patient was removed while it was confirmed, as the read may have seen a
+   * patient whose delete committed, and was removed from the set, before the id would be added.
+   *
+   * @param id - the id of the patient
+   * @return true if the patient exists
+   */
+  public boolean exists(Long id) {
+    if (id == null) {
+      return false;
+    }
+    if (contains(id)) {
+      return true;
+    }
+    long removalsBefore = removals();
+    boolean exists = patientRepository.existsById(id);
+    if (exists) {
+      addUnlessRemovedSince(id, removalsBefore);
+    }
+    return exists;
+  }
+
+  /**
+   * Adds a patient id once the current transaction, if any, commits
+   *
+   * @param id - the id of a saved patient
+   */
+  public void added(Long id) {
+    if (id == null) {
+      return;
+    }
+    AfterCommit.run(() -> add(id));
+  }
+
+  /**
+   * Removes a patient id now and again once the current transaction, if any, commits
+   *
+   * @param id - the id of a deleted patient
+   */
+  public void removed(Long id) {
+    if (id == null) {
+      return;
+    }
+    remove(id);
+    AfterCommit.run(() -> remove(id));
+  }
+
+  /**
+   * Builds the set once every bean is ready, before the web server takes requests, then rebuilds
+   * it every patients.id-index.rebuild-interval to drop patients deleted by other nodes
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    rebuildOrKeep(Level.INFO);
+    rebuilds = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "patient-id-index");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = Math.max(rebuildInterval.toMillis(), 1000);
+    rebuilds.scheduleWithFixedDelay(() -> rebuildOrKeep(Level.DEBUG), intervalMillis,
+        intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stopRebuilds() {
+    if (rebuilds != null) {
+      rebuilds.shutdownNow();
+    }
+  }
+
+  /**
+   * Replaces the set with the ids of every patient in the database. The table is read in a read
+   * write transaction, so on the primary, as a replica may not have caught up with a delete yet.
+   * Ids removed while the table is read are left out, as the read may still see them. Ids added
+   * meanwhile may be missed and are then confirmed on their next lookup.
+   *
+   * @return the number of ids read
+   */
+  public long rebuild() {
+    synchronized (this) {
+      removedDuringRebuild = new HashSet<>();
+    }
+    try {
+      long[] count = new long[1];
+      AtomicLongArray rebuilt = new TransactionTemplate(transactionManager).execute(status -> {
+        AtomicLongArray ids = new AtomicLongArray(INITIAL_WORDS);
+        try (Stream<Long> stream = patientRepository.streamIds()) {
+          for (Long id : (Iterable<Long>) stream::iterator) {
+            ids = with(ids, id);
+            count[0]++;
+          }
+        }
+        return ids;
+      });
+      synchronized (this) {
+        for (Long id : removedDuringRebuild) {
+          without(rebuilt, id);
+        }
+        words = rebuilt;
+      }
+      return count[0];
+    } finally {
+      synchronized (this) {
+        removedDuringRebuild = null;
+      }
+    }
+  }
+
+  /**
+   * Empties the set, every id is confirmed against the database again
+   */
+  public synchronized void clear() {
+    words = new AtomicLongArray(INITIAL_WORDS);
+  }
+
+  boolean contains(long id) {
+    AtomicLongArray current = words;
+    int word = (int) (id >>> 6);
+    return id >= 0 && id < MAX_INDEXED_ID && word < current.length()
+        && (current.get(word) & (1L << id)) != 0;
+  }
+
+  synchronized void add(long id) {
+    words = with(words, id);
+  }
+
+  synchronized void remove(long id) {
+    without(words, id);
+    removals++;
+    if (removedDuringRebuild != null) {
+      removedDuringRebuild.add(id);
+    }
+  }
+
+  private synchronized long removals() {
+    return removals;
+  }
+
+  private synchronized void addUnlessRemovedSince(long id, long removalsBefore) {
+    if (removals == removalsBefore) {
+      add(id);
+    }
+  }
+
+  /**
+   * @param level - the level to log the size and time of the rebuild at
+   */
+  private void rebuildOrKeep(Level level) {
+    long start = System.currentTimeMillis();
+    try {
+      long count = rebuild();
+      logger.log(level, "Indexed {} patient ids in {} ms", count,
+          System.currentTimeMillis() - start);
+    } catch (RuntimeException e) {
+      logger.warn("Could not rebuild the patient id index, keeping the current one", e);
+    }
+  }
+
+  /**
+   * @param set - a set of ids
+   * @param id  - the id to add
+   * @return the set with the id, grown if needed
+   */
+  private static AtomicLongArray with(AtomicLongArray set, long id) {
+    if (id < 0 || id >= MAX_INDEXED_ID) {
+      return set;
+    }
+    int word = (int) (id >>> 6);
+    if (word >= set.length()) {
+      int length = set.length();
+      while (length <= word) {
+        length = (int) Math.min((long) length * 2, (MAX_INDEXED_ID >>> 6) + 1);
+      }
+      AtomicLongArray grown = new AtomicLongArray(length);
+      for (int i = 0; i < set.length(); i++) {
+        grown.set(i, set.get(i));
+      }
+      set = grown;
+    }
+    set.set(word, set.get(word) | (1L << id));
+    return set;
+  }
+
+  private static void without(AtomicLongArray set, long id) {
+    int word = (int) (id >>> 6);
+    if (id >= 0 && word < set.length()) {
+      set.set(word, set.get(word) & ~(1L << id));
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A patient found by the type-ahead search, with the fields the search looks at
+ */
+@ApiModel(description = "A patient found by the type-ahead search")
+public class PatientMatch {
+
+  @ApiModelProperty(notes = "Patient id")
+  private final Long id;
+
+  @ApiModelProperty(notes = "Patient first name")
+  private final String firstName;
+
+  @ApiModelProperty(notes = "Patient last name")
+  private final String lastName;
+
+  @ApiModelProperty(notes = "Patient email")
+  private final String email;
+
+  @ApiModelProperty(notes = "Patient city")
+  private final String city;
+
+  public PatientMatch(Long id, String firstName, String lastName, String email, String city) {
+    this.id = id;
+    this.firstName = firstName;
+    this.lastName = lastName;
+    this.email = email;
+    this.city = city;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getFirstName() {
+    return firstName;
+  }
+
+  public String getLastName() {
+    return lastName;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public String getCity() {
+    return city;
+  }
+}
@@ -1,13 +1,92 @@
 package io.catalyte.training.finalprojectapi.domains.patients;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Patient repository which stores patients
  */
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, Long> {
+public interface PatientRepository extends JpaRepository<Patient, Long>,
+    JpaSpecificationExecutor<Patient>, PatientRepositoryCustom {
+
+  /**
+   * @param emails - the lower case email addresses to look for
+   * @return the ones which already belong to a patient, in lower case
+   */
+  @Query("select lower(p.email) from Patient p where lower(p.email) in :emails")
+  Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+  /**
+   * @param ids - the patient ids to look for
+   * @return the ones which belong to a patient
+   */
+  @Query("select p.id from Patient p where p.id in :ids")
+  Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Reads the version of a patient without loading it
+   *
+   * @param id - the id of the patient
+   * @return the version, or null if there is no patient with the id
+   */
+  @Query("select p.version from Patient p where p.id = :id")
+  Long findVersionById(@Param("id") Long id);
+
+  /**
+   * Deletes a patient unless it has encounters
+   *
+   * @param id - the id of the patient to delete
+   * @return the number of patients deleted, 0 if there is no patient with the id or it has
+   * encounters
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from Patient p where p.id = :id and not exists "
+      + "(select e.id from Encounter e where e.patientId = p.id)")
+  int deleteIfNoEncounters(@Param("id") Long id);
+
+  /**
+   * Streams every patient in id order. The fetch size makes the driver use a server side cursor,
+   * so the caller must hold a read only transaction open while it consumes the stream.
+   */
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  @Query("select p from Patient p order by p.id")
+  Stream<Patient> streamAll();
+
+  /**
+   * Streams the fields of every patient the type-ahead search looks at, with the same cursor and
+   * transaction needs as streamAll. Rows are read into plain objects, so the persistence context
+   * does not grow with the number of patients.
+   */
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  @Query("select new io.catalyte.training.finalprojectapi.domains.patients.PatientMatch("
+      + "p.id, p.firstName, p.lastName, p.email, p.city) from Patient p order by p.id")
+  Stream<PatientMatch> streamMatches();
 
-  Boolean existsByEmail(String email);
+  /**
+   * Streams the id of every patient, with the same cursor and transaction needs as streamAll
+   */
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query("select p.id from Patient p")
+  Stream<Long> streamIds();
 }
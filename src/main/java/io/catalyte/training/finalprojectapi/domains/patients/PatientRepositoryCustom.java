@@ -0,0 +1,18 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Patient repository queries which cannot be expressed as derived query methods
+ */
+public interface PatientRepositoryCustom {
+
+  List<Patient> findSlice(Specification<Patient> specification, Sort sort, int limit);
+
+  Long updatePatient(Patient patient);
+
+  Long updatePatient(Patient patient, Collection<Long> versions);
+}
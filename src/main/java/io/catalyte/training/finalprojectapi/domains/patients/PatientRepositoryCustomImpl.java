@@ -0,0 +1,90 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.catalyte.training.finalprojectapi.pagination.SliceQuery;
+import java.util.Collection;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implements the custom patient repository queries
+ */
+public class PatientRepositoryCustomImpl implements PatientRepositoryCustom {
+
+  private static final String UPDATE_PATIENT = "UPDATE patient SET first_name = :firstName, "
+      + "last_name = :lastName, ssn = :ssn, email = :email, age = :age, height = :height, "
+      + "weight = :weight, insurance = :insurance, gender = :gender, street = :street, "
+      + "city = :city, state = :state, postal = :postal, version = version + 1 WHERE id = :id";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Finds at most limit patients matching a specification, without a count query
+   *
+   * @param specification - the filter and seek predicates
+   * @param sort          - the order of the patients
+   * @param limit         - the maximum number of patients to return
+   * @return the matching patients
+   */
+  @Override
+  public List<Patient> findSlice(Specification<Patient> specification, Sort sort, int limit) {
+    return SliceQuery.find(entityManager, Patient.class, specification, sort, limit);
+  }
+
+  /**
+   * Replaces every field of a patient and bumps its version in one statement, which returns the
+   * new version so the caller does not have to read it back
+   *
+   * @param patient - the patient's new information, including its id
+   * @return the new version, or null if there is no patient with the id
+   */
+  @Override
+  @Transactional
+  public Long updatePatient(Patient patient) {
+    return update(entityManager.createNativeQuery(UPDATE_PATIENT + " RETURNING version"),
+        patient);
+  }
+
+  /**
+   * Replaces every field of a patient and bumps its version in one statement, if the patient is
+   * still at one of the given versions
+   *
+   * @param patient  - the patient's new information, including its id
+   * @param versions - the versions the patient may be at
+   * @return the new version, or null if there is no patient with the id at one of the versions
+   */
+  @Override
+  @Transactional
+  public Long updatePatient(Patient patient, Collection<Long> versions) {
+    if (versions.isEmpty()) {
+      return null;
+    }
+    return update(entityManager.createNativeQuery(UPDATE_PATIENT
+        + " AND version IN (:versions) RETURNING version")
+        .setParameter("versions", versions), patient);
+  }
+
+  private Long update(Query query, Patient patient) {
+    List<?> versions = query.setParameter("firstName", patient.getFirstName())
+        .setParameter("lastName", patient.getLastName())
+        .setParameter("ssn", patient.getSsn())
+        .setParameter("email", patient.getEmail())
+        .setParameter("age", patient.getAge())
+        .setParameter("height", patient.getHeight())
+        .setParameter("weight", patient.getWeight())
+        .setParameter("insurance", patient.getInsurance())
+        .setParameter("gender", patient.getGender())
+        .setParameter("street", patient.getStreet())
+        .setParameter("city", patient.getCity())
+        .setParameter("state", patient.getState())
+        .setParameter("postal", patient.getPostal())
+        .setParameter("id", patient.getId())
+        .getResultList();
+    return versions.isEmpty() ? null : ((Number) versions.get(0)).longValue();
+  }
+}
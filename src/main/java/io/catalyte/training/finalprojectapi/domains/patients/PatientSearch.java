@@ -0,0 +1,93 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_SORT;
+
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.pagination.KeysetCursor;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Search parameters of patient listings beyond the exact match patient fields
+ */
+public class PatientSearch {
+
+  public static final String SORT_ID = "id";
+  public static final String SORT_LAST_NAME = "lastName";
+  public static final String SORT_AGE = "age";
+
+  @ApiModelProperty(notes = "Matches last names starting with this, ignoring case")
+  private String lastNamePrefix;
+
+  @ApiModelProperty(notes = "Lowest age to match")
+  private Integer minAge;
+
+  @ApiModelProperty(notes = "Highest age to match")
+  private Integer maxAge;
+
+  @ApiModelProperty(notes = "id, lastName or age, ascending with id breaking ties")
+  private String sort = SORT_ID;
+
+  @ApiModelProperty(notes = "Adds each patient's encounter summary, read in one query per page")
+  private boolean includeSummary;
+
+  public String getLastNamePrefix() {
+    return lastNamePrefix;
+  }
+
+  public void setLastNamePrefix(String lastNamePrefix) {
+    this.lastNamePrefix = lastNamePrefix;
+  }
+
+  public Integer getMinAge() {
+    return minAge;
+  }
+
+  public void setMinAge(Integer minAge) {
+    this.minAge = minAge;
+  }
+
+  public Integer getMaxAge() {
+    return maxAge;
+  }
+
+  public void setMaxAge(Integer maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  public String getSort() {
+    return sort;
+  }
+
+  public void setSort(String sort) {
+    this.sort = sort;
+  }
+
+  public boolean isIncludeSummary() {
+    return includeSummary;
+  }
+
+  public void setIncludeSummary(boolean includeSummary) {
+    this.includeSummary = includeSummary;
+  }
+
+  /**
+   * @return the order of the listing
+   * @throws BadDataResponse if the sort is not supported
+   */
+  public KeysetSort<Patient, ?> toKeysetSort() {
+    String order = sort == null ? SORT_ID : sort;
+    switch (order) {
+      case SORT_ID:
+        return KeysetSort.byId(Patient::getId);
+      case SORT_LAST_NAME:
+        return KeysetSort.by(SORT_LAST_NAME, Patient::getLastName, lastName -> lastName,
+            lastName -> lastName, Patient::getId);
+      case SORT_AGE:
+        return KeysetSort.by(SORT_AGE, Patient::getAge, String::valueOf,
+            age -> (int) KeysetCursor.toLong(age), Patient::getId);
+      default:
+        throw new BadDataResponse(BAD_REQUEST_SORT + order);
+    }
+  }
+}
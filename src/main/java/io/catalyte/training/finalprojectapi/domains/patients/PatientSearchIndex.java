@@ -0,0 +1,540 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.catalyte.training.finalprojectapi.data.AfterCommit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory trigram index over the first name, last name, email and city of every patient, for
+ * type-ahead search. Each field is split into words of letters and digits and every word is padded
+ * at the front, so a query word of one or two characters matches words starting with it and a
+ * longer one matches words containing it. Every query word must match.
+ *
+ * <p>Patients get an ordinal as they are indexed and each trigram keeps the sorted ordinals of the
+ * patients having it. Removed patients leave their ordinal behind until enough pile up to rebuild
+ * the postings.
+ *
+ * <p>The index is filled before the web server starts and kept up to date by patient creates,
+ * updates and deletes on this node. Patients changed while it is filled keep the fields of the
+ * change rather than those of the row read before it.
+ */
+@Component
+public class PatientSearchIndex implements SmartInitializingSingleton {
+
+  private static final Logger logger = LogManager.getLogger(PatientSearchIndex.class);
+
+  private static final char PAD = '\u0001';
+  private static final char SEPARATOR = '\u001f';
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * the most patients checked by one search, bounds the cost of words found in most patients
+   */
+  static final int MAX_SCANNED = 10000;
+
+  /**
+   * ranks of a query word found in a patient
+   */
+  private static final int WORD_START = 2;
+  private static final int INSIDE_WORD = 1;
+
+  /**
+   * rough JVM object sizes used to estimate the memory footprint
+   */
+  private static final int OBJECT_BYTES = 16;
+  private static final int MAP_ENTRY_BYTES = 48;
+
+  private final PatientRepository patientRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // guarded by lock
+  private final Map<Long, Postings> postings = new HashMap<>();
+  private final Map<Long, Integer> ordinals = new HashMap<>();
+  private String[] documents = new String[INITIAL_CAPACITY];
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private int size;
+  private int removed;
+
+  /**
+   * ids of patients put or removed while the index is filled, or null if it is not being filled
+   */
+  private Set<Long> changedDuringWarm;
+
+  public PatientSearchIndex(PatientRepository patientRepository) {
+    this.patientRepository = patientRepository;
+  }
+
+  /**
+   * Finds the patients matching every word of a query. Patients where the words start a word rank
+   * first, ties go to the patient indexed first. Patients having every word at the start of a word
+   * are looked up first; only if they do not fill the limit are patients having the words anywhere
+   * looked at, and at most MAX_SCANNED patients are checked in all.
+   *
+   * @param query - words to look for in the name, email and city
+   * @param limit - the most patients to return
+   * @return the best matching patients, best first
+   */
+  public List<PatientMatch> search(String query, int limit) {
+    List<String> words = words(query);
+    if (words.isEmpty() || limit < 1) {
+      return new ArrayList<>();
+    }
+    Ranking ranking = new Ranking(limit, WORD_START * words.size());
+
+    lock.readLock().lock();
+    try {
+      List<Postings> wordStartLists = postingsOf(words, true);
+      if (wordStartLists != null) {
+        scan(wordStartLists, null, words, ranking);
+      }
+      boolean longWords = words.stream().anyMatch(word -> word.length() >= 3);
+      if (longWords && !ranking.isDone()) {
+        List<Postings> insideWordLists = postingsOf(words, false);
+        if (insideWordLists != null) {
+          scan(insideWordLists, wordStartLists, words, ranking);
+        }
+      }
+
+      PatientMatch[] matches = new PatientMatch[ranking.best.size()];
+      for (int i = matches.length - 1; i >= 0; i--) {
+        int ordinal = ranking.best.poll()[0];
+        matches[i] = toMatch(ids[ordinal], documents[ordinal]);
+      }
+      return new ArrayList<>(Arrays.asList(matches));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Indexes a patient, replacing its earlier fields, once the current transaction, if any,
+   * commits
+   *
+   * @param patient - the saved patient
+   */
+  public void put(Patient patient) {
+    if (patient.getId() == null) {
+      return;
+    }
+    PatientMatch match = new PatientMatch(patient.getId(), patient.getFirstName(),
+        patient.getLastName(), patient.getEmail(), patient.getCity());
+    AfterCommit.run(() -> {
+      lock.writeLock().lock();
+      try {
+        changed(match.getId());
+        index(match);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    });
+  }
+
+  /**
+   * Removes a patient once the current transaction, if any, commits
+   *
+   * @param id - the id of a deleted patient
+   */
+  public void removed(Long id) {
+    AfterCommit.run(() -> {
+      lock.writeLock().lock();
+      try {
+        changed(id);
+        remove(id);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    });
+  }
+
+  /**
+   * Fills the index once every bean is ready, before the web server takes requests
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    warm();
+  }
+
+  /**
+   * Fills the index with every patient. The table is read in a read write transaction, so on the
+   * primary. Patients put or removed after the read began are skipped, as the row read may be
+   * older than the change already applied.
+   */
+  public void warm() {
+    long start = System.currentTimeMillis();
+    lock.writeLock().lock();
+    try {
+      changedDuringWarm = new HashSet<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    long count;
+    try {
+      count = new TransactionTemplate(transactionManager).execute(status -> {
+        try (Stream<PatientMatch> matches = patientRepository.streamMatches()) {
+          return matches.filter(this::indexUnlessChanged).count();
+        }
+      });
+    } finally {
+      lock.writeLock().lock();
+      try {
+        changedDuringWarm = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+    logger.info("Indexed {} patients for search in {} ms, about {} MB", count,
+        System.currentTimeMillis() - start, statistics().getEstimatedBytes() / (1024 * 1024));
+  }
+
+  /**
+   * Empties the index
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      ordinals.clear();
+      documents = new String[INITIAL_CAPACITY];
+      ids = new long[INITIAL_CAPACITY];
+      size = 0;
+      removed = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return the number of patients and postings, and an estimate of the heap they take
+   */
+  public PatientSearchIndexStatistics statistics() {
+    lock.readLock().lock();
+    try {
+      long postingCount = 0;
+      long bytes = 0;
+      for (Postings list : postings.values()) {
+        postingCount += list.size;
+        bytes += MAP_ENTRY_BYTES + 2L * OBJECT_BYTES + 4L * list.ordinals.length;
+      }
+      for (int ordinal = 0; ordinal < size; ordinal++) {
+        if (documents[ordinal] != null) {
+          bytes += 2L * OBJECT_BYTES + 8 + documents[ordinal].length();
+        }
+      }
+      bytes += (long) documents.length * 8 + (long) ids.length * 8;
+      bytes += (long) ordinals.size() * (MAP_ENTRY_BYTES + 2 * OBJECT_BYTES);
+      return new PatientSearchIndexStatistics(ordinals.size(), postings.size(), postingCount,
+          removed, bytes);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  void index(PatientMatch match) {
+    lock.writeLock().lock();
+    try {
+      remove(match.getId());
+      add(match.getId(), String.join(String.valueOf(SEPARATOR), valueOf(match.getFirstName()),
+          valueOf(match.getLastName()), valueOf(match.getEmail()), valueOf(match.getCity())));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return true if the patient was indexed, false if it changed since the index began filling
+   */
+  private boolean indexUnlessChanged(PatientMatch match) {
+    lock.writeLock().lock();
+    try {
+      if (changedDuringWarm != null && changedDuringWarm.contains(match.getId())) {
+        return false;
+      }
+      index(match);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // called holding the write lock
+  private void changed(Long id) {
+    if (changedDuringWarm != null) {
+      changedDuringWarm.add(id);
+    }
+  }
+
+  private void add(long id, String document) {
+    if (size == documents.length) {
+      documents = Arrays.copyOf(documents, size * 2);
+      ids = Arrays.copyOf(ids, size * 2);
+    }
+    int ordinal = size++;
+    documents[ordinal] = document;
+    ids[ordinal] = id;
+    ordinals.put(id, ordinal);
+
+    long previous = -1;
+    long[] grams = documentGrams(document);
+    Arrays.sort(grams);
+    for (long gram : grams) {
+      if (gram != previous) {
+        postings.computeIfAbsent(gram, key -> new Postings()).add(ordinal);
+        previous = gram;
+      }
+    }
+  }
+
+  private void remove(Long id) {
+    Integer ordinal = ordinals.remove(id);
+    if (ordinal == null) {
+      return;
+    }
+    documents[ordinal] = null;
+    removed++;
+    if (removed > INITIAL_CAPACITY && removed > ordinals.size()) {
+      compact();
+    }
+  }
+
+  /**
+   * Rebuilds the postings without the ordinals of removed patients
+   */
+  private void compact() {
+    String[] liveDocuments = documents;
+    long[] liveIds = ids;
+    int liveSize = size;
+
+    postings.clear();
+    ordinals.clear();
+    documents = new String[Math.max(INITIAL_CAPACITY, liveSize - removed)];
+    ids = new long[documents.length];
+    size = 0;
+    removed = 0;
+    for (int ordinal = 0; ordinal < liveSize; ordinal++) {
+      if (liveDocuments[ordinal] != null) {
+        add(liveIds[ordinal], liveDocuments[ordinal]);
+      }
+    }
+  }
+
+  /**
+   * @param wordStart - true to only match the words at the start of a word
+   * @return the postings of every trigram of the query words, shortest first, or null if a
+   * trigram is in no patient
+   */
+  private List<Postings> postingsOf(List<String> words, boolean wordStart) {
+    List<Postings> lists = new ArrayList<>();
+    for (String word : words) {
+      for (long gram : queryGrams(word, wordStart)) {
+        Postings list = postings.get(gram);
+        if (list == null) {
+          return null;
+        }
+        lists.add(list);
+      }
+    }
+    lists.sort(Comparator.comparingInt(list -> list.size));
+    return lists;
+  }
+
+  /**
+   * Ranks the patients in every list, walking the shortest list in ordinal order
+   *
+   * @param lists    - the postings to intersect, shortest first
+   * @param excluded - postings whose intersection was already ranked, or null
+   */
+  private void scan(List<Postings> lists, List<Postings> excluded, List<String> words,
+      Ranking ranking) {
+    Postings shortest = lists.get(0);
+    for (int i = 0; i < shortest.size && !ranking.isDone(); i++) {
+      int ordinal = shortest.ordinals[i];
+      if (documents[ordinal] == null || !allContain(lists, ordinal)
+          || (excluded != null && allContain(excluded, ordinal))) {
+        continue;
+      }
+      ranking.offer(ordinal, score(documents[ordinal], words));
+    }
+  }
+
+  private static boolean allContain(List<Postings> lists, int ordinal) {
+    for (Postings list : lists) {
+      if (Arrays.binarySearch(list.ordinals, 0, list.size, ordinal) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the sum of the ranks of the query words, 0 if one is missing
+   */
+  private static int score(String document, List<String> words) {
+    int score = 0;
+    for (String word : words) {
+      int rank = rank(document, word);
+      if (rank == 0) {
+        return 0;
+      }
+      score += rank;
+    }
+    return score;
+  }
+
+  private static int rank(String document, String word) {
+    int rank = 0;
+    for (int i = 0; i + word.length() <= document.length(); i++) {
+      if (document.regionMatches(true, i, word, 0, word.length())) {
+        if (i == 0 || !Character.isLetterOrDigit(document.charAt(i - 1))) {
+          return WORD_START;
+        }
+        rank = INSIDE_WORD;
+      }
+    }
+    return rank;
+  }
+
+  private static long[] documentGrams(String document) {
+    List<String> words = words(document);
+    int count = 0;
+    for (String word : words) {
+      count += word.length();
+    }
+    long[] grams = new long[count];
+    int next = 0;
+    for (String word : words) {
+      String padded = "" + PAD + PAD + word;
+      for (int i = 0; i + 3 <= padded.length(); i++) {
+        grams[next++] = gram(padded, i);
+      }
+    }
+    return grams;
+  }
+
+  /**
+   * Short words are always looked up by their padded prefix, so they only match at the start of a
+   * word
+   */
+  private static long[] queryGrams(String word, boolean wordStart) {
+    String padded;
+    if (word.length() == 1) {
+      padded = "" + PAD + PAD + word;
+    } else if (word.length() == 2) {
+      padded = PAD + word;
+    } else {
+      padded = wordStart ? "" + PAD + PAD + word : word;
+    }
+    long[] grams = new long[padded.length() - 2];
+    for (int i = 0; i < grams.length; i++) {
+      grams[i] = gram(padded, i);
+    }
+    return grams;
+  }
+
+  private static long gram(String word, int start) {
+    return ((long) word.charAt(start) << 32) | ((long) word.charAt(start + 1) << 16)
+        | word.charAt(start + 2);
+  }
+
+  /**
+   * @return the lower case runs of letters and digits in the text
+   */
+  private static List<String> words(String text) {
+    List<String> words = new ArrayList<>();
+    if (text == null) {
+      return words;
+    }
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i <= text.length(); i++) {
+      char c = i < text.length() ? text.charAt(i) : ' ';
+      if (Character.isLetterOrDigit(c)) {
+        word.append(Character.toLowerCase(c));
+      } else if (word.length() > 0) {
+        words.add(word.toString());
+        word.setLength(0);
+      }
+    }
+    return words;
+  }
+
+  private static String valueOf(String field) {
+    return field == null ? "" : field;
+  }
+
+  private static PatientMatch toMatch(long id, String document) {
+    String[] fields = document.split(String.valueOf(SEPARATOR), -1);
+    return new PatientMatch(id, fields[0], fields[1], fields[2], fields[3]);
+  }
+
+  /**
+   * The best patients found so far, kept in a min-heap on rank so the weakest is evicted first
+   */
+  private static final class Ranking {
+
+    private final PriorityQueue<int[]> best;
+    private final int limit;
+    private final int bestScore;
+    private int scanned;
+
+    Ranking(int limit, int bestScore) {
+      this.best = new PriorityQueue<>(limit + 1, Comparator.<int[]>comparingInt(match -> match[1])
+          .thenComparingInt(match -> -match[0]));
+      this.limit = limit;
+      this.bestScore = bestScore;
+    }
+
+    void offer(int ordinal, int score) {
+      scanned++;
+      if (score == 0) {
+        return;
+      }
+      best.add(new int[]{ordinal, score});
+      if (best.size() > limit) {
+        best.poll();
+      }
+    }
+
+    /**
+     * Ordinals are scanned in ascending order, so no later patient can displace a full set of top
+     * ranked ones
+     */
+    boolean isDone() {
+      return scanned >= MAX_SCANNED || (best.size() == limit && best.peek()[1] == bestScore);
+    }
+  }
+
+  /**
+   * Growable sorted array of ordinals
+   */
+  private static final class Postings {
+
+    private int[] ordinals = new int[4];
+    private int size;
+
+    void add(int ordinal) {
+      if (size == ordinals.length) {
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+      }
+      ordinals[size++] = ordinal;
+    }
+  }
+}
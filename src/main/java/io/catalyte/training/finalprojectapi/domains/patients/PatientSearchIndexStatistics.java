@@ -0,0 +1,55 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Size of the in-memory patient search index
+ */
+@ApiModel(description = "Size of the in-memory patient search index")
+public class PatientSearchIndexStatistics {
+
+  @ApiModelProperty(notes = "Patients in the index")
+  private final long patients;
+
+  @ApiModelProperty(notes = "Distinct trigrams")
+  private final long trigrams;
+
+  @ApiModelProperty(notes = "Patient entries across all trigrams")
+  private final long postings;
+
+  @ApiModelProperty(notes = "Removed patients whose entries are not yet compacted away")
+  private final long removedPatients;
+
+  @ApiModelProperty(notes = "Estimated heap taken by the index in bytes")
+  private final long estimatedBytes;
+
+  public PatientSearchIndexStatistics(long patients, long trigrams, long postings,
+      long removedPatients, long estimatedBytes) {
+    this.patients = patients;
+    this.trigrams = trigrams;
+    this.postings = postings;
+    this.removedPatients = removedPatients;
+    this.estimatedBytes = estimatedBytes;
+  }
+
+  public long getPatients() {
+    return patients;
+  }
+
+  public long getTrigrams() {
+    return trigrams;
+  }
+
+  public long getPostings() {
+    return postings;
+  }
+
+  public long getRemovedPatients() {
+    return removedPatients;
+  }
+
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+}
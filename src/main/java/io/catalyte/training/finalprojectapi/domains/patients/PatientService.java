@@ -1,5 +1,7 @@
 package io.catalyte.training.finalprojectapi.domains.patients;
 
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -7,14 +9,25 @@ import java.util.List;
  */
 public interface PatientService {
 
-  List<Patient> queryPatients(Patient patient) throws Exception;
+  List<Patient> queryPatients(Patient patient, PatientSearch search) throws Exception;
+
+  KeysetPage<Patient> queryPatients(Patient patient, PatientSearch search, String cursor,
+      Integer limit);
+
+  List<PatientMatch> searchPatients(String query, Integer limit);
 
   void deletePatient(Long id);
 
   Patient addPatient(Patient patient);
 
+  PatientBatchResponse addPatients(List<Patient> patients);
+
   Patient getPatientById(Long id) throws Exception;
 
-  Patient updatePatientById(Long id, Patient patient) throws Exception;
+  Long getPatientVersion(Long id);
+
+  Patient updatePatientById(Long id, Patient patient, String ifMatch) throws Exception;
+
+  void exportPatients(OutputStream outputStream);
 
 }
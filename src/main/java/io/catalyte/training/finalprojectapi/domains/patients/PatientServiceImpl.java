@@ -1,27 +1,60 @@
 package io.catalyte.training.finalprojectapi.domains.patients;
 
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_BATCH_SIZE;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_GENDER;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_ID;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_PATIENT_NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_SEARCH_LIMIT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_SEARCH_QUERY;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_STATE;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CLIENT_ERROR_MARKER;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.DELETE_VIOLATION_ENCOUNTERS;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.EMAIL_CONFLICT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.EMAIL_CONFLICT_IN_BATCH;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.REQUIRED_FIELD_ERROR;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.VERSION_CONFLICT;
 
 import io.catalyte.training.finalprojectapi.constants.ValidGenders;
 import io.catalyte.training.finalprojectapi.constants.ValidStates;
-import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
-import io.catalyte.training.finalprojectapi.domains.encounters.EncounterService;
+import io.catalyte.training.finalprojectapi.data.NdjsonWriter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterRepository;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSummary;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSummaryRepository;
 import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
 import io.catalyte.training.finalprojectapi.exceptions.DependentEntityDeleteViolation;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
 import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
 import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
 import io.catalyte.training.finalprojectapi.exceptions.UniqueFieldViolation;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service class which handles the business logic for the patient entity and implements the
@@ -31,36 +64,154 @@ import org.springframework.stereotype.Service;
 public class PatientServiceImpl implements PatientService {
 
   private static final Logger logger = LogManager.getLogger(PatientServiceImpl.class);
+  private static final Marker CLIENT_ERROR = MarkerManager.getMarker(CLIENT_ERROR_MARKER);
+
+  static final int MAX_BATCH_SIZE = 1000;
+
+  static final int DEFAULT_SEARCH_LIMIT = 10;
+  static final int MAX_SEARCH_LIMIT = 50;
+
+  /**
+   * patient ids per encounter summary query, enough for any page
+   */
+  static final int SUMMARY_BATCH_SIZE = 500;
+
+  /**
+   * unique index on lower(email), created by import.sql
+   */
+  static final String EMAIL_UNIQUE_INDEX = "patient_email_lower_uidx";
 
   @Autowired
   PatientRepository patientRepository;
 
   @Autowired
-  EncounterService encounterService;
+  EncounterRepository encounterRepository;
+
+  @Autowired
+  EncounterSummaryRepository encounterSummaryRepository;
+
+  @Autowired
+  NdjsonWriter ndjsonWriter;
+
+  @Autowired
+  Validator validator;
+
+  @Autowired
+  PatientCache patientCache;
+
+  @Autowired
+  PatientIdIndex patientIdIndex;
+
+  @Autowired
+  PatientSearchIndex patientSearchIndex;
 
   /**
    * Calls the patient repository to get all patients matching a query (if query parameters are
    * provided) or else all patients
    *
    * @param patient - optional sample patient to query against
+   * @param search  - the prefix, range and sort parameters
    * @return - a list of patients
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
    */
-  public List<Patient> queryPatients(Patient patient) {
+  @Transactional(readOnly = true)
+  public List<Patient> queryPatients(Patient patient, PatientSearch search) {
+    Sort sort = search.toKeysetSort().toSort();
 
     try {
-      if (patient.isEmpty()) {
-        return patientRepository.findAll();
-      } else {
-        Example<Patient> patientExample = Example.of(patient);
-        return patientRepository.findAll(patientExample);
+      List<Patient> patients =
+          patientRepository.findAll(PatientSpecifications.search(patient, search), sort);
+      if (search.isIncludeSummary()) {
+        attachSummaries(patients);
       }
+      return patients;
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
   }
 
   /**
-   * calls the patient repository to delete a patient
+   * Calls the patient repository to get one page of the patients matching a query (if query
+   * parameters are provided) or else of all patients, in the requested order. Pages are read with
+   * a seek predicate on (sort attribute, id), so later pages cost the same as the first.
+   *
+   * @param patient - optional sample patient to query against
+   * @param search  - the prefix, range and sort parameters
+   * @param cursor  - the cursor returned with the previous page, or null for the first page
+   * @param limit   - the page size, or null for the default
+   * @return - a page of patients and the cursor of the next page
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<Patient> queryPatients(Patient patient, PatientSearch search, String cursor,
+      Integer limit) {
+    int pageSize = KeysetPage.resolveLimit(limit);
+    KeysetSort<Patient, ?> sort = search.toKeysetSort();
+
+    Specification<Patient> specification =
+        Specification.where(PatientSpecifications.search(patient, search))
+            .and(sort.after(cursor));
+
+    try {
+      List<Patient> patients =
+          patientRepository.findSlice(specification, sort.toSort(), pageSize + 1);
+      KeysetPage<Patient> page = KeysetPage.of(patients, pageSize, sort::cursorOf);
+      if (search.isIncludeSummary()) {
+        attachSummaries(page.getContent());
+      }
+      return page;
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+  }
+
+  /**
+   * Sets the stored encounter summary of each patient, reading them by primary key in batches
+   * rather than aggregating encounters. Patients without encounters get an empty summary.
+   *
+   * @param patients - the patients to set summaries on
+   */
+  private void attachSummaries(List<Patient> patients) {
+    for (int from = 0; from < patients.size(); from += SUMMARY_BATCH_SIZE) {
+      List<Patient> batch =
+          patients.subList(from, Math.min(from + SUMMARY_BATCH_SIZE, patients.size()));
+      Map<Long, EncounterSummary> summaries = encounterSummaryRepository
+          .findAllById(batch.stream().map(Patient::getId).collect(Collectors.toList()))
+          .stream()
+          .collect(Collectors.toMap(EncounterSummary::getPatientId, Function.identity()));
+      for (Patient patient : batch) {
+        patient.setEncounterSummary(summaries.getOrDefault(patient.getId(),
+            EncounterSummary.empty(patient.getId())));
+      }
+    }
+  }
+
+  /**
+   * Finds patients for type-ahead search from the in-memory search index, without a query
+   *
+   * @param query - words to look for in the first name, last name, email and city
+   * @param limit - the most patients to return, or null for the default
+   * @return - the best matching patients, best first
+   * @throws BadDataResponse
+   */
+  public List<PatientMatch> searchPatients(String query, Integer limit) {
+    int resultLimit = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+    if (resultLimit < 1 || resultLimit > MAX_SEARCH_LIMIT) {
+      throw new BadDataResponse(BAD_REQUEST_SEARCH_LIMIT);
+    }
+    if (query == null || query.chars().noneMatch(Character::isLetterOrDigit)) {
+      throw new BadDataResponse(BAD_REQUEST_SEARCH_QUERY);
+    }
+
+    return patientSearchIndex.search(query, resultLimit);
+  }
+
+  /**
+   * calls the patient repository to delete a patient. The delete only matches a patient without
+   * encounters, so the common case is a single statement; the encounter check runs only to tell a
+   * patient with encounters from a missing one.
    *
    * @param id - the id of the patient to delete
    * @throws ServiceUnavailable
@@ -68,37 +219,29 @@ public class PatientServiceImpl implements PatientService {
    * @throws DependentEntityDeleteViolation
    */
   public void deletePatient(Long id) {
-    // check that the patient exists
-    Patient existingPatient;
+    int deletedPatients;
     try {
-      // get the existing patient from the database
-      existingPatient = patientRepository.findById(id).orElse(null);
+      deletedPatients = patientRepository.deleteIfNoEncounters(id);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
 
-    if (existingPatient != null) {
-
-      // get the list of encounters
-      List<Encounter> encounters;
-      try {
-        encounters = encounterService.getEncountersByPatientId(id);
-      } catch (Exception e) {
-        throw new ServiceUnavailable(e);
-      }
+    if (deletedPatients == 1) {
+      patientCache.invalidate(id);
+      patientIdIndex.removed(id);
+      patientSearchIndex.removed(id);
+      return;
+    }
 
-      if (encounters.size() == 0) {
-        try {
-          if (patientRepository.existsById(id)) {
-            patientRepository.deleteById(id);
-            return;
-          }
-        } catch (Exception e) {
-          throw new ServiceUnavailable(e);
-        }
-      } else {
-        throw new DependentEntityDeleteViolation(DELETE_VIOLATION_ENCOUNTERS);
-      }
+    // nothing was deleted, find out why
+    boolean hasEncounters;
+    try {
+      hasEncounters = encounterRepository.existsByPatientId(id);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+    if (hasEncounters) {
+      throw new DependentEntityDeleteViolation(DELETE_VIOLATION_ENCOUNTERS);
     }
 
     // Patient not found
@@ -106,7 +249,8 @@ public class PatientServiceImpl implements PatientService {
   }
 
   /**
-   * calls the patient repository to add a patient
+   * calls the patient repository to add a patient. Email uniqueness is left to the unique index on
+   * the email, so concurrent adds with the same email cannot both succeed.
    *
    * @param patient - the patient to add
    * @return the patient object that has been added
@@ -114,9 +258,6 @@ public class PatientServiceImpl implements PatientService {
    * @throws ServiceUnavailable
    */
   public Patient addPatient(Patient patient) {
-    boolean emailAlreadyExists;
-    boolean stateIsValid;
-
     // check patient state is valid
     if (!ValidStates.validStatesList.contains(patient.getState())) {
       throw new BadDataResponse(BAD_REQUEST_STATE);
@@ -127,23 +268,151 @@ public class PatientServiceImpl implements PatientService {
       throw new BadDataResponse(BAD_REQUEST_GENDER);
     }
 
+    // the unique index on the email rejects a duplicate
+    Patient savedPatient;
+    try {
+      savedPatient = patientRepository.saveAndFlush(patient);
+    } catch (DataIntegrityViolationException e) {
+      throw translateIntegrityViolation(e);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+
+    patientCache.put(savedPatient);
+    patientIdIndex.added(savedPatient.getId());
+    patientSearchIndex.put(savedPatient);
+    return savedPatient;
+  }
+
+  /**
+   * Turns a violation of the email unique index into an email conflict
+   *
+   * @param e - the violation raised by the database
+   * @return the exception to throw
+   */
+  private RuntimeException translateIntegrityViolation(DataIntegrityViolationException e) {
+    String constraint = e.getCause() instanceof ConstraintViolationException
+        ? ((ConstraintViolationException) e.getCause()).getConstraintName() : null;
+    // Hibernate's own lines for the rejected statement are off, as they hold its values. An email
+    // conflict is a client error and is logged, rate limited, by the ExceptionController.
+    if (EMAIL_UNIQUE_INDEX.equals(constraint)) {
+      logger.debug(CLIENT_ERROR, "Patient write rejected by constraint {}", constraint);
+      return new UniqueFieldViolation(EMAIL_CONFLICT);
+    }
+    logger.warn("Patient write rejected by constraint {}", constraint);
+    return new ServiceUnavailable(e);
+  }
+
+  /**
+   * calls the patient repository to add a batch of patients. Patients are validated in parallel,
+   * email uniqueness is checked for the whole batch with one query and the valid patients are
+   * inserted with JDBC batching. Invalid patients are reported rather than failing the batch.
+   *
+   * @param patients - the patients to add
+   * @return the outcome of each patient in request order
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   */
+  @Transactional
+  public PatientBatchResponse addPatients(List<Patient> patients) {
+    if (patients.isEmpty() || patients.size() > MAX_BATCH_SIZE) {
+      throw new BadDataResponse(BAD_REQUEST_BATCH_SIZE);
+    }
+
+    // validate every patient, null marks a patient which passed
+    List<PatientBatchResult> results = IntStream.range(0, patients.size())
+        .parallel()
+        .mapToObj(i -> validateBatchPatient(i, patients.get(i)))
+        .collect(Collectors.toList());
+
+    // the first patient with a given email wins within the batch, emails differing only in case
+    // are the same email to the unique index
+    Set<String> batchEmails = new HashSet<>();
+    for (int i = 0; i < patients.size(); i++) {
+      if (results.get(i) == null && !batchEmails.add(normalizedEmail(patients.get(i)))) {
+        results.set(i, rejected(i, HttpStatus.CONFLICT, EMAIL_CONFLICT_IN_BATCH));
+      }
+    }
+
+    List<Patient> toInsert = new ArrayList<>();
     try {
-      // check if email already exists
-      emailAlreadyExists = patientRepository.existsByEmail(patient.getEmail());
+      // check the whole batch against the database in one query
+      Set<String> existingEmails = batchEmails.isEmpty() ? Collections.emptySet()
+          : patientRepository.findExistingEmails(batchEmails);
 
-      if (!emailAlreadyExists) {
-        return patientRepository.save(patient);
+      for (int i = 0; i < patients.size(); i++) {
+        if (results.get(i) != null) {
+          continue;
+        }
+        if (existingEmails.contains(normalizedEmail(patients.get(i)))) {
+          results.set(i, rejected(i, HttpStatus.CONFLICT, EMAIL_CONFLICT));
+        } else {
+          toInsert.add(patients.get(i));
+        }
       }
+
+      patientRepository.saveAll(toInsert);
+      patientRepository.flush();
+      toInsert.forEach(patient -> {
+        patientIdIndex.added(patient.getId());
+        patientSearchIndex.put(patient);
+      });
+    } catch (DataIntegrityViolationException e) {
+      // a concurrent add took one of the emails after the check, the whole batch rolls back
+      throw translateIntegrityViolation(e);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
 
-    // if made it to this point, email is not unique
-    throw new UniqueFieldViolation(EMAIL_CONFLICT);
+    // saveAll assigned the ids to the patients in place
+    for (int i = 0; i < patients.size(); i++) {
+      if (results.get(i) == null) {
+        results.set(i, new PatientBatchResult(i, HttpStatus.CREATED.value(),
+            patients.get(i).getId(), Collections.emptyList()));
+      }
+    }
+    return new PatientBatchResponse(results);
+  }
+
+  /**
+   * Runs the checks of a single create against one patient of a batch
+   *
+   * @param index   - the position of the patient in the batch
+   * @param patient - the patient to check
+   * @return the rejection, or null if the patient is valid
+   */
+  private PatientBatchResult validateBatchPatient(int index, Patient patient) {
+    if (patient == null) {
+      return rejected(index, HttpStatus.BAD_REQUEST, "Patient" + REQUIRED_FIELD_ERROR);
+    }
+
+    List<String> errors = validator.validate(patient).stream()
+        .map(ConstraintViolation::getMessage)
+        .collect(Collectors.toList());
+    if (!errors.isEmpty()) {
+      return new PatientBatchResult(index, HttpStatus.BAD_REQUEST.value(), null, errors);
+    }
+
+    if (!ValidStates.validStatesList.contains(patient.getState())) {
+      return rejected(index, HttpStatus.BAD_REQUEST, BAD_REQUEST_STATE);
+    }
+    if (!ValidGenders.validGendersList.contains(patient.getGender())) {
+      return rejected(index, HttpStatus.BAD_REQUEST, BAD_REQUEST_GENDER);
+    }
+    return null;
+  }
+
+  private String normalizedEmail(Patient patient) {
+    return patient.getEmail().toLowerCase(Locale.ROOT);
+  }
+
+  private PatientBatchResult rejected(int index, HttpStatus status, String error) {
+    return new PatientBatchResult(index, status.value(), null, Collections.singletonList(error));
   }
 
   /**
-   * Retrieves patient from the database by Id
+   * Retrieves patient by Id, from the patient cache if it holds the patient or else from the
+   * database
    *
    * @param id - the id of the patient to be returned
    * @return - the patient that matches the id
@@ -152,7 +421,8 @@ public class PatientServiceImpl implements PatientService {
    */
   public Patient getPatientById(Long id) throws Exception {
     try {
-      Patient patient = patientRepository.findById(id).orElse(null);
+      Patient patient = patientCache.get(id,
+          patientId -> patientRepository.findById(patientId).orElse(null));
 
       if (patient != null) {
         return patient;
@@ -166,26 +436,48 @@ public class PatientServiceImpl implements PatientService {
   }
 
   /**
-   * Updates a patient with a specific id
+   * Reads the version of a patient, from the patient cache if it holds the patient or else from
+   * the database without loading the patient
+   *
+   * @param id - the id of the patient
+   * @return - the current version of the patient
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  public Long getPatientVersion(Long id) {
+    Long version;
+    try {
+      Patient patient = patientCache.getIfPresent(id);
+      version = patient != null ? patient.getVersion() : patientRepository.findVersionById(id);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
+    }
+
+    if (version == null) {
+      // Patient not found
+      throw new ResourceNotFound("Could not locate a patient with the id: " + id);
+    }
+    return version;
+  }
+
+  /**
+   * Updates a patient with a specific id in a single statement, which also bumps and returns the
+   * version. A missing patient is detected from no version being returned and an email conflict
+   * from the unique index on the email. With an If-Match header the statement only matches the
+   * versions it allows; the existence check runs only to tell a changed patient from a missing
+   * one.
    *
    * @param id      - the id of the patient to be updated
    * @param patient - the patient's new information
-   * @return - the updated patient
+   * @param ifMatch - the If-Match header of the request, or null to update any version
+   * @return - the updated patient with its new version
    * @throws UniqueFieldViolation
    * @throws ServiceUnavailable
    * @throws BadDataResponse
    * @throws ResourceNotFound
+   * @throws PreconditionFailed
    */
-  public Patient updatePatientById(Long id, Patient patient) throws Exception {
-    Patient existingPatient;
-
-    boolean emailIsSame;
-    boolean newEmailIsUnique;
-    String currentEmail;
-
-    // get the new email from the patient passed int
-    String newEmail = patient.getEmail();
-
+  public Patient updatePatientById(Long id, Patient patient, String ifMatch) throws Exception {
     // check if id in path matches id in request body
     if (!patient.getId().equals(id)) {
       throw new BadDataResponse(BAD_REQUEST_ID);
@@ -201,38 +493,54 @@ public class PatientServiceImpl implements PatientService {
       throw new BadDataResponse(BAD_REQUEST_GENDER);
     }
 
+    // the unique index on the email rejects an email taken by another patient
+    Set<Long> allowedVersions = EntityTags.allowedVersions(ifMatch);
+    Long version;
     try {
-
-      // get the existing patient from the database
-      existingPatient = patientRepository.findById(id).orElse(null);
-
-      if (existingPatient != null) {
-
-        // get the current email from the database
-        currentEmail = existingPatient.getEmail();
-
-        // see if new email already exists
-        newEmailIsUnique = !patientRepository.existsByEmail(newEmail);
-
-        // set local for email is same
-        emailIsSame = currentEmail.equals(newEmail);
-
-        // only continue if email has not changed, or new email is unique
-        if (emailIsSame || newEmailIsUnique) {
-          return patientRepository.save(patient);
-        }
-      }
+      version = allowedVersions == null ? patientRepository.updatePatient(patient)
+          : patientRepository.updatePatient(patient, allowedVersions);
+    } catch (DataIntegrityViolationException e) {
+      throw translateIntegrityViolation(e);
     } catch (Exception e) {
       throw new ServiceUnavailable(e);
     }
 
-    // if patient was not found...
-    if (existingPatient == null) {
+    if (version == null) {
+      // nothing was updated, find out why
+      boolean exists;
+      try {
+        exists = allowedVersions != null && patientRepository.existsById(id);
+      } catch (Exception e) {
+        throw new ServiceUnavailable(e);
+      }
+      if (exists) {
+        throw new PreconditionFailed(VERSION_CONFLICT);
+      }
+
+      // if patient was not found...
       throw new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND);
     }
-    // patient was found so it must be because of an email conflict
-    else {
-      throw new UniqueFieldViolation(EMAIL_CONFLICT);
+
+    patient.setVersion(version);
+    patientCache.invalidate(id);
+    patientSearchIndex.put(patient);
+    return patient;
+  }
+
+  /**
+   * Streams every patient to the output stream as newline delimited JSON. Memory use stays flat
+   * regardless of the number of patients.
+   *
+   * @param outputStream - where to write the patients
+   * @throws ServiceUnavailable
+   */
+  @Transactional(readOnly = true)
+  public void exportPatients(OutputStream outputStream) {
+    try (Stream<Patient> patients = patientRepository.streamAll()) {
+      long count = ndjsonWriter.write(patients, outputStream);
+      logger.info("Exported {} patients", count);
+    } catch (Exception e) {
+      throw new ServiceUnavailable(e);
     }
   }
 }
@@ -0,0 +1,53 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import static io.catalyte.training.finalprojectapi.search.SearchSpecifications.between;
+import static io.catalyte.training.finalprojectapi.search.SearchSpecifications.equal;
+import static io.catalyte.training.finalprojectapi.search.SearchSpecifications.equalIgnoringCase;
+import static io.catalyte.training.finalprojectapi.search.SearchSpecifications.startsWithIgnoringCase;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filter predicates for patient queries. Email, last name, state and insurance are indexed, see
+ * the Patient table definition and import.sql.
+ */
+public final class PatientSpecifications {
+
+  private PatientSpecifications() {
+  }
+
+  /**
+   * @param patient - sample patient whose non-null fields must match, the email ignoring case
+   * @return the matching predicate, or null to match every patient
+   */
+  public static Specification<Patient> matches(Patient patient) {
+    if (patient.isEmpty()) {
+      return null;
+    }
+    return Specification.<Patient>where(equal("id", patient.getId()))
+        .and(equal("firstName", patient.getFirstName()))
+        .and(equal("lastName", patient.getLastName()))
+        .and(equal("ssn", patient.getSsn()))
+        .and(equalIgnoringCase("email", patient.getEmail()))
+        .and(equal("age", patient.getAge()))
+        .and(equal("height", patient.getHeight()))
+        .and(equal("weight", patient.getWeight()))
+        .and(equal("insurance", patient.getInsurance()))
+        .and(equal("gender", patient.getGender()))
+        .and(equal("street", patient.getStreet()))
+        .and(equal("city", patient.getCity()))
+        .and(equal("state", patient.getState()))
+        .and(equal("postal", patient.getPostal()));
+  }
+
+  /**
+   * @param patient - sample patient whose non-null fields must match
+   * @param search  - the prefix and range parameters
+   * @return the matching predicate, or null to match every patient
+   */
+  public static Specification<Patient> search(Patient patient, PatientSearch search) {
+    return Specification.where(matches(patient))
+        .and(startsWithIgnoringCase("lastName", search.getLastNamePrefix()))
+        .and(between("age", search.getMinAge(), search.getMaxAge()));
+  }
+}
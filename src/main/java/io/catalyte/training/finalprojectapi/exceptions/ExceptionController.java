@@ -1,19 +1,25 @@
 package io.catalyte.training.finalprojectapi.exceptions;
 
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_DATA;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CLIENT_ERROR_MARKER;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.DEPENDENT_ENTITY_DELETE_VIOLATION;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.PRECONDITION_FAILED;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.SERVER_ERROR;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.UNEXPECTED_ERROR;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.UNIQUE_FIELD_VIOLATION;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.VALIDATION_ERROR;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import org.hibernate.JDBCException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -22,13 +28,24 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 /**
- * Controls the behavior of exception handling for the entire application
+ * Controls the behavior of exception handling for the entire application. Client errors are logged
+ * at warn with the CLIENT_ERROR marker, which log4j2.xml rate limits, and server errors at error.
  */
 @ControllerAdvice
 public class ExceptionController {
 
+  static final String EXCEPTIONS_METRIC = "api.exceptions";
+
+  /**
+   * marks the logging of client errors, which repeat as fast as clients send bad requests
+   */
+  public static final Marker CLIENT_ERROR = MarkerFactory.getMarker(CLIENT_ERROR_MARKER);
+
   private final Logger logger = LoggerFactory.getLogger(ExceptionController.class);
 
+  @Autowired
+  MeterRegistry meterRegistry;
+
   /**
    * Catch validation errors triggered by using @Valid on parameters in controllers
    *
@@ -50,7 +67,8 @@ public class ExceptionController {
     ValidationExceptionResponse response =
         new ValidationExceptionResponse(VALIDATION_ERROR, new Date(),
             "One or more validation errors occurred in:" + controller + " : " + method, errors);
-    logger.error(String.valueOf(errors));
+    logger.warn(CLIENT_ERROR, "Validation failed in {} : {} {}", controller, method, errors);
+    count(ex, HttpStatus.BAD_REQUEST);
     return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
   }
 
@@ -65,7 +83,8 @@ public class ExceptionController {
 
     ExceptionResponse response =
         new ExceptionResponse(NOT_FOUND, new Date(), exception.getMessage());
-    logger.error(exception.getMessage());
+    logger.warn(CLIENT_ERROR, exception.getMessage());
+    count(exception, HttpStatus.NOT_FOUND);
     return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
   }
 
@@ -80,7 +99,8 @@ public class ExceptionController {
 
     ExceptionResponse response =
         new ExceptionResponse(BAD_DATA, new Date(), exception.getMessage());
-    logger.error(exception.getMessage());
+    logger.warn(CLIENT_ERROR, exception.getMessage());
+    count(exception, HttpStatus.BAD_REQUEST);
     return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
   }
 
@@ -95,7 +115,8 @@ public class ExceptionController {
 
     ExceptionResponse response =
         new ExceptionResponse(UNIQUE_FIELD_VIOLATION, new Date(), exception.getMessage());
-    logger.error(exception.getMessage());
+    logger.warn(CLIENT_ERROR, exception.getMessage());
+    count(exception, HttpStatus.CONFLICT);
     return new ResponseEntity<>(response, HttpStatus.CONFLICT);
   }
 
@@ -112,10 +133,27 @@ public class ExceptionController {
     ExceptionResponse response =
         new ExceptionResponse(DEPENDENT_ENTITY_DELETE_VIOLATION, new Date(),
             exception.getMessage());
-    logger.error(exception.getMessage());
+    logger.warn(CLIENT_ERROR, exception.getMessage());
+    count(exception, HttpStatus.CONFLICT);
     return new ResponseEntity<>(response, HttpStatus.CONFLICT);
   }
 
+  /**
+   * Triggered when the PreconditionFailed exception is thrown.
+   *
+   * @param exception - the PreconditionFailed exception containing the custom message.
+   * @return - the ResponseEntity containing the custom exception and the status code 412
+   */
+  @ExceptionHandler(PreconditionFailed.class)
+  protected ResponseEntity<ExceptionResponse> preconditionFailed(PreconditionFailed exception) {
+
+    ExceptionResponse response =
+        new ExceptionResponse(PRECONDITION_FAILED, new Date(), exception.getMessage());
+    logger.warn(CLIENT_ERROR, exception.getMessage());
+    count(exception, HttpStatus.PRECONDITION_FAILED);
+    return new ResponseEntity<>(response, HttpStatus.PRECONDITION_FAILED);
+  }
+
   /**
    * Triggered when the ServiceUnavailable exception is thrown.
    *
@@ -134,6 +172,7 @@ public class ExceptionController {
 
       response = new ExceptionResponse(SERVER_ERROR, new Date(), exceptionMessage);
       logger.error(exceptionMessage);
+      count(ex, HttpStatus.SERVICE_UNAVAILABLE);
       return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
     } else //it's an unexpected error, throw a 500
     {
@@ -143,7 +182,19 @@ public class ExceptionController {
           + "   Line: " + ex.getStackTrace()[0].getLineNumber();
       response = new ExceptionResponse(UNEXPECTED_ERROR, new Date(), exceptionMessage);
       logger.error(exceptionMessage);
+      count(ex, HttpStatus.INTERNAL_SERVER_ERROR);
       return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Counts a handled exception by its type and the status it was answered with
+   *
+   * @param exception - the handled exception
+   * @param status    - the status of the response
+   */
+  protected void count(Exception exception, HttpStatus status) {
+    meterRegistry.counter(EXCEPTIONS_METRIC, "exception", exception.getClass().getSimpleName(),
+        "status", String.valueOf(status.value())).increment();
+  }
+}
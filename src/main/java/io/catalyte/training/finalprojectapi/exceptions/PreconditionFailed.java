@@ -0,0 +1,15 @@
+package io.catalyte.training.finalprojectapi.exceptions;
+
+/**
+ * Exception that is thrown when a request attempts to update a record which has changed since the
+ * version the request was made against
+ */
+public class PreconditionFailed extends RuntimeException {
+
+  public PreconditionFailed() {
+  }
+
+  public PreconditionFailed(String message) {
+    super(message);
+  }
+}
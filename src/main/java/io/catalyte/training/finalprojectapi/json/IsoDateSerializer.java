@@ -0,0 +1,92 @@
+package io.catalyte.training.finalprojectapi.json;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Writes a date as yyyy-MM-dd in the time zone of its @JsonFormat, or else the object mapper's,
+ * exactly as the pattern of @JsonFormat does but without a SimpleDateFormat. Formatting took over
+ * half the time of writing an encounter and was all of its garbage.
+ */
+public class IsoDateSerializer extends StdScalarSerializer<Date> implements ContextualSerializer {
+
+  public static final String PATTERN = "yyyy-MM-dd";
+
+  private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+
+  /**
+   * SimpleDateFormat uses the Julian calendar before this instant, and so do dates written by it
+   */
+  private static final long GREGORIAN_CHANGE =
+      new GregorianCalendar().getGregorianChange().getTime();
+
+  /**
+   * the zone of the property, or null to use the mapper's
+   */
+  private final TimeZone timeZone;
+
+  public IsoDateSerializer() {
+    this(null);
+  }
+
+  private IsoDateSerializer(TimeZone timeZone) {
+    super(Date.class);
+    this.timeZone = timeZone;
+  }
+
+  @Override
+  public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) {
+    JsonFormat.Value format = findFormatOverrides(provider, property, handledType());
+    return format.hasTimeZone() ? new IsoDateSerializer(format.getTimeZone()) : this;
+  }
+
+  @Override
+  public void serialize(Date value, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    TimeZone zone = timeZone != null ? timeZone : provider.getTimeZone();
+    long millis = value.getTime();
+    if (millis < GREGORIAN_CHANGE) {
+      SimpleDateFormat format = new SimpleDateFormat(PATTERN, provider.getLocale());
+      format.setTimeZone(zone);
+      generator.writeString(format.format(value));
+      return;
+    }
+
+    LocalDate date = LocalDate.ofEpochDay(
+        Math.floorDiv(millis + zone.getOffset(millis), MILLIS_PER_DAY));
+    int year = date.getYear();
+    if (year > 9999) {
+      // written by LocalDate with a leading +
+      generator.writeString(date.toString().substring(1));
+      return;
+    }
+
+    char[] text = new char[10];
+    text[0] = digit(year / 1000);
+    text[1] = digit(year / 100);
+    text[2] = digit(year / 10);
+    text[3] = digit(year);
+    text[4] = '-';
+    text[5] = digit(date.getMonthValue() / 10);
+    text[6] = digit(date.getMonthValue());
+    text[7] = '-';
+    text[8] = digit(date.getDayOfMonth() / 10);
+    text[9] = digit(date.getDayOfMonth());
+    generator.writeString(text, 0, text.length);
+  }
+
+  private static char digit(int value) {
+    return (char) ('0' + value % 10);
+  }
+}
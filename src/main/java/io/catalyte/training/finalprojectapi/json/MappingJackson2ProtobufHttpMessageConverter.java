@@ -0,0 +1,93 @@
+package io.catalyte.training.finalprojectapi.json;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+/**
+ * Reads and writes application/x-protobuf bodies with a ProtobufCodec. A type without a protobuf
+ * schema, such as a map, is not written, so a client accepting only protobuf gets a 406.
+ */
+public class MappingJackson2ProtobufHttpMessageConverter
+    extends AbstractGenericHttpMessageConverter<Object> {
+
+  private final ProtobufCodec codec;
+
+  /**
+   * @param codec - the codec of the bodies
+   */
+  public MappingJackson2ProtobufHttpMessageConverter(ProtobufCodec codec) {
+    super(ProtobufCodec.APPLICATION_PROTOBUF);
+    this.codec = codec;
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return true;
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+    return canRead(clazz, null, mediaType);
+  }
+
+  @Override
+  public boolean canRead(Type type, @Nullable Class<?> contextClass,
+      @Nullable MediaType mediaType) {
+    return canRead(mediaType) && codec.canRead(codec.constructType(
+        GenericTypeResolver.resolveType(type, contextClass)));
+  }
+
+  @Override
+  public boolean canWrite(Class<?> clazz, @Nullable MediaType mediaType) {
+    return canWrite(clazz, clazz, mediaType);
+  }
+
+  @Override
+  public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+    return canWrite(mediaType) && codec.canWrite(codec.constructType(valueType(type, clazz)));
+  }
+
+  @Override
+  public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+      throws IOException {
+    return read(GenericTypeResolver.resolveType(type, contextClass), inputMessage);
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+      throws IOException {
+    return read(clazz, inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(Object object, @Nullable Type type,
+      HttpOutputMessage outputMessage) throws IOException {
+    codec.write(object, codec.constructType(valueType(type, object.getClass())),
+        outputMessage.getBody());
+  }
+
+  /**
+   * @param type  - the declared type of the value, which carries the element type of a list
+   * @param clazz - the class of the value
+   * @return the declared type if generic, else the class
+   */
+  private static Type valueType(@Nullable Type type, Class<?> clazz) {
+    return type == null || type instanceof Class ? clazz : type;
+  }
+
+  private Object read(Type type, HttpInputMessage inputMessage) throws IOException {
+    try {
+      return codec.read(codec.constructType(type), inputMessage.getBody());
+    } catch (IOException e) {
+      throw new HttpMessageNotReadableException("Could not read protobuf: " + e.getMessage(), e,
+          inputMessage);
+    }
+  }
+}
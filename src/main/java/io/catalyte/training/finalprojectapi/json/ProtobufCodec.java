@@ -0,0 +1,171 @@
+package io.catalyte.training.finalprojectapi.json;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schemagen.ProtobufSchemaGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Reads and writes objects as protobuf messages through Jackson, with a schema generated once per
+ * type from the same properties and annotations as its JSON. BigDecimals are written as strings,
+ * as protobuf has no decimal type and a double would lose cents, and dates as the strings of their
+ * JSON. Protobuf has no top-level repeated value, so a list is written as a message holding its
+ * elements in a repeated field named items, and read back likewise.
+ */
+public class ProtobufCodec {
+
+  public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+  private final ObjectMapper objectMapper;
+
+  /**
+   * the schema of each type, or empty when it has none, such as a map or a string
+   */
+  private final Map<JavaType, Optional<ProtobufSchema>> schemas = new ConcurrentHashMap<>();
+
+  /**
+   * @param builder - the builder of the JSON object mapper, so protobuf has the same modules and
+   *                features
+   */
+  public ProtobufCodec(Jackson2ObjectMapperBuilder builder) {
+    objectMapper = builder.factory(new ProtobufFactory())
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    objectMapper.registerModule(new SimpleModule("ProtobufDecimals")
+        .addSerializer(BigDecimal.class, ToStringSerializer.instance));
+  }
+
+  /**
+   * @param type - the type of the value
+   * @return the type read and written for the value, in Jackson's terms
+   */
+  public JavaType constructType(Type type) {
+    return objectMapper.constructType(type);
+  }
+
+  /**
+   * @param type - the type of the value
+   * @return true if the values of the type can be written
+   */
+  public boolean canWrite(JavaType type) {
+    return schemaOf(messageType(type)).isPresent();
+  }
+
+  /**
+   * @param type - the type of the value
+   * @return true if the values of the type can be read, which for a collection means a list is one
+   */
+  public boolean canRead(JavaType type) {
+    return (!isRepeated(type) || type.getRawClass().isAssignableFrom(ArrayList.class))
+        && canWrite(type);
+  }
+
+  /**
+   * @param value  - the object or the collection to write
+   * @param type   - the type of the value
+   * @param output - the stream written to, which is left open
+   * @throws IOException if the value cannot be written
+   */
+  public void write(Object value, JavaType type, OutputStream output) throws IOException {
+    JavaType messageType = messageType(type);
+    Object message = isRepeated(type) ? new Items<>(asList(value)) : value;
+    objectMapper.writerFor(messageType).with(schemaOf(messageType).orElseThrow())
+        .writeValue(output, message);
+  }
+
+  /**
+   * @param type  - the type of the value
+   * @param input - the stream read from, which is left open
+   * @return the object, or the list of objects for a collection type
+   * @throws IOException if the value cannot be read
+   */
+  public Object read(JavaType type, InputStream input) throws IOException {
+    JavaType messageType = messageType(type);
+    Object message = objectMapper.readerFor(messageType)
+        .with(schemaOf(messageType).orElseThrow())
+        .readValue(input);
+    if (!isRepeated(type)) {
+      return message;
+    }
+    List<?> items = message != null ? ((Items<?>) message).items : null;
+    return items != null ? items : new ArrayList<>();
+  }
+
+  /**
+   * @param type - the type of the value
+   * @return the .proto source of the messages of the type
+   */
+  public Optional<String> schemaSource(JavaType type) {
+    return schemaOf(messageType(type)).map(schema -> schema.getSource().toString());
+  }
+
+  private Optional<ProtobufSchema> schemaOf(JavaType messageType) {
+    return schemas.computeIfAbsent(messageType, type -> {
+      // a generator builds a single schema
+      ProtobufSchemaGenerator generator = new ProtobufSchemaGenerator();
+      try {
+        objectMapper.acceptJsonFormatVisitor(type, generator);
+        return Optional.of(generator.getGeneratedSchema());
+      } catch (JsonMappingException | RuntimeException e) {
+        return Optional.empty();
+      }
+    });
+  }
+
+  private JavaType messageType(JavaType type) {
+    return isRepeated(type)
+        ? objectMapper.getTypeFactory().constructParametricType(Items.class, type.getContentType())
+        : type;
+  }
+
+  private static boolean isRepeated(JavaType type) {
+    return type.isCollectionLikeType()
+        || type.isArrayType() && !type.getContentType().isPrimitive();
+  }
+
+  private static List<?> asList(Object value) {
+    if (value instanceof List) {
+      return (List<?>) value;
+    }
+    if (value instanceof Collection) {
+      return new ArrayList<>((Collection<?>) value);
+    }
+    return Arrays.asList((Object[]) value);
+  }
+
+  /**
+   * The message a list is written as
+   *
+   * @param <T> - the type of the elements
+   */
+  static class Items<T> {
+
+    public List<T> items;
+
+    public Items() {
+    }
+
+    Items(List<T> items) {
+      this.items = items;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package io.catalyte.training.finalprojectapi.pagination;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_CURSOR;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import java.math.BigDecimal;
+import java.util.Base64;
+import java.util.StringJoiner;
+
+/**
+ * Encodes and decodes the opaque cursors handed out by keyset paginated listings. A cursor holds
+ * the sort key values of the last row of a page so the next page can seek past it.
+ */
+public final class KeysetCursor {
+
+  private static final String SEPARATOR = ".";
+
+  private KeysetCursor() {
+  }
+
+  /**
+   * Builds a cursor from the sort key values of the last row of a page
+   *
+   * @param keys - the sort key values, most significant first
+   * @return the opaque cursor
+   */
+  public static String encode(String... keys) {
+    StringJoiner cursor = new StringJoiner(SEPARATOR);
+    for (String key : keys) {
+      cursor.add(Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(UTF_8)));
+    }
+    return cursor.toString();
+  }
+
+  /**
+   * Reads the sort key values back out of a cursor
+   *
+   * @param cursor - the cursor sent by the client
+   * @param size   - the number of sort keys the listing expects
+   * @return the sort key values, most significant first
+   * @throws BadDataResponse if the cursor was not issued for this listing
+   */
+  public static String[] decode(String cursor, int size) {
+    String[] keys = cursor.split("\\" + SEPARATOR, -1);
+    if (keys.length != size) {
+      throw new BadDataResponse(BAD_REQUEST_CURSOR);
+    }
+
+    try {
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = new String(Base64.getUrlDecoder().decode(keys[i]), UTF_8);
+      }
+    } catch (IllegalArgumentException e) {
+      throw new BadDataResponse(BAD_REQUEST_CURSOR);
+    }
+    return keys;
+  }
+
+  /**
+   * Parses a numeric sort key read from a cursor
+   *
+   * @param key - the sort key value
+   * @return the numeric value
+   * @throws BadDataResponse if the key is not a number
+   */
+  public static long toLong(String key) {
+    try {
+      return Long.parseLong(key);
+    } catch (NumberFormatException e) {
+      throw new BadDataResponse(BAD_REQUEST_CURSOR);
+    }
+  }
+
+  /**
+   * Parses a decimal sort key read from a cursor
+   *
+   * @param key - the sort key value
+   * @return the decimal value
+   * @throws BadDataResponse if the key is not a number
+   */
+  public static BigDecimal toDecimal(String key) {
+    try {
+      return new BigDecimal(key);
+    } catch (NumberFormatException e) {
+      throw new BadDataResponse(BAD_REQUEST_CURSOR);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package io.catalyte.training.finalprojectapi.pagination;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_LIMIT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NEXT_CURSOR_HEADER;
+
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * One page of a keyset paginated listing along with the cursor of the page that follows it
+ *
+ * @param <T> the type of the rows on the page
+ */
+public class KeysetPage<T> {
+
+  public static final int DEFAULT_LIMIT = 50;
+  public static final int MAX_LIMIT = 500;
+
+  private final List<T> content;
+  private final String nextCursor;
+
+  public KeysetPage(List<T> content, String nextCursor) {
+    this.content = content;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Builds a page from rows fetched with a limit one higher than the page size, so the presence of
+   * the extra row tells us whether there is a next page without a count query
+   *
+   * @param rows     - the rows returned by the seek query, at most limit + 1
+   * @param limit    - the page size
+   * @param cursorOf - builds the cursor for a row
+   * @param <T>      the type of the rows on the page
+   * @return the page
+   */
+  public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+    if (rows.size() <= limit) {
+      return new KeysetPage<>(rows, null);
+    }
+    List<T> content = rows.subList(0, limit);
+    return new KeysetPage<>(content, cursorOf.apply(content.get(limit - 1)));
+  }
+
+  /**
+   * Checks the page size requested by the client
+   *
+   * @param limit - the requested page size, or null for the default
+   * @return the page size to use
+   * @throws BadDataResponse if the limit is out of range
+   */
+  public static int resolveLimit(Integer limit) {
+    if (limit == null) {
+      return DEFAULT_LIMIT;
+    }
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new BadDataResponse(BAD_REQUEST_LIMIT);
+    }
+    return limit;
+  }
+
+  public List<T> getContent() {
+    return content;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * @return the response headers advertising the next cursor, if there is a next page
+   */
+  public HttpHeaders toHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    if (nextCursor != null) {
+      headers.set(NEXT_CURSOR_HEADER, nextCursor);
+    }
+    return headers;
+  }
+}
@@ -0,0 +1,130 @@
+package io.catalyte.training.finalprojectapi.pagination;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_CURSOR;
+
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * The sort order of a keyset paginated listing: an attribute with id as the tie breaker. Knows how
+ * to write the cursor of a page and how to seek past it on the next request. Cursors of an
+ * attribute sort carry the attribute name, so a cursor is rejected when the sort changes between
+ * pages.
+ *
+ * @param <T> the entity type
+ * @param <V> the sort attribute type
+ */
+public final class KeysetSort<T, V extends Comparable<? super V>> {
+
+  private static final String ID = "id";
+
+  private final String attribute;
+  private final Function<T, V> valueOf;
+  private final Function<V, String> format;
+  private final Function<String, V> parse;
+  private final Function<T, Long> idOf;
+
+  private KeysetSort(String attribute, Function<T, V> valueOf, Function<V, String> format,
+      Function<String, V> parse, Function<T, Long> idOf) {
+    this.attribute = attribute;
+    this.valueOf = valueOf;
+    this.format = format;
+    this.parse = parse;
+    this.idOf = idOf;
+  }
+
+  /**
+   * @param idOf - reads the id of a row
+   * @param <T>  the entity type
+   * @return the id order
+   */
+  public static <T> KeysetSort<T, Long> byId(Function<T, Long> idOf) {
+    return new KeysetSort<>(ID, idOf, String::valueOf, KeysetCursor::toLong, idOf);
+  }
+
+  /**
+   * @param attribute - the name of the sort attribute
+   * @param valueOf   - reads the sort attribute of a row
+   * @param format    - writes a sort attribute value into a cursor
+   * @param parse     - reads a sort attribute value back out of a cursor, throwing BadDataResponse
+   *                  if it cannot
+   * @param idOf      - reads the id of a row
+   * @param <T>       the entity type
+   * @param <V>       the sort attribute type
+   * @return the attribute order with id breaking ties
+   */
+  public static <T, V extends Comparable<? super V>> KeysetSort<T, V> by(String attribute,
+      Function<T, V> valueOf, Function<V, String> format, Function<String, V> parse,
+      Function<T, Long> idOf) {
+    return new KeysetSort<>(attribute, valueOf, format, parse, idOf);
+  }
+
+  /**
+   * @return the order to read rows in
+   */
+  public Sort toSort() {
+    return isById() ? Sort.by(ID) : Sort.by(attribute, ID);
+  }
+
+  /**
+   * @param cursor - the cursor returned with the previous page, or null for the first page
+   * @return the seek predicate, or null for the first page
+   * @throws BadDataResponse if the cursor was not issued for this sort
+   */
+  public Specification<T> after(String cursor) {
+    return seek(cursor, (value, id) -> isById() ? KeysetSpecifications.<T>afterId(id)
+        : KeysetSpecifications.<T, V>after(attribute, value, id));
+  }
+
+  /**
+   * Reads the keys of the last row of the previous page out of a cursor, for listings which build
+   * the seek predicate themselves rather than as a Specification
+   *
+   * @param cursor - the cursor returned with the previous page, or null for the first page
+   * @param seek   - builds the seek predicate from the sort attribute value, null in the id order,
+   *               and the id
+   * @param <R>    the type of the seek predicate
+   * @return the seek predicate, or null for the first page
+   * @throws BadDataResponse if the cursor was not issued for this sort
+   */
+  public <R> R seek(String cursor, BiFunction<V, Long, R> seek) {
+    if (cursor == null) {
+      return null;
+    }
+    if (isById()) {
+      return seek.apply(null, KeysetCursor.toLong(KeysetCursor.decode(cursor, 1)[0]));
+    }
+
+    String[] keys = KeysetCursor.decode(cursor, 3);
+    if (!attribute.equals(keys[0])) {
+      throw new BadDataResponse(BAD_REQUEST_CURSOR);
+    }
+    return seek.apply(parse.apply(keys[1]), KeysetCursor.toLong(keys[2]));
+  }
+
+  /**
+   * @param lastRow - the last row of a page
+   * @return the cursor of the next page
+   */
+  public String cursorOf(T lastRow) {
+    String id = String.valueOf(idOf.apply(lastRow));
+    if (isById()) {
+      return KeysetCursor.encode(id);
+    }
+    return KeysetCursor.encode(attribute, format.apply(valueOf.apply(lastRow)), id);
+  }
+
+  /**
+   * @return the name of the sort attribute, id in the id order
+   */
+  public String getAttribute() {
+    return attribute;
+  }
+
+  private boolean isById() {
+    return ID.equals(attribute);
+  }
+}
@@ -0,0 +1,49 @@
+package io.catalyte.training.finalprojectapi.pagination;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Seek predicates which position a keyset paginated query just after the last row of the previous
+ * page
+ */
+public final class KeysetSpecifications {
+
+  private static final String ID = "id";
+
+  private KeysetSpecifications() {
+  }
+
+  /**
+   * Seek predicate for listings ordered by id
+   *
+   * @param id - the id of the last row of the previous page
+   * @param <T> the entity type
+   * @return id > :id
+   */
+  public static <T> Specification<T> afterId(Long id) {
+    return (root, query, builder) -> builder.greaterThan(root.<Long>get(ID), id);
+  }
+
+  /**
+   * Seek predicate for listings ordered by an attribute with id as the tie breaker. The redundant
+   * attribute >= :value bound lets the database start a range scan of an (attribute, id) index,
+   * which it cannot derive from the OR alone.
+   *
+   * @param attribute - the name of the sort attribute
+   * @param value     - the sort attribute value of the last row of the previous page
+   * @param id        - the id of the last row of the previous page
+   * @param <T>       the entity type
+   * @param <V>       the sort attribute type
+   * @return (attribute, id) > (:value, :id)
+   */
+  public static <T, V extends Comparable<? super V>> Specification<T> after(String attribute,
+      V value, Long id) {
+    return (root, query, builder) -> builder.and(
+        builder.greaterThanOrEqualTo(root.<V>get(attribute), value),
+        builder.or(
+            builder.greaterThan(root.<V>get(attribute), value),
+            builder.and(
+                builder.equal(root.get(attribute), value),
+                builder.greaterThan(root.<Long>get(ID), id))));
+  }
+}
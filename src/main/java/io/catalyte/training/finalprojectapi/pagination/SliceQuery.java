@@ -0,0 +1,46 @@
+package io.catalyte.training.finalprojectapi.pagination;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+/**
+ * Runs a specification as a single bounded query. Unlike findAll(Specification, Pageable) this
+ * never issues a count query, which is what keyset pagination needs.
+ */
+public final class SliceQuery {
+
+  private SliceQuery() {
+  }
+
+  /**
+   * @param entityManager - the entity manager to query with
+   * @param type          - the entity type
+   * @param specification - the filter and seek predicates, may be null
+   * @param sort          - the order of the rows, must end with a unique key
+   * @param limit         - the maximum number of rows to return
+   * @param <T>           the entity type
+   * @return at most limit rows in sort order
+   */
+  public static <T> List<T> find(EntityManager entityManager, Class<T> type,
+      Specification<T> specification, Sort sort, int limit) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> query = builder.createQuery(type);
+    Root<T> root = query.from(type);
+
+    Predicate predicate =
+        specification == null ? null : specification.toPredicate(root, query, builder);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(QueryUtils.toOrders(sort, root, builder));
+
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+}
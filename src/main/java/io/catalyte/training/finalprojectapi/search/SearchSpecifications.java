@@ -0,0 +1,84 @@
+package io.catalyte.training.finalprojectapi.search;
+
+import java.util.Locale;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Building blocks for search predicates. Each returns null when its value is absent, which
+ * Specification.and treats as matching everything, so optional search parameters can be chained
+ * without checks.
+ */
+public final class SearchSpecifications {
+
+  private static final char ESCAPE = '\\';
+
+  private SearchSpecifications() {
+  }
+
+  /**
+   * @param attribute - the name of the attribute
+   * @param value     - the value to match, or null
+   * @param <T>       the entity type
+   * @return attribute = :value
+   */
+  public static <T> Specification<T> equal(String attribute, Object value) {
+    if (value == null) {
+      return null;
+    }
+    return (root, query, builder) -> builder.equal(root.get(attribute), value);
+  }
+
+  /**
+   * Matches regardless of case, served by an index on lower(attribute)
+   *
+   * @param attribute - the name of a text attribute
+   * @param value     - the value to match, or null
+   * @param <T>       the entity type
+   * @return lower(attribute) = lower(:value)
+   */
+  public static <T> Specification<T> equalIgnoringCase(String attribute, String value) {
+    if (value == null) {
+      return null;
+    }
+    return (root, query, builder) -> builder.equal(builder.lower(root.<String>get(attribute)),
+        value.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Matches a prefix regardless of case, served by an index on lower(attribute) with the
+   * text_pattern_ops operator class
+   *
+   * @param attribute - the name of a text attribute
+   * @param prefix    - the prefix to match, or null or blank
+   * @param <T>       the entity type
+   * @return lower(attribute) like lower(:prefix) || '%'
+   */
+  public static <T> Specification<T> startsWithIgnoringCase(String attribute, String prefix) {
+    if (prefix == null || prefix.trim().isEmpty()) {
+      return null;
+    }
+    String pattern = prefix.trim().toLowerCase(Locale.ROOT)
+        .replace(String.valueOf(ESCAPE), "" + ESCAPE + ESCAPE)
+        .replace("%", ESCAPE + "%")
+        .replace("_", ESCAPE + "_") + "%";
+    return (root, query, builder) ->
+        builder.like(builder.lower(root.<String>get(attribute)), pattern, ESCAPE);
+  }
+
+  /**
+   * @param attribute - the name of the attribute
+   * @param min       - the lowest value to match, or null for no lower bound
+   * @param max       - the highest value to match, or null for no upper bound
+   * @param <T>       the entity type
+   * @param <V>       the attribute type
+   * @return :min <= attribute <= :max
+   */
+  public static <T, V extends Comparable<? super V>> Specification<T> between(String attribute,
+      V min, V max) {
+    Specification<T> atLeast = min == null ? null
+        : (root, query, builder) -> builder.greaterThanOrEqualTo(root.<V>get(attribute), min);
+    Specification<T> atMost = max == null ? null
+        : (root, query, builder) -> builder.lessThanOrEqualTo(root.<V>get(attribute), max);
+    return atLeast == null ? atMost : atLeast.and(atMost);
+  }
+}
@@ -0,0 +1,172 @@
+package io.catalyte.training.finalprojectapi.versioning;
+
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Builds the strong entity tags of patients and encounters from their version and the format of
+ * the representation, and checks the If-None-Match and If-Match headers of conditional requests
+ * against them. A version is bumped by every update, so two representations in the same format
+ * with the same tag are byte for byte the same. JSON is tagged with the version alone, e.g. "3",
+ * and the binary formats with the version and the format, e.g. "3-cbor", so a cache holding
+ * several formats of the same URL cannot revalidate one with the tag of another.
+ */
+public final class EntityTags {
+
+  /**
+   * the format of JSON representations, whose tags have no suffix
+   */
+  public static final String JSON = "";
+
+  private static final String ANY = "*";
+  private static final Pattern ENTITY_TAG = Pattern.compile("(W/)?\"([0-9]+)(?:-([a-z]+))?\"");
+
+  /**
+   * the media types each format is written in, in the order of the message converters, so the
+   * format picked for an Accept header is the one the response is written in
+   */
+  private static final Map<MediaType, String> FORMATS = new LinkedHashMap<>();
+
+  static {
+    FORMATS.put(MediaType.APPLICATION_JSON, JSON);
+    FORMATS.put(new MediaType("application", "*+json"), JSON);
+    FORMATS.put(MediaType.APPLICATION_CBOR, "cbor");
+    FORMATS.put(new MediaType("application", "x-jackson-smile"), "smile");
+    FORMATS.put(ProtobufCodec.APPLICATION_PROTOBUF, "protobuf");
+  }
+
+  private EntityTags() {
+  }
+
+  /**
+   * Picks the format of the response the way the message converters do: the most specific and
+   * preferred of the accepted types which a format is written in
+   *
+   * @param accept - the Accept header sent by the client, or null
+   * @return the format of the representation, JSON if nothing else is accepted
+   */
+  public static String formatOf(String accept) {
+    List<MediaType> acceptedTypes;
+    try {
+      acceptedTypes = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return JSON;
+    }
+    if (acceptedTypes.isEmpty()) {
+      return JSON;
+    }
+
+    List<MediaType> compatibleTypes = new ArrayList<>();
+    for (MediaType acceptedType : acceptedTypes) {
+      for (MediaType formatType : FORMATS.keySet()) {
+        if (acceptedType.isCompatibleWith(formatType)) {
+          MediaType qualifiedType = formatType.copyQualityValue(acceptedType);
+          compatibleTypes.add(MediaType.SPECIFICITY_COMPARATOR.compare(acceptedType,
+              qualifiedType) <= 0 ? acceptedType : qualifiedType);
+        }
+      }
+    }
+    MediaType.sortBySpecificityAndQuality(compatibleTypes);
+    for (MediaType compatibleType : compatibleTypes) {
+      if (compatibleType.isConcrete()) {
+        for (Map.Entry<MediaType, String> format : FORMATS.entrySet()) {
+          if (format.getKey().includes(compatibleType)) {
+            return format.getValue();
+          }
+        }
+      }
+    }
+    return JSON;
+  }
+
+  /**
+   * @param version - the version of the patient or encounter
+   * @param format  - the format of the representation, see formatOf
+   * @return the quoted strong entity tag
+   */
+  public static String of(Long version, String format) {
+    return "\"" + version + (JSON.equals(format) ? "" : "-" + format) + "\"";
+  }
+
+  /**
+   * @param version - the version of the patient or encounter
+   * @param format  - the format of the representation, see formatOf
+   * @return the response headers carrying its entity tag
+   */
+  public static HttpHeaders toHeaders(Long version, String format) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(of(version, format));
+    return headers;
+  }
+
+  /**
+   * Checks an If-None-Match header with the weak comparison, so W/"3" matches version 3 in JSON
+   * but "3-cbor" does not, as the client holds another format than it is about to be sent
+   *
+   * @param ifNoneMatch - the header sent by the client, or null
+   * @param version     - the current version
+   * @param format      - the format of the representation, see formatOf
+   * @return true if the client already holds the current version and can be sent a 304
+   */
+  public static boolean isNotModified(String ifNoneMatch, Long version, String format) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    if (ANY.equals(ifNoneMatch.trim())) {
+      return true;
+    }
+    return versionsOf(ifNoneMatch, true, format).contains(version);
+  }
+
+  /**
+   * Reads the versions an If-Match header allows an update of. If-Match uses the strong
+   * comparison, so weak tags are left out and a header of only weak tags allows no version. The
+   * tag of any format is accepted, as all of them change together with the version the update is
+   * made against.
+   *
+   * @param ifMatch - the header sent by the client, or null
+   * @return the versions allowed, or null if the header is absent or * and any version will do
+   */
+  public static Set<Long> allowedVersions(String ifMatch) {
+    if (ifMatch == null || ANY.equals(ifMatch.trim())) {
+      return null;
+    }
+    return versionsOf(ifMatch, false, null);
+  }
+
+  /**
+   * @param header - a list of entity tags
+   * @param weak   - true to include weak tags
+   * @param format - the format the tags must be of, or null for any of ours
+   * @return the versions of the tags, leaving out tags which are not one of our versions
+   */
+  private static Set<Long> versionsOf(String header, boolean weak, String format) {
+    Set<Long> versions = new HashSet<>();
+    Matcher tag = ENTITY_TAG.matcher(header);
+    while (tag.find()) {
+      if (tag.group(1) != null && !weak) {
+        continue;
+      }
+      String tagFormat = tag.group(3) == null ? JSON : tag.group(3);
+      if (format != null ? !format.equals(tagFormat) : !FORMATS.containsValue(tagFormat)) {
+        continue;
+      }
+      try {
+        versions.add(Long.parseLong(tag.group(2)));
+      } catch (NumberFormatException e) {
+        // too long to be one of our versions, it cannot match
+      }
+    }
+    return versions;
+  }
+}
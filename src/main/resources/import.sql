@@ -0,0 +1,20 @@
+-- Run by Hibernate after it creates the schema. One statement per line.
+
+-- encounters are written after a cached patient existence check, the key catches a patient deleted since
+ALTER TABLE encounter ADD CONSTRAINT encounter_patient_fk FOREIGN KEY (patient_id) REFERENCES patient (id);
+
+-- emails are unique regardless of case, PatientServiceImpl turns a violation into a 409
+CREATE UNIQUE INDEX patient_email_lower_uidx ON patient (lower(email));
+
+-- patient search and sort columns, see PatientSpecifications and PatientSearch; the pattern ops index serves lastNamePrefix
+CREATE INDEX patient_last_name_lower_idx ON patient (lower(last_name) text_pattern_ops);
+CREATE INDEX patient_last_name_idx ON patient (last_name, id);
+CREATE INDEX patient_age_idx ON patient (age, id);
+CREATE INDEX patient_state_idx ON patient (state);
+CREATE INDEX patient_insurance_idx ON patient (insurance);
+
+-- encounter listings filter on the patient and seek on (date, id); also serves the foreign key on patient deletes
+CREATE INDEX encounter_patient_date_idx ON encounter (patient_id, date, id);
+
+-- summaries go with their patient; encounters keep a patient from being deleted, so only empty summaries cascade
+ALTER TABLE encounter_summary ADD CONSTRAINT encounter_summary_patient_fk FOREIGN KEY (patient_id) REFERENCES patient (id) ON DELETE CASCADE;
@@ -0,0 +1,63 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import io.catalyte.training.finalprojectapi.config.JsonConfig;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * ReactiveApplication starts the patient and encounter API on WebFlux and R2DBC. It serves the
+ * same routes as the servlet application from the schema that application creates, so it runs
+ * against a database the servlet application has started on. JSON is written with the servlet
+ * application's JsonConfig.
+ *
+ * <p>Run with mvn -P reactive test-compile exec:exec@reactive, see the Reactive API section of the
+ * README.
+ */
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@Import(JsonConfig.class)
+public class ReactiveApplication {
+
+  public static void main(String[] args) {
+    run(args);
+  }
+
+  /**
+   * Tomcat is on the classpath for the servlet application and would otherwise be picked first
+   *
+   * @return the factory of the Netty server
+   */
+  @Bean
+  public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+    return new NettyReactiveWebServerFactory();
+  }
+
+  /**
+   * Starts the application on Netty, connecting to the database in spring.datasource unless
+   * spring.r2dbc.url says otherwise
+   *
+   * @param args - the command line arguments
+   * @return the running application
+   */
+  public static ConfigurableApplicationContext run(String... args) {
+    Map<String, Object> defaults = new HashMap<>();
+    defaults.put("spring.r2dbc.url", "r2dbc:postgresql://localhost:5432/postgres");
+    defaults.put("spring.r2dbc.username", "${spring.datasource.username}");
+    defaults.put("spring.r2dbc.password", "${spring.datasource.password}");
+
+    SpringApplication application = new SpringApplication(ReactiveApplication.class);
+    application.setWebApplicationType(WebApplicationType.REACTIVE);
+    application.setDefaultProperties(defaults);
+    return application.run(args);
+  }
+}
@@ -0,0 +1,45 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes CBOR as Jackson2CborEncoder does, but writes a Flux as one CBOR array where
+ * Jackson2CborEncoder refuses it
+ */
+public class ReactiveCborEncoder extends Jackson2CborEncoder {
+
+  /**
+   * @param objectMapper - the object mapper with a CBORFactory
+   */
+  public ReactiveCborEncoder(ObjectMapper objectMapper) {
+    super(objectMapper, MediaType.APPLICATION_CBOR);
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+      ResolvableType elementType, @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    if (inputStream instanceof Mono) {
+      return Mono.from(inputStream)
+          .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+          .flux();
+    }
+    ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+    return Flux.from(inputStream)
+        .collectList()
+        .map(list -> encodeValue(list, bufferFactory, listType, mimeType, hints))
+        .flux();
+  }
+}
@@ -0,0 +1,88 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.server.WebFilter;
+
+/**
+ * Class which lets clients exchange patients and encounters as CBOR, Smile or protobuf on the
+ * reactive stack, as ContentNegotiationConfig does on the servlet stack. JSON stays first, so a
+ * request accepting anything still gets JSON.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveContentNegotiationConfig {
+
+  private static final MimeType SMILE = MimeType.valueOf("application/x-jackson-smile");
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Autowired
+  ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+  /**
+   * @return the codec of the protobuf bodies, which caches the schema of each type
+   */
+  @Bean
+  public ProtobufCodec protobufCodec() {
+    return new ProtobufCodec(objectMapperBuilder.getObject());
+  }
+
+  /**
+   * WebFlux already has Smile codecs, but with none of Spring Boot's configuration, and has no
+   * CBOR or protobuf ones. The Jackson codecs take no media type unless given one. Custom codecs
+   * come before the default ones, so JSON is registered again ahead of CBOR and protobuf to stay
+   * the representation of a request accepting anything.
+   *
+   * @return the customizer of the codecs of the controllers
+   */
+  @Bean
+  public CodecCustomizer binaryCodecCustomizer() {
+    return configurer -> {
+      configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(
+          objectMapperBuilder.getObject().factory(new SmileFactory()).build(), SMILE));
+      configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(
+          objectMapperBuilder.getObject().factory(new SmileFactory()).build(), SMILE));
+      configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+      configurer.customCodecs().register(new ReactiveCborEncoder(
+          objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+      configurer.customCodecs().register(new Jackson2CborDecoder(
+          objectMapperBuilder.getObject().factory(new CBORFactory()).build(),
+          MediaType.APPLICATION_CBOR));
+      configurer.customCodecs().register(new ReactiveProtobufEncoder(protobufCodec()));
+      configurer.customCodecs().register(new ReactiveProtobufDecoder(protobufCodec()));
+    };
+  }
+
+  /**
+   * Marks every response as varying on Accept, as the same URL and entity tag now have a
+   * representation per format and a cache must not serve one for another
+   *
+   * @return the filter adding the header
+   */
+  @Bean
+  public WebFilter varyOnAcceptFilter() {
+    return (exchange, chain) -> {
+      exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+      return chain.filter(exchange);
+    };
+  }
+}
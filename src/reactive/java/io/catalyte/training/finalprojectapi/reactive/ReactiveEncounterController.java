@@ -0,0 +1,144 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ENCOUNTERS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.ID_ENDPOINT;
+
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSearch;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
+import javax.validation.Valid;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Holds crud methods for the encounter entity on the reactive stack, on the routes of
+ * EncounterController
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping(CONTEXT_ENCOUNTERS)
+public class ReactiveEncounterController {
+
+  private static final Logger logger = LogManager.getLogger(ReactiveEncounterController.class);
+
+  @Autowired
+  ReactiveEncounterService encounterService;
+
+  /**
+   * Calls the service to retrieve an encounter by Id. A client which sends the ETag of the current
+   * version in If-None-Match is answered 304 from the version alone, without the encounter.
+   *
+   * @param id          the id of the encounter to be retrieved
+   * @param patientId   the id of the patient in the path
+   * @param ifNoneMatch the ETags of the versions the client holds, if any
+   * @param accept      the types the client accepts, which pick the format of the ETag
+   * @return the encounter which matches the given id, its ETag and the HTTP status OK, or only the
+   * ETag and the HTTP status NOT MODIFIED
+   */
+  @GetMapping(value = ID_ENDPOINT)
+  public Mono<ResponseEntity<Encounter>> getEncounterById(@PathVariable Long id,
+      @PathVariable Long patientId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    logger.debug("Get by id {} request received", id);
+    String format = EntityTags.formatOf(accept);
+
+    Mono<ResponseEntity<Encounter>> encounter = Mono.defer(() ->
+        encounterService.getEncounterById(id, patientId))
+        .map(found -> new ResponseEntity<>(found, EntityTags.toHeaders(found.getVersion(), format),
+            HttpStatus.OK));
+    if (ifNoneMatch == null) {
+      return encounter;
+    }
+
+    return encounterService.getEncounterVersion(id, patientId)
+        .flatMap(version -> EntityTags.isNotModified(ifNoneMatch, version, format)
+            ? Mono.just(new ResponseEntity<>(EntityTags.toHeaders(version, format),
+            HttpStatus.NOT_MODIFIED))
+            : encounter);
+  }
+
+  /**
+   * Gets a page of encounters for a given patient Id, oldest first unless sorted otherwise. The
+   * cursor of the next page is returned in the X-Next-Cursor header. Unpaged, the encounters are
+   * written as they are read when the client accepts application/x-ndjson.
+   *
+   * @param patientId - the id of the patient to get the encounters for
+   * @param search    - codes, provider, date and total cost ranges and sort order to narrow by
+   * @param limit     - the page size, defaults to 50
+   * @param cursor    - the X-Next-Cursor value of the previous page, omitted for the first page
+   * @param unpaged   - true to get every encounter of the patient in a single response
+   * @return the encounters of the patient and the HTTP status OK
+   */
+  @GetMapping
+  public Mono<ResponseEntity<Flux<Encounter>>> getEncountersByPatientId(
+      @PathVariable Long patientId, EncounterSearch search,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "false") boolean unpaged) {
+
+    if (unpaged) {
+      return Mono.just(ResponseEntity.ok(
+          encounterService.getEncountersByPatientId(patientId, search)));
+    }
+
+    return encounterService.getEncountersByPatientId(patientId, search, cursor, limit)
+        .map(page -> new ResponseEntity<>(Flux.fromIterable(page.getContent()),
+            page.toHeaders(), HttpStatus.OK));
+  }
+
+  /**
+   * Calls the service to save a single encounter
+   *
+   * @param encounter - the encounter to be saved
+   * @param patientId - the id of the patient in the path
+   * @return the encounter added and HTTP status code 201 (CREATED)
+   */
+  @PostMapping
+  public Mono<ResponseEntity<Encounter>> save(@Valid @RequestBody Encounter encounter,
+      @PathVariable Long patientId) {
+    logger.debug("Post request received");
+
+    return encounterService.addEncounter(encounter, patientId)
+        .map(savedEncounter -> new ResponseEntity<>(savedEncounter, HttpStatus.CREATED));
+  }
+
+  /**
+   * Update encounter by id.
+   *
+   * @param id        the id of the encounter to be updated from the path variable
+   * @param encounter the encounter's new information from the request body
+   * @param patientId the id of the patient in the path
+   * @param ifMatch   the ETags of the versions the update was made against, if any
+   * @param accept    the types the client accepts, which pick the format of the ETag
+   * @return the encounter if correctly input, with the ETag of its new version
+   */
+  @PutMapping(value = ID_ENDPOINT)
+  public Mono<ResponseEntity<Encounter>> updateEncounterById(@PathVariable Long id,
+      @Valid @RequestBody Encounter encounter, @PathVariable Long patientId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+    String format = EntityTags.formatOf(accept);
+    return encounterService.updateEncounterById(id, encounter, patientId, ifMatch)
+        .map(updatedEncounter -> new ResponseEntity<>(updatedEncounter,
+            EntityTags.toHeaders(updatedEncounter.getVersion(), format), HttpStatus.OK));
+  }
+}
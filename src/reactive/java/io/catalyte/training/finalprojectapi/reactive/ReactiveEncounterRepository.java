@@ -0,0 +1,234 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSearch;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.r2dbc.spi.Row;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads and writes encounters over R2DBC with the statements EncounterRepository runs over JPA
+ */
+@Repository
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveEncounterRepository {
+
+  private static final String COLUMNS = "id, patient_id, notes, visit_code, provider, "
+      + "billing_code, icd10, total_cost, copay, chief_complaint, pulse, systolic, diastolic, "
+      + "date, version";
+
+  /**
+   * column of each EncounterSearch sort attribute
+   */
+  private static final Map<String, String> SORT_COLUMNS = new HashMap<>();
+
+  static {
+    SORT_COLUMNS.put(EncounterSearch.SORT_DATE, "date");
+    SORT_COLUMNS.put(EncounterSearch.SORT_TOTAL_COST, "total_cost");
+  }
+
+  @Autowired
+  DatabaseClient databaseClient;
+
+  /**
+   * Finds the encounters of a patient matching the search parameters in the order of the sort,
+   * seeking past the cursor
+   *
+   * @param patientId - the patient the encounters belong to
+   * @param search    - the equality and range parameters
+   * @param sort      - the order to read the encounters in
+   * @param cursor    - the cursor returned with the previous page, or null for the first page
+   * @param limit     - the most encounters to read, or 0 to read them all as the subscriber asks
+   * @return the encounters
+   */
+  public Flux<Encounter> findAll(Long patientId, EncounterSearch search,
+      KeysetSort<Encounter, ?> sort, String cursor, int limit) {
+    String column = SORT_COLUMNS.get(sort.getAttribute());
+    SqlCriteria criteria = search(patientId, search);
+    sort.seek(cursor, (value, id) -> criteria.after(column, toColumnValue(value), id));
+
+    GenericExecuteSpec spec = criteria.bindTo(databaseClient.sql("SELECT " + COLUMNS
+        + " FROM encounter" + criteria.where() + " ORDER BY " + column + ", id"
+        + (limit > 0 ? " LIMIT " + limit : "")));
+    if (limit == 0) {
+      spec = spec.filter(statement -> statement.fetchSize(ReactivePatientRepository.FETCH_SIZE));
+    }
+    return spec.map(ReactiveEncounterRepository::toEncounter).all();
+  }
+
+  /**
+   * Finds the most recent encounters of a patient matching the search parameters, newest first
+   *
+   * @param patientId - the patient the encounters belong to
+   * @param search    - the equality and range parameters
+   * @param latest    - the most encounters to read
+   * @return the encounters
+   */
+  public Flux<Encounter> findLatest(Long patientId, EncounterSearch search, int latest) {
+    SqlCriteria criteria = search(patientId, search);
+    return criteria.bindTo(databaseClient.sql("SELECT " + COLUMNS + " FROM encounter"
+        + criteria.where() + " ORDER BY date DESC, id DESC LIMIT " + latest))
+        .map(ReactiveEncounterRepository::toEncounter)
+        .all();
+  }
+
+  /**
+   * @param id - the id of the encounter
+   * @return the encounter, or empty if there is none with the id
+   */
+  public Mono<Encounter> findById(Long id) {
+    return databaseClient.sql("SELECT " + COLUMNS + " FROM encounter WHERE id = :id")
+        .bind("id", id)
+        .map(ReactiveEncounterRepository::toEncounter)
+        .one();
+  }
+
+  /**
+   * @param patientId - the id of the patient
+   * @return true if the patient has an encounter
+   */
+  public Mono<Boolean> existsByPatientId(Long patientId) {
+    return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM encounter WHERE patient_id = :id)")
+        .bind("id", patientId)
+        .map(row -> row.get(0, Boolean.class))
+        .one();
+  }
+
+  /**
+   * Inserts an encounter with an id from the encounter sequence. Each insert takes a whole block
+   * of the sequence, so ids never collide with the blocks Hibernate hands out.
+   *
+   * @param encounter - the encounter to insert
+   * @return the encounter with its id set
+   */
+  public Mono<Encounter> insert(Encounter encounter) {
+    return bindColumns(databaseClient.sql("INSERT INTO encounter (" + COLUMNS + ") VALUES "
+        + "(nextval('encounter_seq'), :patientId, :notes, :visitCode, :provider, :billingCode, "
+        + ":icd10, :totalCost, :copay, :chiefComplaint, :pulse, :systolic, :diastolic, :date, 0) "
+        + "RETURNING id"), encounter)
+        .map(row -> row.get("id", Long.class))
+        .one()
+        .map(id -> {
+          encounter.setId(id);
+          encounter.setVersion(0L);
+          return encounter;
+        });
+  }
+
+  /**
+   * @param id - the id of the encounter
+   * @return the version of the encounter, or empty if there is none with the id
+   */
+  public Mono<Long> findVersionById(Long id) {
+    return databaseClient.sql("SELECT version FROM encounter WHERE id = :id")
+        .bind("id", id)
+        .map(row -> row.get("version", Long.class))
+        .one();
+  }
+
+  /**
+   * Replaces every column of an encounter and bumps its version in a single statement, if it is
+   * still at the version it was read at
+   *
+   * @param encounter - the encounter's new information, with its id
+   * @param version   - the version the encounter was read at
+   * @return the new version, or empty if there is no encounter with the id at the version
+   */
+  public Mono<Long> update(Encounter encounter, Long version) {
+    return bindColumns(databaseClient.sql("UPDATE encounter SET patient_id = :patientId, "
+        + "notes = :notes, visit_code = :visitCode, provider = :provider, "
+        + "billing_code = :billingCode, icd10 = :icd10, total_cost = :totalCost, copay = :copay, "
+        + "chief_complaint = :chiefComplaint, pulse = :pulse, systolic = :systolic, "
+        + "diastolic = :diastolic, date = :date, version = version + 1 "
+        + "WHERE id = :id AND version = :version RETURNING version"), encounter)
+        .bind("id", encounter.getId())
+        .bind("version", version)
+        .map(row -> row.get("version", Long.class))
+        .one();
+  }
+
+  private static SqlCriteria search(Long patientId, EncounterSearch search) {
+    return new SqlCriteria()
+        .equal("patient_id", patientId)
+        .equal("visit_code", search.getVisitCode())
+        .equal("provider", search.getProvider())
+        .equal("billing_code", search.getBillingCode())
+        .equal("icd10", search.getIcd10())
+        .between("date", toColumnValue(search.earliestDate()), toColumnValue(search.getTo()))
+        .between("total_cost", search.getMinTotalCost(), search.getMaxTotalCost());
+  }
+
+  /**
+   * Binds every column but the id, the optional ones as nulls of their column type
+   */
+  private static GenericExecuteSpec bindColumns(GenericExecuteSpec spec, Encounter encounter) {
+    spec = spec.bind("patientId", encounter.getPatientId())
+        .bind("visitCode", encounter.getVisitCode())
+        .bind("provider", encounter.getProvider())
+        .bind("billingCode", encounter.getBillingCode())
+        .bind("icd10", encounter.getIcd10())
+        .bind("totalCost", encounter.getTotalCost())
+        .bind("copay", encounter.getCopay())
+        .bind("chiefComplaint", encounter.getChiefComplaint())
+        .bind("date", toColumnValue(encounter.getDate()));
+    spec = bindNullable(spec, "notes", encounter.getNotes(), String.class);
+    spec = bindNullable(spec, "pulse", encounter.getPulse(), Integer.class);
+    spec = bindNullable(spec, "systolic", encounter.getSystolic(), Integer.class);
+    return bindNullable(spec, "diastolic", encounter.getDiastolic(), Integer.class);
+  }
+
+  static GenericExecuteSpec bindNullable(GenericExecuteSpec spec, String name, Object value,
+      Class<?> type) {
+    return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+  }
+
+  /**
+   * The date column is a timestamp without time zone, written by JDBC in the default time zone
+   *
+   * @param value - a value to bind, converted if it is a date
+   * @return the value as the driver binds it
+   */
+  static Object toColumnValue(Object value) {
+    if (value instanceof Date) {
+      return new Timestamp(((Date) value).getTime()).toLocalDateTime();
+    }
+    return value;
+  }
+
+  static Date toDate(LocalDateTime value) {
+    return value == null ? null : Timestamp.valueOf(value);
+  }
+
+  private static Encounter toEncounter(Row row) {
+    Encounter encounter = new Encounter();
+    encounter.setId(row.get("id", Long.class));
+    encounter.setPatientId(row.get("patient_id", Long.class));
+    encounter.setNotes(row.get("notes", String.class));
+    encounter.setVisitCode(row.get("visit_code", String.class));
+    encounter.setProvider(row.get("provider", String.class));
+    encounter.setBillingCode(row.get("billing_code", String.class));
+    encounter.setIcd10(row.get("icd10", String.class));
+    encounter.setTotalCost(row.get("total_cost", BigDecimal.class));
+    encounter.setCopay(row.get("copay", BigDecimal.class));
+    encounter.setChiefComplaint(row.get("chief_complaint", String.class));
+    encounter.setPulse(row.get("pulse", Integer.class));
+    encounter.setSystolic(row.get("systolic", Integer.class));
+    encounter.setDiastolic(row.get("diastolic", Integer.class));
+    encounter.setDate(toDate(row.get("date", LocalDateTime.class)));
+    encounter.setVersion(row.get("version", Long.class));
+    return encounter;
+  }
+}
@@ -0,0 +1,310 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_COPAY;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_ENCOUNTER_NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_ID;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_LATEST;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_LATEST_CURSOR;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_PATIENT_NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_TOTAL_COST;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.VERSION_CONFLICT;
+
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSearch;
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
+import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class which handles the business logic for the encounter entity on the reactive stack,
+ * with the checks and errors of EncounterServiceImpl. Patient existence is checked with a query
+ * rather than the patient id index, and new encounters must fall in an existing partition when
+ * encounters are partitioned.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveEncounterService {
+
+  @Autowired
+  ReactiveEncounterRepository encounterRepository;
+
+  @Autowired
+  ReactiveEncounterSummaryRepository encounterSummaryRepository;
+
+  @Autowired
+  ReactivePatientRepository patientRepository;
+
+  /**
+   * Gets every encounter of a patient matching the search parameters, read from the database as
+   * the subscriber asks for them
+   *
+   * @param patientId - the patient Id to search encounters for
+   * @param search    - the equality, range and sort parameters
+   * @return - the encounters
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  @Transactional(readOnly = true)
+  public Flux<Encounter> getEncountersByPatientId(Long patientId, EncounterSearch search) {
+    if (search.getLatest() != null) {
+      return getLatestEncounters(patientId, search, null)
+          .flatMapIterable(KeysetPage::getContent);
+    }
+    KeysetSort<Encounter, ?> sort = search.toKeysetSort();
+    Flux<Encounter> encounters = encounterRepository.findAll(patientId, search, sort, null, 0);
+
+    return checkPatientExists(patientId, () -> new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND))
+        .thenMany(encounters.onErrorMap(Exception.class, ServiceUnavailable::new));
+  }
+
+  /**
+   * Gets one page of the encounters of a patient matching the search parameters, in the
+   * requested order, seeking past the cursor
+   *
+   * @param patientId - the patient Id to search encounters for
+   * @param search    - the equality, range and sort parameters
+   * @param cursor    - the cursor returned with the previous page, or null for the first page
+   * @param limit     - the page size, or null for the default
+   * @return - a page of encounters and the cursor of the next page
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  @Transactional(readOnly = true)
+  public Mono<KeysetPage<Encounter>> getEncountersByPatientId(Long patientId,
+      EncounterSearch search, String cursor, Integer limit) {
+    if (search.getLatest() != null) {
+      return getLatestEncounters(patientId, search, cursor);
+    }
+    int pageSize = KeysetPage.resolveLimit(limit);
+    KeysetSort<Encounter, ?> sort = search.toKeysetSort();
+    Flux<Encounter> encounters =
+        encounterRepository.findAll(patientId, search, sort, cursor, pageSize + 1);
+
+    return checkPatientExists(patientId, () -> new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND))
+        .then(encounters.collectList().onErrorMap(Exception.class, ServiceUnavailable::new))
+        .map(page -> KeysetPage.of(page, pageSize, sort::cursorOf));
+  }
+
+  /**
+   * Gets the most recent encounters of a patient, newest first, as a single page
+   *
+   * @param patientId - the patient Id to search encounters for
+   * @param search    - the equality and range parameters and the number of encounters
+   * @param cursor    - must be null, the latest encounters are a single page
+   * @return - a page of at most latest encounters, without a next cursor
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  private Mono<KeysetPage<Encounter>> getLatestEncounters(Long patientId,
+      EncounterSearch search, String cursor) {
+    int latest = search.getLatest();
+    if (latest < 1 || latest > KeysetPage.MAX_LIMIT) {
+      throw new BadDataResponse(BAD_REQUEST_LATEST);
+    }
+    if (cursor != null) {
+      throw new BadDataResponse(BAD_REQUEST_LATEST_CURSOR);
+    }
+    Flux<Encounter> encounters = encounterRepository.findLatest(patientId, search, latest);
+
+    return checkPatientExists(patientId, () -> new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND))
+        .then(encounters.collectList().onErrorMap(Exception.class, ServiceUnavailable::new))
+        .map(page -> new KeysetPage<>(page, null));
+  }
+
+  /**
+   * Adds an encounter and adds it to the patient's summary in the same transaction
+   *
+   * @param encounter - the encounter to add
+   * @param patientId - the patient Id in the path
+   * @return - the encounter that has been added
+   * @throws ServiceUnavailable
+   * @throws BadDataResponse
+   */
+  @Transactional
+  public Mono<Encounter> addEncounter(Encounter encounter, Long patientId) {
+    return checkPatientExists(encounter.getPatientId(),
+        () -> new BadDataResponse(BAD_REQUEST_PATIENT_NOT_FOUND))
+        .then(Mono.defer(() -> {
+          checkIdsAndAmounts(encounter, patientId);
+
+          return encounterRepository.insert(encounter)
+              // the patient was deleted since it was checked
+              .onErrorMap(Exception.class, e -> e instanceof DataIntegrityViolationException
+                  ? new BadDataResponse(BAD_REQUEST_PATIENT_NOT_FOUND)
+                  : new ServiceUnavailable(e));
+        }))
+        .flatMap(savedEncounter -> encounterSummaryRepository.addDelta(
+            savedEncounter.getPatientId(), 1, savedEncounter.getTotalCost(),
+            savedEncounter.getCopay(), savedEncounter)
+            .onErrorMap(Exception.class, ServiceUnavailable::new)
+            .thenReturn(savedEncounter));
+  }
+
+  /**
+   * Retrieves an encounter from the database by Id
+   *
+   * @param id        - the id of the encounter to be returned
+   * @param patientId - the patient Id in the path
+   * @return - the encounter that matches the id
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  public Mono<Encounter> getEncounterById(Long id, Long patientId) {
+    return checkPatientExists(patientId, () -> new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND))
+        .then(encounterRepository.findById(id)
+            .onErrorMap(Exception.class, ServiceUnavailable::new))
+        .switchIfEmpty(Mono.error(() ->
+            new ResourceNotFound("Could not locate an encounter with the id: " + id)));
+  }
+
+  /**
+   * Retrieves only the version of an encounter, to answer a conditional get
+   *
+   * @param id        - the id of the encounter
+   * @param patientId - the patient Id in the path
+   * @return - the version of the encounter that matches the id
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  public Mono<Long> getEncounterVersion(Long id, Long patientId) {
+    return checkPatientExists(patientId, () -> new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND))
+        .then(encounterRepository.findVersionById(id)
+            .onErrorMap(Exception.class, ServiceUnavailable::new))
+        .switchIfEmpty(Mono.error(() ->
+            new ResourceNotFound("Could not locate an encounter with the id: " + id)));
+  }
+
+  /**
+   * Replaces an encounter and moves the difference into the patient summaries in the same
+   * transaction. The encounter is only replaced at the version it was read at, so two concurrent
+   * updates cannot both move the same difference.
+   *
+   * @param id        - the id of the encounter to update
+   * @param encounter - the new encounter
+   * @param patientId - the patient Id in the path
+   * @param ifMatch   - the If-Match header, or null to update any version
+   * @return - the updated encounter with its new version
+   * @throws ServiceUnavailable
+   * @throws BadDataResponse
+   * @throws ResourceNotFound
+   * @throws PreconditionFailed
+   */
+  @Transactional
+  public Mono<Encounter> updateEncounterById(Long id, Encounter encounter, Long patientId,
+      String ifMatch) {
+    return checkPatientExists(encounter.getPatientId(),
+        () -> new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND))
+        .then(Mono.defer(() -> {
+          // check if id in path matches id in request body
+          if (!encounter.getId().equals(id)) {
+            throw new BadDataResponse(BAD_REQUEST_ID);
+          }
+          checkIdsAndAmounts(encounter, patientId);
+
+          return encounterRepository.findById(id)
+              .onErrorMap(Exception.class, ServiceUnavailable::new)
+              .switchIfEmpty(Mono.error(() ->
+                  new ResourceNotFound(BAD_REQUEST_ENCOUNTER_NOT_FOUND)));
+        }))
+        .flatMap(existingEncounter -> {
+          Long version = existingEncounter.getVersion();
+          Set<Long> allowedVersions = EntityTags.allowedVersions(ifMatch);
+          if (allowedVersions != null && !allowedVersions.contains(version)) {
+            return Mono.error(new PreconditionFailed(VERSION_CONFLICT));
+          }
+
+          return encounterRepository.update(encounter, version)
+              // the patient was deleted since it was checked
+              .onErrorMap(Exception.class, e -> e instanceof DataIntegrityViolationException
+                  ? new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND)
+                  : new ServiceUnavailable(e))
+              // another update committed since the encounter was read
+              .switchIfEmpty(Mono.error(() -> new PreconditionFailed(VERSION_CONFLICT)))
+              .flatMap(newVersion -> {
+                encounter.setVersion(newVersion);
+                return moveSummary(existingEncounter, encounter)
+                    .onErrorMap(Exception.class, ServiceUnavailable::new);
+              })
+              .thenReturn(encounter);
+        });
+  }
+
+  /**
+   * Moves the difference between the old and the new encounter into the patient summaries
+   *
+   * @param oldEncounter - the encounter as it was
+   * @param newEncounter - the encounter as it is now
+   * @return completes once the summaries are written
+   */
+  private Mono<Void> moveSummary(Encounter oldEncounter, Encounter newEncounter) {
+    Long oldPatientId = oldEncounter.getPatientId();
+    Long newPatientId = newEncounter.getPatientId();
+
+    Mono<Void> deltas;
+    if (newPatientId.equals(oldPatientId)) {
+      deltas = encounterSummaryRepository.addDelta(newPatientId, 0,
+          newEncounter.getTotalCost().subtract(oldEncounter.getTotalCost()),
+          newEncounter.getCopay().subtract(oldEncounter.getCopay()), null);
+    } else {
+      deltas = encounterSummaryRepository.addDelta(oldPatientId, -1,
+          oldEncounter.getTotalCost().negate(), oldEncounter.getCopay().negate(), null)
+          .then(encounterSummaryRepository.addDelta(newPatientId, 1, newEncounter.getTotalCost(),
+              newEncounter.getCopay(), null))
+          .then(encounterSummaryRepository.refreshLatest(oldPatientId));
+    }
+    // the new date may move this encounter ahead of or behind another
+    return deltas.then(encounterSummaryRepository.refreshLatest(newPatientId));
+  }
+
+  /**
+   * Checks that a patient exists
+   *
+   * @param patientId - the id of the patient
+   * @param notFound  - the exception to signal if it does not
+   * @return completes if the patient exists
+   * @throws ServiceUnavailable
+   */
+  private Mono<Void> checkPatientExists(Long patientId, Supplier<RuntimeException> notFound) {
+    return patientRepository.existsById(patientId)
+        .onErrorMap(Exception.class, ServiceUnavailable::new)
+        .flatMap(validPatientId -> validPatientId ? Mono.<Void>empty()
+            : Mono.<Void>error(notFound.get()));
+  }
+
+  /**
+   * @param encounter - the encounter from the request body
+   * @param patientId - the patient Id in the path
+   * @throws BadDataResponse
+   */
+  private void checkIdsAndAmounts(Encounter encounter, Long patientId) {
+    // check if patientId in path matches patientId in request body
+    if (!encounter.getPatientId().equals(patientId)) {
+      throw new BadDataResponse(BAD_REQUEST_ID);
+    }
+
+    // check if the total cost and copay have two digits
+    if (encounter.getTotalCost().scale() != 2) {
+      throw new BadDataResponse(BAD_REQUEST_TOTAL_COST);
+    }
+    if (encounter.getCopay().scale() != 2) {
+      throw new BadDataResponse(BAD_REQUEST_COPAY);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.reactive.ReactiveEncounterRepository.bindNullable;
+import static io.catalyte.training.finalprojectapi.reactive.ReactiveEncounterRepository.toColumnValue;
+
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes the encounter summaries over R2DBC with the statements of
+ * EncounterSummaryRepositoryCustomImpl, so both stacks keep the same totals
+ */
+@Repository
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveEncounterSummaryRepository {
+
+  /**
+   * true if the inserted row carries an encounter later than the stored one, by date then id
+   */
+  private static final String LATER = "EXCLUDED.last_encounter_id IS NOT NULL "
+      + "AND (s.last_encounter_id IS NULL OR (EXCLUDED.last_encounter_date, "
+      + "EXCLUDED.last_encounter_id) > (s.last_encounter_date, s.last_encounter_id))";
+
+  @Autowired
+  DatabaseClient databaseClient;
+
+  /**
+   * Adds encounters to the summary of a patient, creating it if needed. The latest encounter
+   * replaces the stored one only if it is later by date, then id.
+   *
+   * @param patientId      - the patient the encounters belong to
+   * @param encounterCount - the number of encounters added, negative to take them away
+   * @param totalCost      - the sum of their total costs
+   * @param totalCopay     - the sum of their copays
+   * @param latest         - the latest of the encounters, or null to leave the stored one
+   * @return completes once the summary is written
+   */
+  public Mono<Void> addDelta(Long patientId, long encounterCount, BigDecimal totalCost,
+      BigDecimal totalCopay, Encounter latest) {
+    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO encounter_summary "
+        + "AS s (patient_id, encounter_count, total_cost, total_copay, last_encounter_date, "
+        + "last_encounter_id, last_pulse, last_systolic, last_diastolic) VALUES (:patientId, "
+        + ":encounterCount, :totalCost, :totalCopay, :date, :id, :pulse, :systolic, :diastolic) "
+        + "ON CONFLICT (patient_id) DO UPDATE SET "
+        + "encounter_count = s.encounter_count + EXCLUDED.encounter_count, "
+        + "total_cost = s.total_cost + EXCLUDED.total_cost, "
+        + "total_copay = s.total_copay + EXCLUDED.total_copay, "
+        + "last_encounter_date = " + latest("last_encounter_date") + ", "
+        + "last_encounter_id = " + latest("last_encounter_id") + ", "
+        + "last_pulse = " + latest("last_pulse") + ", "
+        + "last_systolic = " + latest("last_systolic") + ", "
+        + "last_diastolic = " + latest("last_diastolic"))
+        .bind("patientId", patientId)
+        .bind("encounterCount", encounterCount)
+        .bind("totalCost", totalCost)
+        .bind("totalCopay", totalCopay);
+    // typed so a null binds as the column type
+    spec = bindNullable(spec, "date", latest == null ? null : toColumnValue(latest.getDate()),
+        LocalDateTime.class);
+    spec = bindNullable(spec, "id", latest == null ? null : latest.getId(), Long.class);
+    spec = bindNullable(spec, "pulse", latest == null ? null : latest.getPulse(), Integer.class);
+    spec = bindNullable(spec, "systolic", latest == null ? null : latest.getSystolic(),
+        Integer.class);
+    spec = bindNullable(spec, "diastolic", latest == null ? null : latest.getDiastolic(),
+        Integer.class);
+    return spec.then();
+  }
+
+  /**
+   * Reads the latest encounter of a patient back into its summary, for when an update may have
+   * moved or changed the stored one
+   *
+   * @param patientId - the patient whose summary to refresh
+   * @return completes once the summary is written
+   */
+  public Mono<Void> refreshLatest(Long patientId) {
+    return databaseClient.sql("UPDATE encounter_summary s SET (last_encounter_date, "
+        + "last_encounter_id, last_pulse, last_systolic, last_diastolic) = "
+        + "(SELECT date, id, pulse, systolic, diastolic FROM encounter e "
+        + "WHERE e.patient_id = s.patient_id ORDER BY date DESC, id DESC LIMIT 1) "
+        + "WHERE s.patient_id = :patientId")
+        .bind("patientId", patientId)
+        .then();
+  }
+
+  /**
+   * Picks the inserted or the stored value of a latest encounter column
+   *
+   * @param column - the summary column
+   * @return a SQL expression for the new value of the column
+   */
+  private static String latest(String column) {
+    return "CASE WHEN " + LATER + " THEN EXCLUDED." + column + " ELSE s." + column + " END";
+  }
+}
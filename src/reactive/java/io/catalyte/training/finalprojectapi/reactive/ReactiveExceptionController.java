@@ -0,0 +1,82 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.SERVER_ERROR;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.VALIDATION_ERROR;
+
+import io.catalyte.training.finalprojectapi.exceptions.ExceptionController;
+import io.catalyte.training.finalprojectapi.exceptions.ExceptionResponse;
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.catalyte.training.finalprojectapi.exceptions.ValidationExceptionResponse;
+import io.r2dbc.spi.R2dbcException;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.ObjectError;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+/**
+ * Handles exceptions on the reactive stack as ExceptionController does on the servlet stack, with
+ * the validation errors of WebFlux and the database errors of R2DBC
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveExceptionController extends ExceptionController {
+
+  private final Logger logger = LoggerFactory.getLogger(ReactiveExceptionController.class);
+
+  /**
+   * Catch validation errors triggered by using @Valid on parameters in controllers
+   *
+   * @param ex : the validation exception generated by Spring
+   * @return the ResponseEntity containing the validation exception list
+   */
+  @ExceptionHandler(WebExchangeBindException.class)
+  public ResponseEntity<Object> handleBindExceptions(WebExchangeBindException ex) {
+    String method = ex.getMethodParameter().getMethod().getName();
+    String controller = ex.getMethodParameter().getDeclaringClass().getSimpleName();
+    List<String> errors = ex.getBindingResult().getAllErrors().stream()
+        .map(ObjectError::getDefaultMessage)
+        .collect(Collectors.toList());
+
+    ValidationExceptionResponse response =
+        new ValidationExceptionResponse(VALIDATION_ERROR, new Date(),
+            "One or more validation errors occurred in:" + controller + " : " + method, errors);
+    logger.warn(CLIENT_ERROR, "Validation failed in {} : {} {}", controller, method, errors);
+    count(ex, HttpStatus.BAD_REQUEST);
+    return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+  }
+
+  /**
+   * Triggered when the ServiceUnavailable exception is thrown. A database error answers 503 with
+   * the message of the R2DBC exception, anything else is left to ExceptionController.
+   *
+   * @param ex the ServiceUnavailable exception containing the custom message.
+   * @return the ResponseEntity containing the custom exception and the status code 503 or 500
+   * depending on the cause of the exception
+   */
+  @Override
+  @ExceptionHandler(ServiceUnavailable.class)
+  protected ResponseEntity<ExceptionResponse> serverError(ServiceUnavailable ex) {
+    Throwable cause = ex.getCause();
+    while (cause != null && !(cause instanceof R2dbcException)) {
+      cause = cause.getCause();
+    }
+    if (cause == null) {
+      return super.serverError(ex);
+    }
+
+    ExceptionResponse response = new ExceptionResponse(SERVER_ERROR, new Date(),
+        cause.getMessage());
+    logger.error(cause.getMessage());
+    count(ex, HttpStatus.SERVICE_UNAVAILABLE);
+    return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
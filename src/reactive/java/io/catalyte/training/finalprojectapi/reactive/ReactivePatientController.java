@@ -0,0 +1,152 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.ID_ENDPOINT;
+
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientSearch;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
+import javax.validation.Valid;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * holds crud methods for the patient entity on the reactive stack, on the routes of
+ * PatientController
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping(CONTEXT_PATIENTS)
+public class ReactivePatientController {
+
+  private static final Logger logger = LogManager.getLogger(ReactivePatientController.class);
+
+  @Autowired
+  ReactivePatientService patientService;
+
+  /**
+   * Calls the service to retrieve a patient by Id. A client which sends the ETag of the current
+   * version in If-None-Match is answered 304 from the version alone, without the patient.
+   *
+   * @param id          the id of the patient to be retrieved
+   * @param ifNoneMatch the ETags of the versions the client holds, if any
+   * @param accept      the types the client accepts, which pick the format of the ETag
+   * @return the patient which matches the given id, its ETag and the HTTP status OK, or only the
+   * ETag and the HTTP status NOT MODIFIED
+   */
+  @GetMapping(value = ID_ENDPOINT)
+  public Mono<ResponseEntity<Patient>> getPatientById(@PathVariable Long id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    logger.debug("Get by id {} request received", id);
+    String format = EntityTags.formatOf(accept);
+
+    Mono<ResponseEntity<Patient>> patient = Mono.defer(() -> patientService.getPatientById(id))
+        .map(found -> new ResponseEntity<>(found, EntityTags.toHeaders(found.getVersion(), format),
+            HttpStatus.OK));
+    if (ifNoneMatch == null) {
+      return patient;
+    }
+
+    return patientService.getPatientVersion(id)
+        .flatMap(version -> EntityTags.isNotModified(ifNoneMatch, version, format)
+            ? Mono.just(new ResponseEntity<>(EntityTags.toHeaders(version, format),
+            HttpStatus.NOT_MODIFIED))
+            : patient);
+  }
+
+  /**
+   * gives a page of all patients if I pass a null patient or of patients matching an example with
+   * non-null patient, narrowed by the search parameters. The cursor of the next page is returned
+   * in the X-Next-Cursor header. Unpaged, the patients are written as they are read when the
+   * client accepts application/x-ndjson.
+   *
+   * @param patient patient object which can have null or non-null fields
+   * @param search  last name prefix, age range and sort order
+   * @param limit   the page size, defaults to 50
+   * @param cursor  the X-Next-Cursor value of the previous page, omitted for the first page
+   * @param unpaged true to get every matching patient in a single response
+   * @return the patients and the HTTP status OK
+   */
+  @GetMapping
+  public Mono<ResponseEntity<Flux<Patient>>> queryPatients(Patient patient, PatientSearch search,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "false") boolean unpaged) {
+
+    if (unpaged) {
+      return Mono.just(ResponseEntity.ok(patientService.queryPatients(patient, search)));
+    }
+
+    return patientService.queryPatients(patient, search, cursor, limit)
+        .map(page -> new ResponseEntity<>(Flux.fromIterable(page.getContent()),
+            page.toHeaders(), HttpStatus.OK));
+  }
+
+  /**
+   * Calls the service to delete a patient with a given id
+   *
+   * @param id the id of the patient to be deleted
+   * @return the HTTP status 204 (NO CONTENT)
+   */
+  @DeleteMapping(value = ID_ENDPOINT)
+  public Mono<ResponseEntity<Void>> deletePatientById(@PathVariable Long id) {
+    logger.debug("Delete request received for id: {}", id);
+
+    return patientService.deletePatient(id)
+        .thenReturn(new ResponseEntity<>(HttpStatus.NO_CONTENT));
+  }
+
+  /**
+   * Calls the service to save a single patient
+   *
+   * @param patient - the patient to be saved
+   * @return the patient added and HTTP status code 201 (CREATED)
+   */
+  @PostMapping
+  public Mono<ResponseEntity<Patient>> save(@Valid @RequestBody Patient patient) {
+    logger.debug("Post request received");
+
+    return patientService.addPatient(patient)
+        .map(savedPatient -> new ResponseEntity<>(savedPatient, HttpStatus.CREATED));
+  }
+
+  /**
+   * Update patient by id.
+   *
+   * @param id      the id of the patient to be updated from the path variable
+   * @param patient the patient's new information from the request body
+   * @param ifMatch the ETags of the versions the update was made against, if any
+   * @param accept  the types the client accepts, which pick the format of the ETag
+   * @return the patient if correctly input, with the ETag of its new version
+   */
+  @PutMapping(value = ID_ENDPOINT)
+  public Mono<ResponseEntity<Patient>> updatePatientById(@PathVariable Long id,
+      @Valid @RequestBody Patient patient,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+    String format = EntityTags.formatOf(accept);
+    return patientService.updatePatientById(id, patient, ifMatch)
+        .map(updatedPatient -> new ResponseEntity<>(updatedPatient,
+            EntityTags.toHeaders(updatedPatient.getVersion(), format), HttpStatus.OK));
+  }
+}
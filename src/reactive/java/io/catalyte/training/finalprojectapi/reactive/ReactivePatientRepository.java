@@ -0,0 +1,227 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientSearch;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.r2dbc.spi.Row;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads and writes patients over R2DBC with the statements PatientRepository runs over JPA
+ */
+@Repository
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactivePatientRepository {
+
+  /**
+   * rows the driver fetches at a time from a listing without a limit, as for the export
+   */
+  static final int FETCH_SIZE = 500;
+
+  private static final String COLUMNS = "id, first_name, last_name, ssn, email, age, height, "
+      + "weight, insurance, gender, street, city, state, postal, version";
+
+  /**
+   * column of each PatientSearch sort attribute
+   */
+  private static final Map<String, String> SORT_COLUMNS = new HashMap<>();
+
+  static {
+    SORT_COLUMNS.put(PatientSearch.SORT_ID, "id");
+    SORT_COLUMNS.put(PatientSearch.SORT_LAST_NAME, "last_name");
+    SORT_COLUMNS.put(PatientSearch.SORT_AGE, "age");
+  }
+
+  @Autowired
+  DatabaseClient databaseClient;
+
+  /**
+   * Finds the patients matching an example and the search parameters in the order of the sort,
+   * seeking past the cursor
+   *
+   * @param patient - sample patient whose non-null fields must match
+   * @param search  - the prefix and range parameters
+   * @param sort    - the order to read the patients in
+   * @param cursor  - the cursor returned with the previous page, or null for the first page
+   * @param limit   - the most patients to read, or 0 to read them all as the subscriber asks
+   * @return the patients
+   */
+  public Flux<Patient> findAll(Patient patient, PatientSearch search, KeysetSort<Patient, ?> sort,
+      String cursor, int limit) {
+    String column = SORT_COLUMNS.get(sort.getAttribute());
+    SqlCriteria criteria = new SqlCriteria()
+        .equal("id", patient.getId())
+        .equal("first_name", patient.getFirstName())
+        .equal("last_name", patient.getLastName())
+        .equal("ssn", patient.getSsn())
+        .equalIgnoringCase("email", patient.getEmail())
+        .equal("age", patient.getAge())
+        .equal("height", patient.getHeight())
+        .equal("weight", patient.getWeight())
+        .equal("insurance", patient.getInsurance())
+        .equal("gender", patient.getGender())
+        .equal("street", patient.getStreet())
+        .equal("city", patient.getCity())
+        .equal("state", patient.getState())
+        .equal("postal", patient.getPostal())
+        .startsWithIgnoringCase("last_name", search.getLastNamePrefix())
+        .between("age", search.getMinAge(), search.getMaxAge());
+    sort.seek(cursor, (value, id) -> criteria.after(column, value, id));
+
+    String orderBy = "id".equals(column) ? " ORDER BY id" : " ORDER BY " + column + ", id";
+    GenericExecuteSpec spec = criteria.bindTo(databaseClient.sql("SELECT " + COLUMNS
+        + " FROM patient" + criteria.where() + orderBy + (limit > 0 ? " LIMIT " + limit : "")));
+    if (limit == 0) {
+      spec = spec.filter(statement -> statement.fetchSize(FETCH_SIZE));
+    }
+    return spec.map(ReactivePatientRepository::toPatient).all();
+  }
+
+  /**
+   * @param id - the id of the patient
+   * @return the patient, or empty if there is none with the id
+   */
+  public Mono<Patient> findById(Long id) {
+    return databaseClient.sql("SELECT " + COLUMNS + " FROM patient WHERE id = :id")
+        .bind("id", id)
+        .map(ReactivePatientRepository::toPatient)
+        .one();
+  }
+
+  /**
+   * @param id - the id of the patient
+   * @return true if there is a patient with the id
+   */
+  public Mono<Boolean> existsById(Long id) {
+    return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM patient WHERE id = :id)")
+        .bind("id", id)
+        .map(row -> row.get(0, Boolean.class))
+        .one();
+  }
+
+  /**
+   * Inserts a patient with an id from the patient sequence. Each insert takes a whole block of
+   * the sequence, so ids never collide with the blocks Hibernate hands out.
+   *
+   * @param patient - the patient to insert
+   * @return the patient with its id set
+   */
+  public Mono<Patient> insert(Patient patient) {
+    return bindColumns(databaseClient.sql("INSERT INTO patient (" + COLUMNS + ") VALUES "
+        + "(nextval('patient_seq'), :firstName, :lastName, :ssn, :email, :age, :height, :weight, "
+        + ":insurance, :gender, :street, :city, :state, :postal, 0) RETURNING id"), patient)
+        .map(row -> row.get("id", Long.class))
+        .one()
+        .map(id -> {
+          patient.setId(id);
+          patient.setVersion(0L);
+          return patient;
+        });
+  }
+
+  /**
+   * @param id - the id of the patient
+   * @return the version of the patient, or empty if there is none with the id
+   */
+  public Mono<Long> findVersionById(Long id) {
+    return databaseClient.sql("SELECT version FROM patient WHERE id = :id")
+        .bind("id", id)
+        .map(row -> row.get("version", Long.class))
+        .one();
+  }
+
+  /**
+   * Replaces every column of a patient and bumps its version in a single statement
+   *
+   * @param patient - the patient's new information, with its id
+   * @return the new version, or empty if there is no patient with the id
+   */
+  public Mono<Long> update(Patient patient) {
+    return update(patient, "", null);
+  }
+
+  /**
+   * Replaces every column of a patient and bumps its version in a single statement, if the
+   * patient is at one of the versions
+   *
+   * @param patient  - the patient's new information, with its id
+   * @param versions - the versions the patient may be at
+   * @return the new version, or empty if there is no patient with the id at one of the versions
+   */
+  public Mono<Long> update(Patient patient, Collection<Long> versions) {
+    if (versions.isEmpty()) {
+      return Mono.empty();
+    }
+    return update(patient, " AND version = ANY(:versions)", versions.toArray(new Long[0]));
+  }
+
+  private Mono<Long> update(Patient patient, String condition, Long[] versions) {
+    GenericExecuteSpec spec = bindColumns(databaseClient.sql("UPDATE patient SET "
+        + "first_name = :firstName, last_name = :lastName, ssn = :ssn, email = :email, "
+        + "age = :age, height = :height, weight = :weight, insurance = :insurance, "
+        + "gender = :gender, street = :street, city = :city, state = :state, postal = :postal, "
+        + "version = version + 1 WHERE id = :id" + condition + " RETURNING version"), patient)
+        .bind("id", patient.getId());
+    if (versions != null) {
+      spec = spec.bind("versions", versions);
+    }
+    return spec.map(row -> row.get("version", Long.class)).one();
+  }
+
+  /**
+   * Deletes a patient unless it has encounters
+   *
+   * @param id - the id of the patient to delete
+   * @return the number of patients deleted, 0 if there is no patient with the id or it has
+   * encounters
+   */
+  public Mono<Integer> deleteIfNoEncounters(Long id) {
+    return databaseClient.sql("DELETE FROM patient p WHERE p.id = :id AND NOT EXISTS "
+        + "(SELECT 1 FROM encounter e WHERE e.patient_id = p.id)")
+        .bind("id", id)
+        .fetch()
+        .rowsUpdated();
+  }
+
+  /**
+   * Binds every column but the id, all of which are required on a valid patient
+   */
+  private static GenericExecuteSpec bindColumns(GenericExecuteSpec spec, Patient patient) {
+    return spec.bind("firstName", patient.getFirstName())
+        .bind("lastName", patient.getLastName())
+        .bind("ssn", patient.getSsn())
+        .bind("email", patient.getEmail())
+        .bind("age", patient.getAge())
+        .bind("height", patient.getHeight())
+        .bind("weight", patient.getWeight())
+        .bind("insurance", patient.getInsurance())
+        .bind("gender", patient.getGender())
+        .bind("street", patient.getStreet())
+        .bind("city", patient.getCity())
+        .bind("state", patient.getState())
+        .bind("postal", patient.getPostal());
+  }
+
+  private static Patient toPatient(Row row) {
+    Patient patient = new Patient(row.get("first_name", String.class),
+        row.get("last_name", String.class), row.get("ssn", String.class),
+        row.get("email", String.class), row.get("age", Integer.class),
+        row.get("height", Integer.class), row.get("weight", Integer.class),
+        row.get("insurance", String.class), row.get("gender", String.class),
+        row.get("street", String.class), row.get("city", String.class),
+        row.get("state", String.class), row.get("postal", String.class));
+    patient.setId(row.get("id", Long.class));
+    patient.setVersion(row.get("version", Long.class));
+    return patient;
+  }
+}
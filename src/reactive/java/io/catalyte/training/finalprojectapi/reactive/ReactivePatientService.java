@@ -0,0 +1,234 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_GENDER;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_ID;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_PATIENT_NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_STATE;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.DELETE_VIOLATION_ENCOUNTERS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.EMAIL_CONFLICT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.VERSION_CONFLICT;
+
+import io.catalyte.training.finalprojectapi.constants.ValidGenders;
+import io.catalyte.training.finalprojectapi.constants.ValidStates;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientSearch;
+import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.exceptions.DependentEntityDeleteViolation;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
+import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.catalyte.training.finalprojectapi.exceptions.UniqueFieldViolation;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import io.catalyte.training.finalprojectapi.pagination.KeysetSort;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
+import io.r2dbc.postgresql.api.PostgresqlException;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class which handles the business logic for the patient entity on the reactive stack,
+ * with the checks and errors of PatientServiceImpl. Patients are read from the database on every
+ * request, there is no patient cache or id index.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactivePatientService {
+
+  /**
+   * unique index on lower(email), created by import.sql
+   */
+  static final String EMAIL_UNIQUE_INDEX = "patient_email_lower_uidx";
+
+  @Autowired
+  ReactivePatientRepository patientRepository;
+
+  @Autowired
+  ReactiveEncounterRepository encounterRepository;
+
+  /**
+   * Gets every patient matching a query (if query parameters are provided) or else every patient,
+   * read from the database as the subscriber asks for them
+   *
+   * @param patient - optional sample patient to query against
+   * @param search  - the prefix, range and sort parameters
+   * @return - the patients
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   */
+  @Transactional(readOnly = true)
+  public Flux<Patient> queryPatients(Patient patient, PatientSearch search) {
+    KeysetSort<Patient, ?> sort = search.toKeysetSort();
+
+    return patientRepository.findAll(patient, search, sort, null, 0)
+        .onErrorMap(Exception.class, ServiceUnavailable::new);
+  }
+
+  /**
+   * Gets one page of the patients matching a query (if query parameters are provided) or else of
+   * all patients, in the requested order, seeking past the cursor
+   *
+   * @param patient - optional sample patient to query against
+   * @param search  - the prefix, range and sort parameters
+   * @param cursor  - the cursor returned with the previous page, or null for the first page
+   * @param limit   - the page size, or null for the default
+   * @return - a page of patients and the cursor of the next page
+   * @throws BadDataResponse
+   * @throws ServiceUnavailable
+   */
+  @Transactional(readOnly = true)
+  public Mono<KeysetPage<Patient>> queryPatients(Patient patient, PatientSearch search,
+      String cursor, Integer limit) {
+    int pageSize = KeysetPage.resolveLimit(limit);
+    KeysetSort<Patient, ?> sort = search.toKeysetSort();
+
+    return patientRepository.findAll(patient, search, sort, cursor, pageSize + 1)
+        .collectList()
+        .map(patients -> KeysetPage.of(patients, pageSize, sort::cursorOf))
+        .onErrorMap(Exception.class, ServiceUnavailable::new);
+  }
+
+  /**
+   * Deletes a patient unless it has encounters, checking for encounters only when nothing was
+   * deleted
+   *
+   * @param id - the id of the patient to delete
+   * @return completes once the patient is deleted
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   * @throws DependentEntityDeleteViolation
+   */
+  public Mono<Void> deletePatient(Long id) {
+    return patientRepository.deleteIfNoEncounters(id)
+        .onErrorMap(Exception.class, ServiceUnavailable::new)
+        .flatMap(deletedPatients -> deletedPatients == 1 ? Mono.<Void>empty()
+            // nothing was deleted, find out why
+            : encounterRepository.existsByPatientId(id)
+                .onErrorMap(Exception.class, ServiceUnavailable::new)
+                .flatMap(hasEncounters -> Mono.<Void>error(hasEncounters
+                    ? new DependentEntityDeleteViolation(DELETE_VIOLATION_ENCOUNTERS)
+                    : new ResourceNotFound("Could not locate a patient with the id: " + id))));
+  }
+
+  /**
+   * Adds a patient. Email uniqueness is left to the unique index on the email.
+   *
+   * @param patient - the patient to add
+   * @return the patient that has been added
+   * @throws BadDataResponse
+   * @throws UniqueFieldViolation
+   * @throws ServiceUnavailable
+   */
+  public Mono<Patient> addPatient(Patient patient) {
+    checkStateAndGender(patient);
+
+    return patientRepository.insert(patient)
+        .onErrorMap(Exception.class, this::translateIntegrityViolation);
+  }
+
+  /**
+   * Retrieves a patient by id from the database
+   *
+   * @param id - the id of the patient to be returned
+   * @return - the patient that matches the id
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  public Mono<Patient> getPatientById(Long id) {
+    return patientRepository.findById(id)
+        .onErrorMap(Exception.class, ServiceUnavailable::new)
+        .switchIfEmpty(Mono.error(() ->
+            new ResourceNotFound("Could not locate a patient with the id: " + id)));
+  }
+
+  /**
+   * Retrieves only the version of a patient, to answer a conditional get
+   *
+   * @param id - the id of the patient
+   * @return - the version of the patient that matches the id
+   * @throws ServiceUnavailable
+   * @throws ResourceNotFound
+   */
+  public Mono<Long> getPatientVersion(Long id) {
+    return patientRepository.findVersionById(id)
+        .onErrorMap(Exception.class, ServiceUnavailable::new)
+        .switchIfEmpty(Mono.error(() ->
+            new ResourceNotFound("Could not locate a patient with the id: " + id)));
+  }
+
+  /**
+   * Updates a patient with a specific id in a single statement, if it is at a version the If-Match
+   * header allows
+   *
+   * @param id      - the id of the patient to be updated
+   * @param patient - the patient's new information
+   * @param ifMatch - the If-Match header, or null to update any version
+   * @return - the updated patient with its new version
+   * @throws UniqueFieldViolation
+   * @throws ServiceUnavailable
+   * @throws BadDataResponse
+   * @throws ResourceNotFound
+   * @throws PreconditionFailed
+   */
+  public Mono<Patient> updatePatientById(Long id, Patient patient, String ifMatch) {
+    // check if id in path matches id in request body
+    if (!patient.getId().equals(id)) {
+      throw new BadDataResponse(BAD_REQUEST_ID);
+    }
+    checkStateAndGender(patient);
+
+    Set<Long> allowedVersions = EntityTags.allowedVersions(ifMatch);
+    Mono<Long> update = allowedVersions == null
+        ? patientRepository.update(patient)
+        : patientRepository.update(patient, allowedVersions);
+
+    return update
+        .onErrorMap(Exception.class, this::translateIntegrityViolation)
+        .map(version -> {
+          patient.setVersion(version);
+          return patient;
+        })
+        // tell a patient which changed from one which is gone
+        .switchIfEmpty(Mono.defer(() -> allowedVersions == null
+            ? Mono.just(false)
+            : patientRepository.existsById(id).onErrorMap(Exception.class,
+                ServiceUnavailable::new))
+            .flatMap(exists -> Mono.error(exists
+                ? new PreconditionFailed(VERSION_CONFLICT)
+                : new ResourceNotFound(BAD_REQUEST_PATIENT_NOT_FOUND))));
+  }
+
+  private void checkStateAndGender(Patient patient) {
+    // check patient state is valid
+    if (!ValidStates.validStatesList.contains(patient.getState())) {
+      throw new BadDataResponse(BAD_REQUEST_STATE);
+    }
+
+    // check if patient gender is valid
+    if (!ValidGenders.validGendersList.contains(patient.getGender())) {
+      throw new BadDataResponse(BAD_REQUEST_GENDER);
+    }
+  }
+
+  /**
+   * Turns a violation of the email unique index into an email conflict
+   *
+   * @param e - the exception raised by the database
+   * @return the exception to signal
+   */
+  private RuntimeException translateIntegrityViolation(Exception e) {
+    if (e instanceof DataIntegrityViolationException
+        && e.getCause() instanceof PostgresqlException
+        && EMAIL_UNIQUE_INDEX.equals(((PostgresqlException) e.getCause()).getErrorDetails()
+        .getConstraintName().orElse(null))) {
+      return new UniqueFieldViolation(EMAIL_CONFLICT);
+    }
+    return new ServiceUnavailable(e);
+  }
+}
@@ -0,0 +1,46 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+/**
+ * Reads application/x-protobuf bodies with a ProtobufCodec, joining the body into one buffer first
+ * as a message cannot be read in parts
+ */
+public class ReactiveProtobufDecoder extends AbstractDataBufferDecoder<Object> {
+
+  private final ProtobufCodec codec;
+
+  /**
+   * @param codec - the codec of the bodies
+   */
+  public ReactiveProtobufDecoder(ProtobufCodec codec) {
+    super(ProtobufCodec.APPLICATION_PROTOBUF);
+    this.codec = codec;
+  }
+
+  @Override
+  public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+    // taking Object places the codec among the object codecs, after JSON, instead of before them
+    return super.canDecode(elementType, mimeType) && (elementType.toClass() == Object.class
+        || codec.canRead(codec.constructType(elementType.getType())));
+  }
+
+  @Override
+  public Object decode(DataBuffer buffer, ResolvableType targetType,
+      @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+    try (InputStream input = buffer.asInputStream(true)) {
+      return codec.read(codec.constructType(targetType.getType()), input);
+    } catch (IOException e) {
+      throw new DecodingException("Could not read protobuf: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes application/x-protobuf bodies with a ProtobufCodec. A Flux is collected and written as a
+ * list, as protobuf has no stream of top-level messages.
+ */
+public class ReactiveProtobufEncoder extends AbstractEncoder<Object> {
+
+  private final ProtobufCodec codec;
+
+  /**
+   * @param codec - the codec of the bodies
+   */
+  public ReactiveProtobufEncoder(ProtobufCodec codec) {
+    super(ProtobufCodec.APPLICATION_PROTOBUF);
+    this.codec = codec;
+  }
+
+  @Override
+  public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+    // taking Object places the codec among the object codecs, after JSON, instead of before them
+    return super.canEncode(elementType, mimeType) && (elementType.toClass() == Object.class
+        || codec.canWrite(codec.constructType(elementType.getType())));
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+      ResolvableType elementType, @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    if (inputStream instanceof Mono) {
+      return Mono.from(inputStream)
+          .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+          .flux();
+    }
+    ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+    return Flux.from(inputStream)
+        .collectList()
+        .map(list -> encodeValue(list, bufferFactory, listType, mimeType, hints))
+        .flux();
+  }
+
+  @Override
+  public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory,
+      ResolvableType valueType, @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    DataBuffer buffer = bufferFactory.allocateBuffer();
+    try (OutputStream output = buffer.asOutputStream()) {
+      codec.write(value, codec.constructType(valueType.getType()), output);
+      return buffer;
+    } catch (IOException e) {
+      DataBufferUtils.release(buffer);
+      throw new EncodingException("Could not write protobuf: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+
+/**
+ * The where clause of a listing, built from the conditions which have a value, and the values to
+ * bind into it. The R2DBC counterpart of SearchSpecifications and KeysetSpecifications.
+ */
+class SqlCriteria {
+
+  private static final char ESCAPE = '\\';
+
+  private final List<String> conditions = new ArrayList<>();
+
+  private final Map<String, Object> values = new LinkedHashMap<>();
+
+  /**
+   * @param column - the column to compare
+   * @param value  - the value to match, or null to match anything
+   * @return this
+   */
+  SqlCriteria equal(String column, Object value) {
+    if (value != null) {
+      conditions.add(column + " = " + bind(value));
+    }
+    return this;
+  }
+
+  /**
+   * @param column - the column to compare
+   * @param value  - the value to match regardless of case, or null to match anything
+   * @return this
+   */
+  SqlCriteria equalIgnoringCase(String column, String value) {
+    if (value != null) {
+      conditions.add("lower(" + column + ") = " + bind(value.toLowerCase(Locale.ROOT)));
+    }
+    return this;
+  }
+
+  /**
+   * @param column - the column to compare
+   * @param prefix - the start to match regardless of case, or blank to match anything
+   * @return this
+   */
+  SqlCriteria startsWithIgnoringCase(String column, String prefix) {
+    if (prefix != null && !prefix.trim().isEmpty()) {
+      String pattern = prefix.trim().toLowerCase(Locale.ROOT)
+          .replace(String.valueOf(ESCAPE), "" + ESCAPE + ESCAPE)
+          .replace("%", ESCAPE + "%")
+          .replace("_", ESCAPE + "_") + "%";
+      conditions.add("lower(" + column + ") LIKE " + bind(pattern) + " ESCAPE '\\'");
+    }
+    return this;
+  }
+
+  /**
+   * @param column - the column to compare
+   * @param min    - the lowest value to match, or null for no lower bound
+   * @param max    - the highest value to match, or null for no upper bound
+   * @return this
+   */
+  SqlCriteria between(String column, Object min, Object max) {
+    if (min != null) {
+      conditions.add(column + " >= " + bind(min));
+    }
+    if (max != null) {
+      conditions.add(column + " <= " + bind(max));
+    }
+    return this;
+  }
+
+  /**
+   * Seeks past the last row of the previous page of a listing sorted by (column, id)
+   *
+   * @param column - the sort column, or id
+   * @param value  - the sort column value of the last row, null when sorted by id
+   * @param id     - the id of the last row
+   * @return this
+   */
+  SqlCriteria after(String column, Object value, Long id) {
+    if (value == null) {
+      conditions.add("id > " + bind(id));
+    } else {
+      conditions.add("(" + column + ", id) > (" + bind(value) + ", " + bind(id) + ")");
+    }
+    return this;
+  }
+
+  /**
+   * @return the where clause with a leading space, empty when every row matches
+   */
+  String where() {
+    return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+  }
+
+  /**
+   * @param spec - the statement the where clause is part of
+   * @return the statement with the values bound
+   */
+  GenericExecuteSpec bindTo(GenericExecuteSpec spec) {
+    for (Map.Entry<String, Object> value : values.entrySet()) {
+      spec = spec.bind(value.getKey(), value.getValue());
+    }
+    return spec;
+  }
+
+  private String bind(Object value) {
+    String name = "p" + values.size();
+    values.put(name, value);
+    return ":" + name;
+  }
+}
@@ -0,0 +1,294 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_DATA;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_COPAY;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_PATIENT_NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NEXT_CURSOR_HEADER;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.PRECONDITION_FAILED;
+
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterRepository;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Tests the ReactiveEncounterController class against a running ReactiveApplication. The servlet
+ * application's context is configured as the servlet controller tests' are, so it is the one they
+ * share, and encounters are only added to a patient of the test's own, deleted with its
+ * encounters after each test.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class ReactiveEncounterControllerTest {
+
+  private static final String CONTEXT_ENCOUNTERS = CONTEXT_PATIENTS + "/{patientId}/encounters";
+
+  private static ConfigurableApplicationContext reactiveContext;
+
+  private static WebTestClient webTestClient;
+
+  @Autowired
+  PatientRepository patientRepository;
+
+  @Autowired
+  EncounterRepository encounterRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  /**
+   * the patient of the test, without encounters at the start
+   */
+  private Long patientId;
+
+  @Before
+  public void setUp() {
+    // started once the servlet context has created the schema
+    if (reactiveContext == null) {
+      reactiveContext = ReactiveApplication.run("--server.port=0");
+      int port = ((WebServerApplicationContext) reactiveContext).getWebServer().getPort();
+      webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+    }
+    patientId = patientRepository.save(new Patient("John", "Smith", "123-45-5689",
+        "reactive.encounters@mail.com", 34, 69, 189, "Progressive", "Female", "1234 Main St",
+        "Anytown", "IL", "10965")).getId();
+  }
+
+  @After
+  public void tearDown() {
+    jdbcTemplate.update("DELETE FROM encounter WHERE patient_id = ?", patientId);
+    jdbcTemplate.update("DELETE FROM encounter_summary WHERE patient_id = ?", patientId);
+    jdbcTemplate.update("DELETE FROM patient WHERE id = ?", patientId);
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    if (reactiveContext != null) {
+      reactiveContext.close();
+      reactiveContext = null;
+    }
+  }
+
+  /**
+   * Get a page of a seeded patient's encounters, expect two results and a cursor which leads to
+   * the next page
+   */
+  @Test
+  public void getEncountersByPatientIdPagesWithCursor() {
+
+    String cursor = webTestClient.get().uri(CONTEXT_ENCOUNTERS + "?limit=2", 1)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists(NEXT_CURSOR_HEADER)
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].date").isEqualTo("2020-08-04")
+        .returnResult()
+        .getResponseHeaders()
+        .getFirst(NEXT_CURSOR_HEADER);
+
+    webTestClient.get().uri(CONTEXT_ENCOUNTERS + "?limit=2&cursor=" + cursor, 1)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$[0].date").isEqualTo("2020-09-04");
+  }
+
+  /**
+   * Get the encounters of a patient which does not exist, expect 404
+   */
+  @Test
+  public void getEncountersByPatientId404PatientNotFound() {
+
+    webTestClient.get().uri(CONTEXT_ENCOUNTERS, 5555)
+        .exchange()
+        .expectStatus().isNotFound()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(NOT_FOUND)
+        .jsonPath("$.errorMessage").isEqualTo(BAD_REQUEST_PATIENT_NOT_FOUND);
+  }
+
+  /**
+   * Get an encounter by id, then again with the ETag of its version, expect 200 then 304
+   */
+  @Test
+  public void getEncounterByIdNotModified() {
+
+    String etag = webTestClient.get().uri(CONTEXT_ENCOUNTERS + "/1", 1)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists(HttpHeaders.ETAG)
+        .expectBody()
+        .jsonPath("$.patientId").isEqualTo(1)
+        .returnResult()
+        .getResponseHeaders()
+        .getETag();
+
+    webTestClient.get().uri(CONTEXT_ENCOUNTERS + "/1", 1)
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectBody().isEmpty();
+  }
+
+  /**
+   * Get an encounter by id as CBOR, expect an ETag of that format, then again with it as CBOR and
+   * as JSON, expect 304 then 200
+   */
+  @Test
+  public void getEncounterByIdNotModifiedPerFormat() {
+
+    String etag = webTestClient.get().uri(CONTEXT_ENCOUNTERS + "/1", 1)
+        .accept(MediaType.APPLICATION_CBOR)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+        .returnResult(byte[].class)
+        .getResponseHeaders()
+        .getETag();
+    Assert.assertTrue(etag.endsWith("-cbor\""));
+
+    webTestClient.get().uri(CONTEXT_ENCOUNTERS + "/1", 1)
+        .accept(MediaType.APPLICATION_CBOR)
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isNotModified();
+
+    webTestClient.get().uri(CONTEXT_ENCOUNTERS + "/1", 1)
+        .accept(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, etag.replace("-cbor", ""));
+  }
+
+  /**
+   * Add an encounter, expect 201, then update it at its version, expect 200 and its new version,
+   * then update it at its old version again, expect 412
+   */
+  @Test
+  public void addAndUpdateEncounter() {
+
+    Encounter added = addEncounter(encounter(null, patientId));
+    Encounter encounter = encounter(added.getId(), patientId);
+    encounter.setChiefComplaint("follow up");
+
+    webTestClient.put().uri(CONTEXT_ENCOUNTERS + "/" + added.getId(), patientId)
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        .bodyValue(encounter)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+        .expectBody()
+        .jsonPath("$.chiefComplaint").isEqualTo("follow up");
+
+    webTestClient.put().uri(CONTEXT_ENCOUNTERS + "/" + added.getId(), patientId)
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        .bodyValue(encounter)
+        .exchange()
+        .expectStatus().isEqualTo(412)
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(PRECONDITION_FAILED);
+  }
+
+  /**
+   * Add an encounter with a copay without two decimal places, expect 400
+   */
+  @Test
+  public void addEncounter400InvalidCopay() {
+
+    Encounter encounter = encounter(null, patientId);
+    encounter.setCopay(new BigDecimal("5.0"));
+
+    webTestClient.post().uri(CONTEXT_ENCOUNTERS, patientId)
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(encounter)
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(BAD_DATA)
+        .jsonPath("$.errorMessage").isEqualTo(BAD_REQUEST_COPAY);
+  }
+
+  /**
+   * Add an encounter to a patient which does not exist, expect 400
+   */
+  @Test
+  public void addEncounter400PatientNotFound() {
+
+    webTestClient.post().uri(CONTEXT_ENCOUNTERS, 5555)
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(encounter(null, 5555L))
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(BAD_DATA)
+        .jsonPath("$.errorMessage").isEqualTo(BAD_REQUEST_PATIENT_NOT_FOUND);
+  }
+
+  /**
+   * Add encounters through Hibernate and the reactive stack in turns, past Hibernate's block of
+   * ids, expect every id to be distinct
+   */
+  @Test
+  public void addEncounterIdsDoNotCollideWithHibernate() {
+
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 60; i++) {
+      ids.add(encounterRepository.save(encounter(null, patientId)).getId());
+      if (i % 20 == 0) {
+        ids.add(addEncounter(encounter(null, patientId)).getId());
+      }
+    }
+
+    Assert.assertEquals(63, ids.size());
+  }
+
+  /**
+   * @param encounter - the encounter to add
+   * @return the encounter the reactive stack added
+   */
+  private Encounter addEncounter(Encounter encounter) {
+    return webTestClient.post().uri(CONTEXT_ENCOUNTERS, encounter.getPatientId())
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(encounter)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody(Encounter.class)
+        .returnResult()
+        .getResponseBody();
+  }
+
+  private Encounter encounter(Long id, Long patientId) {
+    Encounter encounter = new Encounter(patientId, "", "N3W 3C3", "New Hospital",
+        "123.456.789-12", "Z99", new BigDecimal("10.00"), new BigDecimal("5.00"),
+        "new complaint", 60, 110, 70, Date.valueOf("2020-09-15"));
+    encounter.setId(id);
+    return encounter;
+  }
+}
@@ -0,0 +1,354 @@
+package io.catalyte.training.finalprojectapi.reactive;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_DATA;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_REQUEST_STATE;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.DELETE_VIOLATION_ENCOUNTERS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.DEPENDENT_ENTITY_DELETE_VIOLATION;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.EMAIL_CONFLICT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NEXT_CURSOR_HEADER;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.PRECONDITION_FAILED;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.SSN_VALIDATION_ERROR;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.UNIQUE_FIELD_VIOLATION;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.VALIDATION_ERROR;
+
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Tests the ReactivePatientController class against a running ReactiveApplication. The servlet
+ * application's context creates and seeds the schema, as it does for the reactive application in
+ * use. It is configured as the servlet controller tests' are, so it is the one they share and
+ * rebuild when they dirty it, and the patients added are deleted after each test.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class ReactivePatientControllerTest {
+
+  private static ConfigurableApplicationContext reactiveContext;
+
+  private static WebTestClient webTestClient;
+
+  @Autowired
+  PatientRepository patientRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  /**
+   * the ids of the patients added by the test
+   */
+  private final List<Long> addedIds = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    // started once the servlet context has created the schema
+    if (reactiveContext == null) {
+      reactiveContext = ReactiveApplication.run("--server.port=0");
+      int port = ((WebServerApplicationContext) reactiveContext).getWebServer().getPort();
+      webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    for (Long id : addedIds) {
+      jdbcTemplate.update("DELETE FROM encounter_summary WHERE patient_id = ?", id);
+      jdbcTemplate.update("DELETE FROM patient WHERE id = ?", id);
+    }
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    if (reactiveContext != null) {
+      reactiveContext.close();
+      reactiveContext = null;
+    }
+  }
+
+  /**
+   * Get patient by id, expect Ok status and the ETag of its version
+   */
+  @Test
+  public void getPatientById() {
+
+    webTestClient.get().uri(CONTEXT_PATIENTS + "/2")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.APPLICATION_JSON)
+        .expectHeader().exists(HttpHeaders.ETAG)
+        .expectBody()
+        .jsonPath("$.firstName").isEqualTo("Lisa");
+  }
+
+  /**
+   * Get patient by id with the ETag of its version, expect 304 and no body
+   */
+  @Test
+  public void getPatientByIdNotModified() {
+
+    String etag = webTestClient.get().uri(CONTEXT_PATIENTS + "/2")
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(Patient.class)
+        .getResponseHeaders()
+        .getETag();
+
+    webTestClient.get().uri(CONTEXT_PATIENTS + "/2")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+        .expectBody().isEmpty();
+  }
+
+  /**
+   * Get a patient which does not exist, expect 404 and the error body of ExceptionController
+   */
+  @Test
+  public void getPatientById404PatientNotFound() {
+
+    webTestClient.get().uri(CONTEXT_PATIENTS + "/5555")
+        .exchange()
+        .expectStatus().isNotFound()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(NOT_FOUND)
+        .jsonPath("$.errorMessage").isEqualTo("Could not locate a patient with the id: 5555");
+  }
+
+  /**
+   * Get a page of patients, expect two results and a cursor which leads to the next page
+   */
+  @Test
+  public void queryPatientsPagesWithCursor() {
+
+    String cursor = webTestClient.get().uri(CONTEXT_PATIENTS + "?limit=2")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists(NEXT_CURSOR_HEADER)
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].firstName").isEqualTo("Bart")
+        .returnResult()
+        .getResponseHeaders()
+        .getFirst(NEXT_CURSOR_HEADER);
+
+    webTestClient.get().uri(CONTEXT_PATIENTS + "?limit=2&cursor=" + cursor)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].firstName").isEqualTo("Homer");
+  }
+
+  /**
+   * Get patients with a cursor that was not issued by the API, expect 400
+   */
+  @Test
+  public void queryPatientsInvalidCursor400() {
+
+    webTestClient.get().uri(CONTEXT_PATIENTS + "?cursor=abc.def")
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(BAD_DATA);
+  }
+
+  /**
+   * Add a patient, expect 201, then delete it, expect 204, then delete it again, expect 404
+   */
+  @Test
+  public void addAndDeletePatient() {
+
+    Long id = addPatient(patient("john@mail.com"));
+
+    webTestClient.delete().uri(CONTEXT_PATIENTS + "/" + id)
+        .exchange()
+        .expectStatus().isNoContent();
+
+    webTestClient.delete().uri(CONTEXT_PATIENTS + "/" + id)
+        .exchange()
+        .expectStatus().isNotFound()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(NOT_FOUND);
+  }
+
+  /**
+   * Add a patient with the email of another in another case, expect 409
+   */
+  @Test
+  public void addPatient409EmailConflict() {
+
+    addPatient(patient("john@mail.com"));
+
+    webTestClient.post().uri(CONTEXT_PATIENTS)
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(patient("JOHN@mail.com"))
+        .exchange()
+        .expectStatus().isEqualTo(409)
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(UNIQUE_FIELD_VIOLATION)
+        .jsonPath("$.errorMessage").isEqualTo(EMAIL_CONFLICT);
+  }
+
+  /**
+   * Add a patient with an invalid SSN, expect 400 and the validation errors
+   */
+  @Test
+  public void addPatient400InvalidSsn() {
+
+    Patient patient = patient("john@mail.com");
+    patient.setSsn("123456789");
+
+    webTestClient.post().uri(CONTEXT_PATIENTS)
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(patient)
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(VALIDATION_ERROR)
+        .jsonPath("$.validationErrors[0]").isEqualTo(SSN_VALIDATION_ERROR);
+  }
+
+  /**
+   * Add a patient with a state which does not exist, expect 400
+   */
+  @Test
+  public void addPatient400InvalidState() {
+
+    Patient patient = patient("john@mail.com");
+    patient.setState("XX");
+
+    webTestClient.post().uri(CONTEXT_PATIENTS)
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(patient)
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(BAD_DATA)
+        .jsonPath("$.errorMessage").isEqualTo(BAD_REQUEST_STATE);
+  }
+
+  /**
+   * Delete a patient with encounters, expect 409
+   */
+  @Test
+  public void deletePatient409HasEncounters() {
+
+    webTestClient.delete().uri(CONTEXT_PATIENTS + "/1")
+        .exchange()
+        .expectStatus().isEqualTo(409)
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(DEPENDENT_ENTITY_DELETE_VIOLATION)
+        .jsonPath("$.errorMessage").isEqualTo(DELETE_VIOLATION_ENCOUNTERS);
+  }
+
+  /**
+   * Update a patient against a version it is not at, expect 412
+   */
+  @Test
+  public void updatePatient412StaleIfMatch() {
+
+    Patient patient = webTestClient.get().uri(CONTEXT_PATIENTS + "/2")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(Patient.class)
+        .returnResult()
+        .getResponseBody();
+
+    webTestClient.put().uri(CONTEXT_PATIENTS + "/2")
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"999\"")
+        .bodyValue(patient)
+        .exchange()
+        .expectStatus().isEqualTo(412)
+        .expectBody()
+        .jsonPath("$.error").isEqualTo(PRECONDITION_FAILED);
+  }
+
+  /**
+   * Update a patient added on the reactive stack, expect 200 and the ETag of its new version
+   */
+  @Test
+  public void updatePatientReturnsNewVersion() {
+
+    Long id = addPatient(patient("john@mail.com"));
+    Patient patient = patient("john@mail.com");
+    patient.setId(id);
+    patient.setFirstName("Jack");
+
+    webTestClient.put().uri(CONTEXT_PATIENTS + "/" + id)
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        .bodyValue(patient)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+        .expectBody()
+        .jsonPath("$.firstName").isEqualTo("Jack");
+  }
+
+  /**
+   * Add patients through Hibernate and the reactive stack in turns, past Hibernate's block of
+   * ids, expect every id to be distinct
+   */
+  @Test
+  public void addPatientIdsDoNotCollideWithHibernate() {
+
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 60; i++) {
+      Patient saved = patientRepository.save(patient("hibernate" + i + "@mail.com"));
+      addedIds.add(saved.getId());
+      ids.add(saved.getId());
+      if (i % 20 == 0) {
+        ids.add(addPatient(patient("reactive" + i + "@mail.com")));
+      }
+    }
+
+    Assert.assertEquals(63, ids.size());
+  }
+
+  /**
+   * @param patient - the patient to add
+   * @return the id the reactive stack gave the patient
+   */
+  private Long addPatient(Patient patient) {
+    Patient added = webTestClient.post().uri(CONTEXT_PATIENTS)
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(patient)
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody(Patient.class)
+        .returnResult()
+        .getResponseBody();
+    addedIds.add(added.getId());
+    return added.getId();
+  }
+
+  private Patient patient(String email) {
+    return new Patient("John", "Smith", "123-45-5689", email, 34, 69, 189, "Progressive",
+        "Female", "1234 Main St", "Anytown", "IL", "10965");
+  }
+}
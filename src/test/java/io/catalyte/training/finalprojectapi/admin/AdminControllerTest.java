@@ -0,0 +1,147 @@
+package io.catalyte.training.finalprojectapi.admin;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ADMIN;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Tests the AdminController class
+ */
+@SpringBootTest(properties = "slow-queries.top=1000")
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class AdminControllerTest {
+
+  @Autowired
+  private static MockMvc mockMvc;
+
+  // 200 level statuses
+  ResultMatcher okStatus = MockMvcResultMatchers.status().isOk();
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  PatientCache patientCache;
+
+  @Before
+  public void setUp() throws Exception {
+    DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup(this.wac);
+    mockMvc = builder.build();
+  }
+
+  /**
+   * Read the same patient twice, expect one miss and one hit in the patient cache statistics
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getCacheStatisticsCountsPatientLookups() throws Exception {
+
+    patientCache.invalidateAll();
+    CacheStats before = patientCache.stats();
+
+    mockMvc.perform(get(CONTEXT_PATIENTS + "/2")).andExpect(okStatus);
+    mockMvc.perform(get(CONTEXT_PATIENTS + "/2")).andExpect(okStatus);
+
+    mockMvc
+        .perform(get(CONTEXT_ADMIN + "/caches"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.patients.missCount").value(before.missCount() + 1))
+        .andExpect(jsonPath("$.patients.hitCount").value(before.hitCount() + 1))
+        .andExpect(jsonPath("$.patients.size").value(1));
+  }
+
+  /**
+   * Get the search index statistics, expect the seeded patients and a memory estimate
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getSearchIndexStatisticsReportsFootprint() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ADMIN + "/search-index"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.patients").value(greaterThanOrEqualTo(5)))
+        .andExpect(jsonPath("$.trigrams").value(greaterThan(0)))
+        .andExpect(jsonPath("$.estimatedBytes").value(greaterThan(0)));
+  }
+
+  /**
+   * Check the encounter summaries without rebuilding them, expect the seeded patients and no drift
+   *
+   * @throws Exception
+   */
+  @Test
+  public void rebuildEncounterSummariesDryRunFindsNoDrift() throws Exception {
+
+    mockMvc
+        .perform(post(CONTEXT_ADMIN + "/encounter-summaries/rebuild?dryRun=true"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.patients").value(greaterThanOrEqualTo(4)))
+        .andExpect(jsonPath("$.drifted").value(0))
+        .andExpect(jsonPath("$.rebuilt").value(false));
+  }
+
+  /**
+   * Get a patient, expect its select among the statement timings with the id left out
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getSlowQueriesReportsStatements() throws Exception {
+    patientCache.invalidateAll();
+    mockMvc.perform(get(CONTEXT_PATIENTS + "/2")).andExpect(okStatus);
+
+    String patientById = "$[?(@.sql =~ /select .* from patient .* where patient0_.id=\\?/)]";
+    mockMvc
+        .perform(get(CONTEXT_ADMIN + "/slow-queries"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath(patientById, hasSize(1)))
+        .andExpect(jsonPath(patientById + ".count", everyItem(greaterThanOrEqualTo(1))))
+        .andExpect(jsonPath("$[*].sql", everyItem(not(containsString("'")))));
+  }
+
+  /**
+   * Get the protobuf schemas, expect the patient message and the list wrapping encounters
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getProtobufSchemasReportsMessages() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ADMIN + "/protobuf-schemas"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.Patient", containsString("message Patient {")))
+        .andExpect(jsonPath("$.Patient", containsString("optional EncounterSummary")))
+        .andExpect(jsonPath("$['List<Encounter>']",
+            containsString("repeated Encounter items = 1;")))
+        .andExpect(jsonPath("$.Encounter", containsString("optional string totalCost")));
+  }
+}
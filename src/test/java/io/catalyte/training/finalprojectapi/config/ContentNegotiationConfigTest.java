@@ -0,0 +1,288 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CACHES_ENDPOINT;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ADMIN;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ENCOUNTERS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.PRECONDITION_FAILED;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import io.catalyte.training.finalprojectapi.domains.patients.Patient;
+import io.catalyte.training.finalprojectapi.json.ProtobufCodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Tests that patients and encounters are read and written as CBOR, Smile and protobuf, decoding
+ * them as a client would and comparing them with their JSON
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class ContentNegotiationConfigTest {
+
+  private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+  private static final MediaType[] BINARY_TYPES = {MediaType.APPLICATION_CBOR, SMILE,
+      ProtobufCodec.APPLICATION_PROTOBUF};
+
+  private static final TypeReference<List<Patient>> PATIENTS = new TypeReference<>() {
+  };
+
+  private static final TypeReference<List<Encounter>> ENCOUNTERS = new TypeReference<>() {
+  };
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private ProtobufCodec protobufCodec;
+
+  private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+  private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+  @Before
+  public void setUp() {
+    mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+  }
+
+  /**
+   * Get a patient in each binary type, expect the type and the same patient as in JSON
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientInEachType() throws Exception {
+    String json = getAsString(CONTEXT_PATIENTS + "/1", MediaType.APPLICATION_JSON);
+
+    for (MediaType type : BINARY_TYPES) {
+      byte[] body = getAsBytes(CONTEXT_PATIENTS + "/1", type);
+
+      Assert.assertEquals(json,
+          objectMapper.writeValueAsString(decode(body, type, Patient.class)));
+    }
+  }
+
+  /**
+   * Get the encounters of a patient in each binary type, expect the same encounters as in JSON
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncounterListInEachType() throws Exception {
+    String path = CONTEXT_ENCOUNTERS.replace("{patientId}", "1");
+    String json = getAsString(path, MediaType.APPLICATION_JSON);
+
+    for (MediaType type : BINARY_TYPES) {
+      byte[] body = getAsBytes(path, type);
+
+      Assert.assertEquals(json,
+          objectMapper.writeValueAsString(decode(body, type, ENCOUNTERS.getType())));
+    }
+  }
+
+  /**
+   * Post a copy of an existing patient in each binary type, expect it read in full and rejected
+   * for its email
+   *
+   * @throws Exception
+   */
+  @Test
+  public void postPatientInEachType() throws Exception {
+    Patient patient = objectMapper.readValue(
+        getAsString(CONTEXT_PATIENTS + "/1", MediaType.APPLICATION_JSON), Patient.class);
+
+    for (MediaType type : BINARY_TYPES) {
+      mockMvc
+          .perform(post(CONTEXT_PATIENTS)
+              .contentType(type)
+              .accept(MediaType.APPLICATION_JSON)
+              .content(encode(patient, type, Patient.class)))
+          .andExpect(status().isConflict());
+    }
+  }
+
+  /**
+   * Post copies of the existing patients as a batch in each binary type, expect every one read and
+   * rejected for its email
+   *
+   * @throws Exception
+   */
+  @Test
+  public void postPatientBatchInEachType() throws Exception {
+    List<Patient> patients = objectMapper.readValue(
+        getAsString(CONTEXT_PATIENTS, MediaType.APPLICATION_JSON), PATIENTS);
+
+    for (MediaType type : BINARY_TYPES) {
+      mockMvc
+          .perform(post(CONTEXT_PATIENTS + "/batch")
+              .contentType(type)
+              .accept(MediaType.APPLICATION_JSON)
+              .content(encode(patients, type, PATIENTS.getType())))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.created").value(0))
+          .andExpect(jsonPath("$.rejected").value(patients.size()))
+          .andExpect(jsonPath("$.results[*].status", hasItem(409)));
+    }
+  }
+
+  /**
+   * Put an encounter in each binary type with a stale version, expect it read and valid but
+   * refused with Precondition Failed
+   *
+   * @throws Exception
+   */
+  @Test
+  public void putEncounterInEachType() throws Exception {
+    String path = CONTEXT_ENCOUNTERS.replace("{patientId}", "1") + "/1";
+    Encounter encounter = objectMapper.readValue(
+        getAsString(path, MediaType.APPLICATION_JSON), Encounter.class);
+
+    for (MediaType type : BINARY_TYPES) {
+      mockMvc
+          .perform(put(path)
+              .header(HttpHeaders.IF_MATCH, "\"999\"")
+              .contentType(type)
+              .accept(MediaType.APPLICATION_JSON)
+              .content(encode(encounter, type, Encounter.class)))
+          .andExpect(status().isPreconditionFailed())
+          .andExpect(jsonPath("$.error").value(PRECONDITION_FAILED));
+    }
+  }
+
+  /**
+   * Get a patient in each binary type, expect an ETag of its own type, and 304 for that ETag but
+   * the body for the ETag of JSON
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientETagInEachType() throws Exception {
+    String jsonETag = mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/1").accept(MediaType.APPLICATION_JSON))
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+    Set<String> eTags = new HashSet<>(List.of(jsonETag));
+
+    for (MediaType type : BINARY_TYPES) {
+      String eTag = mockMvc
+          .perform(get(CONTEXT_PATIENTS + "/1").accept(type))
+          .andReturn()
+          .getResponse()
+          .getHeader(HttpHeaders.ETAG);
+      Assert.assertTrue(eTags.add(eTag));
+
+      mockMvc
+          .perform(get(CONTEXT_PATIENTS + "/1").accept(type)
+              .header(HttpHeaders.IF_NONE_MATCH, eTag))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string(HttpHeaders.ETAG, eTag));
+      mockMvc
+          .perform(get(CONTEXT_PATIENTS + "/1").accept(type)
+              .header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(type))
+          .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+  }
+
+  @Test
+  public void getAcceptingAnythingIsJson() throws Exception {
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/1").accept(MediaType.ALL))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+  }
+
+  @Test
+  public void getMapAsProtobufIsNotAcceptable() throws Exception {
+    mockMvc
+        .perform(get(CONTEXT_ADMIN + CACHES_ENDPOINT).accept(ProtobufCodec.APPLICATION_PROTOBUF))
+        .andExpect(status().isNotAcceptable());
+  }
+
+  @Test
+  public void postUnreadableProtobufIsBadRequest() throws Exception {
+    mockMvc
+        .perform(post(CONTEXT_PATIENTS)
+            .contentType(ProtobufCodec.APPLICATION_PROTOBUF)
+            .content(new byte[]{(byte) 0xff, 0x01}))
+        .andExpect(status().isBadRequest());
+  }
+
+  private String getAsString(String path, MediaType type) throws Exception {
+    return mockMvc
+        .perform(get(path).accept(type))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(type))
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+  }
+
+  private byte[] getAsBytes(String path, MediaType type) throws Exception {
+    return mockMvc
+        .perform(get(path).accept(type))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(type))
+        .andReturn()
+        .getResponse()
+        .getContentAsByteArray();
+  }
+
+  private Object decode(byte[] body, MediaType type, Type valueType) throws IOException {
+    if (type.equals(ProtobufCodec.APPLICATION_PROTOBUF)) {
+      return protobufCodec.read(protobufCodec.constructType(valueType),
+          new ByteArrayInputStream(body));
+    }
+    ObjectMapper mapper = type.equals(SMILE) ? smileMapper : cborMapper;
+    return mapper.readValue(body, mapper.constructType(valueType));
+  }
+
+  private byte[] encode(Object value, MediaType type, Type valueType) throws IOException {
+    if (type.equals(ProtobufCodec.APPLICATION_PROTOBUF)) {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      protobufCodec.write(value, protobufCodec.constructType(valueType), body);
+      return body.toByteArray();
+    }
+    return (type.equals(SMILE) ? smileMapper : cborMapper).writeValueAsBytes(value);
+  }
+}
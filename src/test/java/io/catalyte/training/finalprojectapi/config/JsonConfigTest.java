@@ -0,0 +1,82 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Tests the object mapper and the compression of the responses, on a running server as the
+ * responses are compressed by Tomcat
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = "server.compression.min-response-size=1B")
+@RunWith(SpringRunner.class)
+public class JsonConfigTest {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Test
+  public void objectMapperUsesBlackbird() {
+    assertTrue(objectMapper.getRegisteredModuleIds()
+        .contains(new BlackbirdModule().getTypeId()));
+  }
+
+  /**
+   * Get the patients accepting gzip, expect the same patients compressed
+   *
+   * @throws IOException
+   */
+  @Test
+  public void responsesAreGzippedWhenAccepted() throws IOException {
+    String patients = restTemplate.getForObject(CONTEXT_PATIENTS, String.class);
+
+    ResponseEntity<byte[]> response = getPatients("gzip");
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    try (GZIPInputStream body = new GZIPInputStream(
+        new ByteArrayInputStream(response.getBody()))) {
+      assertEquals(patients, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void responsesAreNotGzippedWhenNotAccepted() {
+    ResponseEntity<byte[]> response = getPatients("identity");
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals('[', response.getBody()[0]);
+  }
+
+  private ResponseEntity<byte[]> getPatients(String acceptEncoding) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+    return restTemplate.exchange(CONTEXT_PATIENTS, HttpMethod.GET, new HttpEntity<>(headers),
+        byte[].class);
+  }
+}
@@ -0,0 +1,95 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Tests the metrics published at the Prometheus endpoint
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsConfigTest {
+
+  private static final String PROMETHEUS_ENDPOINT = "/actuator/prometheus";
+
+  /**
+   * includes the servlet filters, which record the request timers
+   */
+  @Autowired
+  private MockMvc mockMvc;
+
+  /**
+   * Get a patient, expect a request histogram tagged with the controller method
+   *
+   * @throws Exception
+   */
+  @Test
+  public void requestTimersAreTaggedByControllerMethod() throws Exception {
+    mockMvc.perform(get(CONTEXT_PATIENTS + "/1")).andExpect(status().isOk());
+
+    mockMvc.perform(get(PROMETHEUS_ENDPOINT))
+        .andExpect(status().isOk())
+        // one bucket line per upper bound, on the series of the handling method
+        .andExpect(content().string(matchesPattern("(?s).*http_server_requests_seconds_bucket\\{"
+            + "[^\n]*handler=\"PatientController.getPatientById\"[^\n]*le=\".*")));
+  }
+
+  /**
+   * Get a patient's encounters, expect a timer on the encounter repository call
+   *
+   * @throws Exception
+   */
+  @Test
+  public void repositoryCallsAreTimed() throws Exception {
+    mockMvc.perform(get(CONTEXT_PATIENTS + "/1/encounters")).andExpect(status().isOk());
+
+    mockMvc.perform(get(PROMETHEUS_ENDPOINT))
+        .andExpect(content().string(matchesPattern("(?s).*spring_data_repository_invocations_"
+            + "seconds_count\\{[^\n]*method=\"findSlice\",repository=\"EncounterRepository\","
+            + "state=\"SUCCESS\".*")));
+  }
+
+  /**
+   * Get a missing patient, expect the handled exception to be counted with its status
+   *
+   * @throws Exception
+   */
+  @Test
+  public void handledExceptionsAreCounted() throws Exception {
+    mockMvc.perform(get(CONTEXT_PATIENTS + "/123456789")).andExpect(status().isNotFound());
+
+    mockMvc.perform(get(PROMETHEUS_ENDPOINT))
+        .andExpect(content().string(containsString(
+            "api_exceptions_total{exception=\"ResourceNotFound\",status=\"404\",}")));
+  }
+
+  /**
+   * Expect the connection pool, Hibernate and JVM metrics
+   *
+   * @throws Exception
+   */
+  @Test
+  public void poolHibernateAndJvmMetricsArePublished() throws Exception {
+    mockMvc.perform(get(PROMETHEUS_ENDPOINT))
+        .andExpect(content().string(containsString("hikaricp_connections_active")))
+        .andExpect(content().string(containsString("hibernate_sessions_open_total")))
+        .andExpect(content().string(containsString("hibernate_query_executions_total")))
+        .andExpect(content().string(containsString("jvm_gc_pause_seconds")))
+        .andExpect(content().string(containsString("jvm_memory_used_bytes")));
+  }
+}
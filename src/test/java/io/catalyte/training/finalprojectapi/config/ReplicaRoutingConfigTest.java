@@ -0,0 +1,94 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.catalyte.training.finalprojectapi.data.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Tests the routing of requests to the replica, which here is the primary under another url
+ */
+@SpringBootTest(properties = {"replicas.enabled=true",
+    "replicas.urls=jdbc:postgresql://localhost:5432/postgres?ApplicationName=replica",
+    "replicas.check-interval=100ms"})
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class ReplicaRoutingConfigTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Before
+  public void waitForReplica() throws SQLException, InterruptedException {
+    ReplicaRoutingDataSource routingDataSource =
+        dataSource.unwrap(ReplicaRoutingDataSource.class);
+    for (int i = 0; i < 100 && routingDataSource.availableReplicas().isEmpty(); i++) {
+      Thread.sleep(50);
+    }
+    assertFalse(routingDataSource.availableReplicas().isEmpty());
+  }
+
+  private double connections(String target, String readOnly) {
+    return meterRegistry.get("datasource.routing.connections")
+        .tag("target", target).tag("read.only", readOnly).counter().count();
+  }
+
+  /**
+   * Get a page of a patient's encounters, expect its statements on a replica connection
+   *
+   * @throws Exception
+   */
+  @Test
+  public void readsGoToReplica() throws Exception {
+    double replica = connections("replica-1", "true");
+    double primary = connections("primary", "false");
+
+    mockMvc.perform(get(CONTEXT_PATIENTS + "/1/encounters")).andExpect(status().isOk());
+
+    assertEquals(replica + 1, connections("replica-1", "true"), 0);
+    assertEquals(primary, connections("primary", "false"), 0);
+  }
+
+  /**
+   * Update a patient, expect the update on a primary connection
+   *
+   * @throws Exception
+   */
+  @Test
+  public void writesGoToPrimary() throws Exception {
+    double replica = connections("replica-1", "true");
+    double primary = connections("primary", "false");
+
+    mockMvc.perform(put(CONTEXT_PATIENTS + "/5")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mockMvc.perform(get(CONTEXT_PATIENTS + "/5")).andReturn().getResponse()
+            .getContentAsString()))
+        .andExpect(status().isOk());
+
+    assertEquals(primary + 1, connections("primary", "false"), 0);
+    // the get reads the patient from the cache or a replica
+    assertEquals(replica, connections("replica-1", "true"), 1);
+  }
+}
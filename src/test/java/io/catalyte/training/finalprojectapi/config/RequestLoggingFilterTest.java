@@ -0,0 +1,126 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.REQUEST_ID_HEADER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.ThreadContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests the request ids given by the request logging filter and when it logs a request
+ */
+public class RequestLoggingFilterTest {
+
+  private RequestLoggingFilter requestLoggingFilter;
+
+  private MockHttpServletRequest request;
+
+  private MockHttpServletResponse response;
+
+  /**
+   * the request id in the thread context while the request was handled
+   */
+  private AtomicReference<String> requestIdInContext;
+
+  private MockFilterChain filterChain;
+
+  @Before
+  public void setUp() {
+    requestLoggingFilter = new RequestLoggingFilter();
+    request = new MockHttpServletRequest("GET", "/patients/1");
+    response = new MockHttpServletResponse();
+    requestIdInContext = new AtomicReference<>();
+    filterChain = new MockFilterChain() {
+      @Override
+      public void doFilter(ServletRequest request, ServletResponse response) {
+        requestIdInContext.set(ThreadContext.get(RequestLoggingFilter.REQUEST_ID));
+      }
+    };
+  }
+
+  @Test
+  public void doFilterKeepsCallersRequestId() throws Exception {
+    request.addHeader(REQUEST_ID_HEADER, "abc-123");
+
+    requestLoggingFilter.doFilter(request, response, filterChain);
+
+    assertEquals("abc-123", response.getHeader(REQUEST_ID_HEADER));
+    assertEquals("abc-123", requestIdInContext.get());
+  }
+
+  @Test
+  public void doFilterGeneratesMissingRequestId() throws Exception {
+    requestLoggingFilter.doFilter(request, response, filterChain);
+
+    String requestId = response.getHeader(REQUEST_ID_HEADER);
+    assertNotNull(requestId);
+    assertEquals(requestId, requestIdInContext.get());
+  }
+
+  @Test
+  public void doFilterReplacesUnsafeRequestId() throws Exception {
+    request.addHeader(REQUEST_ID_HEADER, "abc\n2021-01-01 ERROR forged line");
+
+    requestLoggingFilter.doFilter(request, response, filterChain);
+
+    String requestId = response.getHeader(REQUEST_ID_HEADER);
+    assertNotEquals("abc\n2021-01-01 ERROR forged line", requestId);
+    assertTrue(requestId.matches("[0-9a-f-]{36}"));
+  }
+
+  @Test
+  public void doFilterClearsThreadContext() throws Exception {
+    requestLoggingFilter.doFilter(request, response, filterChain);
+
+    assertTrue(ThreadContext.isEmpty());
+  }
+
+  @Test
+  public void doFilterLogsAsyncRequestOnComplete() throws Exception {
+    List<String> loggedRequestIds = new ArrayList<>();
+    requestLoggingFilter = new RequestLoggingFilter() {
+      @Override
+      void logRequest(HttpServletRequest request, HttpServletResponse response, long start) {
+        loggedRequestIds.add(ThreadContext.get(REQUEST_ID));
+        super.logRequest(request, response, start);
+      }
+    };
+    request.addHeader(REQUEST_ID_HEADER, "abc-123");
+    request.setAsyncSupported(true);
+    filterChain = new MockFilterChain() {
+      @Override
+      public void doFilter(ServletRequest request, ServletResponse response) {
+        request.startAsync();
+      }
+    };
+
+    requestLoggingFilter.doFilter(request, response, filterChain);
+
+    assertTrue(loggedRequestIds.isEmpty());
+    assertTrue(ThreadContext.isEmpty());
+
+    request.getAsyncContext().complete();
+
+    assertEquals(List.of("abc-123"), loggedRequestIds);
+    assertTrue(ThreadContext.isEmpty());
+  }
+
+  @Test
+  public void requestIdsAreUnique() {
+    assertNotEquals(RequestLoggingFilter.requestId(null), RequestLoggingFilter.requestId(null));
+  }
+}
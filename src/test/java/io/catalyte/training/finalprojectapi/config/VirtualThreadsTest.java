@@ -0,0 +1,40 @@
+package io.catalyte.training.finalprojectapi.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+/**
+ * Tests the lookup of virtual threads, which depends on the Java running the tests
+ */
+public class VirtualThreadsTest {
+
+  @Test
+  public void isSupportedFromJava21() {
+    assertEquals(Runtime.version().feature() >= 21, VirtualThreads.isSupported());
+  }
+
+  @Test
+  public void newExecutorRunsTasksOnNamedVirtualThreads() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+    ExecutorService executor = VirtualThreads.newExecutor("test-virtual-");
+    try {
+      Future<Thread> thread = executor.submit(Thread::currentThread);
+      assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread.get()));
+      assertTrue(thread.get().getName().startsWith("test-virtual-"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void newExecutorThrowsBeforeJava21() {
+    assumeFalse(VirtualThreads.isSupported());
+    VirtualThreads.newExecutor("test-virtual-");
+  }
+}
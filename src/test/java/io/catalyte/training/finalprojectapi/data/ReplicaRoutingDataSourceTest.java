@@ -0,0 +1,172 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests the routing of connections between the primary and the replicas
+ */
+public class ReplicaRoutingDataSourceTest {
+
+  @Mock
+  private DataSource primary;
+
+  @Mock
+  private DataSource replicaOne;
+
+  @Mock
+  private DataSource replicaTwo;
+
+  @Mock
+  private Connection primaryConnection;
+
+  @Mock
+  private Connection replicaOneConnection;
+
+  @Mock
+  private Connection replicaTwoConnection;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ReplicaRoutingDataSource routingDataSource;
+
+  @Before
+  public void setUp() throws SQLException {
+    MockitoAnnotations.initMocks(this);
+    when(primary.getConnection()).thenReturn(primaryConnection);
+    when(replicaOne.getConnection()).thenReturn(replicaOneConnection);
+    when(replicaTwo.getConnection()).thenReturn(replicaTwoConnection);
+    lag(replicaOneConnection, 0.0);
+    lag(replicaTwoConnection, 0.0);
+
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    replicas.put("replica-1", replicaOne);
+    replicas.put("replica-2", replicaTwo);
+    routingDataSource = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(5),
+        meterRegistry);
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  /**
+   * Makes the lag query on a connection return the lag
+   */
+  private void lag(Connection connection, double seconds) throws SQLException {
+    Statement statement = mock(Statement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(anyString())).thenReturn(resultSet);
+    when(resultSet.getDouble(1)).thenReturn(seconds);
+  }
+
+  private double connections(String target, String readOnly) {
+    return meterRegistry.get("datasource.routing.connections")
+        .tag("target", target).tag("read.only", readOnly).counter().count();
+  }
+
+  @Test
+  public void writesGoToPrimary() throws SQLException {
+    routingDataSource.check();
+
+    assertSame(primaryConnection, routingDataSource.getConnection());
+    assertEquals(1, connections("primary", "false"), 0);
+    assertEquals(0, connections("replica-1", "true"), 0);
+  }
+
+  @Test
+  public void readsGoToReplicasInTurn() throws SQLException {
+    routingDataSource.check();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    List<Connection> connections = Arrays.asList(routingDataSource.getConnection(),
+        routingDataSource.getConnection(), routingDataSource.getConnection());
+
+    assertEquals(Arrays.asList(replicaOneConnection, replicaTwoConnection, replicaOneConnection),
+        connections);
+    assertEquals(2, connections("replica-1", "true"), 0);
+    assertEquals(1, connections("replica-2", "true"), 0);
+    verify(primary, never()).getConnection();
+  }
+
+  @Test
+  public void readsGoToPrimaryBeforeFirstCheck() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(primaryConnection, routingDataSource.getConnection());
+    assertEquals(1, connections("primary", "true"), 0);
+  }
+
+  @Test
+  public void replicaBehindTakesNoReadsUntilItCatchesUp() throws SQLException {
+    lag(replicaTwoConnection, 30.5);
+    routingDataSource.check();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertEquals(Collections.singletonList("replica-1"), routingDataSource.availableReplicas());
+    assertSame(replicaOneConnection, routingDataSource.getConnection());
+    assertSame(replicaOneConnection, routingDataSource.getConnection());
+    assertEquals(30.5, meterRegistry.get("datasource.replica.lag").tag("replica", "replica-2")
+        .gauge().value(), 0);
+
+    lag(replicaTwoConnection, 0.2);
+    routingDataSource.check();
+    assertEquals(Arrays.asList("replica-1", "replica-2"), routingDataSource.availableReplicas());
+  }
+
+  @Test
+  public void replicaWhichFailsCheckTakesNoReads() throws SQLException {
+    when(replicaOne.getConnection()).thenThrow(new SQLTransientConnectionException("timed out"));
+    routingDataSource.check();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(replicaTwoConnection, routingDataSource.getConnection());
+    assertSame(replicaTwoConnection, routingDataSource.getConnection());
+    assertTrue(Double.isNaN(meterRegistry.get("datasource.replica.lag")
+        .tag("replica", "replica-1").gauge().value()));
+  }
+
+  @Test
+  public void readsGoToNextReplicaThenPrimaryWhenConnectingFails() throws SQLException {
+    routingDataSource.check();
+    when(replicaOne.getConnection()).thenThrow(new SQLTransientConnectionException("timed out"));
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(replicaTwoConnection, routingDataSource.getConnection());
+    assertEquals(Collections.singletonList("replica-2"), routingDataSource.availableReplicas());
+
+    when(replicaTwo.getConnection()).thenThrow(new SQLTransientConnectionException("timed out"));
+    assertSame(primaryConnection, routingDataSource.getConnection());
+    assertTrue(routingDataSource.availableReplicas().isEmpty());
+    assertEquals(1, connections("primary", "true"), 0);
+  }
+}
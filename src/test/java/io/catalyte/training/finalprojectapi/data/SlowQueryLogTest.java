@@ -0,0 +1,146 @@
+package io.catalyte.training.finalprojectapi.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the statement timings and normalization of the slow query log
+ */
+public class SlowQueryLogTest {
+
+  private static final String SELECT_PATIENT = "select p.id, p.email from patient p where p.id=?";
+
+  private static final String SELECT_ENCOUNTERS = "select id from encounter where patient_id=?";
+
+  private SlowQueryLog slowQueryLog;
+
+  @Before
+  public void setUp() {
+    slowQueryLog = new SlowQueryLog(Duration.ofMillis(100), 2);
+  }
+
+  @Test
+  public void normalizeRemovesLiterals() {
+    assertEquals("select * from patient where email = ? and age > ? and id in (?, ...)",
+        SlowQueryLog.normalize("select *\n  from patient where email = 'o''neil@example.com' "
+            + "and age > 42.5 and id in (1, 2,3)"));
+  }
+
+  @Test
+  public void normalizeKeepsIdentifiersWithDigits() {
+    String sql = "select patient0_.id from encounter_p2021_01 where patient0_.id=?";
+    assertEquals(sql, SlowQueryLog.normalize(sql));
+  }
+
+  @Test
+  public void statisticsCountsEveryExecution() {
+    execute(SELECT_PATIENT, 3);
+    execute(SELECT_PATIENT, 5);
+
+    List<SlowQueryStatistics> statistics = slowQueryLog.statistics();
+    assertEquals(1, statistics.size());
+    assertEquals(SELECT_PATIENT, statistics.get(0).getSql());
+    assertEquals(2, statistics.get(0).getCount());
+    assertEquals(8, statistics.get(0).getTotalMillis());
+    assertEquals(5, statistics.get(0).getMaxMillis());
+    assertEquals(4.0, statistics.get(0).getMeanMillis(), 0.0);
+    assertEquals(0, statistics.get(0).getSlowCount());
+    assertNull(statistics.get(0).getLastSlowCallSite());
+  }
+
+  @Test
+  public void statisticsCombinesStatementsDifferingInLiterals() {
+    execute("delete from patient where id=1", 1);
+    execute("delete from patient where id=2", 1);
+
+    List<SlowQueryStatistics> statistics = slowQueryLog.statistics();
+    assertEquals(1, statistics.size());
+    assertEquals("delete from patient where id=?", statistics.get(0).getSql());
+    assertEquals(2, statistics.get(0).getCount());
+  }
+
+  @Test
+  public void statisticsReturnsSlowestFirstUpToTop() {
+    execute(SELECT_PATIENT, 10);
+    execute(SELECT_ENCOUNTERS, 150);
+    execute("select count(*) from patient", 1);
+
+    List<SlowQueryStatistics> statistics = slowQueryLog.statistics();
+    assertEquals(2, statistics.size());
+    assertEquals(SELECT_ENCOUNTERS, statistics.get(0).getSql());
+    assertEquals(SELECT_PATIENT, statistics.get(1).getSql());
+  }
+
+  @Test
+  public void afterQueryRecordsCallSiteOfSlowStatements() {
+    execute(SELECT_ENCOUNTERS, 150);
+
+    SlowQueryStatistics statistics = slowQueryLog.statistics().get(0);
+    assertEquals(1, statistics.getSlowCount());
+    assertTrue(statistics.getLastSlowCallSite(),
+        statistics.getLastSlowCallSite().startsWith("SlowQueryLogTest.execute:"));
+  }
+
+  @Test
+  public void afterQueryStopsCountingNewStatementsAtMaximum() {
+    slowQueryLog = new SlowQueryLog(Duration.ofMillis(100), Integer.MAX_VALUE);
+    for (int i = 0; i < SlowQueryLog.MAX_STATEMENTS + 10; i++) {
+      execute("select * from patient p" + i, 1);
+    }
+
+    assertEquals(SlowQueryLog.MAX_STATEMENTS, slowQueryLog.statistics().size());
+  }
+
+  @Test
+  public void afterQueryCountsInListsOfEverySizeOnce() {
+    slowQueryLog = new SlowQueryLog(Duration.ofMillis(100), Integer.MAX_VALUE);
+    for (int size = 1; size <= SlowQueryLog.MAX_STATEMENTS + 10; size++) {
+      execute("select id from patient where id in (" + String.join(", ",
+          Collections.nCopies(size, "?")) + ")", 1);
+    }
+    execute(SELECT_PATIENT, 1);
+
+    List<SlowQueryStatistics> statistics = slowQueryLog.statistics();
+    assertEquals(3, statistics.size());
+    assertEquals(SlowQueryLog.MAX_STATEMENTS + 9,
+        statistics.stream().filter(statement -> statement.getSql().endsWith("(?, ...)"))
+            .findFirst().get().getCount());
+    assertTrue(statistics.stream()
+        .anyMatch(statement -> statement.getSql().equals(SELECT_PATIENT)));
+  }
+
+  @Test
+  public void parameterTypesLeavesOutValues() throws NoSuchMethodException {
+    QueryInfo queryInfo = new QueryInfo(SELECT_PATIENT);
+    queryInfo.getParametersList().add(Arrays.asList(
+        new ParameterSetOperation(PreparedStatement.class.getMethod("setString", int.class,
+            String.class), new Object[]{1, "123-45-6789"}),
+        new ParameterSetOperation(PreparedStatement.class.getMethod("setLong", int.class,
+            long.class), new Object[]{2, 7L}),
+        new ParameterSetOperation(PreparedStatement.class.getMethod("setNull", int.class,
+            int.class), new Object[]{3, 12})));
+
+    assertEquals("[String, Long, null]", SlowQueryLog.parameterTypes(queryInfo));
+
+    queryInfo.getParametersList().add(queryInfo.getParametersList().get(0));
+    assertEquals("[String, Long, null] x 2", SlowQueryLog.parameterTypes(queryInfo));
+  }
+
+  private void execute(String sql, long elapsedMillis) {
+    ExecutionInfo executionInfo = new ExecutionInfo();
+    executionInfo.setElapsedTime(elapsedMillis);
+    slowQueryLog.afterQuery(executionInfo, Collections.singletonList(new QueryInfo(sql)));
+  }
+}
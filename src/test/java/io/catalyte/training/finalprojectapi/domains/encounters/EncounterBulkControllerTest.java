@@ -0,0 +1,209 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ALL_ENCOUNTERS;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Tests the EncounterBulkController class
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class EncounterBulkControllerTest {
+
+  @Autowired
+  private static MockMvc mockMvc;
+  ObjectMapper mapper = new ObjectMapper();
+
+  // 200 level statuses
+  ResultMatcher okStatus = MockMvcResultMatchers.status().isOk();
+
+  // 400 level statuses
+  ResultMatcher badRequestStatus = MockMvcResultMatchers.status().isBadRequest();
+  ResultMatcher notFoundStatus = MockMvcResultMatchers.status().isNotFound();
+
+  @Autowired
+  EncounterRepository encounterRepository;
+
+  @Autowired
+  EncounterSummaryRepository encounterSummaryRepository;
+
+  @Autowired
+  EncounterService encounterService;
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Before
+  public void setUp() throws Exception {
+    DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup(this.wac);
+    mockMvc = builder.build();
+  }
+
+  /**
+   * Export encounters, expect Ok status and one line of JSON per encounter
+   *
+   * @throws Exception
+   */
+  @Test
+  public void exportEncountersStreamsNdjson() throws Exception {
+
+    MvcResult result = mockMvc
+        .perform(get(CONTEXT_ALL_ENCOUNTERS + "/export"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String body = mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(okStatus)
+        .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    String[] lines = body.split("\\n");
+    Assert.assertEquals(12, lines.length);
+    Assert.assertEquals(1L, mapper.readTree(lines[0]).get("patientId").asLong());
+  }
+
+  /**
+   * Import encounters, expect the valid rows saved and the others in the rejected rows, which are
+   * downloaded by an id rather than a path on the server
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void importEncountersRejectsInvalidRows() throws Exception {
+
+    String csv = "patientId,notes,visitCode,provider,billingCode,icd10,totalCost,copay,"
+        + "chiefComplaint,pulse,systolic,diastolic,date\n"
+        + "5,\"imported, with a comma\",N3W 3C3,provider,123.456.789-12,Z99,10.00,5.00,"
+        + "complaint,75,120,80,2021-01-05\n"
+        + "5555,,N3W 3C3,provider,123.456.789-12,Z99,10.00,5.00,complaint,,,,2021-01-05\n"
+        + "5,,N3W 3C3,provider,123.456.789-12,bad,10.0,5.00,complaint,,,,2021-01-05\n"
+        + "5,,N3W 3C3,provider,123.456.789-12,Z99,10.00,5.00,complaint,,,,yesterday\n";
+
+    String body = mockMvc
+        .perform(post(CONTEXT_ALL_ENCOUNTERS + "/import")
+            .contentType("text/csv")
+            .content(csv))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.rows").value(4))
+        .andExpect(jsonPath("$.imported").value(1))
+        .andExpect(jsonPath("$.rejected").value(3))
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    List<Encounter> encounters = encounterRepository.findAll(EncounterSpecifications.hasPatientId(5L));
+    Assert.assertEquals(1, encounters.size());
+    Assert.assertEquals("imported, with a comma", encounters.get(0).getNotes());
+
+    JsonNode report = mapper.readTree(body);
+    String rejectedRowsUri = report.get("rejectedRowsUri").asText();
+    Assert.assertTrue(rejectedRowsUri,
+        rejectedRowsUri.startsWith(CONTEXT_ALL_ENCOUNTERS + "/import/rejected/"));
+    String[] rejectedRows = mockMvc
+        .perform(get(rejectedRowsUri))
+        .andExpect(okStatus)
+        .andExpect(MockMvcResultMatchers.content().contentType("text/csv"))
+        .andReturn()
+        .getResponse()
+        .getContentAsString()
+        .split("\r?\n");
+    Assert.assertEquals(4, rejectedRows.length);
+    Assert.assertTrue(rejectedRows[0].endsWith(",line,errors"));
+  }
+
+  /**
+   * Get rejected rows by an id no import gave, or by a path, expect 404
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getRejectedRows404NotFound() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ALL_ENCOUNTERS + "/import/rejected/" + new UUID(0, 0)))
+        .andExpect(notFoundStatus);
+    mockMvc
+        .perform(get(CONTEXT_ALL_ENCOUNTERS + "/import/rejected/{id}", "../../etc/passwd"))
+        .andExpect(notFoundStatus);
+  }
+
+  /**
+   * Import encounters for two patients, expect both summaries to hold them with no drift
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void importEncountersAddsToSummaries() throws Exception {
+
+    String csv = "patientId,visitCode,provider,billingCode,icd10,totalCost,copay,"
+        + "chiefComplaint,pulse,date\n"
+        + "5,N3W 3C3,provider,123.456.789-12,Z99,10.00,5.00,complaint,70,2021-01-05\n"
+        + "1,N3W 3C3,provider,123.456.789-12,Z99,1.00,0.50,complaint,65,2020-01-01\n"
+        + "5,N3W 3C3,provider,123.456.789-12,Z99,2.50,1.00,complaint,90,2021-02-05\n";
+
+    mockMvc
+        .perform(post(CONTEXT_ALL_ENCOUNTERS + "/import")
+            .contentType("text/csv")
+            .content(csv))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.imported").value(3));
+
+    EncounterSummary patientFive = encounterSummaryRepository.findById(5L).orElseThrow();
+    Assert.assertEquals(2, patientFive.getEncounterCount());
+    Assert.assertEquals(new BigDecimal("12.50"), patientFive.getTotalCost());
+    Assert.assertEquals(Integer.valueOf(90), patientFive.getLastPulse());
+    // an older encounter leaves the latest one in place
+    EncounterSummary patientOne = encounterSummaryRepository.findById(1L).orElseThrow();
+    Assert.assertEquals(4, patientOne.getEncounterCount());
+    Assert.assertEquals(Integer.valueOf(75), patientOne.getLastPulse());
+    Assert.assertEquals(0, encounterService.rebuildSummaries(true).getDrifted());
+  }
+
+  /**
+   * Import encounters without a required column, expect Bad Request status
+   *
+   * @throws Exception
+   */
+  @Test
+  public void importEncountersMissingColumn400() throws Exception {
+
+    mockMvc
+        .perform(post(CONTEXT_ALL_ENCOUNTERS + "/import")
+            .contentType("text/csv")
+            .content("patientId,visitCode\n1,N3W 3C3\n"))
+        .andExpect(badRequestStatus);
+  }
+}
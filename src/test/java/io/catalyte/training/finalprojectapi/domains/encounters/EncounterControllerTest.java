@@ -2,12 +2,15 @@ package io.catalyte.training.finalprojectapi.domains.encounters;
 
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_DATA;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ENCOUNTERS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NEXT_CURSOR_HEADER;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.PRECONDITION_FAILED;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.VALIDATION_ERROR;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -15,6 +18,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.time.LocalDate;
 import java.text.SimpleDateFormat;
 import org.junit.Assert;
 import org.junit.Before;
@@ -23,10 +27,12 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
@@ -48,6 +54,10 @@ public class EncounterControllerTest {
   EncounterRepository encounterRepository;
   @Autowired
   PatientRepository patientRepository;
+  @Autowired
+  EncounterSummaryRepository encounterSummaryRepository;
+  @Autowired
+  EncounterService encounterService;
   ObjectMapper mapper = new ObjectMapper();
 
   // 200 level statuses
@@ -57,6 +67,10 @@ public class EncounterControllerTest {
   // 400 level statuses
   ResultMatcher notFoundStatus = MockMvcResultMatchers.status().isNotFound();
   ResultMatcher badRequestStatus = MockMvcResultMatchers.status().isBadRequest();
+  ResultMatcher preconditionFailedStatus = MockMvcResultMatchers.status().isPreconditionFailed();
+
+  // 300 level statuses
+  ResultMatcher notModifiedStatus = MockMvcResultMatchers.status().isNotModified();
 
   //expected type
   ResultMatcher expectedType = MockMvcResultMatchers.content()
@@ -146,6 +160,157 @@ public class EncounterControllerTest {
         .andExpect(jsonPath("$", hasSize(3)));
   }
 
+  /**
+   * Get a page of encounters, expect Ok status, two encounters and a cursor which leads to the last
+   * encounter
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncountersByPatientIdPagesWithCursor() throws Exception {
+
+    String cursor = mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?limit=2", 1))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(header().exists(NEXT_CURSOR_HEADER))
+        .andReturn()
+        .getResponse()
+        .getHeader(NEXT_CURSOR_HEADER);
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?limit=2&cursor=" + cursor, 1))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].date").value("2020-09-04"))
+        .andExpect(header().doesNotExist(NEXT_CURSOR_HEADER));
+  }
+
+  /**
+   * Search a patient's encounters by date range sorted by total cost, expect the two later
+   * encounters cheapest first
+   *
+   * @throws Exception
+   */
+  @Test
+  public void searchEncountersByDateRangeSortedByTotalCost() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?from=2020-08-10&to=2020-09-04&sort=totalCost", 1))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].date").value("2020-09-04"))
+        .andExpect(jsonPath("$[1].totalCost").value(145.00));
+  }
+
+  /**
+   * Get the latest two encounters of a patient, expect them newest first without a cursor
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getLatestEncountersNewestFirst() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?latest=2", 1))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].date").value("2020-09-04"))
+        .andExpect(jsonPath("$[1].date").value("2020-08-24"))
+        .andExpect(header().doesNotExist(NEXT_CURSOR_HEADER));
+  }
+
+  /**
+   * Get the latest encounters with a cursor, expect 400
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getLatestEncountersWithCursor400() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?latest=2&cursor=abc", 1))
+        .andExpect(badRequestStatus)
+        .andExpect(jsonPath("$.error").value(BAD_DATA));
+  }
+
+  /**
+   * Add an encounter dated today, expect it to be the only encounter of the last 30 days
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void getEncountersOfLastDays() throws Exception {
+    Encounter encounter13 = new Encounter(1L, "", "N3W 3C3", "New Hospital", "123.456.789-12",
+        "Z99", new BigDecimal("10.00"), new BigDecimal("5.00"), "new complaint", 60, 110, 70,
+        Date.valueOf(LocalDate.now()));
+
+    mockMvc
+        .perform(post(CONTEXT_ENCOUNTERS, 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(encounter13)))
+        .andExpect(createdStatus);
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?days=30", 1))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].totalCost").value(10.00));
+  }
+
+  /**
+   * Get the encounter statistics of a patient, expect the totals of its three encounters
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncounterStatsTotalsEncounters() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "/stats", 1))
+        .andExpect(okStatus)
+        .andExpect(expectedType)
+        .andExpect(jsonPath("$.encounterCount").value(3))
+        .andExpect(jsonPath("$.totalCost").value(145.22))
+        .andExpect(jsonPath("$.totalCopay").value(45.00))
+        .andExpect(jsonPath("$.minPulse").value(75))
+        .andExpect(jsonPath("$.maxPulse").value(100))
+        .andExpect(jsonPath("$.maxSystolic").value(180))
+        .andExpect(jsonPath("$.firstDate").value("2020-08-04"))
+        .andExpect(jsonPath("$.lastDate").value("2020-09-04"));
+  }
+
+  /**
+   * Get the encounter statistics of a patient without encounters, expect zero totals
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncounterStatsWithoutEncounters() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "/stats", 5))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.encounterCount").value(0))
+        .andExpect(jsonPath("$.totalCost").value(0.0))
+        .andExpect(jsonPath("$.averagePulse").doesNotExist())
+        .andExpect(jsonPath("$.firstDate").doesNotExist());
+  }
+
+  /**
+   * Get the encounter statistics of a patient which does not exist, expect 404
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncounterStatsExpect404InvalidPatient() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "/stats", 5555))
+        .andExpect(notFoundStatus);
+  }
+
   /**
    * Get encounters by patient Id invalid patient -- expect 404
    *
@@ -201,6 +366,60 @@ public class EncounterControllerTest {
     Assert.assertEquals(CONTENT_TYPE, retType);
   }
 
+  /**
+   * Add an encounter later than the others, expect it in the patient's summary with no drift
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void addEncounterUpdatesSummary() throws Exception {
+    Encounter encounter13 = new Encounter(1L, "", "N3W 3C3", "New Hospital", "123.456.789-12",
+        "Z99", new BigDecimal("10.00"), new BigDecimal("5.00"), "new complaint", 60, 110, 70,
+        Date.valueOf("2021-01-01"));
+
+    mockMvc
+        .perform(post(CONTEXT_ENCOUNTERS, 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(encounter13)))
+        .andExpect(createdStatus);
+
+    EncounterSummary summary = encounterSummaryRepository.findById(1L).orElseThrow();
+    Assert.assertEquals(4, summary.getEncounterCount());
+    Assert.assertEquals(new BigDecimal("155.22"), summary.getTotalCost());
+    Assert.assertEquals(new BigDecimal("50.00"), summary.getTotalCopay());
+    Assert.assertEquals(Integer.valueOf(60), summary.getLastPulse());
+    Assert.assertEquals(0, encounterService.rebuildSummaries(true).getDrifted());
+  }
+
+  /**
+   * Move the first encounter of patient one to patient two, expect both summaries to follow it
+   * with no drift
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void updateEncounterMovesBetweenSummaries() throws Exception {
+    Encounter encounter = encounterRepository.findById(1L).orElseThrow();
+    encounter.setPatientId(2L);
+    encounter.setTotalCost(new BigDecimal("1.00"));
+
+    mockMvc
+        .perform(put("/patients/2/encounters/1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(encounter)))
+        .andExpect(okStatus);
+
+    EncounterSummary patientOne = encounterSummaryRepository.findById(1L).orElseThrow();
+    Assert.assertEquals(2, patientOne.getEncounterCount());
+    Assert.assertEquals(new BigDecimal("145.11"), patientOne.getTotalCost());
+    EncounterSummary patientTwo = encounterSummaryRepository.findById(2L).orElseThrow();
+    Assert.assertEquals(4, patientTwo.getEncounterCount());
+    Assert.assertEquals(new BigDecimal("146.22"), patientTwo.getTotalCost());
+    Assert.assertEquals(0, encounterService.rebuildSummaries(true).getDrifted());
+  }
+
   /**
    * Add encounter sad path, expect 400 bad dada
    *
@@ -382,4 +601,75 @@ public class EncounterControllerTest {
 
     Assert.assertEquals(CONTENT_TYPE, retType);
   }
-}
\ No newline at end of file
+
+  /**
+   * Get an encounter with the ETag it was read with in If-None-Match, expect 304 without a body
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncounterByIdNotModified() throws Exception {
+    String eTag = mockMvc
+        .perform(get("/patients/1/encounters/2"))
+        .andExpect(okStatus)
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+
+    mockMvc
+        .perform(get("/patients/1/encounters/2").header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(notModifiedStatus)
+        .andExpect(header().string(HttpHeaders.ETAG, eTag))
+        .andExpect(MockMvcResultMatchers.content().string(""));
+  }
+
+  /**
+   * Get an encounter of a patient which does not exist with If-None-Match, expect 404
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncounterByIdNotModified404PatientNotFound() throws Exception {
+    mockMvc
+        .perform(get("/patients/5555/encounters/2").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+        .andExpect(notFoundStatus)
+        .andExpect(jsonPath("$.error").value(NOT_FOUND));
+  }
+
+  /**
+   * Update an encounter with the ETag it was read with in If-Match, expect Ok status and a new
+   * ETag, then update it again with the same ETag, expect Precondition Failed status
+   *
+   * @throws Exception
+   */
+  @Test
+  public void updateEncounterIfMatch412AfterChange() throws Exception {
+    MvcResult read = mockMvc
+        .perform(get("/patients/1/encounters/2"))
+        .andExpect(okStatus)
+        .andReturn();
+    String eTag = read.getResponse().getHeader(HttpHeaders.ETAG);
+    String encounterAsJson = read.getResponse().getContentAsString()
+        .replace("\"notes\":\"", "\"notes\":\"Updated. ");
+
+    String newETag = mockMvc
+        .perform(put("/patients/1/encounters/2")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(encounterAsJson))
+        .andExpect(okStatus)
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+    Assert.assertNotEquals(eTag, newETag);
+
+    mockMvc
+        .perform(put("/patients/1/encounters/2")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(encounterAsJson))
+        .andExpect(preconditionFailedStatus)
+        .andExpect(jsonPath("$.error").value(PRECONDITION_FAILED));
+  }
+}
@@ -0,0 +1,112 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
+import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
+import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import javax.validation.Validation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * Tests how the EncounterCsvImporter class reports failures of its writer thread and expires its
+ * rejected rows files
+ */
+public class EncounterCsvImporterTest {
+
+  private static final String CSV = "patientId,visitCode,provider,billingCode,icd10,totalCost,"
+      + "copay,chiefComplaint,date\n"
+      + "1,N3W 3C3,provider,123.456.789-12,Z99,10.00,5.00,complaint,2021-01-05\n";
+
+  @Rule
+  public TemporaryFolder rejectsDirectory = new TemporaryFolder();
+  @Mock
+  private PatientRepository mockPatientRepository;
+  @InjectMocks
+  private EncounterCsvImporter encounterCsvImporter;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    encounterCsvImporter.validator = Validation.buildDefaultValidatorFactory().getValidator();
+    encounterCsvImporter.rejectsDirectory = rejectsDirectory.getRoot().toString();
+    encounterCsvImporter.rejectsTimeToLive = Duration.ofHours(1);
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void importEncountersDatabaseError() {
+    when(mockPatientRepository.findExistingIds(any()))
+        .thenThrow(new QueryTimeoutException("timed out"));
+
+    encounterCsvImporter.importEncounters(csv());
+  }
+
+  @Test
+  public void importEncountersRethrowsWriterError() {
+    OutOfMemoryError error = new OutOfMemoryError("Java heap space");
+    when(mockPatientRepository.findExistingIds(any())).thenThrow(error);
+
+    try {
+      encounterCsvImporter.importEncounters(csv());
+      Assert.fail("expected the writer's error");
+    } catch (OutOfMemoryError e) {
+      Assert.assertSame(error, e);
+    }
+  }
+
+  @Test
+  public void deleteExpiredRejectsKeepsUnexpired() throws Exception {
+    String id = UUID.randomUUID().toString();
+    Path file = rejectsDirectory.newFile("encounter-import-" + id + "-rejected.csv").toPath();
+
+    encounterCsvImporter.deleteExpiredRejects();
+
+    Assert.assertTrue(Files.exists(file));
+    Assert.assertEquals(file, encounterCsvImporter.getRejectedRows(id));
+  }
+
+  @Test
+  public void deleteExpiredRejectsDeletesExpired() throws Exception {
+    String id = UUID.randomUUID().toString();
+    Path file = rejectsDirectory.newFile("encounter-import-" + id + "-rejected.csv").toPath();
+    Path other = rejectsDirectory.newFile("other.csv").toPath();
+    FileTime twoHoursAgo = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+    Files.setLastModifiedTime(file, twoHoursAgo);
+    Files.setLastModifiedTime(other, twoHoursAgo);
+
+    Assert.assertThrows(ResourceNotFound.class, () -> encounterCsvImporter.getRejectedRows(id));
+    encounterCsvImporter.deleteExpiredRejects();
+
+    Assert.assertFalse(Files.exists(file));
+    Assert.assertTrue(Files.exists(other));
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getRejectedRowsNotAnId() throws Exception {
+    rejectsDirectory.newFile("encounter-import-x-rejected.csv");
+
+    encounterCsvImporter.getRejectedRows("x");
+  }
+
+  private static InputStream csv() {
+    return new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8));
+  }
+}
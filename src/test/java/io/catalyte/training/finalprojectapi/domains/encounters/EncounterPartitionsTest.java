@@ -0,0 +1,155 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_ENCOUNTERS;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Tests the encounter endpoints with the encounter table partitioned by month. The context has a
+ * schema of its own, as it drops its tables when closed and the other cached contexts share the
+ * database.
+ */
+@SpringBootTest(properties = {"encounters.partitioning.enabled=true",
+    "spring.datasource.url=jdbc:postgresql://localhost:5432/postgres?reWriteBatchedInserts=true"
+        + "&currentSchema=encounter_partitions",
+    "spring.jpa.properties.hibernate.default_schema=encounter_partitions",
+    "spring.jpa.properties.hibernate.hbm2ddl.create_namespaces=true"})
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+@DirtiesContext
+public class EncounterPartitionsTest {
+
+  @Autowired
+  private static MockMvc mockMvc;
+  ObjectMapper mapper = new ObjectMapper();
+
+  // 200 level statuses
+  ResultMatcher okStatus = MockMvcResultMatchers.status().isOk();
+  ResultMatcher createdStatus = MockMvcResultMatchers.status().isCreated();
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  EncounterPartitions encounterPartitions;
+
+  @Autowired
+  EncounterRepository encounterRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUp() throws Exception {
+    DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup(this.wac);
+    mockMvc = builder.build();
+  }
+
+  /**
+   * Expect the months of the seeded encounters and the months ahead to have partitions
+   */
+  @Test
+  public void startupCreatesSeededAndUpcomingMonths() {
+    List<YearMonth> months = encounterPartitions.getMonths();
+    Assert.assertTrue(months.contains(YearMonth.of(2020, 8)));
+    Assert.assertTrue(months.contains(YearMonth.of(2020, 9)));
+    Assert.assertTrue(months.contains(YearMonth.now().plusMonths(3)));
+    Assert.assertEquals(Long.valueOf(2), jdbcTemplate.queryForObject(
+        "SELECT count(*) FROM encounter_p2020_08 WHERE patient_id = 1", Long.class));
+  }
+
+  /**
+   * Add an encounter in a month without a partition, expect the month to be created and the
+   * encounter to be listed with the others
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void addEncounterCreatesItsMonth() throws Exception {
+    Encounter encounter = encounter(null, 1L, "1999-01-15");
+
+    mockMvc
+        .perform(post(CONTEXT_ENCOUNTERS, 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(encounter)))
+        .andExpect(createdStatus);
+
+    Assert.assertTrue(encounterPartitions.getMonths().contains(YearMonth.of(1999, 1)));
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?from=1999-01-01&to=1999-01-31", 1))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(1)));
+    mockMvc
+        .perform(get(CONTEXT_ENCOUNTERS + "?latest=4", 1))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(4)))
+        .andExpect(jsonPath("$[3].date").value("1999-01-15"));
+  }
+
+  /**
+   * Move an encounter to a month without a partition, expect it to be stored there
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void updateEncounterMovesToItsMonth() throws Exception {
+    Encounter encounter = encounterRepository.findById(1L).orElseThrow();
+    encounter.setDate(Date.valueOf("2001-06-30"));
+
+    mockMvc
+        .perform(put(CONTEXT_ENCOUNTERS + "/1", 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(encounter)))
+        .andExpect(okStatus);
+
+    Assert.assertEquals(Long.valueOf(1), jdbcTemplate.queryForObject(
+        "SELECT count(*) FROM encounter_p2001_06 WHERE id = 1", Long.class));
+  }
+
+  /**
+   * Expect a one month range query to read only that month's partition
+   */
+  @Test
+  public void dateRangeQueryPrunesOtherMonths() {
+    String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN SELECT * FROM encounter "
+        + "WHERE patient_id = 1 AND date >= '2020-09-01' AND date <= '2020-09-30'", String.class));
+    Assert.assertTrue(plan, plan.contains("encounter_p2020_09"));
+    Assert.assertFalse(plan, plan.contains("encounter_p2020_08"));
+  }
+
+  private Encounter encounter(Long id, Long patientId, String date) {
+    Encounter encounter = new Encounter(patientId, "", "N3W 3C3", "New Hospital",
+        "123.456.789-12", "Z99", new BigDecimal("10.00"), new BigDecimal("5.00"),
+        "new complaint", 60, 110, 70, Date.valueOf(date));
+    encounter.setId(id);
+    return encounter;
+  }
+}
@@ -0,0 +1,104 @@
+package io.catalyte.training.finalprojectapi.domains.encounters;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import io.catalyte.training.finalprojectapi.domains.patients.PatientIdIndex;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Counts the statements run by encounter requests, with and without the patient id index
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class EncounterQueryCountTest {
+
+  @Autowired
+  private static MockMvc mockMvc;
+
+  // 200 level statuses
+  ResultMatcher okStatus = MockMvcResultMatchers.status().isOk();
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  PatientIdIndex patientIdIndex;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  Statistics statistics;
+
+  @Before
+  public void setUp() throws Exception {
+    DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup(this.wac);
+    mockMvc = builder.build();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  /**
+   * Get encounters of a patient which is not yet indexed and then again, expect the patient
+   * check to cost a query the first time only
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncountersByPatientIdSkipsPatientQueryOnceIndexed() throws Exception {
+
+    patientIdIndex.clear();
+
+    statistics.clear();
+    mockMvc.perform(get("/patients/1/encounters")).andExpect(okStatus);
+    Assert.assertEquals(2, statistics.getPrepareStatementCount());
+
+    statistics.clear();
+    mockMvc.perform(get("/patients/1/encounters")).andExpect(okStatus);
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Get the encounter statistics of an indexed patient, expect a single aggregate statement
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getEncounterStatsRunsOneStatement() throws Exception {
+
+    patientIdIndex.exists(1L);
+
+    statistics.clear();
+    mockMvc.perform(get("/patients/1/encounters/stats")).andExpect(okStatus);
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * The index is trusted for writes only because of the encounter to patient foreign key
+   */
+  @Test
+  public void encounterPatientForeignKeyExists() {
+    Integer keys = jdbcTemplate.queryForObject("select count(*) from information_schema"
+        + ".table_constraints where constraint_name = 'encounter_patient_fk'", Integer.class);
+    Assert.assertEquals(Integer.valueOf(1), keys);
+  }
+}
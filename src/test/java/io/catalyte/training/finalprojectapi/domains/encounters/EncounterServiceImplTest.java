@@ -1,17 +1,31 @@
 package io.catalyte.training.finalprojectapi.domains.encounters;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.catalyte.training.finalprojectapi.data.NdjsonWriter;
+import io.catalyte.training.finalprojectapi.domains.patients.PatientIdIndex;
 import io.catalyte.training.finalprojectapi.domains.patients.PatientRepository;
 import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
 import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
 import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
+import io.catalyte.training.finalprojectapi.pagination.KeysetCursor;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import javax.validation.UnexpectedTypeException;
 import org.junit.Assert;
 import org.junit.Before;
@@ -19,7 +33,10 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.transaction.CannotCreateTransactionException;
 
 /**
@@ -32,13 +49,20 @@ public class EncounterServiceImplTest {
   @Mock
   private EncounterRepository mockEncounterRepository;
   @Mock
+  private EncounterSummaryRepository mockEncounterSummaryRepository;
+  @Mock
+  private EncounterPartitions mockEncounterPartitions;
+  @Mock
   private PatientRepository mockPatientRepository;
+  @Mock
+  private NdjsonWriter mockNdjsonWriter;
   @InjectMocks
   private EncounterServiceImpl encounterService;
 
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
+    encounterService.patientIdIndex = new PatientIdIndex(mockPatientRepository);
 
     encounterOne.setId(1L);
     encounterOne.setPatientId(1L);
@@ -58,49 +82,209 @@ public class EncounterServiceImplTest {
     encounterList.add(encounterOne);
 
     // when statements for happy paths
-    when(mockEncounterRepository.findAll()).thenReturn(encounterList);
-    when(mockEncounterRepository.findAll(any(Example.class))).thenReturn(encounterList);
-    when(mockEncounterRepository.save(any(Encounter.class))).thenReturn(encounterList.get(0));
+    when(mockEncounterRepository.findAll(any(Specification.class), any(Sort.class)))
+        .thenReturn(encounterList);
+    when(mockEncounterRepository.saveAndFlush(any(Encounter.class)))
+        .thenReturn(encounterList.get(0));
     when(mockEncounterRepository.findById(any(Long.class))).thenReturn(Optional.of(encounterOne));
     when(mockPatientRepository.existsById(any(Long.class))).thenReturn(true);
+    when(mockEncounterRepository.findSlice(any(), any(Sort.class), anyInt()))
+        .thenReturn(encounterList);
+  }
+
+  @Test
+  public void getEncountersByPatientIdPageReturnsEncounters() {
+    KeysetPage<Encounter> actualResult =
+        encounterService.getEncountersByPatientId(1L, new EncounterSearch(), null, null);
+    Assert.assertEquals(encounterList, actualResult.getContent());
+    Assert.assertNull(actualResult.getNextCursor());
+  }
+
+  @Test
+  public void getEncountersByPatientIdPageReturnsNextCursor() {
+    Encounter encounterTwo = new Encounter();
+    encounterTwo.setId(2L);
+    encounterTwo.setDate(Date.valueOf("2020-09-04"));
+    encounterList.add(encounterTwo);
+
+    KeysetPage<Encounter> actualResult =
+        encounterService.getEncountersByPatientId(1L, new EncounterSearch(), null, 1);
+    Assert.assertEquals(1, actualResult.getContent().size());
+    Assert.assertEquals(
+        KeysetCursor.encode("date", String.valueOf(encounterOne.getDate().getTime()), "1"),
+        actualResult.getNextCursor());
+  }
+
+  @Test
+  public void getEncountersByPatientIdLatestReadsNewestFirst() {
+    EncounterSearch search = new EncounterSearch();
+    search.setLatest(2);
+
+    KeysetPage<Encounter> actualResult =
+        encounterService.getEncountersByPatientId(1L, search, null, null);
+    verify(mockEncounterRepository).findSlice(any(),
+        eq(Sort.by(Sort.Direction.DESC, "date", "id")), eq(2));
+    Assert.assertEquals(encounterList, actualResult.getContent());
+    Assert.assertNull(actualResult.getNextCursor());
+  }
+
+  @Test
+  public void getEncountersByPatientIdUnpagedLatest() {
+    EncounterSearch search = new EncounterSearch();
+    search.setLatest(1);
+
+    List<Encounter> actualResult = encounterService.getEncountersByPatientId(1L, search);
+    verify(mockEncounterRepository).findSlice(any(),
+        eq(Sort.by(Sort.Direction.DESC, "date", "id")), eq(1));
+    Assert.assertEquals(encounterList, actualResult);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void getEncountersByPatientIdLatestOutOfRange() {
+    EncounterSearch search = new EncounterSearch();
+    search.setLatest(501);
+    encounterService.getEncountersByPatientId(1L, search, null, null);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void getEncountersByPatientIdLatestWithCursor() {
+    EncounterSearch search = new EncounterSearch();
+    search.setLatest(5);
+    encounterService.getEncountersByPatientId(1L, search, KeysetCursor.encode("1"), null);
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getEncountersByPatientIdLatestBadPatientId() {
+    when(mockPatientRepository.existsById(any(Long.class))).thenReturn(false);
+    EncounterSearch search = new EncounterSearch();
+    search.setLatest(5);
+    encounterService.getEncountersByPatientId(1L, search, null, null);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void getEncountersByPatientIdNegativeDays() {
+    EncounterSearch search = new EncounterSearch();
+    search.setDays(-1);
+    encounterService.getEncountersByPatientId(1L, search, null, null);
+  }
+
+  @Test
+  public void getEncountersByPatientIdPageSortsByTotalCost() {
+    Encounter encounterTwo = new Encounter();
+    encounterTwo.setId(2L);
+    encounterTwo.setTotalCost(new BigDecimal("5.00"));
+    encounterList.add(encounterTwo);
+    EncounterSearch search = new EncounterSearch();
+    search.setSort(EncounterSearch.SORT_TOTAL_COST);
+
+    KeysetPage<Encounter> actualResult =
+        encounterService.getEncountersByPatientId(1L, search, null, 1);
+    verify(mockEncounterRepository).findSlice(any(), eq(Sort.by("totalCost", "id")), eq(2));
+    Assert.assertEquals(KeysetCursor.encode("totalCost", "0.11", "1"),
+        actualResult.getNextCursor());
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void getEncountersByPatientIdPageInvalidCursor() {
+    encounterService
+        .getEncountersByPatientId(1L, new EncounterSearch(), KeysetCursor.encode("1"), null);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void getEncountersByPatientIdPageCursorOfOtherSort() {
+    EncounterSearch search = new EncounterSearch();
+    search.setSort(EncounterSearch.SORT_TOTAL_COST);
+    encounterService.getEncountersByPatientId(1L, search,
+        KeysetCursor.encode("date", "1596499200000", "1"), null);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void getEncountersByPatientIdPageInvalidSort() {
+    EncounterSearch search = new EncounterSearch();
+    search.setSort("notes");
+    encounterService.getEncountersByPatientId(1L, search, null, null);
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getEncountersByPatientIdPageBadPatientId() {
+    when(mockPatientRepository.existsById(any(Long.class))).thenReturn(false);
+    encounterService.getEncountersByPatientId(1L, new EncounterSearch(), null, null);
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void getEncountersByPatientIdPageDBError() {
+    when(mockEncounterRepository.findSlice(any(), any(Sort.class), anyInt()))
+        .thenThrow(CannotCreateTransactionException.class);
+    encounterService.getEncountersByPatientId(1L, new EncounterSearch(), null, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void getEncountersByPatientIdDBError() {
-    when(mockEncounterRepository.findByPatientId(any(Long.class)))
+    when(mockEncounterRepository.findAll(any(Specification.class), any(Sort.class)))
         .thenThrow(CannotCreateTransactionException.class);
-    encounterService.getEncountersByPatientId(1L);
+    encounterService.getEncountersByPatientId(1L, new EncounterSearch());
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void getEncountersByPatientIdUnexpectedError() {
-    when(mockEncounterRepository.findByPatientId(any(Long.class)))
+    when(mockEncounterRepository.findAll(any(Specification.class), any(Sort.class)))
         .thenThrow(UnexpectedTypeException.class);
-    encounterService.getEncountersByPatientId(1L);
+    encounterService.getEncountersByPatientId(1L, new EncounterSearch());
   }
 
   @Test
-  public void queryEncountersNullExample() {
-    List<Encounter> actualResult = encounterService.queryEncounters(new Encounter());
-    Assert.assertEquals(encounterList, actualResult);
+  public void getEncounterStatsReturnsStats() {
+    EncounterStats stats = new EncounterStats(1L, new BigDecimal("0.11"), new BigDecimal("0.00"),
+        75, 75, 75.0, 120, 120, 120.0, 80, 80, 80.0, encounterOne.getDate(),
+        encounterOne.getDate());
+    when(mockEncounterRepository.findStatsByPatientId(1L)).thenReturn(stats);
+    Assert.assertEquals(stats, encounterService.getEncounterStats(1L));
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getEncounterStatsBadPatientId() {
+    when(mockPatientRepository.existsById(any(Long.class))).thenReturn(false);
+    encounterService.getEncounterStats(1L);
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void getEncounterStatsDBError() {
+    when(mockEncounterRepository.findStatsByPatientId(any(Long.class)))
+        .thenThrow(CannotCreateTransactionException.class);
+    encounterService.getEncounterStats(1L);
   }
 
   @Test
-  public void queryEncountersNonNullExample() {
-    List<Encounter> actualResult = encounterService.queryEncounters(encounterOne);
-    Assert.assertEquals(encounterList, actualResult);
+  public void queryEncountersEmptySearch() {
+    KeysetPage<Encounter> actualResult =
+        encounterService.queryEncounters(new EncounterSearch(), null, null);
+    verify(mockEncounterRepository).findSlice(any(), eq(Sort.by("date", "id")),
+        eq(KeysetPage.DEFAULT_LIMIT + 1));
+    Assert.assertEquals(encounterList, actualResult.getContent());
+  }
+
+  @Test
+  public void queryEncountersNonEmptySearch() {
+    EncounterSearch search = new EncounterSearch();
+    search.setProvider("New Hospital");
+
+    KeysetPage<Encounter> actualResult = encounterService.queryEncounters(search, null, 10);
+    verify(mockEncounterRepository).findSlice(any(), any(Sort.class), eq(11));
+    Assert.assertEquals(encounterList, actualResult.getContent());
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void queryEncountersDBError() {
-    when(mockEncounterRepository.findAll()).thenThrow(CannotCreateTransactionException.class);
-    List<Encounter> actualResult = encounterService.queryEncounters(new Encounter());
+    when(mockEncounterRepository.findSlice(any(), any(Sort.class), anyInt()))
+        .thenThrow(CannotCreateTransactionException.class);
+    encounterService.queryEncounters(new EncounterSearch(), null, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void queryEncountersUnexpectedError() {
-    when(mockEncounterRepository.findAll()).thenThrow(UnexpectedTypeException.class);
-    List<Encounter> actualResult = encounterService.queryEncounters(new Encounter());
+    when(mockEncounterRepository.findSlice(any(), any(Sort.class), anyInt()))
+        .thenThrow(UnexpectedTypeException.class);
+    encounterService.queryEncounters(new EncounterSearch(), null, null);
   }
 
   @Test
@@ -135,6 +319,41 @@ public class EncounterServiceImplTest {
     Assert.assertEquals(encounterOne, actualResult);
   }
 
+  @Test
+  public void addEncounterChecksPatientOnce() throws Exception {
+    encounterService.addEncounter(encounterOne, 1L);
+    encounterService.addEncounter(encounterOne, 1L);
+    verify(mockPatientRepository, times(1)).existsById(1L);
+  }
+
+  @Test
+  public void addEncounterAddsToSummary() throws Exception {
+    encounterService.addEncounter(encounterOne, 1L);
+    verify(mockEncounterSummaryRepository).addDelta(1L, 1, new BigDecimal("0.11"),
+        new BigDecimal("0.00"), encounterOne);
+  }
+
+  @Test
+  public void addEncounterEnsuresPartition() throws Exception {
+    encounterService.addEncounter(encounterOne, 1L);
+    verify(mockEncounterPartitions)
+        .ensureCovers(Collections.singletonList(encounterOne.getDate()));
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void addEncounterSummaryDBError() throws Exception {
+    doThrow(CannotCreateTransactionException.class).when(mockEncounterSummaryRepository)
+        .addDelta(any(), anyLong(), any(), any(), any());
+    encounterService.addEncounter(encounterOne, 1L);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void addEncounterPatientDeletedSinceIndexed() throws Exception {
+    when(mockEncounterRepository.saveAndFlush(any(Encounter.class)))
+        .thenThrow(DataIntegrityViolationException.class);
+    encounterService.addEncounter(encounterOne, 1L);
+  }
+
   @Test(expected = BadDataResponse.class)
   public void addEncounterBadPatientId() throws Exception {
     when(mockPatientRepository.existsById(any(Long.class))).thenReturn(false);
@@ -162,14 +381,14 @@ public class EncounterServiceImplTest {
 
   @Test(expected = ServiceUnavailable.class)
   public void addEncounterDBError() throws Exception {
-    when(mockEncounterRepository.save(any(Encounter.class)))
+    when(mockEncounterRepository.saveAndFlush(any(Encounter.class)))
         .thenThrow(CannotCreateTransactionException.class);
     encounterService.addEncounter(encounterOne, 1L);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void addEncounterUnexpectedError() throws Exception {
-    when(mockEncounterRepository.save(any(Encounter.class)))
+    when(mockEncounterRepository.saveAndFlush(any(Encounter.class)))
         .thenThrow(UnexpectedTypeException.class);
     encounterService.addEncounter(encounterOne, 1L);
   }
@@ -177,21 +396,54 @@ public class EncounterServiceImplTest {
   @Test
   public void updateEncounterByIdReturnsEncounter() throws Exception {
     encounterOne.setVisitCode("A3A 3A3");
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
     Assert.assertSame("A3A 3A3", encounterOne.getVisitCode());
   }
 
+  @Test
+  public void updateEncounterByIdAddsDifferenceToSummary() throws Exception {
+    Encounter existingEncounter = new Encounter();
+    existingEncounter.setPatientId(1L);
+    existingEncounter.setTotalCost(new BigDecimal("1.00"));
+    existingEncounter.setCopay(new BigDecimal("0.50"));
+    when(mockEncounterRepository.findById(any(Long.class)))
+        .thenReturn(Optional.of(existingEncounter));
+
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
+    verify(mockEncounterSummaryRepository).addDelta(1L, 0, new BigDecimal("-0.89"),
+        new BigDecimal("-0.50"), null);
+    verify(mockEncounterSummaryRepository).refreshLatest(1L);
+  }
+
+  @Test
+  public void updateEncounterByIdMovesBetweenSummaries() throws Exception {
+    Encounter existingEncounter = new Encounter();
+    existingEncounter.setPatientId(2L);
+    existingEncounter.setTotalCost(new BigDecimal("1.00"));
+    existingEncounter.setCopay(new BigDecimal("0.50"));
+    when(mockEncounterRepository.findById(any(Long.class)))
+        .thenReturn(Optional.of(existingEncounter));
+
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
+    verify(mockEncounterSummaryRepository).addDelta(2L, -1, new BigDecimal("-1.00"),
+        new BigDecimal("-0.50"), null);
+    verify(mockEncounterSummaryRepository).addDelta(1L, 1, new BigDecimal("0.11"),
+        new BigDecimal("0.00"), null);
+    verify(mockEncounterSummaryRepository).refreshLatest(2L);
+    verify(mockEncounterSummaryRepository).refreshLatest(1L);
+  }
+
   @Test(expected = ResourceNotFound.class)
   public void updateEncounterByIdIdNotFound() throws Exception {
     when(mockEncounterRepository.findById(any(Long.class))).thenReturn(Optional.empty());
     encounterOne.setVisitCode("A3A 3A3");
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = BadDataResponse.class)
   public void updateEncounterByIdIdDoesNotMatch() throws Exception {
     encounterOne.setId(3L);
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
@@ -199,7 +451,7 @@ public class EncounterServiceImplTest {
     when(mockEncounterRepository.findById(any(Long.class)))
         .thenThrow(CannotCreateTransactionException.class);
     encounterOne.setVisitCode("A3A 3A3");
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
@@ -207,39 +459,114 @@ public class EncounterServiceImplTest {
     when(mockEncounterRepository.findById(any(Long.class)))
         .thenThrow(UnexpectedTypeException.class);
     encounterOne.setVisitCode("A3A 3A3");
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = BadDataResponse.class)
   public void updateEncounterInvalidTotalCost() throws Exception {
     encounterOne.setTotalCost(new BigDecimal("1.1"));
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = BadDataResponse.class)
   public void updateEncounterInvalidCopay() throws Exception {
     encounterOne.setCopay(new BigDecimal("1"));
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void updatePatientByIdUnexpectedError() throws Exception {
-    when(mockEncounterRepository.save(any(Encounter.class)))
+    when(mockEncounterRepository.saveAndFlush(any(Encounter.class)))
         .thenThrow(UnexpectedTypeException.class);
     encounterOne.setVisitCode("A3A 3A3");
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = ResourceNotFound.class)
   public void updateEncounterBadPatientId() throws Exception {
     when(mockPatientRepository.existsById(any(Long.class))).thenReturn(false);
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void updateEncounterGetPatientByIdThrowsException() throws Exception {
     when(mockPatientRepository.existsById(any(Long.class)))
         .thenThrow(UnexpectedTypeException.class);
-    encounterService.updateEncounterById(1L, encounterOne, 1L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
+  }
+
+  @Test
+  public void updateEncounterByIdIfMatchSavesAtVersion() throws Exception {
+    encounterOne.setVersion(2L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, "\"1\", \"2\"");
+    verify(mockEncounterRepository).saveAndFlush(encounterOne);
+    Assert.assertEquals(Long.valueOf(2), encounterOne.getVersion());
+  }
+
+  @Test(expected = PreconditionFailed.class)
+  public void updateEncounterByIdIfMatchChanged() throws Exception {
+    encounterOne.setVersion(2L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, "\"1\"");
+  }
+
+  @Test(expected = PreconditionFailed.class)
+  public void updateEncounterByIdIfMatchWeakNeverMatches() throws Exception {
+    encounterOne.setVersion(2L);
+    encounterService.updateEncounterById(1L, encounterOne, 1L, "W/\"2\"");
+  }
+
+  @Test(expected = PreconditionFailed.class)
+  public void updateEncounterByIdConcurrentUpdate() throws Exception {
+    when(mockEncounterRepository.saveAndFlush(any(Encounter.class)))
+        .thenThrow(new ObjectOptimisticLockingFailureException(Encounter.class, 1L));
+    encounterService.updateEncounterById(1L, encounterOne, 1L, null);
+  }
+
+  @Test
+  public void getEncounterVersionReadsVersionOnly() {
+    when(mockEncounterRepository.findVersionById(1L)).thenReturn(3L);
+    Assert.assertEquals(Long.valueOf(3), encounterService.getEncounterVersion(1L, 1L));
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getEncounterVersionNotFound() {
+    when(mockEncounterRepository.findVersionById(1L)).thenReturn(null);
+    encounterService.getEncounterVersion(1L, 1L);
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getEncounterVersionPatientNotFound() {
+    when(mockPatientRepository.existsById(any(Long.class))).thenReturn(false);
+    encounterService.getEncounterVersion(1L, 1L);
+  }
+
+  @Test
+  public void rebuildSummariesReturnsReport() {
+    EncounterSummaryRebuild rebuild = new EncounterSummaryRebuild(4, 1, true, 5);
+    when(mockEncounterSummaryRepository.rebuild(false)).thenReturn(rebuild);
+    Assert.assertSame(rebuild, encounterService.rebuildSummaries(false));
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void rebuildSummariesDBError() {
+    when(mockEncounterSummaryRepository.rebuild(any(Boolean.class)))
+        .thenThrow(CannotCreateTransactionException.class);
+    encounterService.rebuildSummaries(true);
+  }
+
+  @Test
+  public void exportEncountersWritesEveryEncounter() throws Exception {
+    Stream<Encounter> encounters = encounterList.stream();
+    when(mockEncounterRepository.streamAll()).thenReturn(encounters);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    encounterService.exportEncounters(outputStream);
+    verify(mockNdjsonWriter).write(encounters, outputStream);
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void exportEncountersDBError() {
+    when(mockEncounterRepository.streamAll()).thenThrow(CannotCreateTransactionException.class);
+    encounterService.exportEncounters(new ByteArrayOutputStream());
   }
-}
\ No newline at end of file
+}
@@ -2,17 +2,23 @@ package io.catalyte.training.finalprojectapi.domains.patients;
 
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.BAD_DATA;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.NEXT_CURSOR_HEADER;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.NOT_FOUND;
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.PRECONDITION_FAILED;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.UNIQUE_FIELD_VIOLATION;
 import static io.catalyte.training.finalprojectapi.constants.StringConstants.VALIDATION_ERROR;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,10 +26,12 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
@@ -54,6 +62,10 @@ public class PatientControllerTest {
   ResultMatcher notFoundStatus = MockMvcResultMatchers.status().isNotFound();
   ResultMatcher badRequestStatus = MockMvcResultMatchers.status().isBadRequest();
   ResultMatcher conflictStatus = MockMvcResultMatchers.status().isConflict();
+  ResultMatcher preconditionFailedStatus = MockMvcResultMatchers.status().isPreconditionFailed();
+
+  // 300 level statuses
+  ResultMatcher notModifiedStatus = MockMvcResultMatchers.status().isNotModified();
 
   // expected type
   ResultMatcher expectedType = MockMvcResultMatchers.content()
@@ -125,6 +137,44 @@ public class PatientControllerTest {
         .andExpect(jsonPath("$", hasSize(5)));
   }
 
+  /**
+   * Get a page of patients, expect Ok status, two results and a cursor which leads to the next page
+   *
+   * @throws Exception
+   */
+  @Test
+  public void queryPatientsPagesWithCursor() throws Exception {
+
+    String cursor = mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?limit=2"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(header().exists(NEXT_CURSOR_HEADER))
+        .andReturn()
+        .getResponse()
+        .getHeader(NEXT_CURSOR_HEADER);
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?limit=2&cursor=" + cursor))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].firstName").value("Homer"));
+  }
+
+  /**
+   * Get patients with a cursor that was not issued by the API, expect 400
+   *
+   * @throws Exception
+   */
+  @Test
+  public void queryPatientsInvalidCursor400() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?cursor=abc.def"))
+        .andExpect(badRequestStatus)
+        .andExpect(jsonPath("$.error").value(BAD_DATA));
+  }
+
   /**
    * Get patients by query, expect Ok status and 1 result
    *
@@ -140,6 +190,145 @@ public class PatientControllerTest {
         .andExpect(jsonPath("$", hasSize(1)));
   }
 
+  /**
+   * Get patients by email in another case, expect Ok status and 1 result
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientsByEmailIgnoresCase() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?email=BART@mail.com"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].firstName").value("Bart"));
+  }
+
+  /**
+   * Search patients by last name prefix and age range sorted by age, expect the three matching
+   * patients youngest first
+   *
+   * @throws Exception
+   */
+  @Test
+  public void searchPatientsByPrefixAndAgeRange() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?lastNamePrefix=sim&minAge=8&maxAge=31&sort=age"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(3)))
+        .andExpect(jsonPath("$[0].firstName").value("Lisa"))
+        .andExpect(jsonPath("$[2].firstName").value("Homer"));
+  }
+
+  /**
+   * Get patients with their encounter summaries, expect the seeded totals and an empty summary
+   * for the patient without encounters
+   *
+   * @throws Exception
+   */
+  @Test
+  public void queryPatientsIncludesEncounterSummaries() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?includeSummary=true"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$", hasSize(5)))
+        .andExpect(jsonPath("$[0].encounterSummary.encounterCount").value(3))
+        .andExpect(jsonPath("$[0].encounterSummary.totalCost").value(145.22))
+        .andExpect(jsonPath("$[0].encounterSummary.totalCopay").value(45.00))
+        .andExpect(jsonPath("$[0].encounterSummary.lastEncounterDate").value("2020-09-04"))
+        .andExpect(jsonPath("$[0].encounterSummary.lastPulse").value(75))
+        .andExpect(jsonPath("$[4].encounterSummary.encounterCount").value(0))
+        .andExpect(jsonPath("$[4].encounterSummary.lastEncounterDate").doesNotExist());
+  }
+
+  /**
+   * Get patients without asking for summaries, expect none
+   *
+   * @throws Exception
+   */
+  @Test
+  public void queryPatientsOmitsEncounterSummaries() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$[0].encounterSummary").doesNotExist());
+  }
+
+  /**
+   * Get patients sorted by a field which cannot be sorted on, expect 400
+   *
+   * @throws Exception
+   */
+  @Test
+  public void queryPatientsInvalidSort400() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?sort=ssn"))
+        .andExpect(badRequestStatus)
+        .andExpect(jsonPath("$.error").value(BAD_DATA));
+  }
+
+  /**
+   * Type-ahead search by partial first and last name, expect the one matching patient
+   *
+   * @throws Exception
+   */
+  @Test
+  public void searchPatientsByPartialName() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/search?q=li simp"))
+        .andExpect(okStatus)
+        .andExpect(expectedType)
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].firstName").value("Lisa"))
+        .andExpect(jsonPath("$[0].email").value("lisa@mail.com"));
+  }
+
+  /**
+   * Type-ahead search without a letter or digit, expect 400
+   *
+   * @throws Exception
+   */
+  @Test
+  public void searchPatientsInvalidQuery400() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/search?q=@"))
+        .andExpect(badRequestStatus)
+        .andExpect(jsonPath("$.error").value(BAD_DATA));
+  }
+
+  /**
+   * Export patients, expect Ok status and one line of JSON per patient
+   *
+   * @throws Exception
+   */
+  @Test
+  public void exportPatientsStreamsNdjson() throws Exception {
+
+    MvcResult result = mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/export"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String body = mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(okStatus)
+        .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    String[] lines = body.split("\n");
+    Assert.assertEquals(5, lines.length);
+    Assert.assertEquals("Bart", mapper.readTree(lines[0]).get("firstName").asText());
+  }
+
   /**
    * Tests the DELETE mapping to delete a single patient by ID
    *
@@ -203,6 +392,44 @@ public class PatientControllerTest {
     Assert.assertEquals(CONTENT_TYPE, retType);
   }
 
+  @DirtiesContext
+  @Test
+  public void addPatientsBatchReportsEachPatient() throws Exception {
+
+    Patient patient6 = new Patient();
+
+    patient6.setFirstName("John");
+    patient6.setLastName("Smith");
+    patient6.setSsn("123-45-5689");
+    patient6.setEmail("john@mail.com");
+    patient6.setAge(34);
+    patient6.setHeight(69);
+    patient6.setWeight(189);
+    patient6.setInsurance("Progressive");
+    patient6.setGender("Female");
+    patient6.setStreet("1234 Main St");
+    patient6.setCity("Anytown");
+    patient6.setState("IL");
+    patient6.setPostal("10965");
+
+    String patient6AsJson = mapper.writeValueAsString(patient6);
+    patient6.setEmail("bart@mail.com");
+    String patient7AsJson = mapper.writeValueAsString(patient6);
+
+    mockMvc
+        .perform(post(CONTEXT_PATIENTS + "/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[" + patient6AsJson + "," + patient7AsJson + "]"))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.created").value(1))
+        .andExpect(jsonPath("$.rejected").value(1))
+        .andExpect(jsonPath("$.results[0].status").value(201))
+        .andExpect(jsonPath("$.results[1].status").value(409));
+
+    Assert.assertEquals(Set.of("john@mail.com"),
+        patientRepository.findExistingEmails(Set.of("john@mail.com")));
+  }
+
   @DirtiesContext
   @Test
   public void addPatientExpect400BadData() throws Exception {
@@ -398,4 +625,147 @@ public class PatientControllerTest {
 
     Assert.assertEquals(CONTENT_TYPE, retType);
   }
-}
\ No newline at end of file
+
+  /**
+   * Get a patient by id, expect the ETag of its version
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientByIdReturnsETag() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/2"))
+        .andExpect(okStatus)
+        .andExpect(header().string(HttpHeaders.ETAG,
+            "\"" + patientRepository.findVersionById(2L) + "\""))
+        .andExpect(jsonPath("$.version").doesNotExist());
+  }
+
+  /**
+   * Get a patient by id from the front end's origin, expect the ETag to be exposed to it
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientByIdExposesETagToCors() throws Exception {
+
+    String exposed = mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/2").header(HttpHeaders.ORIGIN, "http://localhost:3000"))
+        .andExpect(okStatus)
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS);
+
+    Assert.assertTrue(exposed.contains(HttpHeaders.ETAG));
+  }
+
+  /**
+   * Get a patient by id with the ETag of its version in If-None-Match, expect 304 without a body,
+   * and 200 with the ETag of another version
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientByIdNotModified() throws Exception {
+
+    String eTag = mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/2"))
+        .andExpect(okStatus)
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/2").header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(notModifiedStatus)
+        .andExpect(header().string(HttpHeaders.ETAG, eTag))
+        .andExpect(MockMvcResultMatchers.content().string(""));
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/2").header(HttpHeaders.IF_NONE_MATCH, "W/" + eTag))
+        .andExpect(notModifiedStatus);
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/2").header(HttpHeaders.IF_NONE_MATCH, "\"999\""))
+        .andExpect(okStatus)
+        .andExpect(jsonPath("$.firstName").value("Lisa"));
+  }
+
+  /**
+   * Get a patient which does not exist with If-None-Match, expect 404
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientByIdNotModified404PatientNotFound() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/5555").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+        .andExpect(notFoundStatus)
+        .andExpect(jsonPath("$.error").value(NOT_FOUND));
+  }
+
+  /**
+   * Update a patient with the ETag it was read with in If-Match, expect Ok status and a new ETag,
+   * then update it again with the same ETag, expect Precondition Failed status
+   *
+   * @throws Exception
+   */
+  @Test
+  public void updatePatientIfMatch412AfterChange() throws Exception {
+
+    MvcResult read = mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/3"))
+        .andExpect(okStatus)
+        .andReturn();
+    String eTag = read.getResponse().getHeader(HttpHeaders.ETAG);
+    String patientAsJson = read.getResponse().getContentAsString();
+
+    String newETag = mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/3")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(patientAsJson))
+        .andExpect(okStatus)
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+    Assert.assertNotEquals(eTag, newETag);
+
+    mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/3")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(patientAsJson))
+        .andExpect(preconditionFailedStatus)
+        .andExpect(jsonPath("$.error").value(PRECONDITION_FAILED));
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/3").header(HttpHeaders.IF_NONE_MATCH, newETag))
+        .andExpect(notModifiedStatus);
+  }
+
+  /**
+   * Update a patient which does not exist with If-Match, expect 404 rather than 412
+   *
+   * @throws Exception
+   */
+  @Test
+  public void updatePatientIfMatch404PatientNotFound() throws Exception {
+
+    String patientAsJson = mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/3"))
+        .andReturn()
+        .getResponse()
+        .getContentAsString()
+        .replace("\"id\":3", "\"id\":5555");
+
+    mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/5555")
+            .header(HttpHeaders.IF_MATCH, "\"0\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(patientAsJson))
+        .andExpect(notFoundStatus);
+  }
+}
@@ -0,0 +1,117 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import io.catalyte.training.finalprojectapi.exceptions.UniqueFieldViolation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Fires parallel patient adds with colliding emails at the PatientServiceImpl class. The context
+ * is configured as the controller tests' are, so it is the one they share and rebuild when they
+ * dirty it, and the patients added are deleted after the test.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class PatientEmailConcurrencyTest {
+
+  private static final Logger logger = LogManager.getLogger(PatientEmailConcurrencyTest.class);
+
+  private static final int THREADS = 16;
+  private static final int EMAILS = 50;
+  private static final int ATTEMPTS_PER_EMAIL = 8;
+
+  @Autowired
+  PatientService patientService;
+
+  @Autowired
+  PatientRepository patientRepository;
+
+  @After
+  public void tearDown() {
+    patientRepository.findAll().stream()
+        .filter(patient -> patient.getEmail().toLowerCase().startsWith("stress"))
+        .forEach(patient -> patientService.deletePatient(patient.getId()));
+  }
+
+  /**
+   * Every email is added several times at once, in differing case, expect exactly one patient per
+   * email and a conflict for every other attempt
+   *
+   * @throws Exception
+   */
+  @Test
+  public void addPatientConcurrentCollidingEmails() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger created = new AtomicInteger();
+    AtomicInteger conflicts = new AtomicInteger();
+    List<Future<?>> attempts = new ArrayList<>();
+
+    for (int attempt = 0; attempt < ATTEMPTS_PER_EMAIL; attempt++) {
+      for (int email = 0; email < EMAILS; email++) {
+        String address = (attempt % 2 == 0 ? "stress" : "STRESS") + email + "@mail.com";
+        attempts.add(executor.submit(() -> {
+          start.await();
+          try {
+            patientService.addPatient(patient(address));
+            created.incrementAndGet();
+          } catch (UniqueFieldViolation e) {
+            conflicts.incrementAndGet();
+          }
+          return null;
+        }));
+      }
+    }
+
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Future<?> attempt : attempts) {
+      attempt.get();
+    }
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    executor.shutdown();
+    // reported for comparison between runs, too noisy on shared machines to assert
+    logger.info("{} adds in {} ms ({} adds/sec)", attempts.size(), elapsedMillis,
+        attempts.size() * 1000L / Math.max(elapsedMillis, 1));
+
+    Assert.assertEquals(EMAILS, created.get());
+    Assert.assertEquals(EMAILS * (ATTEMPTS_PER_EMAIL - 1), conflicts.get());
+    Assert.assertEquals(EMAILS, patientRepository.findAll().stream()
+        .filter(patient -> patient.getEmail().toLowerCase().startsWith("stress"))
+        .count());
+  }
+
+  private Patient patient(String email) {
+    Patient patient = new Patient();
+    patient.setFirstName("John");
+    patient.setLastName("Smith");
+    patient.setSsn("123-45-5689");
+    patient.setEmail(email);
+    patient.setAge(34);
+    patient.setHeight(69);
+    patient.setWeight(189);
+    patient.setInsurance("Progressive");
+    patient.setGender("Female");
+    patient.setStreet("1234 Main St");
+    patient.setCity("Anytown");
+    patient.setState("IL");
+    patient.setPostal("10965");
+    return patient;
+  }
+}
@@ -0,0 +1,78 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import static org.mockito.Mockito.when;
+
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Tests that the PatientIdIndex class does not keep the ids of patients deleted while it reads
+ */
+public class PatientIdIndexTest {
+
+  @Mock
+  private PatientRepository mockPatientRepository;
+  @Mock
+  private PlatformTransactionManager mockTransactionManager;
+  @InjectMocks
+  private PatientIdIndex patientIdIndex;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    patientIdIndex.transactionManager = mockTransactionManager;
+  }
+
+  @Test
+  public void existsAddsConfirmedId() {
+    when(mockPatientRepository.existsById(5L)).thenReturn(true);
+
+    Assert.assertTrue(patientIdIndex.exists(5L));
+    Assert.assertTrue(patientIdIndex.contains(5L));
+  }
+
+  @Test
+  public void existsDoesNotAddIdRemovedWhileConfirmed() {
+    when(mockPatientRepository.existsById(5L)).thenAnswer(invocation -> {
+      // the delete commits after the read took its snapshot
+      patientIdIndex.removed(5L);
+      return true;
+    });
+
+    Assert.assertTrue(patientIdIndex.exists(5L));
+    Assert.assertFalse(patientIdIndex.contains(5L));
+  }
+
+  @Test
+  public void rebuildDropsIdsDeletedElsewhere() {
+    patientIdIndex.add(7L);
+    when(mockPatientRepository.streamIds()).thenReturn(Stream.of(1L, 2L));
+
+    Assert.assertEquals(2, patientIdIndex.rebuild());
+    Assert.assertTrue(patientIdIndex.contains(1L));
+    Assert.assertTrue(patientIdIndex.contains(2L));
+    Assert.assertFalse(patientIdIndex.contains(7L));
+  }
+
+  @Test
+  public void rebuildLeavesOutIdsRemovedWhileRead() {
+    when(mockPatientRepository.streamIds()).thenAnswer(invocation -> {
+      patientIdIndex.removed(2L);
+      return Stream.of(1L, 2L, 3L);
+    });
+
+    patientIdIndex.rebuild();
+    Assert.assertTrue(patientIdIndex.contains(1L));
+    Assert.assertFalse(patientIdIndex.contains(2L));
+    Assert.assertTrue(patientIdIndex.contains(3L));
+
+    patientIdIndex.added(2L);
+    Assert.assertTrue(patientIdIndex.contains(2L));
+  }
+}
@@ -0,0 +1,271 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CONTEXT_PATIENTS;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.catalyte.training.finalprojectapi.versioning.EntityTags;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Counts the statements run by patient requests
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class PatientQueryCountTest {
+
+  @Autowired
+  private static MockMvc mockMvc;
+  ObjectMapper mapper = new ObjectMapper();
+
+  // 200 level statuses
+  ResultMatcher okStatus = MockMvcResultMatchers.status().isOk();
+  ResultMatcher deletedStatus = MockMvcResultMatchers.status().isNoContent();
+
+  // 400 level statuses
+  ResultMatcher notFoundStatus = MockMvcResultMatchers.status().isNotFound();
+  ResultMatcher conflictStatus = MockMvcResultMatchers.status().isConflict();
+  ResultMatcher preconditionFailedStatus = MockMvcResultMatchers.status().isPreconditionFailed();
+
+  // 300 level statuses
+  ResultMatcher notModifiedStatus = MockMvcResultMatchers.status().isNotModified();
+
+  @Autowired
+  private WebApplicationContext wac;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  PatientRepository patientRepository;
+
+  @Autowired
+  PatientCache patientCache;
+
+  Statistics statistics;
+
+  @Before
+  public void setUp() throws Exception {
+    DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup(this.wac);
+    mockMvc = builder.build();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  /**
+   * Get a page of patients with their encounter summaries, expect one statement for the patients
+   * and one for all of the summaries
+   *
+   * @throws Exception
+   */
+  @Test
+  public void queryPatientsWithSummariesRunsTwoStatements() throws Exception {
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "?includeSummary=true&limit=5"))
+        .andExpect(okStatus);
+
+    Assert.assertEquals(2, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Update a patient, expect a single statement
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void updatePatientRunsOneStatement() throws Exception {
+
+    mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(bart(1L, "bart.simpson@mail.com"))))
+        .andExpect(okStatus);
+
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Update a patient which does not exist, expect Not Found status from a single statement
+   *
+   * @throws Exception
+   */
+  @Test
+  public void updatePatientNotFoundRunsOneStatement() throws Exception {
+
+    mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/5555")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(bart(5555L, "bart@mail.com"))))
+        .andExpect(notFoundStatus);
+
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Update a patient to the email of another, expect Conflict status from a single statement
+   *
+   * @throws Exception
+   */
+  @Test
+  public void updatePatientEmailConflictRunsOneStatement() throws Exception {
+
+    mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(bart(1L, "LISA@mail.com"))))
+        .andExpect(conflictStatus);
+
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Get a patient the client already holds, expect Not Modified status from a single statement
+   * which reads the version and no patient loaded
+   *
+   * @throws Exception
+   */
+  @Test
+  public void getPatientByIdNotModifiedReadsVersionOnly() throws Exception {
+    String eTag = EntityTags.of(patientRepository.findVersionById(4L), EntityTags.JSON);
+    patientCache.invalidateAll();
+    statistics.clear();
+
+    mockMvc
+        .perform(get(CONTEXT_PATIENTS + "/4").header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(notModifiedStatus)
+        .andExpect(header().string(HttpHeaders.ETAG, eTag))
+        .andExpect(content().string(""));
+
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+    Assert.assertEquals(0, statistics.getEntityLoadCount());
+  }
+
+  /**
+   * Update a patient at the version in If-Match, expect a single statement which returns the new
+   * version
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void updatePatientIfMatchRunsOneStatement() throws Exception {
+    Long version = patientRepository.findVersionById(1L);
+    statistics.clear();
+
+    mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/1")
+            .header(HttpHeaders.IF_MATCH, EntityTags.of(version, EntityTags.JSON))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(bart(1L, "bart.simpson@mail.com"))))
+        .andExpect(okStatus)
+        .andExpect(header().string(HttpHeaders.ETAG, EntityTags.of(version + 1, EntityTags.JSON)));
+
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Update a patient which has changed since the version in If-Match, expect Precondition Failed
+   * status from the update and one existence check
+   *
+   * @throws Exception
+   */
+  @Test
+  public void updatePatientIfMatchChangedRunsTwoStatements() throws Exception {
+
+    mockMvc
+        .perform(put(CONTEXT_PATIENTS + "/1")
+            .header(HttpHeaders.IF_MATCH, EntityTags.of(999L, EntityTags.JSON))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapper.writeValueAsString(bart(1L, "bart.simpson@mail.com"))))
+        .andExpect(preconditionFailedStatus);
+
+    Assert.assertEquals(2, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Delete a patient without encounters, expect a single statement
+   *
+   * @throws Exception
+   */
+  @DirtiesContext
+  @Test
+  public void deletePatientRunsOneStatement() throws Exception {
+
+    mockMvc.perform(delete(CONTEXT_PATIENTS + "/5")).andExpect(deletedStatus);
+
+    Assert.assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Delete a patient with encounters, expect Conflict status from the delete and one encounter
+   * check
+   *
+   * @throws Exception
+   */
+  @Test
+  public void deletePatientWithEncountersRunsTwoStatements() throws Exception {
+
+    mockMvc.perform(delete(CONTEXT_PATIENTS + "/1")).andExpect(conflictStatus);
+
+    Assert.assertEquals(2, statistics.getPrepareStatementCount());
+  }
+
+  /**
+   * Delete a patient which does not exist, expect Not Found status from the delete and one
+   * encounter check
+   *
+   * @throws Exception
+   */
+  @Test
+  public void deletePatientNotFoundRunsTwoStatements() throws Exception {
+
+    mockMvc.perform(delete(CONTEXT_PATIENTS + "/5555")).andExpect(notFoundStatus);
+
+    Assert.assertEquals(2, statistics.getPrepareStatementCount());
+  }
+
+  private Patient bart(Long id, String email) {
+    Patient patient = new Patient();
+    patient.setId(id);
+    patient.setFirstName("Bart");
+    patient.setLastName("Simpson");
+    patient.setSsn("111-11-1111");
+    patient.setEmail(email);
+    patient.setAge(10);
+    patient.setHeight(62);
+    patient.setWeight(130);
+    patient.setInsurance("Burns Insurance");
+    patient.setGender("Male");
+    patient.setStreet("123 Main Street");
+    patient.setCity("Springfield");
+    patient.setState("MA");
+    patient.setPostal("90049");
+    return patient;
+  }
+}
@@ -0,0 +1,72 @@
+package io.catalyte.training.finalprojectapi.domains.patients;
+
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Tests that the PatientSearchIndex class does not index rows of patients changed while it fills
+ */
+public class PatientSearchIndexTest {
+
+  @Mock
+  private PatientRepository mockPatientRepository;
+  @Mock
+  private PlatformTransactionManager mockTransactionManager;
+  @InjectMocks
+  private PatientSearchIndex patientSearchIndex;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    patientSearchIndex.transactionManager = mockTransactionManager;
+  }
+
+  @Test
+  public void warmIndexesEveryPatient() {
+    when(mockPatientRepository.streamMatches()).thenReturn(Stream.of(
+        new PatientMatch(1L, "Bart", "Simpson", "bart@mail.com", "Springfield"),
+        new PatientMatch(2L, "Lisa", "Simpson", "lisa@mail.com", "Springfield")));
+
+    patientSearchIndex.warm();
+    Assert.assertEquals(2, patientSearchIndex.search("simpson", 10).size());
+  }
+
+  @Test
+  public void warmSkipsPatientDeletedWhileRead() {
+    when(mockPatientRepository.streamMatches()).thenAnswer(invocation -> {
+      // the delete commits after the read took its snapshot
+      patientSearchIndex.removed(2L);
+      return Stream.of(new PatientMatch(1L, "Bart", "Simpson", "bart@mail.com", "Springfield"),
+          new PatientMatch(2L, "Lisa", "Simpson", "lisa@mail.com", "Springfield"));
+    });
+
+    patientSearchIndex.warm();
+    List<PatientMatch> matches = patientSearchIndex.search("simpson", 10);
+    Assert.assertEquals(1, matches.size());
+    Assert.assertEquals(Long.valueOf(1L), matches.get(0).getId());
+  }
+
+  @Test
+  public void warmKeepsFieldsOfPatientUpdatedWhileRead() {
+    Patient updated = new Patient("Lisa", "Bouvier", "222-22-2222", "lisa@mail.com", 8, 62, 130,
+        "Burns Insurance", "Female", "123 Main Street", "Springfield", "MA", "90049");
+    updated.setId(2L);
+    when(mockPatientRepository.streamMatches()).thenAnswer(invocation -> {
+      patientSearchIndex.put(updated);
+      return Stream.of(new PatientMatch(2L, "Lisa", "Simpson", "lisa@mail.com", "Springfield"));
+    });
+
+    patientSearchIndex.warm();
+    Assert.assertEquals(1, patientSearchIndex.search("bouvier", 10).size());
+    Assert.assertTrue(patientSearchIndex.search("simpson", 10).isEmpty());
+  }
+}
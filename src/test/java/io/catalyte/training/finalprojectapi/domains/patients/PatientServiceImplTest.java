@@ -1,29 +1,48 @@
 package io.catalyte.training.finalprojectapi.domains.patients;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
-import io.catalyte.training.finalprojectapi.domains.encounters.EncounterService;
+import io.catalyte.training.finalprojectapi.data.NdjsonWriter;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterRepository;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSummary;
+import io.catalyte.training.finalprojectapi.domains.encounters.EncounterSummaryRepository;
 import io.catalyte.training.finalprojectapi.exceptions.BadDataResponse;
 import io.catalyte.training.finalprojectapi.exceptions.DependentEntityDeleteViolation;
+import io.catalyte.training.finalprojectapi.exceptions.PreconditionFailed;
 import io.catalyte.training.finalprojectapi.exceptions.ResourceNotFound;
 import io.catalyte.training.finalprojectapi.exceptions.ServiceUnavailable;
 import io.catalyte.training.finalprojectapi.exceptions.UniqueFieldViolation;
+import io.catalyte.training.finalprojectapi.pagination.KeysetCursor;
+import io.catalyte.training.finalprojectapi.pagination.KeysetPage;
+import java.io.ByteArrayOutputStream;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 import javax.validation.UnexpectedTypeException;
+import javax.validation.Validation;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.transaction.CannotCreateTransactionException;
 
 /**
@@ -32,12 +51,15 @@ import org.springframework.transaction.CannotCreateTransactionException;
 public class PatientServiceImplTest {
 
   List<Patient> patientList = new ArrayList<>();
-  List<Encounter> encounterList = new ArrayList<>();
   Patient patientOne = new Patient();
   @Mock
   private PatientRepository mockPatientRepository;
   @Mock
-  private EncounterService mockEncounterService;
+  private EncounterRepository mockEncounterRepository;
+  @Mock
+  private EncounterSummaryRepository mockEncounterSummaryRepository;
+  @Mock
+  private NdjsonWriter mockNdjsonWriter;
   @InjectMocks
   private PatientServiceImpl patientService;
 
@@ -45,6 +67,10 @@ public class PatientServiceImplTest {
   public void setUp() {
 
     MockitoAnnotations.initMocks(this);
+    patientService.validator = Validation.buildDefaultValidatorFactory().getValidator();
+    patientService.patientCache = new PatientCache(100, Duration.ofMinutes(10));
+    patientService.patientIdIndex = new PatientIdIndex(mockPatientRepository);
+    patientService.patientSearchIndex = new PatientSearchIndex(mockPatientRepository);
 
     patientOne.setId(1L);
     patientOne.setFirstName("Bart");
@@ -64,36 +90,207 @@ public class PatientServiceImplTest {
     patientList.add(patientOne);
 
     // when statements for happy paths
-    when(mockPatientRepository.findAll()).thenReturn(patientList);
-    when(mockPatientRepository.findAll(any(Example.class))).thenReturn(patientList);
+    when(mockPatientRepository.findAll(any(Specification.class), any(Sort.class)))
+        .thenReturn(patientList);
     when(mockPatientRepository.save(any(Patient.class))).thenReturn(patientList.get(0));
-    when(mockPatientRepository.existsByEmail(any(String.class))).thenReturn(false);
+    when(mockPatientRepository.saveAndFlush(any(Patient.class))).thenReturn(patientList.get(0));
+    when(mockPatientRepository.updatePatient(any(Patient.class))).thenReturn(1L);
+    when(mockPatientRepository.findExistingEmails(any())).thenReturn(Collections.emptySet());
     when(mockPatientRepository.findById(any(Long.class))).thenReturn(Optional.of(patientOne));
-    when(mockEncounterService.getEncountersByPatientId(any(Long.class))).thenReturn(encounterList);
+    when(mockPatientRepository.findSlice(any(), any(Sort.class), anyInt()))
+        .thenReturn(patientList);
   }
 
   @Test
   public void queryPatientsNullExample() {
-    List<Patient> actualResult = patientService.queryPatients(new Patient());
+    List<Patient> actualResult =
+        patientService.queryPatients(new Patient(), new PatientSearch());
     Assert.assertEquals(patientList, actualResult);
   }
 
   @Test
   public void queryPatientsNonNullExample() {
-    List<Patient> actualResult = patientService.queryPatients(patientOne);
+    List<Patient> actualResult = patientService.queryPatients(patientOne, new PatientSearch());
     Assert.assertEquals(patientList, actualResult);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void queryPatientsDBError() {
-    when(mockPatientRepository.findAll()).thenThrow(CannotCreateTransactionException.class);
-    patientService.queryPatients(new Patient());
+    when(mockPatientRepository.findAll(any(Specification.class), any(Sort.class)))
+        .thenThrow(CannotCreateTransactionException.class);
+    patientService.queryPatients(new Patient(), new PatientSearch());
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void queryPatientsUnexpectedError() {
-    when(mockPatientRepository.findAll()).thenThrow(UnexpectedTypeException.class);
-    List<Patient> actualResult = patientService.queryPatients(new Patient());
+    when(mockPatientRepository.findAll(any(Specification.class), any(Sort.class)))
+        .thenThrow(UnexpectedTypeException.class);
+    List<Patient> actualResult =
+        patientService.queryPatients(new Patient(), new PatientSearch());
+  }
+
+  @Test
+  public void queryPatientsPageLastPageHasNoCursor() {
+    KeysetPage<Patient> actualResult =
+        patientService.queryPatients(new Patient(), new PatientSearch(), null, null);
+    Assert.assertEquals(patientList, actualResult.getContent());
+    Assert.assertNull(actualResult.getNextCursor());
+  }
+
+  @Test
+  public void queryPatientsPageReturnsNextCursor() {
+    Patient patientTwo = new Patient();
+    patientTwo.setId(2L);
+    patientList.add(patientTwo);
+
+    KeysetPage<Patient> actualResult =
+        patientService.queryPatients(patientOne, new PatientSearch(), null, 1);
+    Assert.assertEquals(1, actualResult.getContent().size());
+    Assert.assertEquals(KeysetCursor.encode("1"), actualResult.getNextCursor());
+  }
+
+  @Test
+  public void queryPatientsPageFetchesOneExtraRow() {
+    patientService
+        .queryPatients(new Patient(), new PatientSearch(), KeysetCursor.encode("1"), 10);
+    verify(mockPatientRepository)
+        .findSlice(any(Specification.class), any(Sort.class), eq(11));
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void queryPatientsPageInvalidCursor() {
+    patientService.queryPatients(new Patient(), new PatientSearch(), "not a cursor", null);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void queryPatientsPageInvalidLimit() {
+    patientService.queryPatients(new Patient(), new PatientSearch(), null, 0);
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void queryPatientsPageDBError() {
+    when(mockPatientRepository.findSlice(any(), any(Sort.class), anyInt()))
+        .thenThrow(CannotCreateTransactionException.class);
+    patientService.queryPatients(new Patient(), new PatientSearch(), null, null);
+  }
+
+  @Test
+  public void queryPatientsPageSortsByLastName() {
+    Patient patientTwo = new Patient();
+    patientTwo.setId(2L);
+    patientList.add(patientTwo);
+    PatientSearch search = new PatientSearch();
+    search.setSort(PatientSearch.SORT_LAST_NAME);
+
+    KeysetPage<Patient> actualResult =
+        patientService.queryPatients(new Patient(), search, null, 1);
+    verify(mockPatientRepository).findSlice(any(), eq(Sort.by("lastName", "id")), eq(2));
+    Assert.assertEquals(KeysetCursor.encode("lastName", "Simpson", "1"),
+        actualResult.getNextCursor());
+  }
+
+  @Test
+  public void queryPatientsPageIncludesSummaries() {
+    Patient patientTwo = new Patient();
+    patientTwo.setId(2L);
+    patientList.add(patientTwo);
+    EncounterSummary summaryOne = EncounterSummary.empty(1L);
+    when(mockEncounterSummaryRepository.findAllById(any()))
+        .thenReturn(Collections.singletonList(summaryOne));
+    PatientSearch search = new PatientSearch();
+    search.setIncludeSummary(true);
+
+    KeysetPage<Patient> actualResult =
+        patientService.queryPatients(new Patient(), search, null, null);
+    verify(mockEncounterSummaryRepository, times(1)).findAllById(any());
+    Assert.assertSame(summaryOne, actualResult.getContent().get(0).getEncounterSummary());
+    Assert.assertEquals(0,
+        actualResult.getContent().get(1).getEncounterSummary().getEncounterCount());
+  }
+
+  @Test
+  public void queryPatientsPageOmitsSummariesByDefault() {
+    KeysetPage<Patient> actualResult =
+        patientService.queryPatients(new Patient(), new PatientSearch(), null, null);
+    verify(mockEncounterSummaryRepository, never()).findAllById(any());
+    Assert.assertNull(actualResult.getContent().get(0).getEncounterSummary());
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void queryPatientsPageCursorOfOtherSort() {
+    PatientSearch search = new PatientSearch();
+    search.setSort(PatientSearch.SORT_AGE);
+    patientService.queryPatients(new Patient(), search,
+        KeysetCursor.encode("lastName", "Simpson", "1"), null);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void queryPatientsInvalidSort() {
+    PatientSearch search = new PatientSearch();
+    search.setSort("ssn");
+    patientService.queryPatients(new Patient(), search);
+  }
+
+  @Test
+  public void searchPatientsFindsAddedPatient() {
+    patientService.addPatient(patientOne);
+    List<PatientMatch> actualResult = patientService.searchPatients("simp SPRING", null);
+    Assert.assertEquals(1, actualResult.size());
+    Assert.assertEquals(patientOne.getId(), actualResult.get(0).getId());
+    Assert.assertEquals("Simpson", actualResult.get(0).getLastName());
+  }
+
+  @Test
+  public void searchPatientsRanksWordStartFirst() {
+    Patient patientTwo = new Patient();
+    patientTwo.setId(2L);
+    patientTwo.setFirstName("Ned");
+    patientTwo.setLastName("Flanders");
+    patientTwo.setEmail("ned@mail.com");
+    patientTwo.setCity("Kissimmee");
+    patientService.patientSearchIndex.put(patientTwo);
+    patientService.patientSearchIndex.put(patientOne);
+
+    List<PatientMatch> actualResult = patientService.searchPatients("sim", null);
+    Assert.assertEquals(2, actualResult.size());
+    Assert.assertEquals(patientOne.getId(), actualResult.get(0).getId());
+    Assert.assertEquals(1, patientService.searchPatients("sim", 1).size());
+  }
+
+  @Test
+  public void searchPatientsShortWordMatchesWordStart() {
+    patientService.patientSearchIndex.put(patientOne);
+    Assert.assertEquals(1, patientService.searchPatients("b", null).size());
+    Assert.assertEquals(0, patientService.searchPatients("ar", null).size());
+  }
+
+  @Test
+  public void searchPatientsSeesUpdatedPatient() throws Exception {
+    patientService.patientSearchIndex.put(patientOne);
+    Patient updatedPatient = new Patient("Bart", "Flanders", "111-11-1111", "bart2@mail.com", 10,
+        62, 130, "Burns Insurance", "Male", "123 Main Street", "Springfield", "MA", "90049");
+    updatedPatient.setId(1L);
+    patientService.updatePatientById(1L, updatedPatient, null);
+    Assert.assertEquals(0, patientService.searchPatients("simpson", null).size());
+    Assert.assertEquals(1, patientService.searchPatients("flan", null).size());
+  }
+
+  @Test
+  public void searchPatientsDropsDeletedPatient() {
+    patientService.patientSearchIndex.put(patientOne);
+    when(mockPatientRepository.deleteIfNoEncounters(anyLong())).thenReturn(1);
+    patientService.deletePatient(1L);
+    Assert.assertEquals(0, patientService.searchPatients("bart", null).size());
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void searchPatientsInvalidQuery() {
+    patientService.searchPatients(" @. ", null);
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void searchPatientsInvalidLimit() {
+    patientService.searchPatients("bart", 51);
   }
 
   @Test
@@ -102,6 +299,31 @@ public class PatientServiceImplTest {
     Assert.assertEquals(patientOne, actualResult);
   }
 
+  @Test
+  public void getPatientByIdReadsDatabaseOnce() throws Exception {
+    patientService.getPatientById(1L);
+    patientService.getPatientById(1L);
+    verify(mockPatientRepository, times(1)).findById(1L);
+    Assert.assertEquals(1, patientService.patientCache.stats().hitCount());
+  }
+
+  @Test
+  public void getPatientByIdAfterUpdateReadsDatabase() throws Exception {
+    patientService.getPatientById(1L);
+    patientService.updatePatientById(1L, patientOne, null);
+    patientService.getPatientById(1L);
+    verify(mockPatientRepository, times(2)).findById(1L);
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getPatientByIdAfterDeleteNotFound() throws Exception {
+    when(mockPatientRepository.deleteIfNoEncounters(1L)).thenReturn(1);
+    patientService.getPatientById(1L);
+    patientService.deletePatient(1L);
+    when(mockPatientRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+    patientService.getPatientById(1L);
+  }
+
   @Test(expected = ResourceNotFound.class)
   public void getPatientByIdIdNotFound() throws Exception {
     when(mockPatientRepository.findById(any(Long.class))).thenReturn(Optional.empty());
@@ -124,35 +346,35 @@ public class PatientServiceImplTest {
 
   @Test
   public void deletePatient() {
-    when(mockPatientRepository.existsById(anyLong())).thenReturn(true);
+    when(mockPatientRepository.deleteIfNoEncounters(anyLong())).thenReturn(1);
     patientService.deletePatient(1L);
-    verify(mockPatientRepository).deleteById(any());
+    verify(mockPatientRepository).deleteIfNoEncounters(1L);
+    verify(mockEncounterRepository, never()).existsByPatientId(any(Long.class));
   }
 
   @Test(expected = DependentEntityDeleteViolation.class)
   public void deletePatientThatHasAssociatedEncounters() throws Exception {
-    Encounter encounter1 = new Encounter();
-    encounterList.add(encounter1);
-    when(mockEncounterService.getEncountersByPatientId(any(Long.class))).thenReturn(encounterList);
+    when(mockEncounterRepository.existsByPatientId(any(Long.class))).thenReturn(true);
     patientService.deletePatient(1L);
   }
 
   @Test(expected = ResourceNotFound.class)
   public void deletePatientBadID() {
-    doThrow(ResourceNotFound.class).when(mockPatientRepository).deleteById(anyLong());
+    when(mockPatientRepository.deleteIfNoEncounters(anyLong())).thenReturn(0);
     patientService.deletePatient(1L);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void deletePatientDBError() {
-    doThrow(ServiceUnavailable.class).when(mockPatientRepository).existsById(anyLong());
+    doThrow(CannotCreateTransactionException.class).when(mockPatientRepository)
+        .deleteIfNoEncounters(anyLong());
     patientService.deletePatient(1L);
   }
 
   @Test(expected = ServiceUnavailable.class)
-  public void deletePatientEncounterServiceThrowsDBError() {
-    doThrow(ServiceUnavailable.class).when(mockEncounterService)
-        .getEncountersByPatientId(any(Long.class));
+  public void deletePatientEncounterCheckThrowsDBError() {
+    doThrow(CannotCreateTransactionException.class).when(mockEncounterRepository)
+        .existsByPatientId(any(Long.class));
     patientService.deletePatient(1L);
   }
 
@@ -164,7 +386,7 @@ public class PatientServiceImplTest {
 
   @Test(expected = UniqueFieldViolation.class)
   public void addPatientEmailConflict() throws Exception {
-    when(mockPatientRepository.existsByEmail(any(String.class))).thenReturn(true);
+    when(mockPatientRepository.saveAndFlush(any(Patient.class))).thenThrow(emailConflict());
     patientService.addPatient(patientOne);
   }
 
@@ -180,46 +402,157 @@ public class PatientServiceImplTest {
     patientService.addPatient(patientOne);
   }
 
+  @Test(expected = ServiceUnavailable.class)
+  public void addPatientOtherConstraintViolation() throws Exception {
+    when(mockPatientRepository.saveAndFlush(any(Patient.class)))
+        .thenThrow(new DataIntegrityViolationException("not null", new ConstraintViolationException(
+            "not null", new SQLException(), null)));
+    patientService.addPatient(patientOne);
+  }
+
   @Test(expected = ServiceUnavailable.class)
   public void addPatientDBError() throws Exception {
-    when(mockPatientRepository.save(any(Patient.class)))
+    when(mockPatientRepository.saveAndFlush(any(Patient.class)))
         .thenThrow(CannotCreateTransactionException.class);
     patientService.addPatient(patientOne);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void addPatientUnexpectedError() throws Exception {
-    when(mockPatientRepository.save(any(Patient.class)))
+    when(mockPatientRepository.saveAndFlush(any(Patient.class)))
         .thenThrow(UnexpectedTypeException.class);
     patientService.addPatient(patientOne);
   }
 
+  @Test
+  public void addPatientsCreatesEveryValidPatient() {
+    List<Patient> batch = batchOf("lisa@mail.com", "homer@mail.com");
+    when(mockPatientRepository.saveAll(batch)).then(invocation -> {
+      batch.get(0).setId(10L);
+      batch.get(1).setId(11L);
+      return batch;
+    });
+
+    PatientBatchResponse actualResult = patientService.addPatients(batch);
+    Assert.assertEquals(2, actualResult.getCreated());
+    Assert.assertEquals(0, actualResult.getRejected());
+    Assert.assertEquals(Long.valueOf(11L), actualResult.getResults().get(1).getId());
+    Assert.assertEquals(201, actualResult.getResults().get(1).getStatus());
+  }
+
+  @Test
+  public void addPatientsReportsInvalidPatients() {
+    List<Patient> batch = batchOf("lisa@mail.com", "homer@mail.com", "marge@mail.com");
+    batch.get(0).setState("ZX");
+    batch.get(1).setFirstName(null);
+
+    PatientBatchResponse actualResult = patientService.addPatients(batch);
+    Assert.assertEquals(1, actualResult.getCreated());
+    Assert.assertEquals(2, actualResult.getRejected());
+    Assert.assertEquals(400, actualResult.getResults().get(0).getStatus());
+    Assert.assertEquals(400, actualResult.getResults().get(1).getStatus());
+    verify(mockPatientRepository).saveAll(Collections.singletonList(batch.get(2)));
+  }
+
+  @Test
+  public void addPatientsReportsEmailConflicts() {
+    List<Patient> batch = batchOf("bart2@mail.com", "lisa@mail.com", "lisa@mail.com");
+    when(mockPatientRepository.findExistingEmails(any()))
+        .thenReturn(Collections.singleton("bart2@mail.com"));
+
+    PatientBatchResponse actualResult = patientService.addPatients(batch);
+    Assert.assertEquals(1, actualResult.getCreated());
+    Assert.assertEquals(409, actualResult.getResults().get(0).getStatus());
+    Assert.assertEquals(201, actualResult.getResults().get(1).getStatus());
+    Assert.assertEquals(409, actualResult.getResults().get(2).getStatus());
+  }
+
+  @Test(expected = BadDataResponse.class)
+  public void addPatientsEmptyBatch() {
+    patientService.addPatients(new ArrayList<>());
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void addPatientsDBError() {
+    when(mockPatientRepository.saveAll(any()))
+        .thenThrow(CannotCreateTransactionException.class);
+    patientService.addPatients(batchOf("lisa@mail.com"));
+  }
+
+  @Test(expected = UniqueFieldViolation.class)
+  public void addPatientsConcurrentEmailConflict() {
+    doThrow(emailConflict()).when(mockPatientRepository).flush();
+    patientService.addPatients(batchOf("lisa@mail.com"));
+  }
+
+  @Test
+  public void addPatientsEmailsDifferingInCaseConflict() {
+    PatientBatchResponse actualResult =
+        patientService.addPatients(batchOf("lisa@mail.com", "LISA@mail.com"));
+    Assert.assertEquals(409, actualResult.getResults().get(1).getStatus());
+  }
+
+  private DataIntegrityViolationException emailConflict() {
+    return new DataIntegrityViolationException("duplicate key", new ConstraintViolationException(
+        "duplicate key", new SQLException(), PatientServiceImpl.EMAIL_UNIQUE_INDEX));
+  }
+
+  private List<Patient> batchOf(String... emails) {
+    List<Patient> batch = new ArrayList<>();
+    for (String email : emails) {
+      Patient patient = new Patient();
+      patient.setFirstName("Lisa");
+      patient.setLastName("Simpson");
+      patient.setSsn("222-22-2222");
+      patient.setEmail(email);
+      patient.setAge(8);
+      patient.setHeight(50);
+      patient.setWeight(60);
+      patient.setInsurance("Burns Insurance");
+      patient.setGender("Female");
+      patient.setStreet("123 Main Street");
+      patient.setCity("Springfield");
+      patient.setState("MA");
+      patient.setPostal("90049");
+      batch.add(patient);
+    }
+    return batch;
+  }
+
   @Test
   public void updatePatientByIdReturnsPatient() throws Exception {
     patientOne.setFirstName("New Bart");
-    patientService.updatePatientById(1L, patientOne);
+    patientService.updatePatientById(1L, patientOne, null);
     Assert.assertSame("New Bart", patientOne.getFirstName());
   }
 
+  @Test
+  public void updatePatientByIdOnlyUpdates() throws Exception {
+    patientService.updatePatientById(1L, patientOne, null);
+    verify(mockPatientRepository).updatePatient(patientOne);
+    verify(mockPatientRepository, never()).findById(any(Long.class));
+    verify(mockPatientRepository, never()).findExistingEmails(any());
+  }
+
   @Test(expected = ResourceNotFound.class)
   public void updatePatientByIdIdNotFound() throws Exception {
-    when(mockPatientRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+    when(mockPatientRepository.updatePatient(any(Patient.class))).thenReturn(null);
     patientOne.setFirstName("New Bart");
-    Patient result = patientService.updatePatientById(1L, patientOne);
+    Patient result = patientService.updatePatientById(1L, patientOne, null);
     Assert.assertNull(result);
   }
 
   @Test(expected = BadDataResponse.class)
   public void updatePatientByIdIdDoesNotMatch() throws Exception {
     patientOne.setId(3L);
-    Patient result = patientService.updatePatientById(1L, patientOne);
+    Patient result = patientService.updatePatientById(1L, patientOne, null);
   }
 
   @Test(expected = UniqueFieldViolation.class)
   public void updatePatientEmailConflict() throws Exception {
     Patient updatedPatient = new Patient();
 
-    when(mockPatientRepository.existsByEmail(any(String.class))).thenReturn(true);
+    when(mockPatientRepository.updatePatient(any(Patient.class))).thenThrow(emailConflict());
 
     updatedPatient.setId(1L);
     updatedPatient.setFirstName("Bart");
@@ -236,34 +569,113 @@ public class PatientServiceImplTest {
     updatedPatient.setState("MA");
     updatedPatient.setPostal("90049");
 
-    patientService.updatePatientById(1L, updatedPatient);
+    patientService.updatePatientById(1L, updatedPatient, null);
   }
 
   @Test(expected = BadDataResponse.class)
   public void updatePatientInvalidState() throws Exception {
     patientOne.setState("ZX");
-    patientService.updatePatientById(1L, patientOne);
+    patientService.updatePatientById(1L, patientOne, null);
   }
 
   @Test(expected = BadDataResponse.class)
   public void updatePatientInvalidGender() throws Exception {
     patientOne.setGender("Non-binary");
-    patientService.updatePatientById(1L, patientOne);
+    patientService.updatePatientById(1L, patientOne, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void updatePatientByIdDBError() throws Exception {
-    when(mockPatientRepository.findById(any(Long.class)))
+    when(mockPatientRepository.updatePatient(any(Patient.class)))
         .thenThrow(CannotCreateTransactionException.class);
     patientOne.setFirstName("New Bart");
-    Patient result = patientService.updatePatientById(1L, patientOne);
+    Patient result = patientService.updatePatientById(1L, patientOne, null);
   }
 
   @Test(expected = ServiceUnavailable.class)
   public void updatePatientByIdUnexpectedError() throws Exception {
-    when(mockPatientRepository.findById(any(Long.class)))
+    when(mockPatientRepository.updatePatient(any(Patient.class)))
         .thenThrow(UnexpectedTypeException.class);
     patientOne.setFirstName("New Bart");
-    Patient result = patientService.updatePatientById(1L, patientOne);
+    Patient result = patientService.updatePatientById(1L, patientOne, null);
+  }
+
+  @Test
+  public void updatePatientByIdSetsNewVersion() throws Exception {
+    when(mockPatientRepository.updatePatient(any(Patient.class))).thenReturn(4L);
+    Patient result = patientService.updatePatientById(1L, patientOne, null);
+    Assert.assertEquals(Long.valueOf(4), result.getVersion());
+  }
+
+  @Test
+  public void updatePatientByIdIfMatchUpdatesAllowedVersions() throws Exception {
+    when(mockPatientRepository.updatePatient(any(Patient.class), any())).thenReturn(4L);
+    patientService.updatePatientById(1L, patientOne, "\"3\", W/\"2\"");
+    verify(mockPatientRepository).updatePatient(patientOne, Set.of(3L));
+    verify(mockPatientRepository, never()).existsById(any(Long.class));
+  }
+
+  @Test(expected = PreconditionFailed.class)
+  public void updatePatientByIdIfMatchChanged() throws Exception {
+    when(mockPatientRepository.updatePatient(any(Patient.class), any())).thenReturn(null);
+    when(mockPatientRepository.existsById(1L)).thenReturn(true);
+    patientService.updatePatientById(1L, patientOne, "\"3\"");
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void updatePatientByIdIfMatchNotFound() throws Exception {
+    when(mockPatientRepository.updatePatient(any(Patient.class), any())).thenReturn(null);
+    when(mockPatientRepository.existsById(1L)).thenReturn(false);
+    patientService.updatePatientById(1L, patientOne, "\"3\"");
+  }
+
+  @Test
+  public void updatePatientByIdIfMatchAnyUpdatesAnyVersion() throws Exception {
+    patientService.updatePatientById(1L, patientOne, "*");
+    verify(mockPatientRepository).updatePatient(patientOne);
+  }
+
+  @Test
+  public void getPatientVersionReadsVersionOnly() throws Exception {
+    when(mockPatientRepository.findVersionById(1L)).thenReturn(2L);
+    Assert.assertEquals(Long.valueOf(2), patientService.getPatientVersion(1L));
+    verify(mockPatientRepository, never()).findById(any(Long.class));
+  }
+
+  @Test
+  public void getPatientVersionFromCache() throws Exception {
+    patientOne.setVersion(2L);
+    patientService.getPatientById(1L);
+    Assert.assertEquals(Long.valueOf(2), patientService.getPatientVersion(1L));
+    verify(mockPatientRepository, never()).findVersionById(any(Long.class));
+  }
+
+  @Test(expected = ResourceNotFound.class)
+  public void getPatientVersionNotFound() {
+    when(mockPatientRepository.findVersionById(1L)).thenReturn(null);
+    patientService.getPatientVersion(1L);
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void getPatientVersionDBError() {
+    when(mockPatientRepository.findVersionById(1L))
+        .thenThrow(CannotCreateTransactionException.class);
+    patientService.getPatientVersion(1L);
+  }
+
+  @Test
+  public void exportPatientsWritesEveryPatient() throws Exception {
+    Stream<Patient> patients = patientList.stream();
+    when(mockPatientRepository.streamAll()).thenReturn(patients);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    patientService.exportPatients(outputStream);
+    verify(mockNdjsonWriter).write(patients, outputStream);
+  }
+
+  @Test(expected = ServiceUnavailable.class)
+  public void exportPatientsDBError() {
+    when(mockPatientRepository.streamAll()).thenThrow(CannotCreateTransactionException.class);
+    patientService.exportPatients(new ByteArrayOutputStream());
   }
-}
\ No newline at end of file
+}
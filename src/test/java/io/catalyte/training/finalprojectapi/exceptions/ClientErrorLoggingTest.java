@@ -0,0 +1,63 @@
+package io.catalyte.training.finalprojectapi.exceptions;
+
+import static io.catalyte.training.finalprojectapi.constants.StringConstants.CLIENT_ERROR_MARKER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Filter.Result;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that log4j2.xml rate limits client errors logged by any class of the application and
+ * nothing else
+ */
+public class ClientErrorLoggingTest {
+
+  private static final String SERVICE_LOGGER =
+      "io.catalyte.training.finalprojectapi.domains.patients.PatientServiceImpl";
+
+  private Filter filter;
+
+  @Before
+  public void setUp() {
+    LoggerContext context = (LoggerContext) LogManager.getContext(false);
+    filter = context.getConfiguration().getLoggerConfig(SERVICE_LOGGER).getFilter();
+  }
+
+  @Test
+  public void clientErrorsOutsideExceptionControllerAreRateLimited() {
+    boolean denied = false;
+    for (int i = 0; i < 1000 && !denied; i++) {
+      denied = filter.filter(event(Level.WARN, true)) == Result.DENY;
+    }
+    assertTrue(denied);
+  }
+
+  @Test
+  public void unmarkedWarningsAndErrorsAreNotRateLimited() {
+    for (int i = 0; i < 1000; i++) {
+      filter.filter(event(Level.WARN, true));
+    }
+    assertEquals(Result.ACCEPT, filter.filter(event(Level.WARN, false)));
+    assertNotEquals(Result.DENY, filter.filter(event(Level.ERROR, true)));
+  }
+
+  private static LogEvent event(Level level, boolean clientError) {
+    return Log4jLogEvent.newBuilder()
+        .setLoggerName(SERVICE_LOGGER)
+        .setLevel(level)
+        .setMarker(clientError ? MarkerManager.getMarker(CLIENT_ERROR_MARKER) : null)
+        .setMessage(new SimpleMessage("Patient write rejected"))
+        .build();
+  }
+}
@@ -0,0 +1,93 @@
+package io.catalyte.training.finalprojectapi.json;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Test;
+
+/**
+ * Tests that dates are written exactly as the pattern of @JsonFormat writes them
+ */
+public class IsoDateSerializerTest {
+
+  private static final String[] ZONES = {"UTC", "America/New_York", "Asia/Tokyo",
+      "Pacific/Kiritimati", "Pacific/Pago_Pago"};
+
+  private static final long YEAR_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+  @Test
+  public void writesAsJsonFormatPatternInEveryZone() throws Exception {
+    Random random = new Random(42);
+    for (String zone : ZONES) {
+      ObjectMapper mapper = new ObjectMapper().setTimeZone(TimeZone.getTimeZone(zone));
+      for (int i = 0; i < 10000; i++) {
+        // 1600 to 2300, either side of the epoch and of the mapper's midnight
+        long millis = (long) ((random.nextDouble() * 700 - 370) * YEAR_MILLIS);
+        assertSameJson(mapper, new Date(millis));
+      }
+    }
+  }
+
+  @Test
+  public void writesSqlDatesAsJsonFormatPattern() throws Exception {
+    assertSameJson(new ObjectMapper(), java.sql.Date.valueOf("2020-08-24"));
+  }
+
+  @Test
+  public void writesJulianDatesAsJsonFormatPattern() throws Exception {
+    assertSameJson(new ObjectMapper(), new Date(-400 * YEAR_MILLIS));
+  }
+
+  @Test
+  public void writesFiveDigitYearsAsJsonFormatPattern() throws Exception {
+    assertSameJson(new ObjectMapper(), new Date(8100 * YEAR_MILLIS));
+  }
+
+  @Test
+  public void writesInZoneOfJsonFormat() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    ZonedDates dates = new ZonedDates();
+    dates.date = new Date(0);
+
+    assertEquals("{\"date\":\"1969-12-31\"}", mapper.writeValueAsString(dates));
+  }
+
+  @Test
+  public void writesNull() throws Exception {
+    assertEquals("{\"date\":null}", new ObjectMapper().writeValueAsString(new Dates()));
+  }
+
+  private static void assertSameJson(ObjectMapper mapper, Date date) throws Exception {
+    Dates dates = new Dates();
+    dates.date = date;
+    FormattedDates formattedDates = new FormattedDates();
+    formattedDates.date = date;
+
+    assertEquals(mapper.writeValueAsString(formattedDates), mapper.writeValueAsString(dates));
+  }
+
+  private static class Dates {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @JsonSerialize(using = IsoDateSerializer.class)
+    public Date date;
+  }
+
+  private static class FormattedDates {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    public Date date;
+  }
+
+  private static class ZonedDates {
+
+    @JsonFormat(pattern = "yyyy-MM-dd", timezone = "Pacific/Pago_Pago")
+    @JsonSerialize(using = IsoDateSerializer.class)
+    public Date date;
+  }
+}
@@ -0,0 +1,114 @@
+package io.catalyte.training.finalprojectapi.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.catalyte.training.finalprojectapi.domains.encounters.Encounter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Tests that protobuf messages read back as the objects written, compared through their JSON
+ */
+public class ProtobufCodecTest {
+
+  private final ProtobufCodec codec = new ProtobufCodec(Jackson2ObjectMapperBuilder.json());
+
+  private final ObjectMapper jsonMapper = new ObjectMapper();
+
+  @Test
+  public void readsEncounterAsWritten() throws IOException {
+    Encounter encounter = encounter(1L);
+    JavaType type = codec.constructType(Encounter.class);
+
+    Object read = codec.read(type, new ByteArrayInputStream(write(encounter, type)));
+
+    assertEquals(jsonMapper.writeValueAsString(encounter), jsonMapper.writeValueAsString(read));
+  }
+
+  @Test
+  public void readsListAsWritten() throws IOException {
+    List<Encounter> encounters = List.of(encounter(1L), encounter(2L));
+    JavaType type = codec.constructType(new TypeReference<List<Encounter>>() {
+    }.getType());
+
+    Object read = codec.read(type, new ByteArrayInputStream(write(encounters, type)));
+
+    assertEquals(jsonMapper.writeValueAsString(encounters), jsonMapper.writeValueAsString(read));
+  }
+
+  @Test
+  public void readsEmptyListFromEmptyMessage() throws IOException {
+    JavaType type = codec.constructType(new TypeReference<List<Encounter>>() {
+    }.getType());
+
+    byte[] message = write(Collections.emptyList(), type);
+
+    assertEquals(0, message.length);
+    assertEquals(Collections.emptyList(), codec.read(type, new ByteArrayInputStream(message)));
+  }
+
+  @Test
+  public void writesArrayAsList() throws IOException {
+    JavaType arrayType = codec.constructType(Encounter[].class);
+    JavaType listType = codec.constructType(new TypeReference<List<Encounter>>() {
+    }.getType());
+
+    byte[] message = write(new Encounter[]{encounter(1L)}, arrayType);
+
+    assertEquals(jsonMapper.writeValueAsString(List.of(encounter(1L))),
+        jsonMapper.writeValueAsString(codec.read(listType, new ByteArrayInputStream(message))));
+  }
+
+  @Test
+  public void writesDecimalsWithoutLoss() throws IOException {
+    Encounter encounter = encounter(1L);
+    encounter.setTotalCost(new BigDecimal("12345678901234567.89"));
+    JavaType type = codec.constructType(Encounter.class);
+
+    Encounter read = (Encounter) codec.read(type, new ByteArrayInputStream(write(encounter, type)));
+
+    assertEquals(new BigDecimal("12345678901234567.89"), read.getTotalCost());
+  }
+
+  @Test
+  public void hasNoSchemaForMapsOrStrings() {
+    assertFalse(codec.canWrite(codec.constructType(Map.class)));
+    assertFalse(codec.canWrite(codec.constructType(String.class)));
+  }
+
+  @Test
+  public void readsOnlyCollectionsWhichAreLists() {
+    assertTrue(codec.canWrite(codec.constructType(new TypeReference<Set<Encounter>>() {
+    }.getType())));
+    assertFalse(codec.canRead(codec.constructType(new TypeReference<Set<Encounter>>() {
+    }.getType())));
+  }
+
+  private byte[] write(Object value, JavaType type) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    codec.write(value, type, output);
+    return output.toByteArray();
+  }
+
+  private static Encounter encounter(Long id) {
+    Encounter encounter = new Encounter(1L, "", "N3W 3C3", "New Hospital", "123.456.789-12",
+        "Z99", new BigDecimal("10.00"), new BigDecimal("5.00"), "new complaint", 60, 110, 70,
+        Date.valueOf("2021-01-01"));
+    encounter.setId(id);
+    return encounter;
+  }
+}
@@ -0,0 +1,58 @@
+package io.catalyte.training.finalprojectapi.versioning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Tests that entity tags carry the format negotiated from the Accept header and only match tags
+ * of that format
+ */
+public class EntityTagsTest {
+
+  @Test
+  public void formatOfNoneOrAnythingIsJson() {
+    assertEquals(EntityTags.JSON, EntityTags.formatOf(null));
+    assertEquals(EntityTags.JSON, EntityTags.formatOf("*/*"));
+    assertEquals(EntityTags.JSON, EntityTags.formatOf("application/*"));
+    assertEquals(EntityTags.JSON, EntityTags.formatOf("not a media type"));
+  }
+
+  @Test
+  public void formatOfPrefersQualityThenAcceptOrder() {
+    assertEquals("cbor", EntityTags.formatOf("application/cbor"));
+    assertEquals("smile",
+        EntityTags.formatOf("application/json;q=0.5, application/x-jackson-smile"));
+    assertEquals("protobuf", EntityTags.formatOf("text/html, application/x-protobuf"));
+    assertEquals("cbor", EntityTags.formatOf("application/cbor, application/json"));
+    assertEquals(EntityTags.JSON, EntityTags.formatOf("application/hal+json"));
+  }
+
+  @Test
+  public void ofAddsFormatExceptForJson() {
+    assertEquals("\"3\"", EntityTags.of(3L, EntityTags.JSON));
+    assertEquals("\"3-cbor\"", EntityTags.of(3L, "cbor"));
+  }
+
+  @Test
+  public void isNotModifiedOnlyForTagOfSameFormat() {
+    assertTrue(EntityTags.isNotModified("\"3-cbor\"", 3L, "cbor"));
+    assertTrue(EntityTags.isNotModified("W/\"3\"", 3L, EntityTags.JSON));
+    assertFalse(EntityTags.isNotModified("\"3\"", 3L, "cbor"));
+    assertFalse(EntityTags.isNotModified("\"3-cbor\"", 3L, EntityTags.JSON));
+    assertFalse(EntityTags.isNotModified("\"3-smile\"", 3L, "cbor"));
+    assertTrue(EntityTags.isNotModified("*", 3L, "cbor"));
+  }
+
+  @Test
+  public void allowedVersionsOfStrongTagsInAnyFormat() {
+    assertEquals(Set.of(3L, 4L, 5L),
+        EntityTags.allowedVersions("\"3\", \"4-cbor\", \"5-protobuf\", W/\"6\", \"7-xml\""));
+    assertTrue(EntityTags.allowedVersions("W/\"3-cbor\"").isEmpty());
+    assertNull(EntityTags.allowedVersions("*"));
+  }
+}